@@ -0,0 +1,76 @@
+package ru.aristar.jnuget.sources;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.aristar.jnuget.files.Nupkg;
+
+/**
+ * Замер полного обновления индекса хранилища. Каждый замер строит индекс
+ * заново, поэтому используется режим однократного выполнения.
+ *
+ * @author sviridov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexRefreshBenchmark {
+
+    /**
+     * Количество пакетов в хранилище
+     */
+    @Param({"1000", "10000", "100000"})
+    public int packageCount;
+    /**
+     * Тип индексируемого хранилища: classic или maven
+     */
+    @Param({"classic", "maven"})
+    public String storageType;
+    /**
+     * Индексируемое хранилище
+     */
+    private PackageSource<? extends Nupkg> packageSource;
+
+    /**
+     * Создание хранилища
+     *
+     * @throws Exception ошибка создания хранилища
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if ("maven".equals(storageType)) {
+            File root = SyntheticRepository.getRepository(SyntheticRepository.Layout.MAVEN, packageCount);
+            packageSource = new MavenStylePackageSource(root);
+        } else {
+            File root = SyntheticRepository.getRepository(SyntheticRepository.Layout.CLASSIC, packageCount);
+            packageSource = new ClassicPackageSource(root);
+        }
+    }
+
+    /**
+     * Построение индекса хранилища
+     *
+     * @return количество пакетов в индексе
+     * @throws Exception ошибка обновления индекса
+     */
+    @Benchmark
+    public int refreshIndex() throws Exception {
+        IndexedPackageSource indexedSource = new IndexedPackageSource();
+        indexedSource.setUnderlyingSource(packageSource, true).join();
+        return indexedSource.getIndex().size();
+    }
+}
@@ -0,0 +1,191 @@
+package ru.aristar.jnuget.sources;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.files.TempNupkgFile;
+import ru.aristar.jnuget.sources.push.ModifyStrategy;
+
+/**
+ * Замеры операций хранилищ пакетов на синтетических хранилищах разного
+ * размера. Запуск: <code>mvn -Pjmh test-compile exec:exec</code>, результаты
+ * сохраняются в target/jmh-result.json.
+ *
+ * @author sviridov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PackageSourceBenchmark {
+
+    /**
+     * Количество пакетов в хранилище
+     */
+    @Param({"1000", "10000", "100000"})
+    public int packageCount;
+    /**
+     * Тип хранилища: classic, maven или indexed (индекс над classic)
+     */
+    @Param({"classic", "maven", "indexed"})
+    public String storageType;
+    /**
+     * Тип каталога хранилища
+     */
+    private SyntheticRepository.Layout layout;
+    /**
+     * Корневой каталог хранилища
+     */
+    private File root;
+    /**
+     * Хранилище пакетов
+     */
+    private PackageSource<? extends Nupkg> packageSource;
+    /**
+     * Генератор номеров запрашиваемых пакетов
+     */
+    private final Random random = new Random(1);
+    /**
+     * Счетчик версий помещаемых пакетов
+     */
+    private final AtomicInteger pushCounter = new AtomicInteger();
+
+    /**
+     * Создание хранилища
+     *
+     * @throws Exception ошибка создания хранилища
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        layout = "maven".equals(storageType) ? SyntheticRepository.Layout.MAVEN : SyntheticRepository.Layout.CLASSIC;
+        root = SyntheticRepository.getRepository(layout, packageCount);
+        AbstractPackageSource<? extends Nupkg> source = layout == SyntheticRepository.Layout.MAVEN
+                ? new MavenStylePackageSource(root)
+                : new ClassicPackageSource(root);
+        source.setPushStrategy(new ModifyStrategy(true));
+        if ("indexed".equals(storageType)) {
+            IndexedPackageSource indexedSource = new IndexedPackageSource();
+            indexedSource.setUnderlyingSource(source, true).join();
+            packageSource = indexedSource;
+        } else {
+            packageSource = source;
+        }
+    }
+
+    /**
+     * Удаление пакетов, помещенных во время замеров
+     *
+     * @throws Exception ошибка удаления
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        SyntheticRepository.removePushedPackages(layout, root);
+    }
+
+    /**
+     * Пакет, подготовленный для помещения в хранилище
+     */
+    @State(Scope.Thread)
+    public static class PushState {
+
+        /**
+         * Пакет
+         */
+        private TempNupkgFile nupkg;
+
+        /**
+         * Создание пакета с новой версией
+         *
+         * @param benchmark состояние замера
+         * @throws Exception ошибка создания пакета
+         */
+        @Setup(Level.Invocation)
+        public void setUp(PackageSourceBenchmark benchmark) throws Exception {
+            String version = "2.0." + benchmark.pushCounter.incrementAndGet();
+            byte[] data = SyntheticRepository.createPackage(SyntheticRepository.PUSH_PACKAGE_ID, version);
+            nupkg = new TempNupkgFile(new ByteArrayInputStream(data));
+        }
+
+        /**
+         * Удаление временного файла пакета
+         *
+         * @throws Exception ошибка удаления
+         */
+        @TearDown(Level.Invocation)
+        public void tearDown() throws Exception {
+            nupkg.close();
+        }
+    }
+
+    /**
+     * @return номер случайного пакета хранилища
+     */
+    private int nextPackageIndex() {
+        return random.nextInt(packageCount);
+    }
+
+    /**
+     * Помещение пакета новой версии в хранилище
+     *
+     * @param state пакет для помещения
+     * @return результат помещения
+     * @throws Exception ошибка помещения
+     */
+    @Benchmark
+    public boolean pushPackage(PushState state) throws Exception {
+        return packageSource.pushPackage(state.nupkg);
+    }
+
+    /**
+     * Получение пакета по идентификатору и версии
+     *
+     * @return пакет
+     * @throws Exception ошибка разбора версии
+     */
+    @Benchmark
+    public Nupkg getPackage() throws Exception {
+        int index = nextPackageIndex();
+        return packageSource.getPackage(SyntheticRepository.getPackageId(index),
+                Version.parse(SyntheticRepository.getPackageVersion(index)));
+    }
+
+    /**
+     * Получение всех версий пакета
+     *
+     * @return версии пакета
+     */
+    @Benchmark
+    public Collection<? extends Nupkg> getPackages() {
+        return packageSource.getPackages(SyntheticRepository.getPackageId(nextPackageIndex()));
+    }
+
+    /**
+     * Получение последних версий всех пакетов
+     *
+     * @return последние версии пакетов
+     */
+    @Benchmark
+    public Collection<? extends Nupkg> getLastVersionPackages() {
+        return packageSource.getLastVersionPackages();
+    }
+}
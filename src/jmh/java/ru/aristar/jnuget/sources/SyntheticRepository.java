@@ -0,0 +1,204 @@
+package ru.aristar.jnuget.sources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import ru.aristar.jnuget.files.Hash;
+import ru.aristar.jnuget.files.MavenNupkg;
+import ru.aristar.jnuget.files.Nupkg;
+
+/**
+ * Генератор синтетических хранилищ пакетов для замеров производительности.
+ * Хранилище содержит {@link #VERSIONS_PER_ID} версий каждого идентификатора.
+ * Созданные хранилища сохраняются в каталоге сборки и используются повторно.
+ *
+ * @author sviridov
+ */
+public class SyntheticRepository {
+
+    /**
+     * Количество версий каждого идентификатора пакета
+     */
+    public static final int VERSIONS_PER_ID = 10;
+    /**
+     * Префикс идентификаторов пакетов
+     */
+    public static final String ID_PREFIX = "Package";
+    /**
+     * Идентификатор пакетов, помещаемых в хранилище во время замеров
+     */
+    public static final String PUSH_PACKAGE_ID = "PushedPackage";
+    /**
+     * Имя файла, отмечающего завершение создания хранилища
+     */
+    private static final String COMPLETE_MARKER = ".complete";
+    /**
+     * Кодировка спецификации пакета
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Тип хранилища
+     */
+    public enum Layout {
+
+        /**
+         * Все пакеты в одном каталоге ({@link ClassicPackageSource})
+         */
+        CLASSIC,
+        /**
+         * Каталоги идентификатор/версия ({@link MavenStylePackageSource})
+         */
+        MAVEN
+    }
+
+    /**
+     * Закрытый конструктор
+     */
+    private SyntheticRepository() {
+    }
+
+    /**
+     * @param index номер пакета
+     * @return идентификатор пакета
+     */
+    public static String getPackageId(int index) {
+        return ID_PREFIX + index / VERSIONS_PER_ID;
+    }
+
+    /**
+     * @param index номер пакета
+     * @return версия пакета
+     */
+    public static String getPackageVersion(int index) {
+        return "1.0." + index % VERSIONS_PER_ID;
+    }
+
+    /**
+     * Возвращает каталог хранилища с указанным количеством пакетов, при
+     * необходимости создавая его
+     *
+     * @param layout тип хранилища
+     * @param packageCount количество пакетов
+     * @return корневой каталог хранилища
+     * @throws IOException ошибка записи
+     * @throws NoSuchAlgorithmException алгоритм HASH не поддерживается
+     */
+    public static synchronized File getRepository(Layout layout, int packageCount)
+            throws IOException, NoSuchAlgorithmException {
+        File root = new File(getBaseFolder(), layout.name().toLowerCase() + "-" + packageCount);
+        File marker = new File(root, COMPLETE_MARKER);
+        if (marker.exists()) {
+            return root;
+        }
+        FileUtils.deleteDirectory(root);
+        root.mkdirs();
+        for (int i = 0; i < packageCount; i++) {
+            String id = getPackageId(i);
+            String version = getPackageVersion(i);
+            byte[] data = createPackage(id, version);
+            String fileName = id + "." + version + Nupkg.DEFAULT_EXTENSION;
+            if (layout == Layout.CLASSIC) {
+                writeFile(new File(root, fileName), data);
+            } else {
+                File versionFolder = new File(new File(root, id.toLowerCase()), version);
+                versionFolder.mkdirs();
+                writeFile(new File(versionFolder, fileName), data);
+                writeFile(new File(versionFolder, MavenNupkg.NUSPEC_FILE_NAME), createNuspec(id, version));
+                new Hash(MessageDigest.getInstance(Hash.ALGORITHM_NAME).digest(data))
+                        .saveTo(new File(versionFolder, MavenNupkg.HASH_FILE_NAME));
+            }
+        }
+        marker.createNewFile();
+        return root;
+    }
+
+    /**
+     * Удаляет из хранилища пакеты, помещенные во время замеров
+     *
+     * @param layout тип хранилища
+     * @param root корневой каталог хранилища
+     * @throws IOException ошибка удаления
+     */
+    public static void removePushedPackages(Layout layout, File root) throws IOException {
+        if (layout == Layout.MAVEN) {
+            FileUtils.deleteDirectory(new File(root, PUSH_PACKAGE_ID.toLowerCase()));
+            return;
+        }
+        File[] files = root.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith(PUSH_PACKAGE_ID + ".")) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Создает архив пакета
+     *
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return содержимое архива пакета
+     * @throws IOException ошибка записи
+     */
+    public static byte[] createPackage(String id, String version) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.putNextEntry(new ZipEntry(id + ".nuspec"));
+            zipOutputStream.write(createNuspec(id, version));
+            zipOutputStream.closeEntry();
+            zipOutputStream.putNextEntry(new ZipEntry("lib/net40/" + id + ".dll"));
+            zipOutputStream.write(new byte[1024]);
+            zipOutputStream.closeEntry();
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return спецификация пакета
+     */
+    private static byte[] createNuspec(String id, String version) {
+        String nuspec = "<?xml version=\"1.0\"?>\n"
+                + "<package xmlns=\"http://schemas.microsoft.com/packaging/2011/08/nuspec.xsd\">\n"
+                + "  <metadata>\n"
+                + "    <id>" + id + "</id>\n"
+                + "    <version>" + version + "</version>\n"
+                + "    <authors>jnuget</authors>\n"
+                + "    <owners>jnuget</owners>\n"
+                + "    <requireLicenseAcceptance>false</requireLicenseAcceptance>\n"
+                + "    <description>Synthetic benchmark package</description>\n"
+                + "  </metadata>\n"
+                + "</package>\n";
+        return nuspec.getBytes(UTF8);
+    }
+
+    /**
+     * @param file файл
+     * @param data содержимое файла
+     * @throws IOException ошибка записи
+     */
+    private static void writeFile(File file, byte[] data) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(data);
+        }
+    }
+
+    /**
+     * @return каталог для хранения синтетических хранилищ
+     */
+    private static File getBaseFolder() {
+        return new File(System.getProperty("jmh.repositories", "target/jmh-repositories"));
+    }
+}
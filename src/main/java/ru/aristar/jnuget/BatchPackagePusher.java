@@ -0,0 +1,236 @@
+package ru.aristar.jnuget;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.ws.rs.core.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.files.NugetFormatException;
+import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.files.TempNupkgFile;
+import ru.aristar.jnuget.files.nuspec.NuspecFile;
+import ru.aristar.jnuget.sources.IndexedPackageSource;
+import ru.aristar.jnuget.sources.PackageSource;
+
+/**
+ * Пакетное помещение пакетов в хранилище. Пакеты из запроса сохраняются во
+ * временные файлы, проверяются параллельно, после чего помещаются в
+ * хранилище с однократным обновлением индекса.
+ *
+ * @author sviridov
+ */
+public class BatchPackagePusher implements AutoCloseable {
+
+    /**
+     * Имя системного свойства с максимальным количеством пакетов в запросе
+     */
+    public static final String MAX_PACKAGES_PROPERTY_NAME = "nuget.batchPush.maxPackages";
+    /**
+     * Максимальное количество пакетов в запросе по умолчанию
+     */
+    public static final long DEFAULT_MAX_PACKAGES = 1000;
+    /**
+     * Логгер
+     */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Максимальное количество пакетов в запросе
+     */
+    private final long maxPackages;
+    /**
+     * Результаты помещения пакетов
+     */
+    private final BatchPushResult result = new BatchPushResult();
+    /**
+     * Пакеты, сохраненные во временные файлы (null - пакет не прочитан)
+     */
+    private final List<TempNupkgFile> packages = new ArrayList<>();
+
+    /**
+     * Конструктор по умолчанию
+     */
+    public BatchPackagePusher() {
+        this(Long.getLong(MAX_PACKAGES_PROPERTY_NAME, DEFAULT_MAX_PACKAGES));
+    }
+
+    /**
+     * @param maxPackages максимальное количество пакетов в запросе
+     */
+    public BatchPackagePusher(long maxPackages) {
+        this.maxPackages = maxPackages;
+    }
+
+    /**
+     * Сохраняет пакет во временный файл
+     *
+     * @param name имя файла пакета в запросе
+     * @param inputStream поток с пакетом
+     * @throws IOException ошибка чтения запроса или превышено количество
+     * пакетов
+     */
+    public void add(String name, InputStream inputStream) throws IOException {
+        if (packages.size() >= maxPackages) {
+            throw new IOException("Запрос содержит более " + maxPackages + " пакетов");
+        }
+        BatchPushResult.PackageResult packageResult = new BatchPushResult.PackageResult(name);
+        result.getPackages().add(packageResult);
+        try {
+            packages.add(new TempNupkgFile(inputStream));
+        } catch (NugetFormatException e) {
+            packages.add(null);
+            packageResult.setStatus(Response.Status.BAD_REQUEST.getStatusCode(), e.getMessage());
+        }
+    }
+
+    /**
+     * Проверяет пакеты параллельно: каждый пакет должен содержать
+     * спецификацию с идентификатором и версией. Повторы пакета в запросе
+     * отклоняются.
+     *
+     * @throws InterruptedException проверка прервана
+     */
+    public void validate() throws InterruptedException {
+        int threadCount = Math.max(1, Math.min(packages.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<String>> futures = new ArrayList<>(packages.size());
+            for (final TempNupkgFile nupkg : packages) {
+                futures.add(nupkg == null ? null : executorService.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return validate(nupkg);
+                    }
+                }));
+            }
+            Set<String> packageKeys = new HashSet<>();
+            for (int i = 0; i < packages.size(); i++) {
+                if (futures.get(i) == null) {
+                    continue;
+                }
+                BatchPushResult.PackageResult packageResult = result.getPackages().get(i);
+                String error;
+                try {
+                    error = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    error = "Ошибка чтения пакета: " + e.getCause().getMessage();
+                }
+                if (error == null) {
+                    TempNupkgFile nupkg = packages.get(i);
+                    packageResult.setId(nupkg.getId());
+                    packageResult.setVersion(nupkg.getVersion().toString());
+                    if (!packageKeys.add(nupkg.getId().toLowerCase() + ":" + nupkg.getVersion())) {
+                        error = "Пакет повторяется в запросе";
+                        packageResult.setStatus(Response.Status.CONFLICT.getStatusCode(), error);
+                    }
+                } else {
+                    packageResult.setStatus(Response.Status.BAD_REQUEST.getStatusCode(), error);
+                }
+                if (error != null) {
+                    closePackage(i);
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Помещает проверенные пакеты в хранилище. Для индексируемого хранилища
+     * индекс обновляется один раз.
+     *
+     * @param packageSource хранилище пакетов
+     * @throws IOException ошибка записи
+     */
+    public void push(PackageSource<Nupkg> packageSource) throws IOException {
+        List<Integer> indexes = new ArrayList<>();
+        List<Nupkg> validPackages = new ArrayList<>();
+        for (int i = 0; i < packages.size(); i++) {
+            if (packages.get(i) != null) {
+                indexes.add(i);
+                validPackages.add(packages.get(i));
+            }
+        }
+        List<Boolean> pushed;
+        if (packageSource instanceof IndexedPackageSource) {
+            pushed = ((IndexedPackageSource) packageSource).pushPackages(validPackages);
+        } else {
+            pushed = new ArrayList<>(validPackages.size());
+            for (Nupkg nupkg : validPackages) {
+                pushed.add(packageSource.pushPackage(nupkg));
+            }
+        }
+        for (int i = 0; i < indexes.size(); i++) {
+            BatchPushResult.PackageResult packageResult = result.getPackages().get(indexes.get(i));
+            if (pushed.get(i)) {
+                packageResult.setStatus(Response.Status.CREATED.getStatusCode(), null);
+            } else {
+                packageResult.setStatus(Response.Status.FORBIDDEN.getStatusCode(),
+                        "Публикация пакета в хранилище не произведена");
+            }
+        }
+        logger.info("Пакетное помещение в хранилище {}: помещено {} из {} пакетов",
+                new Object[]{packageSource, result.getCount(Response.Status.CREATED.getStatusCode()), packages.size()});
+    }
+
+    /**
+     * @return результаты помещения пакетов
+     */
+    public BatchPushResult getResult() {
+        return result;
+    }
+
+    /**
+     * Удаляет временные файлы пакетов
+     */
+    @Override
+    public void close() {
+        for (int i = 0; i < packages.size(); i++) {
+            closePackage(i);
+        }
+    }
+
+    /**
+     * Проверяет пакет
+     *
+     * @param nupkg пакет
+     * @return описание ошибки или null, если пакет корректен
+     * @throws NugetFormatException ошибка чтения спецификации
+     */
+    private static String validate(TempNupkgFile nupkg) throws NugetFormatException {
+        NuspecFile nuspecFile = nupkg.getNuspecFile();
+        if (nuspecFile == null) {
+            return "Пакет не содержит спецификации";
+        }
+        if (nuspecFile.getId() == null || nuspecFile.getId().isEmpty() || nuspecFile.getVersion() == null) {
+            return "Спецификация пакета не содержит идентификатора или версии";
+        }
+        return null;
+    }
+
+    /**
+     * Удаляет временный файл пакета
+     *
+     * @param index номер пакета в запросе
+     */
+    private void closePackage(int index) {
+        TempNupkgFile nupkg = packages.get(index);
+        if (nupkg == null) {
+            return;
+        }
+        packages.set(index, null);
+        try {
+            nupkg.close();
+        } catch (Exception e) {
+            logger.warn("Ошибка удаления временного файла пакета", e);
+        }
+    }
+}
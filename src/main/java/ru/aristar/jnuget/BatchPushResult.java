@@ -0,0 +1,154 @@
+package ru.aristar.jnuget;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlValue;
+
+/**
+ * Результаты пакетного помещения пакетов в хранилище: для каждого файла
+ * запроса - идентификатор, версия и HTTP статус помещения.
+ *
+ * @author sviridov
+ */
+@XmlRootElement(name = "results")
+@XmlAccessorType(XmlAccessType.NONE)
+public class BatchPushResult {
+
+    /**
+     * Результаты помещения пакетов в порядке следования в запросе
+     */
+    @XmlElement(name = "package")
+    private List<PackageResult> packages = new ArrayList<>();
+
+    /**
+     * @return результаты помещения пакетов в порядке следования в запросе
+     */
+    public List<PackageResult> getPackages() {
+        return packages;
+    }
+
+    /**
+     * @param status HTTP статус
+     * @return количество пакетов с указанным статусом
+     */
+    public int getCount(int status) {
+        int count = 0;
+        for (PackageResult result : packages) {
+            if (result.getStatus() == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Результат помещения одного пакета
+     */
+    @XmlAccessorType(XmlAccessType.NONE)
+    public static class PackageResult {
+
+        /**
+         * Имя файла в запросе
+         */
+        @XmlAttribute(name = "name")
+        private String name;
+        /**
+         * Идентификатор пакета
+         */
+        @XmlAttribute(name = "id")
+        private String id;
+        /**
+         * Версия пакета
+         */
+        @XmlAttribute(name = "version")
+        private String version;
+        /**
+         * HTTP статус помещения пакета
+         */
+        @XmlAttribute(name = "status")
+        private int status;
+        /**
+         * Описание ошибки
+         */
+        @XmlValue
+        private String message;
+
+        /**
+         * Конструктор по умолчанию (необходим JAXB)
+         */
+        public PackageResult() {
+        }
+
+        /**
+         * @param name имя файла в запросе
+         */
+        public PackageResult(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return имя файла в запросе
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return идентификатор пакета
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @param id идентификатор пакета
+         */
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        /**
+         * @return версия пакета
+         */
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * @param version версия пакета
+         */
+        public void setVersion(String version) {
+            this.version = version;
+        }
+
+        /**
+         * @return HTTP статус помещения пакета
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * @return описание ошибки
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * Устанавливает статус помещения пакета
+         *
+         * @param status HTTP статус
+         * @param message описание ошибки (null - пакет помещен)
+         */
+        public void setStatus(int status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.aristar.jnuget;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Потоковая запись содержимого буфера (например, пакета из
+ * {@link PackageByteCache}) в ответ сервера
+ *
+ * @author sviridov
+ */
+public class ByteBufferStreamingOutput implements StreamingOutput {
+
+    /**
+     * Буфер с данными
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer буфер с данными (позиция и предел буфера определяют
+     * передаваемые данные)
+     */
+    public ByteBufferStreamingOutput(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        ByteBuffer data = buffer.duplicate();
+        WritableByteChannel outputChannel = output instanceof WritableByteChannel
+                ? (WritableByteChannel) output : Channels.newChannel(output);
+        while (data.hasRemaining()) {
+            outputChannel.write(data);
+        }
+        output.flush();
+    }
+}
@@ -0,0 +1,123 @@
+package ru.aristar.jnuget;
+
+/**
+ * Диапазон байт, запрошенный заголовком HTTP Range. Поддерживается только
+ * один диапазон в единицах bytes.
+ *
+ * @author sviridov
+ */
+public class ByteRange {
+
+    /**
+     * Единица измерения диапазона
+     */
+    public static final String BYTES_UNIT = "bytes";
+    /**
+     * Позиция первого байта
+     */
+    private final long first;
+    /**
+     * Позиция последнего байта (включительно)
+     */
+    private final long last;
+
+    /**
+     * @param first позиция первого байта
+     * @param last позиция последнего байта (включительно)
+     */
+    public ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * @return позиция первого байта
+     */
+    public long getFirst() {
+        return first;
+    }
+
+    /**
+     * @return позиция последнего байта (включительно)
+     */
+    public long getLast() {
+        return last;
+    }
+
+    /**
+     * @return количество байт в диапазоне
+     */
+    public long getLength() {
+        return last - first + 1;
+    }
+
+    /**
+     * @param totalLength полный размер ресурса
+     * @return значение заголовка Content-Range
+     */
+    public String toContentRange(long totalLength) {
+        return BYTES_UNIT + " " + first + "-" + last + "/" + totalLength;
+    }
+
+    /**
+     * Разбирает заголовок Range
+     *
+     * @param header значение заголовка
+     * @param totalLength полный размер ресурса
+     * @return диапазон или null, если заголовок отсутствует, некорректен или
+     * содержит несколько диапазонов (в этом случае возвращается весь ресурс)
+     * @throws IllegalArgumentException диапазон лежит за пределами ресурса
+     */
+    public static ByteRange parse(String header, long totalLength) throws IllegalArgumentException {
+        if (header == null) {
+            return null;
+        }
+        String value = header.trim();
+        if (!value.toLowerCase().startsWith(BYTES_UNIT + "=")) {
+            return null;
+        }
+        String spec = value.substring(BYTES_UNIT.length() + 1).trim();
+        int dashIndex = spec.indexOf('-');
+        if (spec.indexOf(',') >= 0 || dashIndex < 0) {
+            return null;
+        }
+        String firstString = spec.substring(0, dashIndex).trim();
+        String lastString = spec.substring(dashIndex + 1).trim();
+        long first;
+        long last;
+        try {
+            if (firstString.isEmpty()) {
+                //Суффикс: последние N байт
+                long suffixLength = Long.parseLong(lastString);
+                if (suffixLength <= 0) {
+                    throw new IllegalArgumentException("Пустой суффиксный диапазон: " + header);
+                }
+                first = Math.max(0, totalLength - suffixLength);
+                last = totalLength - 1;
+            } else {
+                first = Long.parseLong(firstString);
+                if (lastString.isEmpty()) {
+                    last = totalLength - 1;
+                } else {
+                    long requestedLast = Long.parseLong(lastString);
+                    if (requestedLast < first) {
+                        return null;
+                    }
+                    last = Math.min(requestedLast, totalLength - 1);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (first < 0 || first >= totalLength) {
+            throw new IllegalArgumentException("Диапазон " + header
+                    + " за пределами ресурса размером " + totalLength);
+        }
+        return new ByteRange(first, last);
+    }
+
+    @Override
+    public String toString() {
+        return BYTES_UNIT + "=" + first + "-" + last;
+    }
+}
@@ -0,0 +1,273 @@
+package ru.aristar.jnuget;
+
+import com.google.common.util.concurrent.AtomicLongMap;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.common.Options;
+
+/**
+ * Статистика скачиваний пакетов. Счетчики увеличиваются без блокировок,
+ * накопленные значения периодически сохраняются на диск в фоновом потоке.
+ *
+ * @author sviridov
+ */
+public class DownloadStatistics implements AutoCloseable {
+
+    /**
+     * Имя системного свойства с интервалом сохранения статистики в секундах
+     */
+    public static final String FLUSH_INTERVAL_PROPERTY_NAME = "nuget.downloads.flushInterval";
+    /**
+     * Интервал сохранения статистики по умолчанию (секунд)
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL = 30;
+    /**
+     * Имя файла статистики в домашнем каталоге сервера
+     */
+    public static final String DEFAULT_FILE_NAME = "downloads.stat";
+    /**
+     * Разделитель полей в файле статистики
+     */
+    private static final char FIELD_SEPARATOR = '\t';
+    /**
+     * Кодировка файла статистики
+     */
+    private static final Charset FILE_CHARSET = Charset.forName("UTF-8");
+    /**
+     * Экземпляр статистики
+     */
+    private static volatile DownloadStatistics instance;
+    /**
+     * Логгер
+     */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Количество скачиваний версий пакетов
+     */
+    private final AtomicLongMap<String> versionCounters = AtomicLongMap.create();
+    /**
+     * Количество скачиваний пакетов (всех версий)
+     */
+    private final AtomicLongMap<String> packageCounters = AtomicLongMap.create();
+    /**
+     * Количество скачиваний, не сохраненных на диск
+     */
+    private final AtomicLong unsavedCount = new AtomicLong();
+    /**
+     * Версия статистики, увеличивается при каждом скачивании. Начальное
+     * значение - время создания, чтобы версии не повторялись после
+     * перезапуска сервера.
+     */
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+    /**
+     * Время последнего скачивания (миллисекунды, 0 - скачиваний не было)
+     */
+    private volatile long lastDownloadTime;
+    /**
+     * Файл статистики (null - статистика не сохраняется)
+     */
+    private final File file;
+    /**
+     * Планировщик сохранения статистики
+     */
+    private final ScheduledExecutorService executorService;
+
+    /**
+     * @param file файл статистики (null - статистика не сохраняется)
+     * @param flushInterval интервал сохранения статистики в секундах
+     */
+    public DownloadStatistics(File file, long flushInterval) {
+        this.file = file;
+        if (file == null) {
+            executorService = null;
+            return;
+        }
+        load();
+        executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "DownloadStatisticsFlush");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executorService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, flushInterval, flushInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Регистрирует скачивание пакета
+     *
+     * @param storageName имя хранилища
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     */
+    public void registerDownload(String storageName, String id, Version version) {
+        versionCounters.incrementAndGet(createKey(storageName, id, version));
+        packageCounters.incrementAndGet(createKey(storageName, id, null));
+        unsavedCount.incrementAndGet();
+        lastDownloadTime = System.currentTimeMillis();
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return версия статистики: изменяется при каждом скачивании, поэтому
+     * может использоваться в ключах кешей и ETag ответов, содержащих число
+     * скачиваний
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * @return время последнего скачивания или null, если с момента запуска
+     * скачиваний не было
+     */
+    public Date getLastModified() {
+        long time = lastDownloadTime;
+        return time == 0 ? null : new Date(time);
+    }
+
+    /**
+     * @param storageName имя хранилища
+     * @param id идентификатор пакета
+     * @return количество скачиваний всех версий пакета
+     */
+    public long getDownloadCount(String storageName, String id) {
+        return packageCounters.get(createKey(storageName, id, null));
+    }
+
+    /**
+     * @param storageName имя хранилища
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return количество скачиваний версии пакета
+     */
+    public long getVersionDownloadCount(String storageName, String id, Version version) {
+        return versionCounters.get(createKey(storageName, id, version));
+    }
+
+    /**
+     * Сохраняет статистику на диск, если с момента последнего сохранения были
+     * новые скачивания
+     */
+    public synchronized void flush() {
+        long unsaved = unsavedCount.getAndSet(0);
+        if (file == null || unsaved == 0) {
+            return;
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            try (BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(tempFile), FILE_CHARSET))) {
+                for (Map.Entry<String, Long> entry : versionCounters.asMap().entrySet()) {
+                    writer.write(entry.getKey());
+                    writer.write(FIELD_SEPARATOR);
+                    writer.write(entry.getValue().toString());
+                    writer.newLine();
+                }
+            }
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Не удалось удалить файл " + file);
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Не удалось переименовать файл " + tempFile + " в " + file);
+            }
+            logger.debug("Сохранена статистика скачиваний ({} новых скачиваний)", new Object[]{unsaved});
+        } catch (IOException e) {
+            unsavedCount.addAndGet(unsaved);
+            logger.warn("Ошибка сохранения статистики скачиваний в файл " + file, e);
+        }
+    }
+
+    /**
+     * Загружает статистику из файла
+     */
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), FILE_CHARSET))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separatorIndex = line.lastIndexOf(FIELD_SEPARATOR);
+                if (separatorIndex <= 0) {
+                    continue;
+                }
+                String key = line.substring(0, separatorIndex);
+                long count = Long.parseLong(line.substring(separatorIndex + 1));
+                versionCounters.addAndGet(key, count);
+                packageCounters.addAndGet(key.substring(0, key.lastIndexOf(FIELD_SEPARATOR)), count);
+            }
+            logger.info("Загружена статистика скачиваний {} версий пакетов", new Object[]{versionCounters.size()});
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ошибка чтения статистики скачиваний из файла " + file, e);
+        }
+    }
+
+    /**
+     * Сохраняет статистику и останавливает фоновое сохранение
+     */
+    @Override
+    public void close() {
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+        flush();
+    }
+
+    /**
+     * Создает ключ счетчика
+     *
+     * @param storageName имя хранилища
+     * @param id идентификатор пакета
+     * @param version версия пакета (null - для счетчика всех версий)
+     * @return ключ счетчика
+     */
+    private static String createKey(String storageName, String id, Version version) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(storageName).append(FIELD_SEPARATOR).append(id.toLowerCase());
+        if (version != null) {
+            builder.append(FIELD_SEPARATOR).append(version);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Возвращает экземпляр статистики, или создает новый
+     *
+     * @return экземпляр статистики
+     */
+    public static DownloadStatistics getInstance() {
+        if (instance == null) {
+            synchronized (DownloadStatistics.class) {
+                if (instance == null) {
+                    long flushInterval = Long.getLong(FLUSH_INTERVAL_PROPERTY_NAME, DEFAULT_FLUSH_INTERVAL);
+                    instance = new DownloadStatistics(new File(Options.getNugetHome(), DEFAULT_FILE_NAME), flushInterval);
+                }
+            }
+        }
+        return instance;
+    }
+}
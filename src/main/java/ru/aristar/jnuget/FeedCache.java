@@ -0,0 +1,133 @@
+package ru.aristar.jnuget;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
+import javax.xml.bind.JAXBException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Кеш сжатых (GZIP) страниц RSS ленты пакетов. Ключ страницы должен включать
+ * поколение индекса хранилища и версию статистики скачиваний (страницы
+ * содержат число скачиваний), поэтому устаревшие страницы не используются
+ * повторно и вытесняются по мере заполнения кеша.
+ *
+ * @author sviridov
+ */
+public class FeedCache {
+
+    /**
+     * Имя системного свойства с максимальным размером кеша в байтах
+     */
+    public static final String MAX_SIZE_PROPERTY_NAME = "nuget.feedCache.maxBytes";
+    /**
+     * Максимальный размер кеша по умолчанию (16 Мб сжатых данных)
+     */
+    public static final long DEFAULT_MAX_SIZE = 16L * 1024 * 1024;
+    /**
+     * Экземпляр кеша
+     */
+    private static volatile FeedCache instance;
+    /**
+     * Логгер
+     */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Сжатые страницы ленты
+     */
+    private final Cache<String, byte[]> cache;
+
+    /**
+     * @param maxSize максимальный суммарный размер сжатых страниц в байтах
+     */
+    public FeedCache(long maxSize) {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher(new Weigher<String, byte[]>() {
+                    @Override
+                    public int weigh(String key, byte[] value) {
+                        return value.length;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Возвращает сжатую страницу ленты из кеша, при отсутствии - формирует ее
+     * и помещает в кеш. Одновременные запросы одной страницы формируют ее
+     * только один раз.
+     *
+     * @param key ключ страницы
+     * @param feedLoader загрузчик страницы ленты
+     * @return сжатое GZIP XML представление страницы
+     * @throws IOException ошибка формирования страницы
+     */
+    public byte[] get(final String key, final Callable<? extends XmlWritable> feedLoader) throws IOException {
+        try {
+            return cache.get(key, new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    logger.debug("Страница ленты {} отсутствует в кеше", new Object[]{key});
+                    return compress(feedLoader.call());
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new IOException("Ошибка формирования страницы ленты", e.getCause());
+        }
+    }
+
+    /**
+     * @return статистика использования кеша
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Очищает кеш
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Сжимает XML представление объекта
+     *
+     * @param writable объект, способный записать себя в XML
+     * @return сжатое GZIP XML представление
+     * @throws IOException ошибка сжатия
+     * @throws JAXBException ошибка преобразования в XML
+     */
+    public static byte[] compress(XmlWritable writable) throws IOException, JAXBException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+            writable.writeXml(gzipOutputStream);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Возвращает экземпляр кеша, или создает новый
+     *
+     * @return экземпляр кеша
+     */
+    public static FeedCache getInstance() {
+        if (instance == null) {
+            synchronized (FeedCache.class) {
+                if (instance == null) {
+                    long maxSize = Long.getLong(MAX_SIZE_PROPERTY_NAME, DEFAULT_MAX_SIZE);
+                    instance = new FeedCache(maxSize);
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,200 @@
+package ru.aristar.jnuget;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import javax.ws.rs.core.EntityTag;
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Параметры запроса списка пакетов. Используется как ключ при вычислении
+ * ETag ответа.
+ *
+ * @author sviridov
+ */
+public class FeedQuery {
+
+    /**
+     * Условие выборки пакетов
+     */
+    private final String filter;
+    /**
+     * Условие поиска
+     */
+    private final String searchTerm;
+    /**
+     * Фреймворк, для которого предназначен пакет
+     */
+    private final String targetFramework;
+    /**
+     * Порядок сортировки пакетов
+     */
+    private final String orderBy;
+    /**
+     * Количество пропускаемых пакетов
+     */
+    private final int skip;
+    /**
+     * Количество пакетов в выборке
+     */
+    private final int top;
+
+    /**
+     * @param filter условие выборки пакетов
+     * @param searchTerm условие поиска
+     * @param targetFramework фреймворк, для которого предназначен пакет
+     * @param orderBy порядок сортировки пакетов
+     * @param skip количество пропускаемых пакетов
+     * @param top количество пакетов в выборке
+     */
+    public FeedQuery(String filter, String searchTerm, String targetFramework,
+            String orderBy, int skip, int top) {
+        this.filter = filter;
+        this.searchTerm = searchTerm;
+        this.targetFramework = targetFramework;
+        this.orderBy = orderBy;
+        this.skip = skip;
+        this.top = top;
+    }
+
+    /**
+     * Запрос количества пакетов (без упорядочивания и постраничного вывода)
+     *
+     * @param filter условие выборки пакетов
+     * @param searchTerm условие поиска
+     * @param targetFramework фреймворк, для которого предназначен пакет
+     */
+    public FeedQuery(String filter, String searchTerm, String targetFramework) {
+        this(filter, searchTerm, targetFramework, null, 0, -1);
+    }
+
+    /**
+     * @return условие выборки пакетов
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return условие поиска
+     */
+    public String getSearchTerm() {
+        return searchTerm;
+    }
+
+    /**
+     * @return фреймворк, для которого предназначен пакет
+     */
+    public String getTargetFramework() {
+        return targetFramework;
+    }
+
+    /**
+     * @return порядок сортировки пакетов
+     */
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    /**
+     * @return количество пропускаемых пакетов
+     */
+    public int getSkip() {
+        return skip;
+    }
+
+    /**
+     * @return количество пакетов в выборке
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * Создает слабый ETag для ответа на запрос. Тег зависит от хранилища,
+     * поколения его индекса и параметров запроса.
+     *
+     * @param storageName имя хранилища
+     * @param kind тип ответа (лента, количество пакетов и т.п.)
+     * @param generation поколение индекса хранилища
+     * @return ETag ответа
+     */
+    public EntityTag createEntityTag(String storageName, String kind, long generation) {
+        return createEntityTag(storageName, kind, generation, 0);
+    }
+
+    /**
+     * Создает слабый ETag для ответа на запрос, содержащего число скачиваний
+     * пакетов. Тег дополнительно зависит от версии статистики скачиваний.
+     *
+     * @param storageName имя хранилища
+     * @param kind тип ответа (лента, количество пакетов и т.п.)
+     * @param generation поколение индекса хранилища
+     * @param statisticsVersion версия статистики скачиваний (0 - ответ не
+     * зависит от статистики)
+     * @return ETag ответа
+     */
+    public EntityTag createEntityTag(String storageName, String kind, long generation, long statisticsVersion) {
+        String key = storageName + ":" + kind + ":" + generation + ":" + statisticsVersion + ":" + toString();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = digest.digest(key.getBytes(Charset.forName("UTF-8")));
+            return new EntityTag(DatatypeConverter.printHexBinary(bytes).toLowerCase(), true);
+        } catch (NoSuchAlgorithmException e) {
+            return new EntityTag(Integer.toHexString(key.hashCode()) + "-" + generation, true);
+        }
+    }
+
+    /**
+     * Возвращает ETag сжатого представления ответа. Сжатое и несжатое
+     * представления различаются побайтно, поэтому их ETag не должны
+     * совпадать.
+     *
+     * @param entityTag ETag несжатого представления (может быть null)
+     * @param contentEncoding способ сжатия (null - ответ не сжат)
+     * @return ETag представления или null, если исходный ETag не задан
+     */
+    public static EntityTag createEncodedEntityTag(EntityTag entityTag, String contentEncoding) {
+        if (entityTag == null || contentEncoding == null) {
+            return entityTag;
+        }
+        return new EntityTag(entityTag.getValue() + "-" + contentEncoding, entityTag.isWeak());
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 53 * hash + Objects.hashCode(this.filter);
+        hash = 53 * hash + Objects.hashCode(this.searchTerm);
+        hash = 53 * hash + Objects.hashCode(this.targetFramework);
+        hash = 53 * hash + Objects.hashCode(this.orderBy);
+        hash = 53 * hash + this.skip;
+        hash = 53 * hash + this.top;
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final FeedQuery other = (FeedQuery) obj;
+        return Objects.equals(this.filter, other.filter)
+                && Objects.equals(this.searchTerm, other.searchTerm)
+                && Objects.equals(this.targetFramework, other.targetFramework)
+                && Objects.equals(this.orderBy, other.orderBy)
+                && this.skip == other.skip
+                && this.top == other.top;
+    }
+
+    @Override
+    public String toString() {
+        return "FeedQuery{" + "filter=" + filter + ", searchTerm=" + searchTerm
+                + ", targetFramework=" + targetFramework + ", orderBy=" + orderBy
+                + ", skip=" + skip + ", top=" + top + '}';
+    }
+}
@@ -0,0 +1,105 @@
+package ru.aristar.jnuget;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Потоковая запись локального файла пакета (или его части) в ответ сервера.
+ * Поток ответа сервлет-контейнера не является каналом, поэтому при записи в
+ * него данные копируются через промежуточный буфер. Передача без
+ * копирования (sendfile) выполняется только при записи в канал сокета
+ * методом {@link #write(WritableByteChannel)}.
+ *
+ * @author sviridov
+ */
+public class FileStreamingOutput implements StreamingOutput {
+
+    /**
+     * Файл, который необходимо передать
+     */
+    private final File file;
+    /**
+     * Позиция начала передаваемой части файла
+     */
+    private final long position;
+    /**
+     * Количество передаваемых байт (-1 - до конца файла)
+     */
+    private final long count;
+
+    /**
+     * @param file файл, который необходимо передать
+     */
+    public FileStreamingOutput(File file) {
+        this(file, 0, -1);
+    }
+
+    /**
+     * @param file файл, часть которого необходимо передать
+     * @param position позиция начала передаваемой части файла
+     * @param count количество передаваемых байт (-1 - до конца файла)
+     */
+    public FileStreamingOutput(File file, long position, long count) {
+        this.file = file;
+        this.position = position;
+        this.count = count;
+    }
+
+    /**
+     * @return файл, который необходимо передать
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        write(Channels.newChannel(output));
+        output.flush();
+    }
+
+    /**
+     * Передает файл в канал. Если канал является каналом сокета или файла,
+     * данные передаются средствами операционной системы без копирования в
+     * память Java.
+     *
+     * @param target канал, в который передаются данные
+     * @throws IOException ошибка чтения или записи
+     */
+    public void write(WritableByteChannel target) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = count < 0 ? fileChannel.size() - position : count;
+            transfer(fileChannel, position, length, target);
+        }
+    }
+
+    /**
+     * Передает часть файла в канал. Метод transferTo может передать меньше
+     * байт, чем запрошено, поэтому передача повторяется до конца диапазона.
+     *
+     * @param fileChannel канал файла
+     * @param position позиция начала диапазона
+     * @param count количество байт
+     * @param target канал, в который передаются данные
+     * @throws IOException ошибка чтения или записи
+     */
+    public static void transfer(FileChannel fileChannel, long position, long count,
+            WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long result = fileChannel.transferTo(position + transferred, count - transferred, target);
+            if (result <= 0) {
+                throw new IOException("Файл изменился во время передачи: передано "
+                        + transferred + " байт из " + count);
+            }
+            transferred += result;
+        }
+    }
+}
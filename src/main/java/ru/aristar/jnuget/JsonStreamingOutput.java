@@ -0,0 +1,60 @@
+package ru.aristar.jnuget;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumSet;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import ru.aristar.jnuget.rss.JsonFeedField;
+import ru.aristar.jnuget.rss.PackageEntry;
+
+/**
+ * Класс использующийся для потоковой записи ленты пакетов в формате JSON
+ *
+ * @author sviridov
+ */
+public class JsonStreamingOutput implements StreamingOutput {
+
+    /**
+     * Фабрика генераторов JSON (потокобезопасна)
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    /**
+     * Информация о пакетах (может формироваться по мере обхода)
+     */
+    private final Iterable<PackageEntry> entries;
+    /**
+     * Поля пакета, которые необходимо вывести
+     */
+    private final EnumSet<JsonFeedField> fields;
+
+    /**
+     * @param entries информация о пакетах (может формироваться по мере
+     * обхода)
+     * @param fields поля пакета, которые необходимо вывести
+     */
+    public JsonStreamingOutput(Iterable<PackageEntry> entries, EnumSet<JsonFeedField> fields) {
+        this.entries = entries;
+        this.fields = fields;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        JsonGenerator generator = JSON_FACTORY.createJsonGenerator(output, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("d");
+        for (PackageEntry entry : entries) {
+            generator.writeStartObject();
+            for (JsonFeedField field : fields) {
+                field.write(generator, entry);
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.flush();
+    }
+}
@@ -1,23 +1,50 @@
 package ru.aristar.jnuget;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sun.jersey.core.header.reader.HttpHeaderReader;
+import com.sun.jersey.multipart.BodyPart;
+import com.sun.jersey.multipart.FormDataBodyPart;
+import com.sun.jersey.multipart.FormDataMultiPart;
 import com.sun.jersey.multipart.FormDataParam;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
 import java.util.Collection;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import javax.security.auth.login.LoginException;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.xml.bind.DatatypeConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.files.ClassicNupkg;
+import ru.aristar.jnuget.files.DirectBufferPool;
+import ru.aristar.jnuget.files.MavenNupkg;
 import ru.aristar.jnuget.files.NugetFormatException;
+import ru.aristar.jnuget.files.ProxyNupkg;
 import ru.aristar.jnuget.files.Nupkg;
 import ru.aristar.jnuget.files.TempNupkgFile;
+import ru.aristar.jnuget.rss.JsonFeedField;
 import ru.aristar.jnuget.rss.MainUrl;
 import ru.aristar.jnuget.rss.NuPkgToRssTransformer;
+import ru.aristar.jnuget.rss.PackageEntry;
 import ru.aristar.jnuget.rss.PackageFeed;
 import ru.aristar.jnuget.security.Role;
+import ru.aristar.jnuget.sources.IndexedPackageSource;
 import ru.aristar.jnuget.sources.PackageSource;
 import ru.aristar.jnuget.sources.PackageSourceFactory;
 
@@ -38,6 +65,16 @@ public class MainUrlResource {
      */
     @Context
     private UriInfo context;
+    /**
+     * Текущий HTTP запрос (используется для проверки условных заголовков)
+     */
+    @Context
+    private Request request;
+    /**
+     * Заголовки текущего HTTP запроса
+     */
+    @Context
+    private HttpHeaders httpHeaders;
     /**
      * Имя хранилища
      */
@@ -72,8 +109,14 @@ public class MainUrlResource {
     @Produces(MediaType.APPLICATION_XML)
     @Path("{metadata : [$]metadata}")
     public Response getMetadata() throws IOException {
-        InputStream inputStream = MainUrlResource.class.getResourceAsStream("/metadata.xml");
+        EntityTag entityTag = getMetadataEntityTag();
+        ResponseBuilder notModified = evaluatePreconditions(null, entityTag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        InputStream inputStream = MainUrlResource.class.getResourceAsStream(METADATA_RESOURCE_NAME);
         ResponseBuilder response = Response.ok((Object) inputStream);
+        response.tag(entityTag);
         return response.build();
     }
 
@@ -93,23 +136,113 @@ public class MainUrlResource {
     @GET
     @Produces(MediaType.APPLICATION_XML)
     @Path("{packages : (Packages)[(]?[)]?|(Search)[(][)]}")
-    public Response getPackages(@QueryParam("$filter") String filter,
+    public Response getPackages(@QueryParam("$filter") final String filter,
+            @QueryParam("$orderby") @DefaultValue("updated") final String orderBy,
+            @QueryParam("$skip") @DefaultValue("0") final int skip,
+            @QueryParam("$top") @DefaultValue("-1") final int top,
+            @QueryParam("searchTerm") final String searchTerm,
+            @QueryParam("targetFramework") final String targetFramework) {
+        try {
+            logger.debug("Запрос пакетов из хранилища {}: filter={}, orderBy={}, skip={}, "
+                    + "top={}, searchTerm={}, targetFramework={}",
+                    new Object[]{storageName, filter, orderBy, skip, top, searchTerm, targetFramework});
+            final PackageSource<Nupkg> packageSource = getPackageSource();
+            if (packageSource == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            FeedQuery query = new FeedQuery(filter, searchTerm, targetFramework, orderBy, skip, top);
+            final boolean gzip = isGzipAccepted();
+            EntityTag entityTag = FeedQuery.createEncodedEntityTag(
+                    createEntityTag(packageSource, query, FEED_TAG_KIND, true), gzip ? GZIP_ENCODING : null);
+            Date lastModified = getLastModified(packageSource, true);
+            ResponseBuilder notModified = evaluatePreconditions(lastModified, entityTag);
+            if (notModified != null) {
+                logger.debug("Лента пакетов хранилища {} не изменилась", new Object[]{storageName});
+                return notModified.header(HttpHeaders.VARY, PACKAGES_VARY).build();
+            }
+            ResponseBuilder response;
+            if (gzip && entityTag != null) {
+                String cacheKey = getCurrentStorageURI() + ":" + entityTag.getValue();
+                byte[] page = FeedCache.getInstance().get(cacheKey, new Callable<PackageFeed>() {
+                    @Override
+                    public PackageFeed call() throws Exception {
+                        return getPackageFeed(packageSource, filter, searchTerm, targetFramework, orderBy, skip, top);
+                    }
+                });
+                response = Response.ok(page, MediaType.APPLICATION_ATOM_XML_TYPE);
+                response.header(HttpHeaders.CONTENT_LENGTH, page.length);
+            } else {
+                PackageFeed feed = getPackageFeed(packageSource, filter, searchTerm, targetFramework, orderBy, skip, top);
+                XmlStreamingOutput streamingOutput = new XmlStreamingOutput(feed, gzip);
+                response = Response.ok(streamingOutput, MediaType.APPLICATION_ATOM_XML_TYPE);
+            }
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+            }
+            response.header(HttpHeaders.VARY, PACKAGES_VARY);
+            return addValidators(response, lastModified, entityTag).build();
+        } catch (Exception e) {
+            final String errorMessage = "Ошибка получения списка пакетов";
+            logger.error(errorMessage, e);
+            return Response.serverError().entity(errorMessage).build();
+        }
+    }
+
+    /**
+     * Возвращает компактное JSON представление списка пакетов. Пакеты
+     * отбираются так же, как для RSS ленты, но лента целиком не строится:
+     * информация о пакетах выбранной страницы формируется по одному пакету
+     * при записи потоковым генератором JSON.
+     *
+     * @param filter условие выборки пакетов
+     * @param orderBy порядок сортировки пакетов (по умолчанию по дате
+     * публикации)
+     * @param skip количество пакетов, которое необходимо пропустить (по
+     * умолчанию 0)
+     * @param top количество пакетов в выборке
+     * @param searchTerm условие поиска
+     * @param targetFramework фрейморк, для которого предназначен пакет
+     * @param select список выводимых полей пакета через запятую (по умолчанию
+     * все поля)
+     * @return JSON со списком пакетов
+     */
+    @GET
+    @Produces(JSON_MEDIA_TYPE)
+    @Path("{packages : (Packages)[(]?[)]?|(Search)[(][)]}")
+    public Response getPackagesJson(@QueryParam("$filter") String filter,
             @QueryParam("$orderby") @DefaultValue("updated") String orderBy,
             @QueryParam("$skip") @DefaultValue("0") int skip,
             @QueryParam("$top") @DefaultValue("-1") int top,
             @QueryParam("searchTerm") String searchTerm,
-            @QueryParam("targetFramework") String targetFramework) {
+            @QueryParam("targetFramework") String targetFramework,
+            @QueryParam("$select") String select) {
         try {
-            logger.debug("Запрос пакетов из хранилища {}: filter={}, orderBy={}, skip={}, "
-                    + "top={}, searchTerm={}, targetFramework={}",
-                    new Object[]{storageName, filter, orderBy, skip, top, searchTerm, targetFramework});
+            logger.debug("Запрос JSON списка пакетов из хранилища {}: filter={}, orderBy={}, skip={}, "
+                    + "top={}, searchTerm={}, targetFramework={}, select={}",
+                    new Object[]{storageName, filter, orderBy, skip, top, searchTerm, targetFramework, select});
             PackageSource<Nupkg> packageSource = getPackageSource();
             if (packageSource == null) {
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
-            PackageFeed feed = getPackageFeed(packageSource, filter, searchTerm, targetFramework, orderBy, skip, top);
-            XmlStreamingOutput streamingOutput = new XmlStreamingOutput(feed);
-            return Response.ok(streamingOutput, MediaType.APPLICATION_ATOM_XML_TYPE).build();
+            EnumSet<JsonFeedField> fields = JsonFeedField.parseSelect(select);
+            FeedQuery query = new FeedQuery(filter, searchTerm, targetFramework, orderBy, skip, top);
+            boolean withStatistics = "downloadcount".equalsIgnoreCase(orderBy)
+                    || fields.contains(JsonFeedField.DownloadCount)
+                    || fields.contains(JsonFeedField.VersionDownloadCount);
+            EntityTag entityTag = createEntityTag(packageSource, query, JSON_TAG_KIND + fields, withStatistics);
+            Date lastModified = getLastModified(packageSource, withStatistics);
+            ResponseBuilder notModified = evaluatePreconditions(lastModified, entityTag);
+            if (notModified != null) {
+                return notModified.header(HttpHeaders.VARY, PACKAGES_VARY).build();
+            }
+            Collection<? extends Nupkg> files = getPackages(packageSource, filter, searchTerm, targetFramework);
+            logger.debug("Получено {} пакетов", new Object[]{files.size()});
+            NuPkgToRssTransformer toRssTransformer = new NugetContext(getCurrentStorageURI()).createToRssTransformer();
+            Iterable<PackageEntry> entries = toRssTransformer.transformLazily(files, orderBy, skip, top, packageSource);
+            JsonStreamingOutput streamingOutput = new JsonStreamingOutput(entries, fields);
+            ResponseBuilder response = Response.ok(streamingOutput, MediaType.APPLICATION_JSON_TYPE);
+            response.header(HttpHeaders.VARY, PACKAGES_VARY);
+            return addValidators(response, lastModified, entityTag).build();
         } catch (Exception e) {
             final String errorMessage = "Ошибка получения списка пакетов";
             logger.error(errorMessage, e);
@@ -138,10 +271,18 @@ public class MainUrlResource {
             if (packageSource == null) {
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
+            FeedQuery query = new FeedQuery(filter, searchTerm, targetFramework);
+            EntityTag entityTag = createEntityTag(packageSource, query, COUNT_TAG_KIND, false);
+            Date lastModified = getLastModified(packageSource, false);
+            ResponseBuilder notModified = evaluatePreconditions(lastModified, entityTag);
+            if (notModified != null) {
+                return notModified.build();
+            }
             Collection<? extends Nupkg> files = getPackages(packageSource, filter, searchTerm, targetFramework);
             final int count = files.size();
             logger.debug("Получено {} пакетов", new Object[]{count});
-            return Response.ok(Integer.toString(count), MediaType.TEXT_PLAIN).build();
+            ResponseBuilder response = Response.ok(Integer.toString(count), MediaType.TEXT_PLAIN);
+            return addValidators(response, lastModified, entityTag).build();
         } catch (Exception e) {
             final String errorMessage = "Ошибка получения списка пакетов";
             logger.error(errorMessage, e);
@@ -172,9 +313,51 @@ public class MainUrlResource {
                 logger.warn("Пакет " + id + ":" + versionString + " не найден");
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
-            InputStream inputStream = nupkg.getStream();
-            ResponseBuilder response = Response.ok((Object) inputStream);
-            response.header(HttpHeaders.CONTENT_LENGTH, nupkg.getSize());
+            EntityTag entityTag = createPackageEntityTag(packageSource, nupkg);
+            ResponseBuilder notModified = evaluatePreconditions(nupkg.getUpdated(), entityTag);
+            if (notModified != null) {
+                return notModified.build();
+            }
+            ResponseBuilder response;
+            ByteBuffer cachedPackage = httpHeaders.getRequestHeaders().getFirst(RANGE_HEADER) == null
+                    ? PackageByteCache.getInstance().get(packageSource.getName(), nupkg) : null;
+            File localFile = cachedPackage == null ? getLocalFile(nupkg, true) : null;
+            if (cachedPackage != null) {
+                DownloadStatistics.getInstance().registerDownload(packageSource.getName(), nupkg.getId(), nupkg.getVersion());
+                response = Response.ok(new ByteBufferStreamingOutput(cachedPackage));
+                response.header(HttpHeaders.CONTENT_LENGTH, cachedPackage.remaining());
+                response.header(ACCEPT_RANGES_HEADER, ByteRange.BYTES_UNIT);
+            } else if (localFile == null) {
+                DownloadStatistics.getInstance().registerDownload(packageSource.getName(), nupkg.getId(), nupkg.getVersion());
+                response = Response.ok((Object) nupkg.getStream());
+                response.header(HttpHeaders.CONTENT_LENGTH, nupkg.getSize());
+            } else {
+                final long length = localFile.length();
+                ByteRange range;
+                try {
+                    range = isIfRangeSatisfied(nupkg.getUpdated(), entityTag)
+                            ? ByteRange.parse(httpHeaders.getRequestHeaders().getFirst(RANGE_HEADER), length)
+                            : null;
+                } catch (IllegalArgumentException e) {
+                    logger.debug("Запрошен некорректный диапазон пакета {}:{} {}", new Object[]{id, versionString, e.getMessage()});
+                    return Response.status(REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(CONTENT_RANGE_HEADER, ByteRange.BYTES_UNIT + " */" + length).build();
+                }
+                if (range == null || range.getFirst() == 0) {
+                    DownloadStatistics.getInstance().registerDownload(packageSource.getName(), nupkg.getId(), nupkg.getVersion());
+                }
+                if (range == null) {
+                    response = Response.ok(new FileStreamingOutput(localFile));
+                    response.header(HttpHeaders.CONTENT_LENGTH, length);
+                } else {
+                    response = Response.status(PARTIAL_CONTENT)
+                            .entity(new FileStreamingOutput(localFile, range.getFirst(), range.getLength()));
+                    response.header(CONTENT_RANGE_HEADER, range.toContentRange(length));
+                    response.header(HttpHeaders.CONTENT_LENGTH, range.getLength());
+                }
+                response.header(ACCEPT_RANGES_HEADER, ByteRange.BYTES_UNIT);
+            }
+            addValidators(response, nupkg.getUpdated(), entityTag);
             response.type(MediaType.APPLICATION_OCTET_STREAM);
             String fileName = nupkg.getFileName();
             response.header("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
@@ -186,14 +369,108 @@ public class MainUrlResource {
         }
     }
 
+    /**
+     * Возвращает манифест частей пакета: размер пакета, размер части и HASH
+     * каждой части
+     *
+     * @param id идентификатор пакета
+     * @param versionString версия пакета
+     * @param partSize размер части в байтах
+     * @return манифест частей пакета
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_XML)
+    @Path("downloadPart/{id}/{version}/manifest")
+    public Response getPackagePartManifest(
+            @PathParam("id") String id,
+            @PathParam("version") String versionString,
+            @QueryParam("partSize") @DefaultValue(DEFAULT_PART_SIZE) long partSize) {
+        try {
+            if (partSize < MIN_PART_SIZE || partSize > MAX_PART_SIZE) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Размер части должен быть от " + MIN_PART_SIZE + " до " + MAX_PART_SIZE).build();
+            }
+            PackageSource<Nupkg> packageSource = getPackageSource();
+            Nupkg nupkg = packageSource == null ? null : packageSource.getPackage(id, Version.parse(versionString));
+            if (nupkg == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            EntityTag entityTag = createPackageEntityTag(packageSource, nupkg);
+            ResponseBuilder notModified = evaluatePreconditions(nupkg.getUpdated(), entityTag);
+            if (notModified != null) {
+                return notModified.build();
+            }
+            File localFile = getLocalFile(nupkg, false);
+            if (localFile == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            PackagePartManifest manifest = getPackagePartManifest(localFile, partSize);
+            ResponseBuilder response = Response.ok(manifest, MediaType.APPLICATION_XML_TYPE);
+            return addValidators(response, nupkg.getUpdated(), entityTag).build();
+        } catch (Exception e) {
+            final String errorMessage = "Ошибка получения манифеста частей пакета " + id + " " + versionString;
+            logger.error(errorMessage, e);
+            return Response.serverError().entity(errorMessage).build();
+        }
+    }
+
+    /**
+     * Возвращает часть пакета с указанным номером. Смещение части и размер
+     * пакета передаются в заголовках X-Part-Offset и X-Package-Length
+     * (Content-Range допустим только в ответах на запросы диапазона).
+     *
+     * @param id идентификатор пакета
+     * @param versionString версия пакета
+     * @param partIndex номер части (начиная с 0)
+     * @param partSize размер части в байтах
+     * @return данные части пакета
+     */
     @GET
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
-    @Path("downloadPart/{storage}/{id}/{version}")
+    @Path("downloadPart/{id}/{version}/{part : \\d+}")
     public Response getPackagePart(
-            @PathParam("storage") int storageId,
             @PathParam("id") String id,
-            @PathParam("version") String versionString) {
-        return Response.serverError().entity("Не реализовано").build();
+            @PathParam("version") String versionString,
+            @PathParam("part") int partIndex,
+            @QueryParam("partSize") @DefaultValue(DEFAULT_PART_SIZE) long partSize) {
+        try {
+            if (partSize < MIN_PART_SIZE || partSize > MAX_PART_SIZE) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Размер части должен быть от " + MIN_PART_SIZE + " до " + MAX_PART_SIZE).build();
+            }
+            PackageSource<Nupkg> packageSource = getPackageSource();
+            Nupkg nupkg = packageSource == null ? null : packageSource.getPackage(id, Version.parse(versionString));
+            if (nupkg == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            EntityTag entityTag = createPackageEntityTag(packageSource, nupkg);
+            ResponseBuilder notModified = evaluatePreconditions(nupkg.getUpdated(), entityTag);
+            if (notModified != null) {
+                return notModified.build();
+            }
+            File localFile = getLocalFile(nupkg, false);
+            if (localFile == null) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            final long length = localFile.length();
+            if (partIndex >= PackagePartManifest.getPartCount(length, partSize)) {
+                return Response.status(REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(CONTENT_RANGE_HEADER, ByteRange.BYTES_UNIT + " */" + length).build();
+            }
+            final long first = partIndex * partSize;
+            ByteRange range = new ByteRange(first, Math.min(first + partSize, length) - 1);
+            ResponseBuilder response = Response.ok(
+                    new FileStreamingOutput(localFile, range.getFirst(), range.getLength()),
+                    MediaType.APPLICATION_OCTET_STREAM_TYPE);
+            response.header(PART_OFFSET_HEADER, range.getFirst());
+            response.header(PACKAGE_LENGTH_HEADER, length);
+            response.header(HttpHeaders.CONTENT_LENGTH, range.getLength());
+            return addValidators(response, nupkg.getUpdated(), entityTag).build();
+        } catch (Exception e) {
+            final String errorMessage = "Ошибка получения части пакета " + id + " " + versionString;
+            logger.error(errorMessage, e);
+            return Response.serverError().entity(errorMessage).build();
+        }
     }
 
     /**
@@ -201,14 +478,71 @@ public class MainUrlResource {
      *
      * @param apiKey ключ доступа
      * @param inputStream поток данных
-     * @return ответ сервера (CREATED или FORBIDDEN)
+     * @param async поместить пакет асинхронно
+     * @return ответ сервера (CREATED, ACCEPTED или FORBIDDEN)
      */
     @PUT
     @Path("")
     @Consumes(MediaType.MULTIPART_FORM_DATA)
     public Response putPackage(@HeaderParam(API_KEY_HEADER_NAME) String apiKey,
-            @FormDataParam("package") InputStream inputStream) {
-        return pushPackage(apiKey, inputStream, Response.Status.CREATED);
+            @FormDataParam("package") InputStream inputStream,
+            @QueryParam("async") boolean async) {
+        return pushPackage(apiKey, inputStream, Response.Status.CREATED, isAsyncRequested(async));
+    }
+
+    /**
+     * Пакетное помещение пакетов в хранилище: архив TAR с файлами пакетов
+     *
+     * @param apiKey ключ доступа
+     * @param inputStream поток с архивом
+     * @return результаты помещения каждого пакета
+     */
+    @PUT
+    @Path("batch")
+    @Consumes(TAR_MEDIA_TYPE)
+    @Produces(MediaType.APPLICATION_XML)
+    public Response putPackageBatch(@HeaderParam(API_KEY_HEADER_NAME) String apiKey,
+            final InputStream inputStream) {
+        return pushPackageBatch(apiKey, new PackageBatchReader() {
+            @Override
+            public void readTo(BatchPackagePusher pusher) throws IOException {
+                TarArchiveReader tarReader = new TarArchiveReader(inputStream);
+                String name;
+                while ((name = tarReader.nextEntry()) != null) {
+                    if (ClassicNupkg.isValidFileName(name)) {
+                        pusher.add(name, tarReader.getEntryStream());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Пакетное помещение пакетов в хранилище: каждая часть multipart запроса
+     * содержит файл пакета
+     *
+     * @param apiKey ключ доступа
+     * @param multiPart запрос с пакетами
+     * @return результаты помещения каждого пакета
+     */
+    @PUT
+    @Path("batch")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    @Produces(MediaType.APPLICATION_XML)
+    public Response putPackageBatch(@HeaderParam(API_KEY_HEADER_NAME) String apiKey,
+            final FormDataMultiPart multiPart) {
+        return pushPackageBatch(apiKey, new PackageBatchReader() {
+            @Override
+            public void readTo(BatchPackagePusher pusher) throws IOException {
+                for (BodyPart bodyPart : multiPart.getBodyParts()) {
+                    String name = bodyPart instanceof FormDataBodyPart
+                            ? ((FormDataBodyPart) bodyPart).getContentDisposition().getFileName() : null;
+                    try (InputStream partStream = bodyPart.getEntityAs(InputStream.class)) {
+                        pusher.add(name, partStream);
+                    }
+                }
+            }
+        });
     }
 
     /**
@@ -216,13 +550,32 @@ public class MainUrlResource {
      *
      * @param apiKey ключ доступа
      * @param inputStream поток данных
-     * @return ответ сервера (OK или FORBIDDEN)
+     * @param async поместить пакет асинхронно
+     * @return ответ сервера (OK, ACCEPTED или FORBIDDEN)
      */
     @POST
     @Path("PackageFiles/{apiKey}/nupkg")
     @Consumes(MediaType.APPLICATION_OCTET_STREAM)
-    public Response postPackage(@PathParam("apiKey") String apiKey, InputStream inputStream) {
-        return pushPackage(apiKey, inputStream, Response.Status.OK);
+    public Response postPackage(@PathParam("apiKey") String apiKey, InputStream inputStream,
+            @QueryParam("async") boolean async) {
+        return pushPackage(apiKey, inputStream, Response.Status.OK, isAsyncRequested(async));
+    }
+
+    /**
+     * Возвращает состояние задания асинхронного помещения пакета
+     *
+     * @param jobId идентификатор задания
+     * @return состояние задания или NOT_FOUND
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_XML)
+    @Path("jobs/{jobId}")
+    public Response getPushJob(@PathParam("jobId") String jobId) {
+        PushJob job = PushJobManager.getInstance().getJob(jobId);
+        if (job == null || !storageName.equals(job.getStorageName())) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(job, MediaType.APPLICATION_XML_TYPE).build();
     }
 
     @POST
@@ -327,31 +680,63 @@ public class MainUrlResource {
      * @param apiKey ключ доступа
      * @param inputStream поток данных
      * @param correctStatus статус, ожидаемый в случае удачного помещения пакета
-     * @return FORBIDDEN или "correctStatus"
+     * @param async поместить пакет асинхронно: после сохранения пакета
+     * возвращается ACCEPTED со ссылкой на задание
+     * @return FORBIDDEN, "correctStatus", ACCEPTED или SERVICE_UNAVAILABLE
+     * (очередь асинхронных заданий заполнена)
      */
-    private Response pushPackage(String apiKey, InputStream inputStream, Response.Status correctStatus) {
+    private Response pushPackage(String apiKey, InputStream inputStream, Response.Status correctStatus, boolean async) {
         try {
             logger.debug("Получен пакет ApiKey={}", new Object[]{apiKey});
             NugetContext nugetContext = new NugetContext(getCurrentStorageURI());
             nugetContext.login(apiKey);
             if (nugetContext.isUserInRole(Role.Push)) {
                 ResponseBuilder response;
-                try (TempNupkgFile nupkgFile = new TempNupkgFile(inputStream)) {
-                    logger.debug("Помещение пакета {} версии {} в хранилище",
-                            new Object[]{nupkgFile.getId(), nupkgFile.getVersion()});
+                TempNupkgFile nupkgFile = null;
+                boolean submitted = false;
+                try {
                     final PackageSource<Nupkg> packageSource = getPackageSource();
                     if (packageSource == null) {
                         return Response.status(Response.Status.NOT_FOUND).build();
                     }
-                    boolean pushed = packageSource.pushPackage(nupkgFile);
-
-                    if (pushed) {
-                        response = Response.status(correctStatus);
+                    PushJobManager jobManager = PushJobManager.getInstance();
+                    //Тело запроса не читается, если задание все равно не будет принято
+                    if (async && !jobManager.hasCapacity()) {
+                        logger.warn("Очередь асинхронного помещения пакетов заполнена ({} заданий)",
+                                new Object[]{jobManager.getQueueLength()});
+                        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                                .header(RETRY_AFTER_HEADER, jobManager.getRetryAfter()).build();
+                    }
+                    nupkgFile = new TempNupkgFile(inputStream);
+                    logger.debug("Помещение пакета {} версии {} в хранилище",
+                            new Object[]{nupkgFile.getId(), nupkgFile.getVersion()});
+                    if (async) {
+                        try {
+                            PushJob job = jobManager.submit(packageSource, nupkgFile);
+                            submitted = true;
+                            URI jobUri = URI.create(getCurrentStorageURI() + "jobs/" + job.getId());
+                            response = Response.status(Response.Status.ACCEPTED).location(jobUri)
+                                    .entity(job).type(MediaType.APPLICATION_XML_TYPE);
+                        } catch (RejectedExecutionException e) {
+                            logger.warn("Очередь асинхронного помещения пакетов заполнена ({} заданий)",
+                                    new Object[]{jobManager.getQueueLength()});
+                            response = Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                                    .header(RETRY_AFTER_HEADER, jobManager.getRetryAfter());
+                        }
                     } else {
-                        logger.debug("Публикация пакета в хранилище не произведена ApiKey={}", new Object[]{apiKey});
-                        response = Response.status(Response.Status.FORBIDDEN);
+                        boolean pushed = packageSource.pushPackage(nupkgFile);
+
+                        if (pushed) {
+                            response = Response.status(correctStatus);
+                        } else {
+                            logger.debug("Публикация пакета в хранилище не произведена ApiKey={}", new Object[]{apiKey});
+                            response = Response.status(Response.Status.FORBIDDEN);
+                        }
                     }
                 } finally {
+                    if (nupkgFile != null && !submitted) {
+                        nupkgFile.close();
+                    }
                     nugetContext.logout();
                 }
                 return response.build();
@@ -370,6 +755,88 @@ public class MainUrlResource {
 
     }
 
+    /**
+     * Проверяет, запрошено ли асинхронное помещение пакета: параметром
+     * async или заголовком "Prefer: respond-async" (RFC 7240)
+     *
+     * @param async значение параметра async
+     * @return true, если пакет необходимо поместить асинхронно
+     */
+    private boolean isAsyncRequested(boolean async) {
+        if (async) {
+            return true;
+        }
+        List<String> preferences = httpHeaders == null ? null : httpHeaders.getRequestHeader(PREFER_HEADER);
+        if (preferences != null) {
+            for (String preference : preferences) {
+                if (preference.toLowerCase().contains(RESPOND_ASYNC_PREFERENCE)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Источник пакетов пакетного запроса
+     */
+    private interface PackageBatchReader {
+
+        /**
+         * Читает пакеты запроса
+         *
+         * @param pusher объект, выполняющий помещение пакетов
+         * @throws IOException ошибка чтения запроса
+         */
+        void readTo(BatchPackagePusher pusher) throws IOException;
+    }
+
+    /**
+     * Пакетное помещение пакетов в хранилище. Проверка прав выполняется один
+     * раз для всего запроса.
+     *
+     * @param apiKey ключ доступа
+     * @param reader источник пакетов запроса
+     * @return результаты помещения каждого пакета, FORBIDDEN или UNAUTHORIZED
+     */
+    private Response pushPackageBatch(String apiKey, PackageBatchReader reader) {
+        try {
+            logger.debug("Получен пакетный запрос ApiKey={}", new Object[]{apiKey});
+            NugetContext nugetContext = new NugetContext(getCurrentStorageURI());
+            nugetContext.login(apiKey);
+            try {
+                if (!nugetContext.isUserInRole(Role.Push)) {
+                    return Response.status(Response.Status.FORBIDDEN).build();
+                }
+                final PackageSource<Nupkg> packageSource = getPackageSource();
+                if (packageSource == null) {
+                    return Response.status(Response.Status.NOT_FOUND).build();
+                }
+                try (BatchPackagePusher pusher = new BatchPackagePusher()) {
+                    try {
+                        reader.readTo(pusher);
+                    } catch (IOException e) {
+                        logger.warn("Ошибка чтения пакетного запроса: " + e.getMessage());
+                        return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+                    }
+                    pusher.validate();
+                    pusher.push(packageSource);
+                    return Response.ok(pusher.getResult(), MediaType.APPLICATION_XML_TYPE).build();
+                }
+            } finally {
+                nugetContext.logout();
+            }
+        } catch (LoginException e) {
+            final String errorMessage = "Недостаточно прав для помещения пакетов в хранилище";
+            logger.warn(errorMessage + " " + e.getLocalizedMessage());
+            return Response.status(Response.Status.UNAUTHORIZED).entity(errorMessage).build();
+        } catch (Exception e) {
+            final String errorMessage = "Ошибка пакетного помещения пакетов в хранилище";
+            logger.error(errorMessage, e);
+            return Response.serverError().entity(errorMessage).build();
+        }
+    }
+
     /**
      * Возвращает объектную реализацию RSS рассылки с пакетами
      *
@@ -389,7 +856,7 @@ public class MainUrlResource {
         //Преобразовать пакеты в RSS
         NugetContext nugetContext = new NugetContext(getCurrentStorageURI());
         NuPkgToRssTransformer toRssTransformer = nugetContext.createToRssTransformer();
-        PackageFeed feed = toRssTransformer.transform(files, orderBy, skip, top);
+        PackageFeed feed = toRssTransformer.transform(files, orderBy, skip, top, packageSource);
         return feed;
     }
 
@@ -409,6 +876,241 @@ public class MainUrlResource {
         return files;
     }
 
+    /**
+     * Возвращает локальный файл пакета. Пакеты прокси хранилища при
+     * необходимости предварительно загружаются в локальное хранилище. Если
+     * для пакета включена сквозная передача и она допустима для запроса,
+     * загрузка не выполняется.
+     *
+     * @param nupkg пакет
+     * @param allowStreamThrough запрос может быть обслужен сквозной передачей
+     * пакета из удаленного хранилища
+     * @return локальный файл или null, если пакет не хранится в файле
+     * @throws IOException ошибка загрузки пакета из удаленного хранилища
+     */
+    static File getLocalFile(Nupkg nupkg, boolean allowStreamThrough) throws IOException {
+        if (nupkg instanceof ProxyNupkg) {
+            ProxyNupkg proxyNupkg = (ProxyNupkg) nupkg;
+            if (allowStreamThrough && proxyNupkg.isStreamThrough() && !proxyNupkg.isStored()) {
+                return null;
+            }
+            nupkg = proxyNupkg.getLocalNupkg();
+        }
+        if (nupkg instanceof ClassicNupkg) {
+            File localFile = ((ClassicNupkg) nupkg).getLocalFile();
+            if (localFile != null && localFile.exists()) {
+                return localFile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Возвращает манифест частей файла пакета из кеша или вычисляет его
+     *
+     * @param localFile файл пакета
+     * @param partSize размер части в байтах
+     * @return манифест частей пакета
+     * @throws IOException ошибка чтения файла пакета
+     */
+    private PackagePartManifest getPackagePartManifest(final File localFile, final long partSize) throws IOException {
+        String key = localFile.getAbsolutePath() + ":" + localFile.lastModified()
+                + ":" + localFile.length() + ":" + partSize;
+        try {
+            return PART_MANIFEST_CACHE.get(key, new Callable<PackagePartManifest>() {
+                @Override
+                public PackagePartManifest call() throws Exception {
+                    return PackagePartManifest.create(localFile, partSize);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw new IOException("Ошибка вычисления манифеста частей пакета", e.getCause());
+        }
+    }
+
+    /**
+     * Проверяет условие заголовка If-Range: диапазон отдается, только если
+     * пакет не изменился. Сравниваются только сильные валидаторы.
+     *
+     * @param lastModified дата изменения пакета
+     * @param entityTag ETag пакета
+     * @return true, если заголовок отсутствует или пакет не изменился
+     */
+    private boolean isIfRangeSatisfied(Date lastModified, EntityTag entityTag) {
+        String ifRange = httpHeaders.getRequestHeaders().getFirst(IF_RANGE_HEADER);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        try {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                EntityTag requestTag = EntityTag.valueOf(ifRange);
+                return entityTag != null && !entityTag.isWeak() && !requestTag.isWeak()
+                        && entityTag.getValue().equals(requestTag.getValue());
+            }
+            Date requestDate = HttpHeaderReader.readDate(ifRange);
+            return lastModified != null && lastModified.getTime() / 1000 == requestDate.getTime() / 1000;
+        } catch (ParseException | IllegalArgumentException e) {
+            logger.debug("Некорректный заголовок If-Range: {}", new Object[]{ifRange});
+            return false;
+        }
+    }
+
+    /**
+     * Создает ETag ответа на запрос к хранилищу. Тег формируется только для
+     * индексируемых хранилищ, так как только у них есть поколение индекса.
+     * Тег ответа, содержащего число скачиваний или упорядоченного по нему,
+     * зависит также от версии статистики скачиваний, поэтому такой ответ не
+     * считается неизменным (и не берется из кеша страниц) после скачиваний.
+     *
+     * @param packageSource источник пакетов
+     * @param query параметры запроса
+     * @param kind тип ответа
+     * @param withStatistics ответ зависит от статистики скачиваний
+     * @return ETag или null, если хранилище не индексируется
+     */
+    private EntityTag createEntityTag(PackageSource<Nupkg> packageSource, FeedQuery query, String kind,
+            boolean withStatistics) {
+        if (!(packageSource instanceof IndexedPackageSource)) {
+            return null;
+        }
+        long generation = ((IndexedPackageSource) packageSource).getGeneration();
+        long statisticsVersion = withStatistics ? DownloadStatistics.getInstance().getVersion() : 0;
+        return query.createEntityTag(storageName, kind, generation, statisticsVersion);
+    }
+
+    /**
+     * @param packageSource источник пакетов
+     * @param withStatistics ответ зависит от статистики скачиваний
+     * @return время последнего изменения индекса хранилища (или статистики
+     * скачиваний, если оно позже) или null, если хранилище не индексируется
+     */
+    private Date getLastModified(PackageSource<Nupkg> packageSource, boolean withStatistics) {
+        if (!(packageSource instanceof IndexedPackageSource)) {
+            return null;
+        }
+        Date lastModified = ((IndexedPackageSource) packageSource).getLastModified();
+        Date statisticsModified = withStatistics ? DownloadStatistics.getInstance().getLastModified() : null;
+        if (lastModified == null || (statisticsModified != null && statisticsModified.after(lastModified))) {
+            return statisticsModified;
+        }
+        return lastModified;
+    }
+
+    /**
+     * Создает ETag пакета на основе его HASH. Для пакетов неиндексируемого
+     * классического хранилища HASH пришлось бы вычислять, перечитывая файл
+     * целиком, поэтому для них тег не формируется.
+     *
+     * @param packageSource источник пакетов
+     * @param nupkg пакет
+     * @return ETag пакета или null
+     * @throws NoSuchAlgorithmException не найден алгоритм вычисления HASH
+     * @throws IOException ошибка чтения HASH пакета
+     */
+    private EntityTag createPackageEntityTag(PackageSource packageSource, Nupkg nupkg)
+            throws NoSuchAlgorithmException, IOException {
+        if (nupkg instanceof ClassicNupkg && !(nupkg instanceof MavenNupkg)
+                && !(packageSource instanceof IndexedPackageSource)) {
+            return null;
+        }
+        return new EntityTag(nupkg.getHash().toString());
+    }
+
+    /**
+     * Проверяет условные заголовки запроса (If-None-Match, If-Modified-Since)
+     *
+     * @param lastModified время последнего изменения ресурса
+     * @param entityTag ETag ресурса
+     * @return построитель ответа "304 Not Modified" или null, если необходимо
+     * сформировать полный ответ
+     */
+    private ResponseBuilder evaluatePreconditions(Date lastModified, EntityTag entityTag) {
+        if (entityTag == null) {
+            return null;
+        }
+        ResponseBuilder notModified;
+        if (lastModified == null) {
+            notModified = request.evaluatePreconditions(entityTag);
+        } else {
+            notModified = request.evaluatePreconditions(lastModified, entityTag);
+        }
+        return notModified;
+    }
+
+    /**
+     * Добавляет в ответ заголовки ETag и Last-Modified
+     *
+     * @param response построитель ответа
+     * @param lastModified время последнего изменения ресурса
+     * @param entityTag ETag ресурса
+     * @return построитель ответа
+     */
+    private ResponseBuilder addValidators(ResponseBuilder response, Date lastModified, EntityTag entityTag) {
+        if (entityTag != null) {
+            response.tag(entityTag);
+            if (lastModified != null) {
+                response.lastModified(lastModified);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Проверяет, принимает ли клиент ответы, сжатые GZIP
+     *
+     * @return true, если заголовок Accept-Encoding содержит gzip с ненулевым
+     * весом
+     */
+    private boolean isGzipAccepted() {
+        if (httpHeaders == null) {
+            return false;
+        }
+        List<String> acceptEncodings = httpHeaders.getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncodings == null) {
+            return false;
+        }
+        for (String header : acceptEncodings) {
+            for (String encoding : header.split(",")) {
+                String[] parts = encoding.trim().split(";");
+                if (!parts[0].trim().equalsIgnoreCase(GZIP_ENCODING)) {
+                    continue;
+                }
+                if (parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?")) {
+                    return false;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return ETag метаданных хранилища (HASH ресурса с метаданными)
+     * @throws IOException ошибка чтения ресурса
+     */
+    private static EntityTag getMetadataEntityTag() throws IOException {
+        if (metadataEntityTag == null) {
+            DirectBufferPool bufferPool = DirectBufferPool.getInstance();
+            ByteBuffer buffer = bufferPool.acquire();
+            try (InputStream inputStream = MainUrlResource.class.getResourceAsStream(METADATA_RESOURCE_NAME);
+                    ReadableByteChannel channel = Channels.newChannel(inputStream)) {
+                MessageDigest digest = MessageDigest.getInstance("SHA-1");
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+                metadataEntityTag = new EntityTag(DatatypeConverter.printHexBinary(digest.digest()).toLowerCase());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("Не удалось вычислить ETag метаданных", e);
+            } finally {
+                bufferPool.release(buffer);
+            }
+        }
+        return metadataEntityTag;
+    }
+
     /**
      * @return URI текущего хранилища
      */
@@ -419,4 +1121,104 @@ public class MainUrlResource {
      * Имя заголовка запроса с ключем доступа
      */
     public static final String API_KEY_HEADER_NAME = "X-NuGet-ApiKey";
+    /**
+     * Тип содержимого пакетного запроса в виде архива TAR
+     */
+    public static final String TAR_MEDIA_TYPE = "application/x-tar";
+    /**
+     * Имя заголовка запроса с предпочтениями клиента
+     */
+    private static final String PREFER_HEADER = "Prefer";
+    /**
+     * Предпочтение клиента "асинхронный ответ"
+     */
+    private static final String RESPOND_ASYNC_PREFERENCE = "respond-async";
+    /**
+     * Имя заголовка ответа с задержкой повтора запроса
+     */
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+    /**
+     * Имя ресурса с метаданными хранилища
+     */
+    private static final String METADATA_RESOURCE_NAME = "/metadata.xml";
+    /**
+     * Тип ответа "лента пакетов" (используется при вычислении ETag)
+     */
+    private static final String FEED_TAG_KIND = "feed";
+    /**
+     * Тип ответа "количество пакетов" (используется при вычислении ETag)
+     */
+    private static final String COUNT_TAG_KIND = "count";
+    /**
+     * Тип ответа "JSON список пакетов" (используется при вычислении ETag)
+     */
+    private static final String JSON_TAG_KIND = "json";
+    /**
+     * Значение заголовка Vary для списков пакетов: RSS и JSON представления
+     * доступны по одному адресу, RSS лента может быть сжата
+     */
+    private static final String PACKAGES_VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+    /**
+     * Заголовок запроса диапазона байт
+     */
+    private static final String RANGE_HEADER = "Range";
+    /**
+     * Заголовок условия запроса диапазона байт
+     */
+    private static final String IF_RANGE_HEADER = "If-Range";
+    /**
+     * Заголовок диапазона байт в ответе
+     */
+    private static final String CONTENT_RANGE_HEADER = "Content-Range";
+    /**
+     * Заголовок со смещением части пакета в байтах
+     */
+    private static final String PART_OFFSET_HEADER = "X-Part-Offset";
+    /**
+     * Заголовок с размером пакета в байтах, передаваемый вместе с частью
+     * пакета
+     */
+    private static final String PACKAGE_LENGTH_HEADER = "X-Package-Length";
+    /**
+     * Заголовок поддержки запроса диапазонов
+     */
+    private static final String ACCEPT_RANGES_HEADER = "Accept-Ranges";
+    /**
+     * Код ответа "Partial Content" (отсутствует в JAX-RS 1.1)
+     */
+    private static final int PARTIAL_CONTENT = 206;
+    /**
+     * Код ответа "Requested Range Not Satisfiable" (отсутствует в JAX-RS 1.1)
+     */
+    private static final int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+    /**
+     * Размер части пакета по умолчанию (4 Мб)
+     */
+    private static final String DEFAULT_PART_SIZE = "4194304";
+    /**
+     * Минимальный размер части пакета (64 Кб)
+     */
+    private static final long MIN_PART_SIZE = 64L * 1024;
+    /**
+     * Максимальный размер части пакета (64 Мб)
+     */
+    private static final long MAX_PART_SIZE = 64L * 1024 * 1024;
+    /**
+     * Кеш манифестов частей пакетов
+     */
+    private static final Cache<String, PackagePartManifest> PART_MANIFEST_CACHE =
+            CacheBuilder.newBuilder().maximumSize(256).build();
+    /**
+     * Тип содержимого JSON. Пониженный вес (qs) нужен, чтобы клиенты, не
+     * указавшие явно предпочтение (Accept: * / *), продолжали получать XML
+     */
+    private static final String JSON_MEDIA_TYPE = "application/json;qs=0.5";
+    /**
+     * Имя кодирования GZIP
+     */
+    private static final String GZIP_ENCODING = "gzip";
+    /**
+     * ETag метаданных хранилища
+     */
+    private static volatile EntityTag metadataEntityTag;
 }
@@ -0,0 +1,456 @@
+package ru.aristar.jnuget;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.files.Hash;
+import ru.aristar.jnuget.files.Nupkg;
+
+/**
+ * Кеш содержимого часто скачиваемых пакетов вне кучи Java (в direct
+ * ByteBuffer). Пакет попадает в кеш, только если он запрашивается чаще, чем
+ * пакет, который придется вытеснить (политика TinyLFU: частота обращений
+ * оценивается приближенно по count-min sketch). Решение о допуске
+ * принимается до чтения пакета, одновременные обращения к одному пакету
+ * читают его однократно. Перед помещением в кеш проверяется HASH пакета.
+ *
+ * @author sviridov
+ */
+public class PackageByteCache {
+
+    /**
+     * Имя системного свойства с максимальным размером кеша в байтах (0 - кеш
+     * отключен)
+     */
+    public static final String MAX_SIZE_PROPERTY_NAME = "nuget.packageCache.maxBytes";
+    /**
+     * Имя системного свойства с максимальным размером кешируемого пакета
+     */
+    public static final String MAX_PACKAGE_SIZE_PROPERTY_NAME = "nuget.packageCache.maxPackageBytes";
+    /**
+     * Минимальная оценка частоты обращений, начиная с которой пакет
+     * помещается в кеш
+     */
+    private static final int ADMISSION_FREQUENCY = 2;
+    /**
+     * Экземпляр кеша
+     */
+    private static volatile PackageByteCache instance;
+    /**
+     * Логгер
+     */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Содержимое пакетов
+     */
+    private final Map<String, ByteBuffer> buffers = new ConcurrentHashMap<>();
+    /**
+     * Выполняющиеся загрузки пакетов в кеш
+     */
+    private final ConcurrentMap<String, FutureTask<ByteBuffer>> loading = new ConcurrentHashMap<>();
+    /**
+     * Оценка частоты обращений к пакетам
+     */
+    private final FrequencySketch sketch = new FrequencySketch(1024);
+    /**
+     * Максимальный суммарный размер пакетов в кеше
+     */
+    private final long maxSize;
+    /**
+     * Максимальный размер кешируемого пакета
+     */
+    private final long maxPackageSize;
+    /**
+     * Текущий суммарный размер пакетов в кеше
+     */
+    private long size;
+    /**
+     * Количество попаданий в кеш
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+    /**
+     * Количество промахов кеша
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param maxSize максимальный суммарный размер пакетов в кеше
+     * @param maxPackageSize максимальный размер кешируемого пакета
+     */
+    public PackageByteCache(long maxSize, long maxPackageSize) {
+        this.maxSize = maxSize;
+        this.maxPackageSize = Math.min(maxPackageSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return true, если кеш включен
+     */
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Возвращает содержимое пакета из кеша. Если пакета в кеше нет, но он
+     * запрашивается достаточно часто, пакет загружается в кеш.
+     *
+     * @param storageName имя хранилища
+     * @param nupkg пакет
+     * @return содержимое пакета (только для чтения) или null, если пакет не
+     * кешируется
+     * @throws IOException ошибка чтения пакета
+     */
+    public ByteBuffer get(String storageName, Nupkg nupkg) throws IOException {
+        if (!isEnabled()) {
+            return null;
+        }
+        String key = createKey(storageName, nupkg);
+        int frequency = sketch.increment(key);
+        ByteBuffer buffer = buffers.get(key);
+        if (buffer != null) {
+            hitCount.incrementAndGet();
+            return buffer.duplicate();
+        }
+        missCount.incrementAndGet();
+        final Long packageSize = nupkg.getSize();
+        if (frequency < ADMISSION_FREQUENCY || packageSize == null || packageSize > maxPackageSize
+                || packageSize > maxSize || !isAdmitted(packageSize, frequency)) {
+            return null;
+        }
+        ByteBuffer loaded = loadOnce(key, nupkg, packageSize.intValue(), frequency);
+        return loaded == null ? null : loaded.duplicate();
+    }
+
+    /**
+     * Загружает пакет в кеш. Если пакет уже загружается другим потоком,
+     * ожидает завершения этой загрузки.
+     *
+     * @param key ключ пакета
+     * @param nupkg пакет
+     * @param packageSize размер пакета
+     * @param frequency оценка частоты обращений к пакету
+     * @return содержимое пакета или null, если пакет не удалось загрузить
+     * @throws IOException ошибка чтения пакета
+     */
+    private ByteBuffer loadOnce(final String key, final Nupkg nupkg, final int packageSize,
+            final int frequency) throws IOException {
+        FutureTask<ByteBuffer> task = new FutureTask<>(new Callable<ByteBuffer>() {
+            @Override
+            public ByteBuffer call() throws Exception {
+                ByteBuffer buffer = buffers.get(key);
+                if (buffer != null) {
+                    return buffer;
+                }
+                buffer = load(nupkg, packageSize);
+                if (buffer != null) {
+                    put(key, buffer, frequency);
+                }
+                return buffer;
+            }
+        });
+        FutureTask<ByteBuffer> existing = loading.putIfAbsent(key, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                loading.remove(key, task);
+            }
+            existing = task;
+        }
+        try {
+            return existing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Ожидание загрузки пакета " + key + " в кеш прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Ошибка загрузки пакета " + key + " в кеш", e.getCause());
+        }
+    }
+
+    /**
+     * Проверяет, будет ли пакет помещен в кеш, не загружая его
+     *
+     * @param packageSize размер пакета
+     * @param frequency оценка частоты обращений к пакету
+     * @return true, если для пакета есть место или вытесняемые пакеты
+     * запрашиваются реже
+     */
+    private synchronized boolean isAdmitted(long packageSize, int frequency) {
+        if (selectVictims(packageSize, frequency) == null) {
+            logger.trace("Пакет не загружается в кеш: вытесняемые пакеты запрашиваются чаще");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Помещает содержимое пакета в кеш, вытесняя пакеты, которые
+     * запрашиваются реже
+     *
+     * @param key ключ пакета
+     * @param buffer содержимое пакета
+     * @param frequency оценка частоты обращений к пакету
+     */
+    private synchronized void put(String key, ByteBuffer buffer, int frequency) {
+        if (buffers.containsKey(key)) {
+            return;
+        }
+        List<String> victims = selectVictims(buffer.capacity(), frequency);
+        if (victims == null) {
+            logger.trace("Пакет {} не помещен в кеш: вытесняемый пакет запрашивается чаще", new Object[]{key});
+            return;
+        }
+        for (String victimKey : victims) {
+            ByteBuffer victim = buffers.remove(victimKey);
+            size -= victim.capacity();
+            logger.debug("Пакет {} вытеснен из кеша", new Object[]{victimKey});
+        }
+        buffers.put(key, buffer);
+        size += buffer.capacity();
+        logger.debug("Пакет {} помещен в кеш, размер кеша {} байт", new Object[]{key, size});
+    }
+
+    /**
+     * Выбирает пакеты, которые необходимо вытеснить, чтобы освободить место,
+     * начиная с наиболее редко запрашиваемых. Вызывается при удержании
+     * монитора кеша.
+     *
+     * @param packageSize размер помещаемого пакета
+     * @param frequency оценка частоты обращений к помещаемому пакету
+     * @return ключи вытесняемых пакетов или null, если пришлось бы вытеснить
+     * пакет, который запрашивается не реже помещаемого
+     */
+    private List<String> selectVictims(long packageSize, int frequency) {
+        long required = size + packageSize - maxSize;
+        if (required <= 0) {
+            return Collections.emptyList();
+        }
+        final Map<String, Integer> frequencies = new HashMap<>();
+        for (String candidate : buffers.keySet()) {
+            frequencies.put(candidate, sketch.frequency(candidate));
+        }
+        List<String> candidates = new ArrayList<>(frequencies.keySet());
+        Collections.sort(candidates, new Comparator<String>() {
+            @Override
+            public int compare(String o1, String o2) {
+                return Integer.compare(frequencies.get(o1), frequencies.get(o2));
+            }
+        });
+        List<String> victims = new ArrayList<>();
+        for (String candidate : candidates) {
+            if (required <= 0) {
+                break;
+            }
+            if (frequencies.get(candidate) >= frequency) {
+                return null;
+            }
+            victims.add(candidate);
+            required -= buffers.get(candidate).capacity();
+        }
+        return required <= 0 ? victims : null;
+    }
+
+    /**
+     * Загружает содержимое пакета и проверяет его HASH
+     *
+     * @param nupkg пакет
+     * @param packageSize размер пакета
+     * @return содержимое пакета или null, если HASH не совпадает
+     * @throws IOException ошибка чтения пакета
+     */
+    private ByteBuffer load(Nupkg nupkg, int packageSize) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(Hash.ALGORITHM_NAME);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(packageSize);
+            try (InputStream inputStream = nupkg.getStream();
+                    ReadableByteChannel channel = Channels.newChannel(inputStream)) {
+                int count = 0;
+                while (buffer.hasRemaining() && count >= 0) {
+                    count = channel.read(buffer);
+                }
+                if (buffer.hasRemaining() || inputStream.read() != -1) {
+                    logger.warn("Размер пакета {}:{} не совпадает с ожидаемым", new Object[]{nupkg.getId(), nupkg.getVersion()});
+                    return null;
+                }
+            }
+            buffer.flip();
+            digest.update(buffer.duplicate());
+            Hash hash = new Hash(digest.digest());
+            if (!hash.equals(nupkg.getHash())) {
+                logger.warn("HASH пакета {}:{} не совпадает с ожидаемым", new Object[]{nupkg.getId(), nupkg.getVersion()});
+                return null;
+            }
+            return buffer.asReadOnlyBuffer();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Не удается подсчитать HASH пакета", e);
+        }
+    }
+
+    /**
+     * @return количество попаданий в кеш
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return количество промахов кеша
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return текущий суммарный размер пакетов в кеше
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Создает ключ пакета. Ключ включает дату изменения и размер пакета,
+     * поэтому перезаписанный пакет не будет получен из кеша. HASH в ключ не
+     * входит: для пакетов без сохраненного HASH его вычисление требует чтения
+     * всего файла.
+     *
+     * @param storageName имя хранилища
+     * @param nupkg пакет
+     * @return ключ пакета
+     */
+    private static String createKey(String storageName, Nupkg nupkg) {
+        Date updated = nupkg.getUpdated();
+        return storageName + ":" + nupkg.getId().toLowerCase() + ":" + nupkg.getVersion()
+                + ":" + (updated == null ? 0 : updated.getTime()) + ":" + nupkg.getSize();
+    }
+
+    /**
+     * Возвращает экземпляр кеша, или создает новый
+     *
+     * @return экземпляр кеша
+     */
+    public static PackageByteCache getInstance() {
+        if (instance == null) {
+            synchronized (PackageByteCache.class) {
+                if (instance == null) {
+                    long maxSize = Long.getLong(MAX_SIZE_PROPERTY_NAME, 0L);
+                    long maxPackageSize = Long.getLong(MAX_PACKAGE_SIZE_PROPERTY_NAME, maxSize / 8);
+                    instance = new PackageByteCache(maxSize, maxPackageSize);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Приближенная оценка частоты обращений (count-min sketch) со
+     * старением: при достижении предела обращений все счетчики уменьшаются
+     * вдвое, чтобы давно популярные пакеты со временем уступали место новым.
+     */
+    static class FrequencySketch {
+
+        /**
+         * Множители хеш функций строк
+         */
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+        /**
+         * Счетчики
+         */
+        private final int[][] counters;
+        /**
+         * Маска индекса счетчика
+         */
+        private final int mask;
+        /**
+         * Количество обращений, после которого счетчики уменьшаются вдвое
+         */
+        private final int sampleSize;
+        /**
+         * Количество обращений с момента последнего уменьшения счетчиков
+         */
+        private int additions;
+
+        /**
+         * @param width количество счетчиков в строке (степень двойки)
+         */
+        FrequencySketch(int width) {
+            this.counters = new int[SEEDS.length][width];
+            this.mask = width - 1;
+            this.sampleSize = width * 10;
+        }
+
+        /**
+         * Увеличивает счетчик обращений
+         *
+         * @param key ключ
+         * @return оценка частоты обращений с учетом текущего
+         */
+        synchronized int increment(String key) {
+            int result = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = index(key, i);
+                counters[i][index]++;
+                result = Math.min(result, counters[i][index]);
+            }
+            if (++additions >= sampleSize) {
+                reset();
+            }
+            return result;
+        }
+
+        /**
+         * @param key ключ
+         * @return оценка частоты обращений
+         */
+        synchronized int frequency(String key) {
+            int result = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                result = Math.min(result, counters[i][index(key, i)]);
+            }
+            return result;
+        }
+
+        /**
+         * Уменьшает все счетчики вдвое
+         */
+        private void reset() {
+            for (int[] row : counters) {
+                for (int j = 0; j < row.length; j++) {
+                    row[j] >>>= 1;
+                }
+            }
+            additions = 0;
+        }
+
+        /**
+         * @param key ключ
+         * @param row номер строки счетчиков
+         * @return индекс счетчика в строке
+         */
+        private int index(String key, int row) {
+            int hash = key.hashCode() * SEEDS[row];
+            hash ^= hash >>> 16;
+            return hash & mask;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package ru.aristar.jnuget;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import ru.aristar.jnuget.files.Hash;
+
+/**
+ * Манифест частей пакета: размер пакета, размер части и HASH каждой части.
+ * Позволяет скачивать пакет по частям в несколько соединений и проверять
+ * каждую часть независимо.
+ *
+ * @author sviridov
+ */
+@XmlRootElement(name = "parts")
+@XmlAccessorType(XmlAccessType.NONE)
+public class PackagePartManifest {
+
+    /**
+     * Размер буфера чтения файла
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * Размер пакета в байтах
+     */
+    @XmlAttribute(name = "size")
+    private long size;
+    /**
+     * Размер части в байтах
+     */
+    @XmlAttribute(name = "partSize")
+    private long partSize;
+    /**
+     * Алгоритм вычисления HASH частей
+     */
+    @XmlAttribute(name = "hashAlgorithm")
+    private String hashAlgorithm = Hash.ALGORITHM_NAME;
+    /**
+     * HASH частей пакета (BASE64) в порядке следования частей
+     */
+    @XmlElement(name = "part")
+    private List<String> partHashes = new ArrayList<>();
+
+    /**
+     * Конструктор по умолчанию (необходим JAXB)
+     */
+    public PackagePartManifest() {
+    }
+
+    /**
+     * @return размер пакета в байтах
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return размер части в байтах
+     */
+    public long getPartSize() {
+        return partSize;
+    }
+
+    /**
+     * @return алгоритм вычисления HASH частей
+     */
+    public String getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    /**
+     * @return HASH частей пакета (BASE64) в порядке следования частей
+     */
+    public List<String> getPartHashes() {
+        return partHashes;
+    }
+
+    /**
+     * @return количество частей
+     */
+    public int getPartCount() {
+        return getPartCount(size, partSize);
+    }
+
+    /**
+     * @param size размер пакета в байтах
+     * @param partSize размер части в байтах
+     * @return количество частей
+     */
+    public static int getPartCount(long size, long partSize) {
+        return (int) ((size + partSize - 1) / partSize);
+    }
+
+    /**
+     * Вычисляет манифест частей файла пакета
+     *
+     * @param file файл пакета
+     * @param partSize размер части в байтах
+     * @return манифест частей
+     * @throws IOException ошибка чтения файла
+     */
+    public static PackagePartManifest create(File file, long partSize) throws IOException {
+        PackagePartManifest manifest = new PackagePartManifest();
+        manifest.partSize = partSize;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            manifest.size = channel.size();
+            MessageDigest digest = MessageDigest.getInstance(Hash.ALGORITHM_NAME);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = 0;
+            while (position < manifest.size) {
+                long partEnd = Math.min(position + partSize, manifest.size);
+                while (position < partEnd) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(BUFFER_SIZE, partEnd - position));
+                    int count = channel.read(buffer, position);
+                    if (count < 0) {
+                        throw new IOException("Неожиданный конец файла " + file);
+                    }
+                    buffer.flip();
+                    digest.update(buffer);
+                    position += count;
+                }
+                manifest.partHashes.add(new Hash(digest.digest()).toString());
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Не удается подсчитать HASH части пакета", e);
+        }
+        return manifest;
+    }
+}
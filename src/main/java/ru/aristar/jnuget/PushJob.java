@@ -0,0 +1,192 @@
+package ru.aristar.jnuget;
+
+import java.util.Date;
+import java.util.UUID;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Задание асинхронного помещения пакета в хранилище
+ *
+ * @author sviridov
+ */
+@XmlRootElement(name = "job")
+@XmlAccessorType(XmlAccessType.NONE)
+public class PushJob {
+
+    /**
+     * Состояние задания
+     */
+    public enum Status {
+
+        /**
+         * Задание ожидает в очереди
+         */
+        QUEUED,
+        /**
+         * Пакет помещается в хранилище
+         */
+        RUNNING,
+        /**
+         * Пакет помещен в хранилище
+         */
+        SUCCEEDED,
+        /**
+         * Хранилище отказалось принять пакет
+         */
+        REJECTED,
+        /**
+         * Ошибка помещения пакета
+         */
+        FAILED
+    }
+    /**
+     * Идентификатор задания
+     */
+    @XmlAttribute(name = "id")
+    private String id;
+    /**
+     * Имя хранилища
+     */
+    @XmlAttribute(name = "storage")
+    private String storageName;
+    /**
+     * Идентификатор пакета
+     */
+    @XmlAttribute(name = "packageId")
+    private String packageId;
+    /**
+     * Версия пакета
+     */
+    @XmlAttribute(name = "version")
+    private String version;
+    /**
+     * Состояние задания
+     */
+    @XmlAttribute(name = "status")
+    private volatile Status status = Status.QUEUED;
+    /**
+     * Время создания задания
+     */
+    @XmlAttribute(name = "created")
+    private Date created;
+    /**
+     * Время завершения задания
+     */
+    @XmlAttribute(name = "finished")
+    private volatile Date finished;
+    /**
+     * Описание ошибки
+     */
+    @XmlElement(name = "message")
+    private volatile String message;
+
+    /**
+     * Конструктор по умолчанию (необходим JAXB)
+     */
+    public PushJob() {
+    }
+
+    /**
+     * @param storageName имя хранилища
+     * @param packageId идентификатор пакета
+     * @param version версия пакета
+     */
+    public PushJob(String storageName, String packageId, Version version) {
+        this.id = UUID.randomUUID().toString();
+        this.storageName = storageName;
+        this.packageId = packageId;
+        this.version = version == null ? null : version.toString();
+        this.created = new Date();
+    }
+
+    /**
+     * @return идентификатор задания
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return имя хранилища
+     */
+    public String getStorageName() {
+        return storageName;
+    }
+
+    /**
+     * @return идентификатор пакета
+     */
+    public String getPackageId() {
+        return packageId;
+    }
+
+    /**
+     * @return версия пакета
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return состояние задания
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return время создания задания
+     */
+    public Date getCreated() {
+        return created;
+    }
+
+    /**
+     * @return время завершения задания
+     */
+    public Date getFinished() {
+        return finished;
+    }
+
+    /**
+     * @return описание ошибки
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Отмечает начало выполнения задания
+     */
+    void start() {
+        status = Status.RUNNING;
+    }
+
+    /**
+     * Отмечает завершение задания
+     *
+     * @param status итоговое состояние задания
+     * @param message описание ошибки
+     */
+    void finish(Status status, String message) {
+        this.message = message;
+        this.finished = new Date();
+        this.status = status;
+    }
+
+    /**
+     * @return true, если задание завершено
+     */
+    public boolean isFinished() {
+        return status != Status.QUEUED && status != Status.RUNNING;
+    }
+
+    @Override
+    public String toString() {
+        return "PushJob{" + id + ", " + storageName + ", " + packageId + ":" + version + ", " + status + '}';
+    }
+}
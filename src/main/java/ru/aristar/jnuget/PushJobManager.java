@@ -0,0 +1,238 @@
+package ru.aristar.jnuget;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.files.TempNupkgFile;
+import ru.aristar.jnuget.sources.PackageSource;
+
+/**
+ * Асинхронное помещение пакетов в хранилища. Задания выполняются
+ * ограниченным пулом потоков, очередь заданий ограничена: при заполненной
+ * очереди новое задание отклоняется, и клиент должен повторить запрос
+ * позже.
+ *
+ * @author sviridov
+ */
+public class PushJobManager implements AutoCloseable {
+
+    /**
+     * Имя системного свойства с количеством потоков помещения пакетов
+     */
+    public static final String THREAD_COUNT_PROPERTY_NAME = "nuget.asyncPush.threads";
+    /**
+     * Имя системного свойства с размером очереди заданий
+     */
+    public static final String QUEUE_SIZE_PROPERTY_NAME = "nuget.asyncPush.queueSize";
+    /**
+     * Имя системного свойства с рекомендуемой задержкой повтора запроса
+     * (секунд) при заполненной очереди
+     */
+    public static final String RETRY_AFTER_PROPERTY_NAME = "nuget.asyncPush.retryAfter";
+    /**
+     * Количество потоков по умолчанию
+     */
+    public static final long DEFAULT_THREAD_COUNT = 2;
+    /**
+     * Размер очереди заданий по умолчанию
+     */
+    public static final long DEFAULT_QUEUE_SIZE = 100;
+    /**
+     * Рекомендуемая задержка повтора запроса по умолчанию (секунд)
+     */
+    public static final long DEFAULT_RETRY_AFTER = 10;
+    /**
+     * Время хранения информации о заданиях (часов)
+     */
+    private static final long JOB_EXPIRE_HOURS = 24;
+    /**
+     * Максимальное количество хранимых заданий
+     */
+    private static final long MAX_JOB_COUNT = 10000;
+    /**
+     * Экземпляр менеджера
+     */
+    private static volatile PushJobManager instance;
+    /**
+     * Логгер
+     */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Пул потоков помещения пакетов
+     */
+    private final ThreadPoolExecutor executor;
+    /**
+     * Задания по идентификаторам
+     */
+    private final Cache<String, PushJob> jobs = CacheBuilder.newBuilder()
+            .maximumSize(MAX_JOB_COUNT)
+            .expireAfterWrite(JOB_EXPIRE_HOURS, TimeUnit.HOURS)
+            .build();
+    /**
+     * Рекомендуемая задержка повтора запроса (секунд)
+     */
+    private final long retryAfter;
+
+    /**
+     * @param threadCount количество потоков помещения пакетов
+     * @param queueSize размер очереди заданий
+     * @param retryAfter рекомендуемая задержка повтора запроса (секунд)
+     */
+    public PushJobManager(int threadCount, int queueSize, long retryAfter) {
+        this.retryAfter = retryAfter;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "PushWorker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Ставит пакет в очередь на помещение в хранилище. После выполнения
+     * задания временный файл пакета удаляется.
+     *
+     * @param packageSource хранилище пакетов
+     * @param nupkg пакет
+     * @return задание
+     * @throws RejectedExecutionException очередь заданий заполнена
+     */
+    public PushJob submit(final PackageSource<? extends Nupkg> packageSource, final TempNupkgFile nupkg)
+            throws RejectedExecutionException {
+        final PushJob job = new PushJob(packageSource.getName(), nupkg.getId(), nupkg.getVersion());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runJob(job, packageSource, nupkg);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.getId());
+            throw e;
+        }
+        logger.debug("Задание {} поставлено в очередь", new Object[]{job});
+        return job;
+    }
+
+    /**
+     * @param jobId идентификатор задания
+     * @return задание или null, если задание не найдено
+     */
+    public PushJob getJob(String jobId) {
+        return jobs.getIfPresent(jobId);
+    }
+
+    /**
+     * @return рекомендуемая задержка повтора запроса (секунд)
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Проверяет, есть ли место в очереди заданий. Используется до получения
+     * пакета, чтобы не принимать тело запроса, которое все равно будет
+     * отклонено. Задание может быть отклонено и после успешной проверки, если
+     * очередь заполнится параллельными запросами.
+     *
+     * @return true, если очередь заданий не заполнена
+     */
+    public boolean hasCapacity() {
+        return !executor.isShutdown() && executor.getQueue().remainingCapacity() > 0;
+    }
+
+    /**
+     * @return количество заданий в очереди
+     */
+    public int getQueueLength() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Останавливает прием заданий и ожидает завершения поставленных в
+     * очередь
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("Не все задания помещения пакетов завершены: {} в очереди",
+                        new Object[]{executor.getQueue().size()});
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Выполняет задание
+     *
+     * @param job задание
+     * @param packageSource хранилище пакетов
+     * @param nupkg пакет
+     */
+    private void runJob(PushJob job, PackageSource<? extends Nupkg> packageSource, TempNupkgFile nupkg) {
+        job.start();
+        try {
+            if (packageSource.pushPackage(nupkg)) {
+                job.finish(PushJob.Status.SUCCEEDED, null);
+            } else {
+                job.finish(PushJob.Status.REJECTED, "Публикация пакета в хранилище не произведена");
+            }
+        } catch (Exception e) {
+            logger.error("Ошибка выполнения задания " + job, e);
+            job.finish(PushJob.Status.FAILED, e.getMessage());
+        } finally {
+            try {
+                nupkg.close();
+            } catch (Exception e) {
+                logger.warn("Ошибка удаления временного файла пакета", e);
+            }
+        }
+        logger.debug("Задание {} завершено", new Object[]{job});
+    }
+
+    /**
+     * Возвращает экземпляр менеджера, или создает новый
+     *
+     * @return экземпляр менеджера
+     */
+    public static PushJobManager getInstance() {
+        if (instance == null) {
+            synchronized (PushJobManager.class) {
+                if (instance == null) {
+                    int threadCount = Long.getLong(THREAD_COUNT_PROPERTY_NAME, DEFAULT_THREAD_COUNT).intValue();
+                    int queueSize = Long.getLong(QUEUE_SIZE_PROPERTY_NAME, DEFAULT_QUEUE_SIZE).intValue();
+                    long retryAfter = Long.getLong(RETRY_AFTER_PROPERTY_NAME, DEFAULT_RETRY_AFTER);
+                    instance = new PushJobManager(threadCount, queueSize, retryAfter);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Останавливает экземпляр менеджера, если он был создан
+     */
+    public static void shutdown() {
+        PushJobManager manager = instance;
+        if (manager != null) {
+            manager.close();
+        }
+    }
+}
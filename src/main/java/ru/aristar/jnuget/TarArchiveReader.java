@@ -0,0 +1,352 @@
+package ru.aristar.jnuget;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Последовательное чтение архива TAR из потока (форматы ustar, GNU и pax).
+ * Возвращаются только обычные файлы, каталоги и ссылки пропускаются.
+ *
+ * @author sviridov
+ */
+public class TarArchiveReader implements Closeable {
+
+    /**
+     * Размер блока архива
+     */
+    public static final int BLOCK_SIZE = 512;
+    /**
+     * Максимальный размер заголовка с длинным именем файла
+     */
+    private static final int MAX_NAME_HEADER_SIZE = 64 * 1024;
+    /**
+     * Кодировка имен файлов
+     */
+    private static final Charset NAME_CHARSET = Charset.forName("UTF-8");
+    /**
+     * Поток с архивом
+     */
+    private final InputStream inputStream;
+    /**
+     * Количество непрочитанных байт текущего файла
+     */
+    private long remaining;
+    /**
+     * Количество байт выравнивания после текущего файла
+     */
+    private long padding;
+
+    /**
+     * @param inputStream поток с архивом
+     */
+    public TarArchiveReader(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    /**
+     * Переходит к следующему файлу архива. Непрочитанные данные текущего
+     * файла пропускаются.
+     *
+     * @return имя файла или null, если архив закончился
+     * @throws IOException ошибка чтения или некорректный формат архива
+     */
+    public String nextEntry() throws IOException {
+        skipCurrentEntry();
+        String longName = null;
+        byte[] header = new byte[BLOCK_SIZE];
+        while (readBlock(header)) {
+            if (isZeroBlock(header)) {
+                return null;
+            }
+            long size = parseNumber(header, 124, 12);
+            remaining = size;
+            padding = (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+            char type = (char) header[156];
+            switch (type) {
+                case '0':
+                case '\0':
+                case '7':
+                    return longName != null ? longName : readName(header);
+                case 'L':
+                    longName = trimName(new String(readEntryContent(), NAME_CHARSET));
+                    break;
+                case 'x':
+                    String path = parsePaxPath(new String(readEntryContent(), NAME_CHARSET));
+                    if (path != null) {
+                        longName = path;
+                    }
+                    break;
+                default:
+                    skipCurrentEntry();
+                    longName = null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return поток с данными текущего файла (закрытие потока не закрывает
+     * архив)
+     */
+    public InputStream getEntryStream() {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int result = in.read();
+                if (result < 0) {
+                    throw new EOFException("Неожиданный конец архива");
+                }
+                remaining--;
+                return result;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int result = in.read(buffer, offset, (int) Math.min(length, remaining));
+                if (result < 0) {
+                    throw new EOFException("Неожиданный конец архива");
+                }
+                remaining -= result;
+                return result;
+            }
+
+            @Override
+            public long skip(long length) throws IOException {
+                long skipped = in.skip(Math.min(length, remaining));
+                remaining -= skipped;
+                return skipped;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return (int) Math.min(in.available(), remaining);
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    /**
+     * Пропускает непрочитанные данные текущего файла и выравнивание
+     *
+     * @throws IOException ошибка чтения
+     */
+    private void skipCurrentEntry() throws IOException {
+        skipFully(remaining + padding);
+        remaining = 0;
+        padding = 0;
+    }
+
+    /**
+     * Читает содержимое служебного файла (длинное имя, заголовок pax)
+     *
+     * @return содержимое файла
+     * @throws IOException ошибка чтения или слишком большой заголовок
+     */
+    private byte[] readEntryContent() throws IOException {
+        if (remaining > MAX_NAME_HEADER_SIZE) {
+            throw new IOException("Слишком большой заголовок архива: " + remaining + " байт");
+        }
+        byte[] content = new byte[(int) remaining];
+        readFully(content);
+        remaining = 0;
+        skipCurrentEntry();
+        return content;
+    }
+
+    /**
+     * Читает блок архива
+     *
+     * @param block буфер блока
+     * @return false, если поток закончился до начала блока
+     * @throws IOException ошибка чтения или неполный блок
+     */
+    private boolean readBlock(byte[] block) throws IOException {
+        int count = inputStream.read(block, 0, block.length);
+        if (count < 0) {
+            return false;
+        }
+        while (count < block.length) {
+            int result = inputStream.read(block, count, block.length - count);
+            if (result < 0) {
+                throw new EOFException("Неожиданный конец архива");
+            }
+            count += result;
+        }
+        return true;
+    }
+
+    /**
+     * Читает указанное количество байт
+     *
+     * @param buffer буфер
+     * @throws IOException ошибка чтения или конец потока
+     */
+    private void readFully(byte[] buffer) throws IOException {
+        int count = 0;
+        while (count < buffer.length) {
+            int result = inputStream.read(buffer, count, buffer.length - count);
+            if (result < 0) {
+                throw new EOFException("Неожиданный конец архива");
+            }
+            count += result;
+        }
+    }
+
+    /**
+     * Пропускает указанное количество байт
+     *
+     * @param length количество байт
+     * @throws IOException ошибка чтения или конец потока
+     */
+    private void skipFully(long length) throws IOException {
+        byte[] buffer = null;
+        while (length > 0) {
+            long skipped = inputStream.skip(length);
+            if (skipped <= 0) {
+                if (buffer == null) {
+                    buffer = new byte[BLOCK_SIZE];
+                }
+                int result = inputStream.read(buffer, 0, (int) Math.min(buffer.length, length));
+                if (result < 0) {
+                    throw new EOFException("Неожиданный конец архива");
+                }
+                skipped = result;
+            }
+            length -= skipped;
+        }
+    }
+
+    /**
+     * Читает имя файла из заголовка (с учетом префикса ustar)
+     *
+     * @param header заголовок
+     * @return имя файла
+     */
+    private static String readName(byte[] header) {
+        String name = readString(header, 0, 100);
+        boolean ustar = readString(header, 257, 6).startsWith("ustar");
+        if (ustar) {
+            String prefix = readString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Читает строку, завершающуюся нулевым байтом
+     *
+     * @param header заголовок
+     * @param offset смещение поля
+     * @param length длина поля
+     * @return строка
+     */
+    private static String readString(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, NAME_CHARSET);
+    }
+
+    /**
+     * Удаляет завершающие нулевые байты и переводы строк
+     *
+     * @param name имя файла
+     * @return имя файла
+     */
+    private static String trimName(String name) {
+        int end = name.length();
+        while (end > 0 && (name.charAt(end - 1) == '\0' || name.charAt(end - 1) == '\n')) {
+            end--;
+        }
+        return name.substring(0, end);
+    }
+
+    /**
+     * Извлекает имя файла из расширенного заголовка pax
+     *
+     * @param content содержимое заголовка ("длина ключ=значение\n")
+     * @return имя файла или null, если заголовок не содержит имени
+     */
+    private static String parsePaxPath(String content) {
+        for (String record : content.split("\n")) {
+            int spaceIndex = record.indexOf(' ');
+            if (spaceIndex > 0 && record.startsWith("path=", spaceIndex + 1)) {
+                return record.substring(spaceIndex + 1 + "path=".length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Читает числовое поле заголовка (восьмеричное или двоичное GNU)
+     *
+     * @param header заголовок
+     * @param offset смещение поля
+     * @param length длина поля
+     * @return значение поля
+     * @throws IOException некорректное значение
+     */
+    private static long parseNumber(byte[] header, int offset, int length) throws IOException {
+        if ((header[offset] & 0x80) != 0) {
+            long result = header[offset] & 0x7F;
+            for (int i = offset + 1; i < offset + length; i++) {
+                result = (result << 8) | (header[i] & 0xFF);
+            }
+            return result;
+        }
+        long result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte value = header[i];
+            if (value == 0 || value == ' ') {
+                if (result != 0) {
+                    break;
+                }
+                continue;
+            }
+            if (value < '0' || value > '7') {
+                throw new IOException("Некорректный заголовок архива");
+            }
+            result = (result << 3) + (value - '0');
+        }
+        return result;
+    }
+
+    /**
+     * @param block блок архива
+     * @return true, если блок состоит из нулевых байт (конец архива)
+     */
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte value : block) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
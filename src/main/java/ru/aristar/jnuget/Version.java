@@ -112,6 +112,14 @@ public class Version implements Comparable<Version>, Serializable {
         return revision;
     }
 
+    /**
+     * @return true, если версия является предварительной (ревизия начинается
+     * с "-", например 1.0.0-beta)
+     */
+    public boolean isPrerelease() {
+        return revision != null && revision.startsWith("-");
+    }
+
     /**
      * @return шаблон числовой ревизии
      */
@@ -2,6 +2,7 @@ package ru.aristar.jnuget;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.StreamingOutput;
 import javax.xml.bind.JAXBException;
@@ -17,18 +18,37 @@ public class XmlStreamingOutput implements StreamingOutput {
      * RSS данные о пакетах
      */
     private final XmlWritable objectToWrite;
+    /**
+     * Сжимать ли данные GZIP
+     */
+    private final boolean compress;
 
     /**
      * @param objectToWrite данные о пакетах
      */
     public XmlStreamingOutput(XmlWritable objectToWrite) {
+        this(objectToWrite, false);
+    }
+
+    /**
+     * @param objectToWrite данные о пакетах
+     * @param compress сжимать ли данные GZIP
+     */
+    public XmlStreamingOutput(XmlWritable objectToWrite, boolean compress) {
         this.objectToWrite = objectToWrite;
+        this.compress = compress;
     }
 
     @Override
     public void write(OutputStream output) throws IOException, WebApplicationException {
         try {
-            objectToWrite.writeXml(output);
+            if (compress) {
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(output);
+                objectToWrite.writeXml(gzipOutputStream);
+                gzipOutputStream.finish();
+            } else {
+                objectToWrite.writeXml(output);
+            }
         } catch (JAXBException e) {
             throw new WebApplicationException(e);
         }
@@ -5,11 +5,6 @@ import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
-import com.sun.jersey.api.client.config.ClientConfig;
-import com.sun.jersey.api.client.config.DefaultClientConfig;
-import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
-import com.sun.jersey.client.apache4.ApacheHttpClient4;
-import com.sun.jersey.client.apache4.config.ApacheHttpClient4Config;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -23,7 +18,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.aristar.jnuget.MainUrlResource;
 import ru.aristar.jnuget.Version;
-import ru.aristar.jnuget.common.ProxyOptions;
 import ru.aristar.jnuget.files.NugetFormatException;
 import ru.aristar.jnuget.files.Nupkg;
 import ru.aristar.jnuget.files.TempNupkgFile;
@@ -31,7 +25,7 @@ import ru.aristar.jnuget.query.AndExpression;
 import ru.aristar.jnuget.query.IdEqIgnoreCase;
 import ru.aristar.jnuget.query.VersionEq;
 import ru.aristar.jnuget.rss.PackageFeed;
-import ru.aristar.jnuget.sources.PackageSourceFactory;
+import ru.aristar.jnuget.rss.PackageFeedReader;
 
 /**
  *
@@ -46,7 +40,7 @@ public class NugetClient implements AutoCloseable {
     /**
      * REST клиент
      */
-    private Client client;
+    private final Client client;
     /**
      * URL хранилища по умолчанию
      */
@@ -61,14 +55,18 @@ public class NugetClient implements AutoCloseable {
     private Logger logger = LoggerFactory.getLogger(this.getClass());
 
     /**
-     * Конструктор по умолчанию
+     * Конструктор по умолчанию. Использует общий для процесса HTTP клиент с
+     * пулом соединений {@link SharedHttpClient}
      */
     public NugetClient() {
-        final ProxyOptions proxyOptions = PackageSourceFactory.getInstance().getOptions().getProxyOptions();
-        ClientConfig config = createClientConfig(proxyOptions);
-        client = ApacheHttpClient4.create(config);
-        client.setFollowRedirects(Boolean.TRUE);
-        client.addFilter(new GZIPContentEncodingFilter());
+        this(SharedHttpClient.getInstance().getClient());
+    }
+
+    /**
+     * @param client REST клиент, через который выполняются запросы
+     */
+    public NugetClient(Client client) {
+        this.client = client;
         webResource = client.resource(DEFAULT_REMOTE_STORAGE_URL);
     }
 
@@ -123,6 +121,48 @@ public class NugetClient implements AutoCloseable {
     public PackageFeed getPackages(String filter, String searchTerm,
             Integer top, String targetFramework, Integer skip)
             throws IOException, URISyntaxException {
+        return getPackages(filter, searchTerm, top, targetFramework, skip, PackageFeed.class);
+    }
+
+    /**
+     * Возвращает потоковый парсер списка пакетов. Вложения ленты разбираются
+     * по мере получения данных от сервера, парсер необходимо закрыть после
+     * использования.
+     *
+     * @param filter параметр фильтрации
+     * @param searchTerm условие поиска
+     * @param top количество запрашиваемых пакетов
+     * @param targetFramework фреймворк, для которого собраны пакеты
+     * @param skip пропустить пакетов
+     * @return потоковый парсер ленты или null, если ленту получить не удалось
+     * @throws IOException ошибка создания парсера
+     * @throws URISyntaxException
+     */
+    public PackageFeedReader getPackageFeedReader(String filter, String searchTerm,
+            Integer top, String targetFramework, Integer skip)
+            throws IOException, URISyntaxException {
+        InputStream inputStream = getPackages(filter, searchTerm, top, targetFramework, skip, InputStream.class);
+        return inputStream == null ? null : new PackageFeedReader(inputStream);
+    }
+
+    /**
+     * Возвращает список пакетов в виде объекта указанного типа
+     *
+     * @param <T> тип
+     * @param filter параметр фильтрации
+     * @param searchTerm условие поиска
+     * @param top количество запрашиваемых пакетов
+     * @param targetFramework фреймворк, для которого собраны пакеты
+     * @param skip пропустить пакетов
+     * @param targetClass класс, который необходимо получить
+     * @return список пакетов или null, если его не удалось получить за
+     * {@link #MAX_TRY_COUNT} попыток
+     * @throws IOException
+     * @throws URISyntaxException
+     */
+    private <T> T getPackages(String filter, String searchTerm,
+            Integer top, String targetFramework, Integer skip, Class<T> targetClass)
+            throws IOException, URISyntaxException {
         Map<String, String> params = new HashMap<>(6);
         params.put("$orderby", "Id");
         params.put("$filter", filter);
@@ -136,14 +176,14 @@ public class NugetClient implements AutoCloseable {
             MediaType.APPLICATION_XML_TYPE,
             MediaType.WILDCARD_TYPE};
 
-        PackageFeed feed = null;
+        T feed = null;
         int tryCount = 0;
         final URI storageURI = webResource.getURI();
         do {
             try {
                 logger.debug("Получение пакетов из {} Top: {}, Skip: {}, попытка {}",
                         new Object[]{storageURI, top, skip, tryCount + 1});
-                feed = get(client, storageURI, "Packages", params, accept, PackageFeed.class);
+                feed = get(client, storageURI, "Packages", params, accept, targetClass);
             } catch (IOException e) {
                 logger.warn("Не удалось получить пакеты для хранилища {} "
                         + "Top: {} Skip: {} причина: {} попытка {}",
@@ -190,36 +230,66 @@ public class NugetClient implements AutoCloseable {
      * @throws URISyntaxException ошибка URI
      */
     public int getPackageCount(final boolean isLatestVersion) throws IOException, URISyntaxException {
+        return getPackageCount(isLatestVersion ? "IsLatestVersion" : null);
+    }
+
+    /**
+     * Возвращает количество пакетов в удаленном хранилище, удовлетворяющих
+     * условию отбора
+     *
+     * @param filter параметр фильтрации или null, если нужны все пакеты
+     * @return количество пакетов
+     * @throws IOException ошибка чтения пакетов из удаленного репозитория
+     * @throws URISyntaxException ошибка URI
+     */
+    public int getPackageCount(final String filter) throws IOException, URISyntaxException {
         URI uri = webResource.getURI();
         final String path = "Packages/$count";
         final MediaType[] mediaType = new MediaType[]{MediaType.TEXT_PLAIN_TYPE};
-        if (isLatestVersion) {
-            Map<String, String> params = new HashMap<>(1);
-            params.put("$filter", "IsLatestVersion");
-            final String response = get(client, uri, path, params, mediaType, String.class);
-            return Integer.parseInt(response);
+        Map<String, String> params = null;
+        if (filter != null) {
+            params = new HashMap<>(1);
+            params.put("$filter", filter);
         }
-        final String response = get(client, uri, path, null, mediaType, String.class);
-        return Integer.parseInt(response);
+        final String response = get(client, uri, path, params, mediaType, String.class);
+        return Integer.parseInt(response.trim());
     }
 
     /**
-     * Отправляет пакет на сервер
+     * Отправляет пакет на сервер. Ответ сервера закрывается, чтобы соединение
+     * вернулось в пул.
      *
      * @param nupkg пакет
-     * @return ответ сервера
+     * @return код статуса ответа сервера
      * @throws UniformInterfaceException
-     * @throws IOException ошибка чтения локального пакета
+     * @throws IOException ошибка чтения локального пакета или сервер не
+     * принял пакет (код статуса отличен от 2xx)
      */
-    public ClientResponse putPackage(Nupkg nupkg)
+    public int putPackage(Nupkg nupkg)
             throws UniformInterfaceException, IOException {
-        webResource.header(MainUrlResource.API_KEY_HEADER_NAME, apiKey);
-        return webResource.put(ClientResponse.class, nupkg.getStream());
+        ClientResponse response;
+        try (InputStream inputStream = nupkg.getStream()) {
+            response = webResource.header(MainUrlResource.API_KEY_HEADER_NAME, apiKey)
+                    .put(ClientResponse.class, inputStream);
+        }
+        try {
+            final int status = response.getStatus();
+            if (status < 200 || status >= 300) {
+                throw new IOException("Сервер " + webResource.getURI() + " не принял пакет "
+                        + nupkg.getId() + ":" + nupkg.getVersion() + ", код ответа: " + status);
+            }
+            return status;
+        } finally {
+            response.close();
+        }
     }
 
+    /**
+     * Клиент использует общий пул соединений, который закрывается методом
+     * {@link SharedHttpClient#shutdown()} при остановке приложения
+     */
     @Override
     public void close() {
-        client.destroy();
     }
 
     /**
@@ -289,6 +359,7 @@ public class NugetClient implements AutoCloseable {
                             + response.getClientResponseStatus().getReasonPhrase());
                 }
                 default:
+                    response.getEntityInputStream().close();
                     throw new IOException("Статус сообщения " + response.getClientResponseStatus() + " не поддерживается");
             }
         } catch (ClientHandlerException e) {
@@ -314,35 +385,6 @@ public class NugetClient implements AutoCloseable {
         return get(client, uri, path, null, null, targetClass);
     }
 
-    /**
-     * Создает настройки подключения к серверу NuGet
-     *
-     * @param proxyOptions настройки прокси
-     * @return
-     */
-    private ClientConfig createClientConfig(ProxyOptions proxyOptions) {
-        ClientConfig config = new DefaultClientConfig();
-        if (proxyOptions.getUseSystemProxy() != null && proxyOptions.getUseSystemProxy()) {
-            logger.info("Используется системный прокси");
-            System.setProperty("java.net.useSystemProxies", "true");
-        } else if (proxyOptions.getNoProxy() != null && proxyOptions.getNoProxy()) {
-            logger.info("Прокси отключен");
-            throw new UnsupportedOperationException("Отключение прокси не реализовано");
-        } else {
-            logger.info("Используется прокси {}:{}",
-                    new Object[]{proxyOptions.getHost(), proxyOptions.getPort()});
-            String host = proxyOptions.getHost();
-            if (!host.toLowerCase().startsWith("http://")) {
-                host = "http://" + host;
-            }
-            URI proxyUri = URI.create(host + ":" + proxyOptions.getPort());
-            config.getProperties().put(ApacheHttpClient4Config.PROPERTY_PROXY_URI, proxyUri);
-            config.getProperties().put(ApacheHttpClient4Config.PROPERTY_PROXY_USERNAME, proxyOptions.getLogin());
-            config.getProperties().put(ApacheHttpClient4Config.PROPERTY_PROXY_PASSWORD, proxyOptions.getPassword());
-        }
-        return config;
-    }
-
     /**
      * Получить класс указанного типа с URI
      *
@@ -0,0 +1,227 @@
+package ru.aristar.jnuget.client;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
+import com.sun.jersey.client.apache4.ApacheHttpClient4;
+import com.sun.jersey.client.apache4.config.ApacheHttpClient4Config;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.common.ProxyOptions;
+import ru.aristar.jnuget.sources.PackageSourceFactory;
+
+/**
+ * Общий для всего процесса HTTP клиент с пулом соединений. Используется
+ * всеми удаленными и проксирующими хранилищами, чтобы соединения (и
+ * установленные TLS сессии) с удаленными серверами использовались повторно.
+ *
+ * @author sviridov
+ */
+public class SharedHttpClient implements AutoCloseable {
+
+    /**
+     * Имя системного свойства с максимальным количеством соединений
+     */
+    public static final String MAX_CONNECTIONS_PROPERTY_NAME = "nuget.http.maxConnections";
+    /**
+     * Имя системного свойства с максимальным количеством соединений с одним
+     * сервером
+     */
+    public static final String MAX_CONNECTIONS_PER_HOST_PROPERTY_NAME = "nuget.http.maxConnectionsPerHost";
+    /**
+     * Имя системного свойства с таймаутом установки соединения (миллисекунд)
+     */
+    public static final String CONNECT_TIMEOUT_PROPERTY_NAME = "nuget.http.connectTimeout";
+    /**
+     * Имя системного свойства с таймаутом чтения данных (миллисекунд)
+     */
+    public static final String READ_TIMEOUT_PROPERTY_NAME = "nuget.http.readTimeout";
+    /**
+     * Имя системного свойства с максимальным временем жизни соединения в
+     * пуле (миллисекунд)
+     */
+    public static final String KEEP_ALIVE_PROPERTY_NAME = "nuget.http.keepAlive";
+    /**
+     * Имя системного свойства с максимальным временем ожидания свободного
+     * соединения в пуле (миллисекунд)
+     */
+    public static final String POOL_TIMEOUT_PROPERTY_NAME = "nuget.http.poolTimeout";
+    /**
+     * Максимальное количество соединений по умолчанию
+     */
+    public static final long DEFAULT_MAX_CONNECTIONS = 50;
+    /**
+     * Максимальное количество соединений с одним сервером по умолчанию
+     */
+    public static final long DEFAULT_MAX_CONNECTIONS_PER_HOST = 10;
+    /**
+     * Таймаут установки соединения по умолчанию (миллисекунд)
+     */
+    public static final long DEFAULT_CONNECT_TIMEOUT = 10000;
+    /**
+     * Таймаут чтения данных по умолчанию (миллисекунд)
+     */
+    public static final long DEFAULT_READ_TIMEOUT = 60000;
+    /**
+     * Максимальное время жизни соединения в пуле по умолчанию (миллисекунд)
+     */
+    public static final long DEFAULT_KEEP_ALIVE = 60000;
+    /**
+     * Максимальное время ожидания свободного соединения в пуле по умолчанию
+     * (миллисекунд)
+     */
+    public static final long DEFAULT_POOL_TIMEOUT = 10000;
+    /**
+     * Экземпляр клиента
+     */
+    private static volatile SharedHttpClient instance;
+    /**
+     * Логгер
+     */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Пул соединений
+     */
+    private final ThreadSafeClientConnManager connectionManager;
+    /**
+     * REST клиент
+     */
+    private final Client client;
+
+    /**
+     * @param proxyOptions настройки прокси
+     * @param maxConnections максимальное количество соединений
+     * @param maxConnectionsPerHost максимальное количество соединений с
+     * одним сервером
+     * @param connectTimeout таймаут установки соединения (миллисекунд)
+     * @param readTimeout таймаут чтения данных (миллисекунд)
+     * @param keepAlive максимальное время жизни соединения в пуле
+     * (миллисекунд)
+     * @param poolTimeout максимальное время ожидания свободного соединения в
+     * пуле (миллисекунд), по истечении которого запрос завершается ошибкой
+     */
+    public SharedHttpClient(ProxyOptions proxyOptions, int maxConnections, int maxConnectionsPerHost,
+            int connectTimeout, int readTimeout, long keepAlive, long poolTimeout) {
+        connectionManager = new ThreadSafeClientConnManager(SchemeRegistryFactory.createDefault(),
+                keepAlive, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+        HttpParams httpParams = new BasicHttpParams();
+        HttpConnectionParams.setConnectionTimeout(httpParams, connectTimeout);
+        HttpConnectionParams.setSoTimeout(httpParams, readTimeout);
+        HttpConnectionParams.setStaleCheckingEnabled(httpParams, true);
+        httpParams.setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT, poolTimeout);
+        ClientConfig config = createClientConfig(proxyOptions);
+        config.getProperties().put(ApacheHttpClient4Config.PROPERTY_CONNECTION_MANAGER, connectionManager);
+        config.getProperties().put(ApacheHttpClient4Config.PROPERTY_HTTP_PARAMS, httpParams);
+        config.getProperties().put(ClientConfig.PROPERTY_CONNECT_TIMEOUT, connectTimeout);
+        config.getProperties().put(ClientConfig.PROPERTY_READ_TIMEOUT, readTimeout);
+        client = ApacheHttpClient4.create(config);
+        client.setFollowRedirects(Boolean.TRUE);
+        client.addFilter(new GZIPContentEncodingFilter());
+        logger.info("Создан HTTP клиент: соединений {}, на сервер {}, таймауты {}/{}/{} мс, время жизни соединения {} мс",
+                new Object[]{maxConnections, maxConnectionsPerHost, connectTimeout, readTimeout, poolTimeout, keepAlive});
+    }
+
+    /**
+     * @return REST клиент
+     */
+    public Client getClient() {
+        return client;
+    }
+
+    /**
+     * @return количество соединений в пуле
+     */
+    public int getConnectionsInPool() {
+        return connectionManager.getConnectionsInPool();
+    }
+
+    /**
+     * Закрывает соединения, не использовавшиеся указанное время
+     *
+     * @param idleTime время простоя (миллисекунд)
+     */
+    public void closeIdleConnections(long idleTime) {
+        connectionManager.closeIdleConnections(idleTime, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        client.destroy();
+    }
+
+    /**
+     * Создает настройки подключения к серверу NuGet
+     *
+     * @param proxyOptions настройки прокси
+     * @return настройки подключения
+     */
+    private ClientConfig createClientConfig(ProxyOptions proxyOptions) {
+        ClientConfig config = new DefaultClientConfig();
+        if (proxyOptions.getUseSystemProxy() != null && proxyOptions.getUseSystemProxy()) {
+            logger.info("Используется системный прокси");
+            System.setProperty("java.net.useSystemProxies", "true");
+        } else if (proxyOptions.getNoProxy() != null && proxyOptions.getNoProxy()) {
+            logger.info("Прокси отключен");
+            throw new UnsupportedOperationException("Отключение прокси не реализовано");
+        } else {
+            logger.info("Используется прокси {}:{}",
+                    new Object[]{proxyOptions.getHost(), proxyOptions.getPort()});
+            String host = proxyOptions.getHost();
+            if (!host.toLowerCase().startsWith("http://")) {
+                host = "http://" + host;
+            }
+            URI proxyUri = URI.create(host + ":" + proxyOptions.getPort());
+            config.getProperties().put(ApacheHttpClient4Config.PROPERTY_PROXY_URI, proxyUri);
+            config.getProperties().put(ApacheHttpClient4Config.PROPERTY_PROXY_USERNAME, proxyOptions.getLogin());
+            config.getProperties().put(ApacheHttpClient4Config.PROPERTY_PROXY_PASSWORD, proxyOptions.getPassword());
+        }
+        return config;
+    }
+
+    /**
+     * Возвращает экземпляр клиента, или создает новый
+     *
+     * @return экземпляр клиента
+     */
+    public static SharedHttpClient getInstance() {
+        if (instance == null) {
+            synchronized (SharedHttpClient.class) {
+                if (instance == null) {
+                    ProxyOptions proxyOptions = PackageSourceFactory.getInstance().getOptions().getProxyOptions();
+                    instance = new SharedHttpClient(proxyOptions,
+                            Long.getLong(MAX_CONNECTIONS_PROPERTY_NAME, DEFAULT_MAX_CONNECTIONS).intValue(),
+                            Long.getLong(MAX_CONNECTIONS_PER_HOST_PROPERTY_NAME, DEFAULT_MAX_CONNECTIONS_PER_HOST).intValue(),
+                            Long.getLong(CONNECT_TIMEOUT_PROPERTY_NAME, DEFAULT_CONNECT_TIMEOUT).intValue(),
+                            Long.getLong(READ_TIMEOUT_PROPERTY_NAME, DEFAULT_READ_TIMEOUT).intValue(),
+                            Long.getLong(KEEP_ALIVE_PROPERTY_NAME, DEFAULT_KEEP_ALIVE),
+                            Long.getLong(POOL_TIMEOUT_PROPERTY_NAME, DEFAULT_POOL_TIMEOUT));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Закрывает экземпляр клиента, если он был создан
+     */
+    public static void shutdown() {
+        SharedHttpClient client = instance;
+        if (client != null) {
+            synchronized (SharedHttpClient.class) {
+                instance = null;
+            }
+            client.close();
+        }
+    }
+}
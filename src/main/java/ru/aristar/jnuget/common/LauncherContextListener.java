@@ -8,9 +8,14 @@ import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.DownloadStatistics;
+import ru.aristar.jnuget.PushJobManager;
+import ru.aristar.jnuget.client.SharedHttpClient;
+import ru.aristar.jnuget.files.DirectBufferPool;
 import ru.aristar.jnuget.files.Nupkg;
 import ru.aristar.jnuget.sources.PackageSource;
 import ru.aristar.jnuget.sources.PackageSourceFactory;
+import ru.aristar.jnuget.sources.push.RetentionService;
 
 /**
  * @author sviridov
@@ -37,6 +42,9 @@ public class LauncherContextListener implements ServletContextListener {
 
     @Override
     public void contextDestroyed(ServletContextEvent contextEvent) {
+        PushJobManager.shutdown();
+        RetentionService.shutdown();
+        SharedHttpClient.shutdown();
         List<PackageSource<Nupkg>> packageSources = PackageSourceFactory.getInstance().getPackageSources();
         for (PackageSource<Nupkg> source : packageSources) {
             if (source instanceof AutoCloseable) {
@@ -49,6 +57,8 @@ public class LauncherContextListener implements ServletContextListener {
                 }
             }
         }
+        DownloadStatistics.getInstance().close();
+        logger.info("Пул буферов: {}", new Object[]{DirectBufferPool.getInstance()});
         logger.info("Сервер JNuget остановлен");
     }
 }
@@ -4,6 +4,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Date;
@@ -12,6 +14,7 @@ import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 import javax.activation.UnsupportedDataTypeException;
 import org.slf4j.Logger;
@@ -104,7 +107,10 @@ public class ClassicNupkg implements Nupkg {
     public NuspecFile getNuspecFile() throws NugetFormatException {
         if (nuspecFile == null) {
             try {
-                nuspecFile = loadNuspec(getStream());
+                nuspecFile = loadNuspecFromCentralDirectory();
+                if (nuspecFile == null) {
+                    nuspecFile = loadNuspec(getStream());
+                }
             } catch (IOException e) {
                 throw new NugetFormatException("Ошибка чтения файла спецификации", e);
             }
@@ -229,6 +235,38 @@ public class ClassicNupkg implements Nupkg {
         }
     }
 
+    /**
+     * Извлечение файла спецификации с произвольным доступом к локальному
+     * файлу пакета: читается только центральный каталог архива и
+     * распаковывается только вложение со спецификацией
+     *
+     * @return файл спецификации или null, если локальный файл отсутствует,
+     * либо не удалось прочитать его центральный каталог
+     * @throws IOException ошибка чтения
+     * @throws NugetFormatException XML в архиве пакета не соответствует
+     * спецификации NuGet
+     */
+    protected NuspecFile loadNuspecFromCentralDirectory() throws IOException, NugetFormatException {
+        if (file == null || !file.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ZipCentralDirectory directory = ZipCentralDirectory.read(channel);
+            for (ZipCentralDirectory.Entry entry : directory.getEntries()) {
+                if (isNuspecZipEntry(new ZipEntry(entry.getName()))) {
+                    try (InputStream inputStream = directory.getInputStream(channel, entry)) {
+                        return NuspecFile.Parse(inputStream);
+                    }
+                }
+            }
+            return null;
+        } catch (ZipException e) {
+            logger.debug("Не удалось прочитать центральный каталог пакета {}: {}",
+                    new Object[]{file, e.getMessage()});
+            return null;
+        }
+    }
+
     @Override
     public String toString() {
         return this.getClass().getSimpleName() + "{" + id + ":" + version + '}';
@@ -267,22 +305,23 @@ public class ClassicNupkg implements Nupkg {
     private EnumSet<Framework> readTargetFrameworks() {
         //TODO SMD_Data, Mono,2.0, Managed, mono, Wix, sl3-wp, net35-Client, net35-Full, net40-Client, net40-Full, sl4-windowsphone71
         EnumSet<Framework> result = EnumSet.noneOf(Framework.class);
+        if (file != null && file.exists()) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                for (ZipCentralDirectory.Entry entry : ZipCentralDirectory.read(channel).getEntries()) {
+                    addTargetFramework(result, entry.getName());
+                }
+                return result.isEmpty() ? EnumSet.allOf(Framework.class) : result;
+            } catch (IOException e) {
+                logger.debug("Не удалось прочитать центральный каталог пакета {}: {}",
+                        new Object[]{file, e.getMessage()});
+                result.clear();
+            }
+        }
         try (InputStream inputStream = getStream()) {
             ZipInputStream zipInputStream = new ZipInputStream(inputStream);
             ZipEntry entry;
             while ((entry = zipInputStream.getNextEntry()) != null) {
-                String name = entry.getName();
-                Matcher matcher = fameworkFolderPattern.matcher(name);
-                if (matcher.matches()) {
-                    String frameworkName = matcher.group(1);
-                    try {
-                        Framework framework = Framework.valueOf(frameworkName.toLowerCase());
-                        result.add(framework);
-                    } catch (IllegalArgumentException e) {
-                        logger.warn("Не найдено значение фреймворка для {}", new Object[]{frameworkName});
-                    }
-                }
-                entry.isDirectory();
+                addTargetFramework(result, entry.getName());
             }
         } catch (IOException e) {
             logger.warn("Ошибка чтения файла пакета", e);
@@ -294,6 +333,26 @@ public class ClassicNupkg implements Nupkg {
         return result;
     }
 
+    /**
+     * Добавляет фреймворк, если вложение архива находится в папке фреймворка
+     * (lib/фреймворк/...)
+     *
+     * @param frameworks список фреймворков
+     * @param entryName имя вложения ZIP архива
+     */
+    protected void addTargetFramework(EnumSet<Framework> frameworks, String entryName) {
+        Matcher matcher = fameworkFolderPattern.matcher(entryName);
+        if (matcher.matches()) {
+            String frameworkName = matcher.group(1);
+            try {
+                Framework framework = Framework.valueOf(frameworkName.toLowerCase());
+                frameworks.add(framework);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Не найдено значение фреймворка для {}", new Object[]{frameworkName});
+            }
+        }
+    }
+
     @Override
     public EnumSet<Framework> getTargetFramework() {
         if (targetFrameworks == null) {
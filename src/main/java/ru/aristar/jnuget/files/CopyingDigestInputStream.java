@@ -0,0 +1,198 @@
+package ru.aristar.jnuget.files;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+
+/**
+ * Входной поток, который при чтении записывает все прочитанные данные в
+ * канал и подсчитывает их HASH. Позволяет разбирать поток (например, как ZIP
+ * архив) одновременно с его сохранением на диск. Данные записываются в канал
+ * через буферы {@link DirectBufferPool}.
+ *
+ * @author sviridov
+ */
+public class CopyingDigestInputStream extends FilterInputStream {
+
+    /**
+     * Алгоритм подсчета HASH
+     */
+    private final MessageDigest messageDigest;
+    /**
+     * Канал, в который записываются прочитанные данные
+     */
+    private final WritableByteChannel target;
+    /**
+     * Пул буферов
+     */
+    private final DirectBufferPool bufferPool = DirectBufferPool.getInstance();
+    /**
+     * Исходный поток как канал (для пропуска и дочитывания данных)
+     */
+    private ReadableByteChannel source;
+    /**
+     * Количество прочитанных байт
+     */
+    private long count;
+
+    /**
+     * @param inputStream исходный поток
+     * @param messageDigest алгоритм подсчета HASH
+     * @param target канал, в который записываются прочитанные данные
+     */
+    public CopyingDigestInputStream(InputStream inputStream, MessageDigest messageDigest, WritableByteChannel target) {
+        super(inputStream);
+        this.messageDigest = messageDigest;
+        this.target = target;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int result = in.read();
+        if (result >= 0) {
+            byte[] single = {(byte) result};
+            copy(single, 0, 1);
+        }
+        return result;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int result = in.read(buffer, offset, length);
+        if (result > 0) {
+            copy(buffer, offset, result);
+        }
+        return result;
+    }
+
+    /**
+     * Пропуск выполняется чтением, чтобы пропущенные данные тоже были
+     * записаны в канал
+     *
+     * @param length количество байт, которые необходимо пропустить
+     * @return количество пропущенных байт
+     * @throws IOException ошибка чтения или записи
+     */
+    @Override
+    public long skip(long length) throws IOException {
+        ByteBuffer buffer = bufferPool.acquire();
+        try {
+            long skipped = 0;
+            while (skipped < length) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), length - skipped));
+                int result = readToBuffer(buffer);
+                if (result < 0) {
+                    break;
+                }
+                skipped += result;
+            }
+            return skipped;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("Поток не поддерживает повторное чтение");
+    }
+
+    /**
+     * Дочитывает поток до конца, записывая данные в канал
+     *
+     * @throws IOException ошибка чтения или записи
+     */
+    public void drain() throws IOException {
+        ByteBuffer buffer = bufferPool.acquire();
+        try {
+            do {
+                buffer.clear();
+            } while (readToBuffer(buffer) >= 0);
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * @return количество прочитанных байт
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return HASH прочитанных данных (после вызова подсчет начинается
+     * заново)
+     */
+    public Hash getHash() {
+        return new Hash(messageDigest.digest());
+    }
+
+    /**
+     * Читает данные исходного потока в буфер, записывает их в канал и
+     * учитывает в HASH
+     *
+     * @param buffer буфер
+     * @return количество прочитанных байт или -1 в конце потока
+     * @throws IOException ошибка чтения или записи
+     */
+    private int readToBuffer(ByteBuffer buffer) throws IOException {
+        if (source == null) {
+            source = Channels.newChannel(in);
+        }
+        int result = source.read(buffer);
+        if (result > 0) {
+            buffer.flip();
+            messageDigest.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            count += result;
+        }
+        return result;
+    }
+
+    /**
+     * Записывает прочитанные данные в канал и учитывает их в HASH
+     *
+     * @param buffer буфер с данными
+     * @param offset смещение данных в буфере
+     * @param length количество байт
+     * @throws IOException ошибка записи
+     */
+    private void copy(byte[] buffer, int offset, int length) throws IOException {
+        messageDigest.update(buffer, offset, length);
+        ByteBuffer directBuffer = bufferPool.acquire();
+        try {
+            int position = offset;
+            while (position < offset + length) {
+                directBuffer.clear();
+                int chunk = Math.min(directBuffer.capacity(), offset + length - position);
+                directBuffer.put(buffer, position, chunk);
+                directBuffer.flip();
+                while (directBuffer.hasRemaining()) {
+                    target.write(directBuffer);
+                }
+                position += chunk;
+            }
+        } finally {
+            bufferPool.release(directBuffer);
+        }
+        count += length;
+    }
+}
@@ -0,0 +1,193 @@
+package ru.aristar.jnuget.files;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Пул буферов вне кучи Java (direct ByteBuffer), используемых при
+ * копировании каналов. Выделение direct буфера обходится дорого, а
+ * освобождается такой буфер только сборщиком мусора, поэтому буферы
+ * возвращаются в пул и используются повторно. Все буферы пула имеют размер
+ * {@link #BUFFER_SIZE}, суммарный объем свободных буферов в пуле ограничен.
+ * Статистика пула выводится в журнал при каждом удвоении количества
+ * выделенных буферов.
+ *
+ * @author sviridov
+ */
+public class DirectBufferPool {
+
+    /**
+     * Имя системного свойства с максимальным объемом свободных буферов в пуле
+     * (0 - буферы не сохраняются)
+     */
+    public static final String MAX_SIZE_PROPERTY_NAME = "nuget.bufferPool.maxBytes";
+    /**
+     * Максимальный объем свободных буферов в пуле по умолчанию
+     */
+    public static final long DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+    /**
+     * Размер буфера
+     */
+    public static final int BUFFER_SIZE = 16 * 1024;
+    /**
+     * Экземпляр пула
+     */
+    private static volatile DirectBufferPool instance;
+    /**
+     * Логгер
+     */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Свободные буферы
+     */
+    private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+    /**
+     * Максимальный объем свободных буферов в пуле
+     */
+    private final long maxSize;
+    /**
+     * Объем свободных буферов в пуле
+     */
+    private final AtomicLong pooledBytes = new AtomicLong();
+    /**
+     * Объем выданных буферов
+     */
+    private final AtomicLong borrowedBytes = new AtomicLong();
+    /**
+     * Количество выделенных буферов
+     */
+    private final AtomicLong allocationCount = new AtomicLong();
+    /**
+     * Количество повторно использованных буферов
+     */
+    private final AtomicLong reuseCount = new AtomicLong();
+
+    /**
+     * @param maxSize максимальный объем свободных буферов в пуле
+     */
+    public DirectBufferPool(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Выдает буфер размером {@link #BUFFER_SIZE}. Буфер необходимо вернуть
+     * методом {@link #release(java.nio.ByteBuffer)}.
+     *
+     * @return очищенный буфер
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = freeBuffers.poll();
+        long allocations = 0;
+        if (buffer != null) {
+            pooledBytes.addAndGet(-buffer.capacity());
+            reuseCount.incrementAndGet();
+            buffer.clear();
+        } else {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            allocations = allocationCount.incrementAndGet();
+        }
+        borrowedBytes.addAndGet(buffer.capacity());
+        if (Long.bitCount(allocations) == 1) {
+            logger.info("Пул буферов: {}", new Object[]{this});
+        }
+        return buffer;
+    }
+
+    /**
+     * Возвращает буфер в пул. Если пул заполнен или буфер получен не из пула,
+     * буфер освобождается сборщиком мусора.
+     *
+     * @param buffer буфер, полученный методом {@link #acquire()}
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        int capacity = buffer.capacity();
+        if (capacity != BUFFER_SIZE || !buffer.isDirect()) {
+            return;
+        }
+        borrowedBytes.addAndGet(-capacity);
+        long pooled;
+        do {
+            pooled = pooledBytes.get();
+            if (pooled + capacity > maxSize) {
+                return;
+            }
+        } while (!pooledBytes.compareAndSet(pooled, pooled + capacity));
+        buffer.clear();
+        freeBuffers.offer(buffer);
+    }
+
+    /**
+     * @return максимальный объем свободных буферов в пуле
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return объем свободных буферов в пуле
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * @return объем выданных и не возвращенных буферов
+     */
+    public long getBorrowedBytes() {
+        return borrowedBytes.get();
+    }
+
+    /**
+     * @return количество выделенных буферов
+     */
+    public long getAllocationCount() {
+        return allocationCount.get();
+    }
+
+    /**
+     * @return количество повторно использованных буферов
+     */
+    public long getReuseCount() {
+        return reuseCount.get();
+    }
+
+    /**
+     * @return доля выданных буферов в общем объеме буферов, которыми владеет
+     * пул (от 0 до 1)
+     */
+    public double getUtilization() {
+        long borrowed = borrowedBytes.get();
+        long total = borrowed + pooledBytes.get();
+        return total == 0 ? 0 : (double) borrowed / total;
+    }
+
+    @Override
+    public String toString() {
+        return "DirectBufferPool{pooled=" + getPooledBytes() + ", borrowed=" + getBorrowedBytes()
+                + ", allocations=" + getAllocationCount() + ", reuses=" + getReuseCount()
+                + ", utilization=" + String.format("%.2f", getUtilization()) + '}';
+    }
+
+    /**
+     * Возвращает экземпляр пула, или создает новый
+     *
+     * @return экземпляр пула
+     */
+    public static DirectBufferPool getInstance() {
+        if (instance == null) {
+            synchronized (DirectBufferPool.class) {
+                if (instance == null) {
+                    instance = new DirectBufferPool(Long.getLong(MAX_SIZE_PROPERTY_NAME, DEFAULT_MAX_SIZE));
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -22,6 +22,21 @@ public class Hash implements Serializable{
         return DatatypeConverter.printBase64Binary(digest);
     }
 
+    /**
+     * @return длина HASH в байтах
+     */
+    public int getLength() {
+        return digest.length;
+    }
+
+    /**
+     * @return HASH в шестнадцатеричном виде (нижний регистр), пригодный для
+     * использования в именах файлов
+     */
+    public String toHexString() {
+        return DatatypeConverter.printHexBinary(digest).toLowerCase();
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null || !(obj instanceof Hash)) {
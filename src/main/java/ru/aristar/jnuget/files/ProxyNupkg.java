@@ -1,15 +1,22 @@
 package ru.aristar.jnuget.files;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.Objects;
+import java.util.concurrent.Callable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.aristar.jnuget.Version;
 import ru.aristar.jnuget.files.nuspec.NuspecFile;
+import ru.aristar.jnuget.sources.PackageFetchCoalescer;
+import ru.aristar.jnuget.sources.PackageFetchCoalescer.PendingFetch;
 import ru.aristar.jnuget.sources.PackageSource;
 
 /**
@@ -31,6 +38,11 @@ public class ProxyNupkg implements Nupkg {
      * Пакет из удаленного хранилища
      */
     private final RemoteNupkg remoteNupkg;
+    /**
+     * Передавать данные пакета клиенту одновременно с загрузкой из удаленного
+     * хранилища
+     */
+    private transient boolean streamThrough;
     /**
      * Логгер
      */
@@ -65,18 +77,225 @@ public class ProxyNupkg implements Nupkg {
         return remoteNupkg.getSize();
     }
 
+    /**
+     * Возвращает поток с данными пакета. Если включена сквозная передача и
+     * пакета нет в локальном хранилище, данные читаются непосредственно из
+     * удаленного хранилища и одновременно записываются во временный файл.
+     * Пакет помещается в локальное хранилище при закрытии потока, если HASH
+     * полученных данных совпадает с HASH удаленного пакета. Если пакет уже
+     * загружается другим потоком, или HASH удаленного пакета вычислен не по
+     * алгоритму {@link Hash#ALGORITHM_NAME}, данные читаются из локального
+     * хранилища после завершения загрузки.
+     *
+     * @return поток с данными пакета
+     * @throws IOException ошибка получения потока
+     */
     @Override
     public InputStream getStream() throws IOException {
+        if (!streamThrough || isStored() || !isHashVerifiable()) {
+            return getLocalNupkg().getStream();
+        }
+        PendingFetch<?> pendingFetch = PackageFetchCoalescer.begin(localPackageSource, getId(), getVersion());
+        if (pendingFetch == null) {
+            getLogger().debug("Пакет {}:{} загружается другим потоком",
+                    new Object[]{getId(), getVersion()});
+            return getLocalNupkg().getStream();
+        }
+        //Пакет мог быть помещен в хранилище до регистрации загрузки
+        localNupkg = null;
+        if (isStored()) {
+            pendingFetch.abandon();
+            return getLocalNupkg().getStream();
+        }
+        return openTeeStream(pendingFetch);
+    }
+
+    /**
+     * @return true, если HASH удаленного пакета может быть проверен при
+     * сквозной передаче
+     */
+    private boolean isHashVerifiable() {
+        try {
+            Hash remoteHash = remoteNupkg.getHash();
+            if (remoteHash != null
+                    && remoteHash.getLength() == MessageDigest.getInstance(Hash.ALGORITHM_NAME).getDigestLength()) {
+                return true;
+            }
+        } catch (NoSuchAlgorithmException | IOException e) {
+            getLogger().warn("Не удалось получить HASH пакета " + getId() + ":" + getVersion(), e);
+        }
+        getLogger().debug("HASH пакета {}:{} не может быть проверен, сквозная передача не используется",
+                new Object[]{getId(), getVersion()});
+        return false;
+    }
+
+    /**
+     * @return true, если пакет находится в локальном хранилище
+     */
+    public boolean isStored() {
+        if (localNupkg == null) {
+            localNupkg = localPackageSource.getPackage(getId(), getVersion());
+        }
+        return localNupkg != null;
+    }
+
+    /**
+     * @return true, если данные пакета передаются клиенту одновременно с
+     * загрузкой из удаленного хранилища
+     */
+    public boolean isStreamThrough() {
+        return streamThrough;
+    }
+
+    /**
+     * @param streamThrough передавать данные пакета клиенту одновременно с
+     * загрузкой из удаленного хранилища
+     */
+    public void setStreamThrough(boolean streamThrough) {
+        this.streamThrough = streamThrough;
+    }
+
+    /**
+     * Открывает поток из удаленного хранилища, копирующий данные во
+     * временный файл
+     *
+     * @param pendingFetch загрузка пакета, зарегистрированная текущим потоком
+     * @return поток с данными пакета
+     * @throws IOException ошибка открытия потока или создания файла
+     */
+    private InputStream openTeeStream(final PendingFetch<?> pendingFetch) throws IOException {
+        getLogger().debug("Сквозная передача пакета {}:{} из удаленного хранилища",
+                new Object[]{getId(), getVersion()});
+        final File tempFile;
+        final FileOutputStream outputStream;
+        InputStream remoteStream;
+        try {
+            //Имя файла должно соответствовать пакету, чтобы его можно было поместить в хранилище
+            tempFile = new File(Files.createTempDirectory("jnuget").toFile(), getFileName());
+            outputStream = new FileOutputStream(tempFile);
+        } catch (IOException | RuntimeException e) {
+            pendingFetch.abandon();
+            throw e;
+        }
+        final MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(Hash.ALGORITHM_NAME);
+            remoteStream = remoteNupkg.getStream();
+        } catch (NoSuchAlgorithmException | IOException | RuntimeException e) {
+            outputStream.close();
+            deleteTempFile(tempFile);
+            pendingFetch.abandon();
+            if (e instanceof NoSuchAlgorithmException) {
+                throw new IOException("Не удается подсчитать HASH пакета", e);
+            }
+            throw e;
+        }
+        return new CopyingDigestInputStream(remoteStream, messageDigest, outputStream.getChannel()) {
+            /**
+             * Поток закрыт
+             */
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    outputStream.close();
+                    commitTeeFile(pendingFetch, tempFile, getCount(), getHash());
+                }
+            }
+        };
+    }
+
+    /**
+     * Помещает загруженный при сквозной передаче файл в локальное хранилище,
+     * если его HASH совпадает с HASH удаленного пакета, и завершает
+     * загрузку. Временный файл удаляется в любом случае.
+     *
+     * @param pendingFetch загрузка пакета, зарегистрированная текущим потоком
+     * @param tempFile временный файл с данными пакета
+     * @param count количество полученных байт
+     * @param hash HASH полученных данных
+     */
+    private void commitTeeFile(PendingFetch<?> pendingFetch, final File tempFile, long count, Hash hash) {
+        try {
+            if (!hash.equals(remoteNupkg.getHash())) {
+                getLogger().warn("Пакет {}:{} получен не полностью или поврежден ({} байт), "
+                        + "в локальное хранилище не помещается", new Object[]{getId(), getVersion(), count});
+                return;
+            }
+            localNupkg = pendingFetch.complete(new Callable<Nupkg>() {
+                @Override
+                public Nupkg call() throws NugetFormatException {
+                    return new ClassicNupkg(tempFile);
+                }
+            });
+        } catch (NoSuchAlgorithmException | IOException e) {
+            getLogger().warn("Не удалось поместить пакет " + getId() + ":" + getVersion()
+                    + " в локальное хранилище", e);
+        } finally {
+            //Ожидающие потоки не должны остаться без результата загрузки
+            pendingFetch.abandon();
+            deleteTempFile(tempFile);
+        }
+    }
+
+    /**
+     * Удаляет временный файл и его каталог
+     *
+     * @param tempFile временный файл
+     */
+    private static void deleteTempFile(File tempFile) {
+        tempFile.delete();
+        tempFile.getParentFile().delete();
+    }
+
+    /**
+     * Возвращает пакет из локального хранилища, при необходимости загружая
+     * его из удаленного хранилища. Одновременные загрузки одного пакета
+     * объединяются {@link PackageFetchCoalescer}
+     *
+     * @return пакет из локального хранилища
+     * @throws IOException ошибка загрузки пакета
+     */
+    public Nupkg getLocalNupkg() throws IOException {
         if (localNupkg != null) {
             getLogger().debug("Пакет выгружается {}:{} из локального хранилища",
                     new Object[]{getId(), getVersion()});
-            return localNupkg.getStream();
+            return localNupkg;
         }
         getLogger().debug("Получение данных для пакета {}:{} в удаленном репозитории",
                 new Object[]{getId(), getVersion()});
-        localPackageSource.pushPackage(remoteNupkg);
-        localNupkg = localPackageSource.getPackage(remoteNupkg.getId(), remoteNupkg.getVersion());
-        return localNupkg.getStream();
+        localNupkg = fetchLocalNupkg();
+        if (localNupkg == null) {
+            //Сквозная передача в другом потоке могла завершиться без помещения пакета в хранилище
+            localNupkg = fetchLocalNupkg();
+        }
+        if (localNupkg == null) {
+            throw new IOException("Не удалось поместить пакет " + getId() + ":" + getVersion()
+                    + " в локальное хранилище");
+        }
+        return localNupkg;
+    }
+
+    /**
+     * @return пакет из локального хранилища или null, если пакет не был
+     * помещен в хранилище
+     * @throws IOException ошибка загрузки пакета
+     */
+    private Nupkg fetchLocalNupkg() throws IOException {
+        return PackageFetchCoalescer.fetch(localPackageSource, remoteNupkg.getId(),
+                remoteNupkg.getVersion(), new Callable<RemoteNupkg>() {
+                    @Override
+                    public RemoteNupkg call() {
+                        return remoteNupkg;
+                    }
+                });
     }
 
     @Override
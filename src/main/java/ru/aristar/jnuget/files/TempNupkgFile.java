@@ -2,18 +2,21 @@ package ru.aristar.jnuget.files;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
-import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.nuspec.NuspecFile;
 
 /**
  * Пакет, хранящий данные во временном файле
@@ -23,44 +26,86 @@ import ru.aristar.jnuget.Version;
 public class TempNupkgFile extends ClassicNupkg implements Nupkg, AutoCloseable {
 
     /**
-     * Копирует данные из одного канала в другой
+     * Копирует данные из одного канала в другой. Буфер копирования берется
+     * из {@link DirectBufferPool}.
      *
      * @param src канал источник
      * @param dest канал назначение
      * @throws IOException ошибка ввода/вывода
      */
     public static void fastChannelCopy(final ReadableByteChannel src, final WritableByteChannel dest) throws IOException {
-        final ByteBuffer buffer = ByteBuffer.allocateDirect(16 * 1024);
-        while (src.read(buffer) != -1) {
+        final DirectBufferPool bufferPool = DirectBufferPool.getInstance();
+        final ByteBuffer buffer = bufferPool.acquire();
+        try {
+            while (src.read(buffer) != -1) {
+                buffer.flip();
+                dest.write(buffer);
+                buffer.compact();
+            }
             buffer.flip();
-            dest.write(buffer);
-            buffer.compact();
-        }
-        buffer.flip();
-        while (buffer.hasRemaining()) {
-            dest.write(buffer);
+            while (buffer.hasRemaining()) {
+                dest.write(buffer);
+            }
+        } finally {
+            bufferPool.release(buffer);
         }
     }
 
     /**
-     * Создает временный файл на основе потока
+     * Сохраняет пакет во временный файл за один проход по данным: при записи
+     * подсчитывается HASH, а поток разбирается как ZIP архив, из которого
+     * извлекаются спецификация и список фреймворков
      *
      * @param inputStream поток с данными
      * @param targetFile файл, в который необходимо скопировать пакет
-     * @return файл с данными
      * @throws IOException ошибка чтения/записи
      * @throws NoSuchAlgorithmException в системе не установлен алгоритм для
      * расчета значения HASH
      */
-    private static Hash copyDataAndCalculateHash(InputStream inputStream, File targetFile) throws IOException, NoSuchAlgorithmException {
+    private void copyDataAndReadPackage(InputStream inputStream, File targetFile) throws IOException, NoSuchAlgorithmException {
         MessageDigest messageDigest = MessageDigest.getInstance(Hash.ALGORITHM_NAME);
-        DigestInputStream digestInputStream = new DigestInputStream(inputStream, messageDigest);
-        FileOutputStream fileOutputStream = new FileOutputStream(targetFile);
-        try (ReadableByteChannel src = Channels.newChannel(digestInputStream);
-                FileChannel dest = fileOutputStream.getChannel();) {
-            fastChannelCopy(src, dest);
-            return new Hash(digestInputStream.getMessageDigest().digest());
+        try (FileOutputStream fileOutputStream = new FileOutputStream(targetFile);
+                FileChannel dest = fileOutputStream.getChannel()) {
+            CopyingDigestInputStream copyingStream = new CopyingDigestInputStream(inputStream, messageDigest, dest);
+            readPackageEntries(copyingStream);
+            //Центральный каталог архива и данные после него
+            copyingStream.drain();
+            this.hash = copyingStream.getHash();
+        }
+    }
+
+    /**
+     * Читает вложения ZIP архива пакета, извлекая спецификацию и список
+     * фреймворков. Если архив не удалось разобрать на лету, спецификация и
+     * фреймворки будут прочитаны из файла при первом обращении.
+     *
+     * @param packageStream поток с пакетом (не закрывается)
+     */
+    private void readPackageEntries(InputStream packageStream) {
+        EnumSet<Framework> frameworks = EnumSet.noneOf(Framework.class);
+        NuspecFile nuspec = null;
+        try {
+            final ZipInputStream zipInputStream = new ZipInputStream(packageStream);
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                if (nuspec == null && isNuspecZipEntry(entry)) {
+                    //Парсер XML закрывает поток по окончании разбора
+                    nuspec = NuspecFile.Parse(new FilterInputStream(zipInputStream) {
+                        @Override
+                        public void close() {
+                        }
+                    });
+                } else {
+                    addTargetFramework(frameworks, entry.getName());
+                }
+            }
+        } catch (IOException | NugetFormatException e) {
+            //Ошибка чтения исходного потока повторится при его дочитывании
+            logger.debug("Не удалось разобрать пакет при загрузке: {}", new Object[]{e.toString()});
+            return;
         }
+        this.nuspecFile = nuspec;
+        this.targetFrameworks = frameworks.isEmpty() ? EnumSet.allOf(Framework.class) : frameworks;
     }
 
     /**
@@ -87,7 +132,7 @@ public class TempNupkgFile extends ClassicNupkg implements Nupkg, AutoCloseable
     public TempNupkgFile(InputStream inputStream, Date updated) throws IOException, NugetFormatException {
         try {
             this.file = File.createTempFile("nupkg", "jnuget");
-            this.hash = copyDataAndCalculateHash(inputStream, this.file);
+            copyDataAndReadPackage(inputStream, this.file);
             this.updated = updated;
         } catch (NoSuchAlgorithmException ex) {
             throw new NugetFormatException("Не удается подсчитать HASH пакета", ex);
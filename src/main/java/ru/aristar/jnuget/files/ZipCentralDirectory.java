@@ -0,0 +1,360 @@
+package ru.aristar.jnuget.files;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Центральный каталог ZIP архива, прочитанный с произвольным доступом через
+ * {@link FileChannel}. Архив не распаковывается: читается только запись
+ * конца центрального каталога и сам каталог, а данные вложения читаются и
+ * распаковываются только по запросу.
+ *
+ * @author sviridov
+ */
+public class ZipCentralDirectory {
+
+    /**
+     * Сигнатура записи конца центрального каталога
+     */
+    private static final int END_SIGNATURE = 0x06054b50;
+    /**
+     * Сигнатура записи конца центрального каталога ZIP64
+     */
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    /**
+     * Сигнатура указателя на запись конца центрального каталога ZIP64
+     */
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    /**
+     * Сигнатура записи центрального каталога
+     */
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    /**
+     * Сигнатура локального заголовка вложения
+     */
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    /**
+     * Размер записи конца центрального каталога (без комментария)
+     */
+    private static final int END_SIZE = 22;
+    /**
+     * Размер указателя на запись конца центрального каталога ZIP64
+     */
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    /**
+     * Размер записи конца центрального каталога ZIP64 (без расширений)
+     */
+    private static final int ZIP64_END_SIZE = 56;
+    /**
+     * Размер записи центрального каталога (без имени и расширений)
+     */
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    /**
+     * Размер локального заголовка вложения (без имени и расширений)
+     */
+    private static final int LOCAL_HEADER_SIZE = 30;
+    /**
+     * Максимальная длина комментария архива
+     */
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    /**
+     * Максимальный размер центрального каталога, читаемого в память
+     */
+    private static final long MAX_DIRECTORY_SIZE = 64 * 1024 * 1024;
+    /**
+     * Максимальный размер сжатого вложения, читаемого в память
+     */
+    private static final long MAX_ENTRY_SIZE = 16 * 1024 * 1024;
+    /**
+     * Идентификатор расширения ZIP64 в записи каталога
+     */
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    /**
+     * Метод сжатия "без сжатия"
+     */
+    private static final int METHOD_STORED = 0;
+    /**
+     * Метод сжатия "deflate"
+     */
+    private static final int METHOD_DEFLATED = 8;
+    /**
+     * Кодировка имен вложений
+     */
+    private static final Charset NAME_CHARSET = Charset.forName("UTF-8");
+    /**
+     * Вложения архива в порядке следования в каталоге
+     */
+    private final List<Entry> entries;
+
+    /**
+     * @param entries вложения архива
+     */
+    private ZipCentralDirectory(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @return вложения архива в порядке следования в каталоге
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Читает центральный каталог архива
+     *
+     * @param channel канал файла архива
+     * @return центральный каталог
+     * @throws ZipException файл не является ZIP архивом
+     * @throws IOException ошибка чтения
+     */
+    public static ZipCentralDirectory read(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < END_SIZE) {
+            throw new ZipException("Файл слишком мал для ZIP архива");
+        }
+        int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT_SIZE);
+        long tailPosition = fileSize - tailSize;
+        ByteBuffer tail = readBuffer(channel, tailPosition, tailSize);
+        int endOffset = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                endOffset = i;
+                break;
+            }
+        }
+        if (endOffset < 0) {
+            throw new ZipException("Не найдена запись конца центрального каталога");
+        }
+        long entryCount = tail.getShort(endOffset + 10) & 0xFFFF;
+        long directorySize = tail.getInt(endOffset + 12) & 0xFFFFFFFFL;
+        long directoryOffset = tail.getInt(endOffset + 16) & 0xFFFFFFFFL;
+        long endPosition = tailPosition + endOffset;
+        if ((entryCount == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL)
+                && endPosition >= ZIP64_LOCATOR_SIZE) {
+            ByteBuffer locator = readBuffer(channel, endPosition - ZIP64_LOCATOR_SIZE, ZIP64_LOCATOR_SIZE);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                ByteBuffer zip64End = readBuffer(channel, locator.getLong(8), ZIP64_END_SIZE);
+                if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                    throw new ZipException("Некорректная запись конца центрального каталога ZIP64");
+                }
+                entryCount = zip64End.getLong(32);
+                directorySize = zip64End.getLong(40);
+                directoryOffset = zip64End.getLong(48);
+            }
+        }
+        if (directorySize > MAX_DIRECTORY_SIZE || directoryOffset + directorySize > fileSize) {
+            throw new ZipException("Некорректный размер центрального каталога: " + directorySize);
+        }
+        ByteBuffer directory = readBuffer(channel, directoryOffset, (int) directorySize);
+        List<Entry> entries = new ArrayList<>((int) Math.min(entryCount, 0x10000));
+        int position = 0;
+        while (position + CENTRAL_HEADER_SIZE <= directorySize && directory.getInt(position) == CENTRAL_HEADER_SIGNATURE) {
+            int method = directory.getShort(position + 10) & 0xFFFF;
+            long compressedSize = directory.getInt(position + 20) & 0xFFFFFFFFL;
+            long size = directory.getInt(position + 24) & 0xFFFFFFFFL;
+            int nameLength = directory.getShort(position + 28) & 0xFFFF;
+            int extraLength = directory.getShort(position + 30) & 0xFFFF;
+            int commentLength = directory.getShort(position + 32) & 0xFFFF;
+            long localHeaderOffset = directory.getInt(position + 42) & 0xFFFFFFFFL;
+            int nameOffset = position + CENTRAL_HEADER_SIZE;
+            if (nameOffset + nameLength + extraLength > directorySize) {
+                throw new ZipException("Некорректная запись центрального каталога");
+            }
+            byte[] nameBytes = new byte[nameLength];
+            ByteBuffer nameBuffer = directory.duplicate();
+            nameBuffer.position(nameOffset);
+            nameBuffer.get(nameBytes);
+            //Расширение ZIP64 содержит только поля, значения которых не поместились в заголовок
+            int extraPosition = nameOffset + nameLength;
+            int extraEnd = extraPosition + extraLength;
+            while (extraPosition + 4 <= extraEnd) {
+                int extraId = directory.getShort(extraPosition) & 0xFFFF;
+                int extraSize = directory.getShort(extraPosition + 2) & 0xFFFF;
+                if (extraId == ZIP64_EXTRA_ID) {
+                    int fieldPosition = extraPosition + 4;
+                    if (size == 0xFFFFFFFFL) {
+                        size = directory.getLong(fieldPosition);
+                        fieldPosition += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL) {
+                        compressedSize = directory.getLong(fieldPosition);
+                        fieldPosition += 8;
+                    }
+                    if (localHeaderOffset == 0xFFFFFFFFL) {
+                        localHeaderOffset = directory.getLong(fieldPosition);
+                    }
+                }
+                extraPosition += 4 + extraSize;
+            }
+            entries.add(new Entry(new String(nameBytes, NAME_CHARSET), method, compressedSize, size, localHeaderOffset));
+            position = extraEnd + commentLength;
+        }
+        return new ZipCentralDirectory(entries);
+    }
+
+    /**
+     * Возвращает распакованное содержимое вложения. Сжатые данные вложения
+     * читаются в память, поэтому метод предназначен для небольших вложений
+     * (спецификация пакета).
+     *
+     * @param channel канал файла архива
+     * @param entry вложение
+     * @return поток с распакованным содержимым
+     * @throws ZipException неподдерживаемый метод сжатия или некорректный
+     * заголовок
+     * @throws IOException ошибка чтения
+     */
+    public InputStream getInputStream(FileChannel channel, Entry entry) throws IOException {
+        if (entry.getCompressedSize() > MAX_ENTRY_SIZE) {
+            throw new ZipException("Вложение " + entry.getName() + " слишком велико: " + entry.getCompressedSize());
+        }
+        ByteBuffer localHeader = readBuffer(channel, entry.getLocalHeaderOffset(), LOCAL_HEADER_SIZE);
+        if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Некорректный локальный заголовок вложения " + entry.getName());
+        }
+        long dataOffset = entry.getLocalHeaderOffset() + LOCAL_HEADER_SIZE
+                + (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+        ByteBuffer data = readBuffer(channel, dataOffset, (int) entry.getCompressedSize());
+        InputStream rawStream = new ByteArrayInputStream(data.array(), 0, data.limit());
+        switch (entry.getMethod()) {
+            case METHOD_STORED:
+                return rawStream;
+            case METHOD_DEFLATED:
+                //Для Inflater в режиме nowrap необходим дополнительный байт в конце данных
+                InputStream paddedStream = new SequenceInputStream(rawStream, new ByteArrayInputStream(new byte[1]));
+                return new InflaterInputStream(paddedStream, new Inflater(true)) {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        inf.end();
+                    }
+                };
+            default:
+                throw new ZipException("Неподдерживаемый метод сжатия " + entry.getMethod()
+                        + " вложения " + entry.getName());
+        }
+    }
+
+    /**
+     * Читает часть файла
+     *
+     * @param channel канал файла
+     * @param position позиция начала
+     * @param length количество байт
+     * @return буфер с данными (порядок байт little-endian)
+     * @throws IOException ошибка чтения или конец файла
+     */
+    private static ByteBuffer readBuffer(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + buffer.position());
+            if (count < 0) {
+                throw new ZipException("Неожиданный конец ZIP архива");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Вложение ZIP архива
+     */
+    public static class Entry {
+
+        /**
+         * Имя вложения
+         */
+        private final String name;
+        /**
+         * Метод сжатия
+         */
+        private final int method;
+        /**
+         * Размер сжатых данных
+         */
+        private final long compressedSize;
+        /**
+         * Размер распакованных данных
+         */
+        private final long size;
+        /**
+         * Позиция локального заголовка в файле
+         */
+        private final long localHeaderOffset;
+
+        /**
+         * @param name имя вложения
+         * @param method метод сжатия
+         * @param compressedSize размер сжатых данных
+         * @param size размер распакованных данных
+         * @param localHeaderOffset позиция локального заголовка в файле
+         */
+        public Entry(String name, int method, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        /**
+         * @return имя вложения
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return метод сжатия
+         */
+        public int getMethod() {
+            return method;
+        }
+
+        /**
+         * @return размер сжатых данных
+         */
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        /**
+         * @return размер распакованных данных
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return позиция локального заголовка в файле
+         */
+        public long getLocalHeaderOffset() {
+            return localHeaderOffset;
+        }
+
+        /**
+         * @return true, если вложение является каталогом
+         */
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -253,40 +253,124 @@ public class EntryProperties {
      * @throws Exception
      */
     public void setProperties(List<Element> properties) throws Exception {
-        HashMap<String, Element> hashMap = new HashMap<>();
         for (Element element : properties) {
-            hashMap.put(element.getLocalName(), element);
+            setProperty(element.getLocalName(), element.getTextContent());
+        }
+    }
+
+    /**
+     * Устанавливает значение свойства по имени элемента XML. Неизвестные
+     * свойства игнорируются.
+     *
+     * @param name локальное имя элемента XML
+     * @param value текстовое содержимое элемента XML
+     * @throws NugetFormatException некорректный формат значения (в том
+     * числе числа или даты)
+     */
+    public void setProperty(String name, String value) throws NugetFormatException {
+        try {
+            setPropertyValue(name, value);
+        } catch (IllegalArgumentException e) {
+            throw new NugetFormatException("Некорректное значение свойства " + name + ": " + value, e);
+        }
+    }
+
+    /**
+     * Устанавливает значение свойства по имени элемента XML
+     *
+     * @param name локальное имя элемента XML
+     * @param value текстовое содержимое элемента XML
+     * @throws NugetFormatException некорректный формат значения
+     */
+    private void setPropertyValue(String name, String value) throws NugetFormatException {
+        switch (name) {
+            case "Version":
+                this.version = Version.parse(value);
+                break;
+            case "Title":
+                this.title = value;
+                break;
+            case "IconUrl":
+                this.iconUrl = value;
+                break;
+            case "LicenseUrl":
+                this.licenseUrl = value;
+                break;
+            case "ProjectUrl":
+                this.projectUrl = value;
+                break;
+            case "ReportAbuseUrl":
+                this.reportAbuseUrl = value;
+                break;
+            case "DownloadCount":
+                this.downloadCount = getIntegerContent(value);
+                break;
+            case "VersionDownloadCount":
+                this.versionDownloadCount = getIntegerContent(value);
+                break;
+            case "RatingsCount":
+                this.ratingsCount = getIntegerContent(value);
+                break;
+            case "VersionRatingsCount":
+                this.versionRatingsCount = getIntegerContent(value);
+                break;
+            case "Rating":
+                this.rating = getDoubleContent(value);
+                break;
+            case "VersionRating":
+                this.versionRating = getDoubleContent(value);
+                break;
+            case "RequireLicenseAcceptance":
+                this.requireLicenseAcceptance = getBooleanContent(value);
+                break;
+            case "Description":
+                this.description = value;
+                break;
+            case "ReleaseNotes":
+                this.releaseNotes = value;
+                break;
+            case "Language":
+                this.language = value;
+                break;
+            case "Published":
+                this.published = javax.xml.bind.DatatypeConverter.parseDateTime(value).getTime();
+                break;
+            case "Price":
+                this.price = getDoubleContent(value);
+                break;
+            case "Dependencies":
+                this.dependencies = value;
+                break;
+            case "PackageHash":
+                this.packageHash = value;
+                break;
+            case "PackageSize":
+                this.packageSize = getLongContent(value);
+                break;
+            case "ExternalPackageUri":
+                this.externalPackageUri = value;
+                break;
+            case "Categories":
+                this.categories = value;
+                break;
+            case "Copyright":
+                this.copyright = value;
+                break;
+            case "PackageType":
+                this.packageType = value;
+                break;
+            case "Tags":
+                this.tags = getStringListContent(value);
+                break;
+            case "IsLatestVersion":
+                this.isLatestVersion = getBooleanContent(value);
+                break;
+            case "Summary":
+                this.summary = value;
+                break;
+            default:
+                break;
         }
-        StringListTypeAdapter adapter = new StringListTypeAdapter();
-
-        this.version = Version.parse(hashMap.get("Version").getTextContent());
-        this.title = hashMap.get("Title").getTextContent();
-        this.iconUrl = hashMap.get("IconUrl").getTextContent();
-        this.licenseUrl = hashMap.get("LicenseUrl").getTextContent();
-        this.projectUrl = hashMap.get("ProjectUrl").getTextContent();
-        this.reportAbuseUrl = hashMap.get("ReportAbuseUrl").getTextContent();
-        this.downloadCount = getIntegerContent(hashMap.get("DownloadCount"));
-        this.versionDownloadCount = getIntegerContent(hashMap.get("VersionDownloadCount"));
-        this.ratingsCount = getIntegerContent(hashMap.get("RatingsCount"));
-        this.versionRatingsCount = getIntegerContent(hashMap.get("VersionRatingsCount"));
-        this.rating = getDoubleContent(hashMap.get("Rating"));
-        this.versionRating = getDoubleContent(hashMap.get("VersionRating"));
-        this.requireLicenseAcceptance = getBooleanContent(hashMap.get("RequireLicenseAcceptance"));
-        this.description = hashMap.get("Description").getTextContent();
-        this.releaseNotes = hashMap.get("ReleaseNotes").getTextContent();
-        this.language = hashMap.get("Language").getTextContent();
-        this.published = javax.xml.bind.DatatypeConverter.parseDateTime(hashMap.get("Published").getTextContent()).getTime();
-        this.price = getDoubleContent(hashMap.get("Price"));
-        this.dependencies = hashMap.get("Dependencies").getTextContent();
-        this.packageHash = hashMap.get("PackageHash").getTextContent();
-        this.packageSize = getLongContent(hashMap.get("PackageSize"));
-        this.externalPackageUri = getStringContent(hashMap.get("ExternalPackageUri"));
-        this.categories = getStringContent(hashMap.get("Categories"));
-        this.copyright = getStringContent(hashMap.get("Copyright"));
-        this.packageType = getStringContent(hashMap.get("PackageType"));
-        this.tags = adapter.unmarshal(hashMap.get("Tags").getTextContent());
-        this.isLatestVersion = getBooleanContent(hashMap.get("IsLatestVersion"));
-        this.summary = getStringContent(hashMap.get("Summary"));
     }
     /**
      * Версия пакета
@@ -722,65 +806,70 @@ public class EntryProperties {
     /**
      * Извлекает целочисленое значение содержимого элемента
      *
-     * @param element элемент XML
+     * @param value содержимое элемента XML
      * @return целочисленное значение
      */
-    private Integer getIntegerContent(Element element) {
-        if (element == null || element.getTextContent() == null) {
+    private Integer getIntegerContent(String value) {
+        if (value == null) {
             return null;
         }
-        return Integer.decode(element.getTextContent());
+        return Integer.decode(value);
     }
 
     /**
      * Извлекает целочисленое значение повышенной точности содержимого элемента
      *
-     * @param element элемент XML
+     * @param value содержимое элемента XML
      * @return целочисленое значение повышенной точности
      */
-    private Long getLongContent(Element element) {
-        if (element == null || element.getTextContent() == null) {
+    private Long getLongContent(String value) {
+        if (value == null) {
             return null;
         }
-        return Long.decode(element.getTextContent());
+        return Long.decode(value);
     }
 
     /**
      * Извлекает значение содержимого элемента в виде числа с плавающей точкой
      *
-     * @param element элемент XML
+     * @param value содержимое элемента XML
      * @return число с плавающей точкой
      */
-    private Double getDoubleContent(Element element) {
-        if (element == null || element.getTextContent() == null) {
+    private Double getDoubleContent(String value) {
+        if (value == null) {
             return null;
         }
-        return Double.parseDouble(element.getTextContent());
+        return Double.parseDouble(value);
     }
 
     /**
-     * Извлекает значение содержимого элемента в виде boolean
+     * Извлекает значение содержимого элемента в виде списка строк
      *
-     * @param element элемент XML
-     * @return boolean
+     * @param value содержимое элемента XML
+     * @return список строк
+     * @throws NugetFormatException ошибка преобразования списка строк
      */
-    private Boolean getBooleanContent(Element element) {
-        if (element == null || element.getTextContent() == null) {
+    private List<String> getStringListContent(String value) throws NugetFormatException {
+        if (value == null) {
             return null;
         }
-        return Boolean.parseBoolean(element.getTextContent());
+        try {
+            return new StringListTypeAdapter().unmarshal(value);
+        } catch (Exception e) {
+            throw new NugetFormatException("Ошибка преобразования списка строк", e);
+        }
     }
 
     /**
-     * Извлекает значение содержимого элемента в виде строки
+     * Извлекает значение содержимого элемента в виде boolean
      *
-     * @param element элемент XML
-     * @return строка
+     * @param value содержимое элемента XML
+     * @return boolean
      */
-    private String getStringContent(Element element) {
-        if (element == null) {
+    private Boolean getBooleanContent(String value) {
+        if (value == null) {
             return null;
         }
-        return element.getTextContent();
+        return Boolean.parseBoolean(value);
     }
 }
@@ -0,0 +1,326 @@
+package ru.aristar.jnuget.rss;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.GregorianCalendar;
+import java.util.List;
+import javax.xml.bind.DatatypeConverter;
+import org.codehaus.jackson.JsonGenerator;
+
+/**
+ * Поля пакета, выводимые в JSON представлении ленты
+ *
+ * @author sviridov
+ */
+public enum JsonFeedField {
+
+    /**
+     * Идентификатор пакета
+     */
+    Id {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            generator.writeString(entry.getTitle());
+        }
+    },
+    /**
+     * Версия пакета
+     */
+    Version {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getProperties().getVersion());
+        }
+    },
+    /**
+     * Заголовок пакета
+     */
+    Title {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getProperties().getTitle());
+        }
+    },
+    /**
+     * Авторы пакета
+     */
+    Authors {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getAuthor() == null ? null : entry.getAuthor().getName());
+        }
+    },
+    /**
+     * Описание пакета
+     */
+    Description {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getProperties().getDescription());
+        }
+    },
+    /**
+     * Общее описание пакета
+     */
+    Summary {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getProperties().getSummary());
+        }
+    },
+    /**
+     * Теги пакета
+     */
+    Tags {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            List<String> tags = entry.getProperties().getTags();
+            generator.writeStartArray();
+            if (tags != null) {
+                for (String tag : tags) {
+                    generator.writeString(tag);
+                }
+            }
+            generator.writeEndArray();
+        }
+    },
+    /**
+     * Зависимости пакета
+     */
+    Dependencies {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getProperties().getDependencies());
+        }
+    },
+    /**
+     * URL иконки
+     */
+    IconUrl {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getProperties().getIconUrl());
+        }
+    },
+    /**
+     * URL лицензии
+     */
+    LicenseUrl {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getProperties().getLicenseUrl());
+        }
+    },
+    /**
+     * URL проекта
+     */
+    ProjectUrl {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getProperties().getProjectUrl());
+        }
+    },
+    /**
+     * Требуется подтверждение лицензии
+     */
+    RequireLicenseAcceptance {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeBoolean(generator, entry.getProperties().getRequireLicenseAcceptance());
+        }
+    },
+    /**
+     * Права на пакет
+     */
+    Copyright {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getProperties().getCopyright());
+        }
+    },
+    /**
+     * Дата публикации пакета
+     */
+    Published {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeDate(generator, entry.getProperties().getPublished());
+        }
+    },
+    /**
+     * Дата обновления пакета
+     */
+    LastUpdated {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeDate(generator, entry.getUpdated());
+        }
+    },
+    /**
+     * Хеш пакета
+     */
+    PackageHash {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getProperties().getPackageHash());
+        }
+    },
+    /**
+     * Размер пакета
+     */
+    PackageSize {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            Long size = entry.getProperties().getPackageSize();
+            if (size == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(size);
+            }
+        }
+    },
+    /**
+     * Число загрузок пакета
+     */
+    DownloadCount {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeInteger(generator, entry.getProperties().getDownloadCount());
+        }
+    },
+    /**
+     * Число загрузок версии пакета
+     */
+    VersionDownloadCount {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeInteger(generator, entry.getProperties().getVersionDownloadCount());
+        }
+    },
+    /**
+     * Версия является последней
+     */
+    IsLatestVersion {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeBoolean(generator, entry.getProperties().getIsLatestVersion());
+        }
+    },
+    /**
+     * URL, по которому можно получить пакет
+     */
+    DownloadUrl {
+        @Override
+        void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException {
+            writeString(generator, entry.getContent().getSrc());
+        }
+    };
+
+    /**
+     * Записывает значение поля
+     *
+     * @param generator генератор JSON
+     * @param entry RSS вложение с информацией о пакете
+     * @throws IOException ошибка записи
+     */
+    abstract void writeValue(JsonGenerator generator, PackageEntry entry) throws IOException;
+
+    /**
+     * Записывает поле (имя и значение)
+     *
+     * @param generator генератор JSON
+     * @param entry RSS вложение с информацией о пакете
+     * @throws IOException ошибка записи
+     */
+    public void write(JsonGenerator generator, PackageEntry entry) throws IOException {
+        generator.writeFieldName(name());
+        writeValue(generator, entry);
+    }
+
+    /**
+     * Разбирает список полей в формате OData $select (имена через запятую)
+     *
+     * @param select строка выборки полей
+     * @return набор полей, все поля, если строка пуста или равна "*".
+     * Неизвестные поля игнорируются: если известных полей в строке нет,
+     * возвращается пустой набор.
+     */
+    public static EnumSet<JsonFeedField> parseSelect(String select) {
+        if (select == null || select.trim().isEmpty() || select.trim().equals("*")) {
+            return EnumSet.allOf(JsonFeedField.class);
+        }
+        EnumSet<JsonFeedField> result = EnumSet.noneOf(JsonFeedField.class);
+        for (String name : select.split(",")) {
+            String fieldName = name.trim();
+            for (JsonFeedField field : values()) {
+                if (field.name().equalsIgnoreCase(fieldName)) {
+                    result.add(field);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Записывает строковое значение объекта или null
+     *
+     * @param generator генератор JSON
+     * @param value значение
+     * @throws IOException ошибка записи
+     */
+    private static void writeString(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    /**
+     * Записывает целочисленное значение или null
+     *
+     * @param generator генератор JSON
+     * @param value значение
+     * @throws IOException ошибка записи
+     */
+    private static void writeInteger(JsonGenerator generator, Integer value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    /**
+     * Записывает логическое значение или null
+     *
+     * @param generator генератор JSON
+     * @param value значение
+     * @throws IOException ошибка записи
+     */
+    private static void writeBoolean(JsonGenerator generator, Boolean value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeBoolean(value);
+        }
+    }
+
+    /**
+     * Записывает дату в формате ISO 8601 или null
+     *
+     * @param generator генератор JSON
+     * @param value значение
+     * @throws IOException ошибка записи
+     */
+    private static void writeDate(JsonGenerator generator, Date value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            GregorianCalendar calendar = new GregorianCalendar();
+            calendar.setTime(value);
+            generator.writeString(DatatypeConverter.printDateTime(calendar));
+        }
+    }
+}
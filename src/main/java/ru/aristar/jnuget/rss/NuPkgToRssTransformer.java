@@ -5,9 +5,14 @@ import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.DownloadStatistics;
 import ru.aristar.jnuget.NugetContext;
+import ru.aristar.jnuget.Version;
 import ru.aristar.jnuget.files.NugetFormatException;
 import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.sources.Index;
+import ru.aristar.jnuget.sources.IndexedPackageSource;
+import ru.aristar.jnuget.sources.PackageSource;
 
 /**
  *
@@ -41,22 +46,45 @@ public abstract class NuPkgToRssTransformer {
      * @return RSS структура
      */
     public PackageFeed transform(Collection<? extends Nupkg> files, String orderBy, int skip, int top) {
+        return transform(files, orderBy, skip, top, null);
+    }
+
+    /**
+     * Преобразует коллекцию Nupkg в RSS структуру. Если хранилище
+     * индексируется, признак последней версии пакета определяется по индексу
+     * хранилища, в противном случае - по самой коллекции пакетов.
+     *
+     * @param files колллекция исходных файлов
+     * @param orderBy поле, по которому производится упорядочивание
+     * @param skip пропустить первые
+     * @param top всего вывести
+     * @param packageSource хранилище, из которого получены пакеты (может быть
+     * null)
+     * @return RSS структура
+     */
+    public PackageFeed transform(Collection<? extends Nupkg> files, String orderBy, int skip, int top,
+            PackageSource<? extends Nupkg> packageSource) {
         PackageFeed feed = new PackageFeed();
         feed.setId(getContext().getRootUri().toString());
         feed.setUpdated(new Date());
         feed.setTitle("Packages");
+        Index index = packageSource instanceof IndexedPackageSource
+                ? ((IndexedPackageSource) packageSource).getIndex() : null;
+        String storageName = packageSource == null ? null : packageSource.getName();
         List<PackageEntry> packageEntrys = new ArrayList<>();
         for (Nupkg nupkg : files) {
             try {
                 PackageEntry entry = getContext().createPackageEntry(nupkg);
-                entry.getProperties().setIsLatestVersion(Boolean.FALSE);
-                addServerInformationInToEntry(entry);
+                entry.getProperties().setIsLatestVersion(index != null && isLastVersion(index, nupkg));
+                addServerInformationInToEntry(entry, storageName, nupkg);
                 packageEntrys.add(entry);
             } catch (NoSuchAlgorithmException | IOException | NugetFormatException e) {
                 logger.warn("Ошибка сбора информации о пакете " + nupkg, e);
             }
         }
-        markLastVersion(packageEntrys);
+        if (index == null) {
+            markLastVersion(packageEntrys);
+        }
         Collections.sort(packageEntrys, getPackageComparator(orderBy));
         logger.debug("Получено {} записей о пакетах", new Object[]{packageEntrys.size()});
         packageEntrys = cutPackageList(skip, top, packageEntrys);
@@ -65,6 +93,71 @@ public abstract class NuPkgToRssTransformer {
         return feed;
     }
 
+    /**
+     * Упорядочивает коллекцию Nupkg и возвращает RSS вложения для пакетов
+     * выбранной страницы. Вложения создаются по одному при обходе
+     * результата, поэтому лента целиком в памяти не строится. Пакеты, для
+     * которых не удалось получить информацию, пропускаются.
+     *
+     * @param files коллекция исходных файлов
+     * @param orderBy поле, по которому производится упорядочивание
+     * @param skip пропустить первые
+     * @param top всего вывести
+     * @param packageSource хранилище, из которого получены пакеты (может быть
+     * null)
+     * @return RSS вложения выбранных пакетов
+     */
+    public Iterable<PackageEntry> transformLazily(Collection<? extends Nupkg> files, String orderBy,
+            int skip, int top, PackageSource<? extends Nupkg> packageSource) {
+        final Index index = packageSource instanceof IndexedPackageSource
+                ? ((IndexedPackageSource) packageSource).getIndex() : null;
+        final String storageName = packageSource == null ? null : packageSource.getName();
+        final Map<String, Version> lastVersions = index == null ? getLastVersions(files) : null;
+        List<Nupkg> nupkgs = new ArrayList<>(files);
+        Collections.sort(nupkgs, getNupkgComparator(orderBy, storageName));
+        final List<Nupkg> page = cutPackageList(skip, top, nupkgs);
+        logger.debug("Выбрано {} пакетов из {}", new Object[]{page.size(), files.size()});
+        return new Iterable<PackageEntry>() {
+            @Override
+            public Iterator<PackageEntry> iterator() {
+                return new PackageEntryIterator(page.iterator(), index, lastVersions, storageName);
+            }
+        };
+    }
+
+    /**
+     * @param files коллекция пакетов
+     * @return последние версии пакетов (ключ - идентификатор пакета)
+     */
+    private static Map<String, Version> getLastVersions(Collection<? extends Nupkg> files) {
+        Map<String, Version> result = new HashMap<>();
+        for (Nupkg nupkg : files) {
+            if (nupkg.getId() == null || nupkg.getVersion() == null) {
+                continue;
+            }
+            Version lastVersion = result.get(nupkg.getId());
+            if (lastVersion == null || nupkg.getVersion().compareTo(lastVersion) > 0) {
+                result.put(nupkg.getId(), nupkg.getVersion());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Проверяет, является ли пакет последней версией в индексе хранилища
+     *
+     * @param index индекс хранилища
+     * @param nupkg пакет
+     * @return true, если версия пакета последняя
+     */
+    protected boolean isLastVersion(Index index, Nupkg nupkg) {
+        if (nupkg.getId() == null || nupkg.getVersion() == null) {
+            return false;
+        }
+        Nupkg lastVersion = index.getLastVersion(nupkg.getId());
+        return lastVersion != null && nupkg.getVersion().equals(lastVersion.getVersion());
+    }
+
     /**
      * Безопасно уменьшает в размерах список пакетов
      *
@@ -95,14 +188,23 @@ public abstract class NuPkgToRssTransformer {
      * Добавляет информацию, доступную только серверу в пакет (рейтинг и число
      * скачиваний)
      *
-     * @param entry
+     * @param entry RSS вложение с информацией о пакете
+     * @param storageName имя хранилища (null - число скачиваний неизвестно)
+     * @param nupkg пакет
      */
-    private void addServerInformationInToEntry(PackageEntry entry) {
+    private void addServerInformationInToEntry(PackageEntry entry, String storageName, Nupkg nupkg) {
         EntryProperties properties = entry.getProperties();
         //TODO Разобраться что это за URL
         properties.setReportAbuseUrl("");
-        properties.setDownloadCount(-1);
-        properties.setVersionDownloadCount(-1);
+        if (storageName == null) {
+            properties.setDownloadCount(-1);
+            properties.setVersionDownloadCount(-1);
+        } else {
+            DownloadStatistics statistics = getDownloadStatistics();
+            properties.setDownloadCount(toInteger(statistics.getDownloadCount(storageName, nupkg.getId())));
+            properties.setVersionDownloadCount(toInteger(
+                    statistics.getVersionDownloadCount(storageName, nupkg.getId(), nupkg.getVersion())));
+        }
         properties.setRatingsCount(0);
         properties.setVersionRatingsCount(0);
         properties.setRating(Double.valueOf(0));
@@ -110,8 +212,24 @@ public abstract class NuPkgToRssTransformer {
     }
 
     /**
-     * Помечает последние версии пакетов в списке. Список должен быть
-     * отсортирован по возрастанию идентификатора пакета и его версии
+     * @return статистика скачиваний пакетов
+     */
+    protected DownloadStatistics getDownloadStatistics() {
+        return DownloadStatistics.getInstance();
+    }
+
+    /**
+     * @param value число скачиваний
+     * @return число скачиваний, ограниченное максимальным значением Integer
+     */
+    private static int toInteger(long value) {
+        return value > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) value;
+    }
+
+    /**
+     * Помечает последние версии пакетов в списке. Используется для хранилищ
+     * без индекса: список копируется и сортируется по идентификатору пакета
+     * и его версии.
      *
      * @param packageEntrys список информации о пакетах
      */
@@ -122,18 +240,16 @@ public abstract class NuPkgToRssTransformer {
         ArrayList<PackageEntry> entrys = new ArrayList<>(packageEntrys);
         Collections.sort(entrys, new PackageIdAndVersionComparator());
 
-        packageEntrys.get(entrys.size() - 1).getProperties().setIsLatestVersion(true);
-        PackageEntry prev = null;
+        PackageEntry prev = entrys.get(entrys.size() - 1);
+        prev.getProperties().setIsLatestVersion(true);
         for (int i = entrys.size() - 2; i >= 0; i--) {
             PackageEntry current = entrys.get(i);
-            if (prev != null) {
-                String prevId = prev.getTitle();
-                String currId = current.getTitle();
-                if (!currId.equals(prevId)) {
-                    current.getProperties().setIsLatestVersion(true);
-                } else {
-                    current.getProperties().setIsLatestVersion(false);
-                }
+            String prevId = prev.getTitle();
+            String currId = current.getTitle();
+            if (!currId.equals(prevId)) {
+                current.getProperties().setIsLatestVersion(true);
+            } else {
+                current.getProperties().setIsLatestVersion(false);
             }
             prev = current;
         }
@@ -174,6 +290,61 @@ public abstract class NuPkgToRssTransformer {
         return top;
     }
 
+    /**
+     * Возвращает компаратор Nupkg, упорядочивающий пакеты так же, как
+     * {@link #getPackageComparator(java.lang.String)} упорядочивает RSS
+     * вложения
+     *
+     * @param orderByClause строковое представление условия поиска
+     * @param storageName имя хранилища (null - число скачиваний неизвестно)
+     * @return компаратор пакетов
+     */
+    protected Comparator<Nupkg> getNupkgComparator(final String orderByClause, final String storageName) {
+        final String normalOrderBy = orderByClause == null ? "" : orderByClause.toLowerCase();
+        switch (normalOrderBy) {
+            case "updated":
+                return new Comparator<Nupkg>() {
+                    @Override
+                    public int compare(Nupkg o1, Nupkg o2) {
+                        Date date1 = o1.getUpdated();
+                        Date date2 = o2.getUpdated();
+                        if (date1 == null || date2 == null) {
+                            return date1 == date2 ? 0 : (date1 == null ? 1 : -1);
+                        }
+                        return -date1.compareTo(date2);
+                    }
+                };
+            case "downloadcount":
+                return new Comparator<Nupkg>() {
+                    @Override
+                    public int compare(Nupkg o1, Nupkg o2) {
+                        if (storageName == null) {
+                            return 0;
+                        }
+                        DownloadStatistics statistics = getDownloadStatistics();
+                        return Integer.compare(toInteger(statistics.getDownloadCount(storageName, o1.getId())),
+                                toInteger(statistics.getDownloadCount(storageName, o2.getId())));
+                    }
+                };
+            default:
+                return new Comparator<Nupkg>() {
+                    @Override
+                    public int compare(Nupkg o1, Nupkg o2) {
+                        int idCompare = o1.getId().compareTo(o2.getId());
+                        if (idCompare != 0) {
+                            return idCompare;
+                        }
+                        Version v1 = o1.getVersion();
+                        Version v2 = o2.getVersion();
+                        if (v1 == null || v2 == null) {
+                            return v1 == v2 ? 0 : (v1 == null ? -1 : 1);
+                        }
+                        return v1.compareTo(v2);
+                    }
+                };
+        }
+    }
+
     /**
      * Возвращает компаратор пакетов на основе строкового представления условия
      * поиска
@@ -193,4 +364,80 @@ public abstract class NuPkgToRssTransformer {
         }
 
     }
+
+    /**
+     * Итератор, создающий RSS вложения для пакетов по мере обхода
+     */
+    private class PackageEntryIterator implements Iterator<PackageEntry> {
+
+        /**
+         * Итератор пакетов
+         */
+        private final Iterator<Nupkg> nupkgs;
+        /**
+         * Индекс хранилища (null - хранилище не индексируется)
+         */
+        private final Index index;
+        /**
+         * Последние версии пакетов, если хранилище не индексируется
+         */
+        private final Map<String, Version> lastVersions;
+        /**
+         * Имя хранилища
+         */
+        private final String storageName;
+        /**
+         * Следующее вложение
+         */
+        private PackageEntry next;
+
+        /**
+         * @param nupkgs итератор пакетов
+         * @param index индекс хранилища (null - хранилище не индексируется)
+         * @param lastVersions последние версии пакетов, если хранилище не
+         * индексируется
+         * @param storageName имя хранилища
+         */
+        public PackageEntryIterator(Iterator<Nupkg> nupkgs, Index index, Map<String, Version> lastVersions,
+                String storageName) {
+            this.nupkgs = nupkgs;
+            this.index = index;
+            this.lastVersions = lastVersions;
+            this.storageName = storageName;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && nupkgs.hasNext()) {
+                Nupkg nupkg = nupkgs.next();
+                try {
+                    PackageEntry entry = getContext().createPackageEntry(nupkg);
+                    boolean lastVersion = index != null
+                            ? isLastVersion(index, nupkg)
+                            : nupkg.getVersion() != null && nupkg.getVersion().equals(lastVersions.get(nupkg.getId()));
+                    entry.getProperties().setIsLatestVersion(lastVersion);
+                    addServerInformationInToEntry(entry, storageName, nupkg);
+                    next = entry;
+                } catch (NoSuchAlgorithmException | IOException | NugetFormatException e) {
+                    logger.warn("Ошибка сбора информации о пакете " + nupkg, e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public PackageEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            PackageEntry result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Удаление не поддерживается");
+        }
+    }
 }
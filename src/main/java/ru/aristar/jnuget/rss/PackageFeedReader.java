@@ -0,0 +1,162 @@
+package ru.aristar.jnuget.rss;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import ru.aristar.jnuget.Author;
+import ru.aristar.jnuget.files.NugetFormatException;
+
+/**
+ * Потоковое чтение RSS ленты пакетов. В отличие от
+ * {@link PackageFeed#parse(java.io.InputStream)} лента не загружается в
+ * память целиком: вложения разбираются по одному по мере поступления данных.
+ *
+ * @author sviridov
+ */
+public class PackageFeedReader implements Closeable {
+
+    /**
+     * Пространство имен свойств пакета
+     */
+    public static final String DATA_SERVICES_XML_NAMESPACE = "http://schemas.microsoft.com/ado/2007/08/dataservices";
+    /**
+     * Фабрика StAX парсеров (потокобезопасна после настройки)
+     */
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+    /**
+     * Поток с XML лентой
+     */
+    private final InputStream inputStream;
+    /**
+     * StAX парсер
+     */
+    private final XMLStreamReader reader;
+
+    /**
+     * @param inputStream поток с XML лентой
+     * @throws IOException ошибка создания парсера
+     */
+    public PackageFeedReader(InputStream inputStream) throws IOException {
+        this.inputStream = inputStream;
+        try {
+            this.reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+        } catch (XMLStreamException e) {
+            throw new IOException("Ошибка создания парсера RSS ленты", e);
+        }
+    }
+
+    /**
+     * Читает следующее вложение ленты
+     *
+     * @return вложение или null, если лента закончилась
+     * @throws IOException ошибка чтения потока
+     * @throws NugetFormatException некорректный формат вложения
+     */
+    public PackageEntry nextEntry() throws IOException, NugetFormatException {
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                        && isElement(PackageFeed.ATOM_XML_NAMESPACE, "entry")) {
+                    return readEntry();
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IOException("Ошибка чтения RSS ленты", e);
+        }
+    }
+
+    /**
+     * Читает вложение ленты. Парсер должен стоять на открывающем теге
+     * вложения, после чтения он стоит на закрывающем теге.
+     *
+     * @return вложение
+     * @throws XMLStreamException ошибка чтения XML
+     * @throws NugetFormatException некорректный формат вложения
+     */
+    private PackageEntry readEntry() throws XMLStreamException, NugetFormatException {
+        PackageEntry entry = new PackageEntry();
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            if (isElement(PackageFeed.ATOM_XML_NAMESPACE, "title")) {
+                entry.setTitle(reader.getElementText());
+            } else if (isElement(PackageFeed.ATOM_XML_NAMESPACE, "summary")) {
+                entry.setSummary(reader.getElementText());
+            } else if (isElement(PackageFeed.ATOM_XML_NAMESPACE, "updated")) {
+                entry.setUpdated(parseDate(reader.getElementText().trim()));
+            } else if (isElement(PackageFeed.ATOM_XML_NAMESPACE, "name")) {
+                entry.setAuthor(new Author(reader.getElementText()));
+            } else if (isElement(PackageFeed.ATOM_XML_NAMESPACE, "content")) {
+                entry.setContent(reader.getAttributeValue(null, "src"));
+                depth++;
+            } else if (DATA_SERVICES_XML_NAMESPACE.equals(reader.getNamespaceURI())) {
+                String name = reader.getLocalName();
+                entry.getProperties().setProperty(name, reader.getElementText());
+            } else {
+                depth++;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * @param value дата в формате xsd:dateTime
+     * @return дата
+     * @throws NugetFormatException некорректный формат даты
+     */
+    private static Date parseDate(String value) throws NugetFormatException {
+        try {
+            return DatatypeConverter.parseDateTime(value).getTime();
+        } catch (IllegalArgumentException e) {
+            throw new NugetFormatException("Некорректная дата обновления пакета: " + value, e);
+        }
+    }
+
+    /**
+     * Проверяет имя текущего элемента
+     *
+     * @param namespace пространство имен элемента
+     * @param localName локальное имя элемента
+     * @return true, если парсер стоит на указанном элементе
+     */
+    private boolean isElement(String namespace, String localName) {
+        return localName.equals(reader.getLocalName()) && namespace.equals(reader.getNamespaceURI());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Ошибка закрытия парсера RSS ленты", e);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * @return фабрика StAX парсеров без поддержки внешних сущностей
+     */
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+}
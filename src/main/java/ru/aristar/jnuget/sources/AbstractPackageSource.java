@@ -1,12 +1,14 @@
 package ru.aristar.jnuget.sources;
 
 import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.Hash;
 import ru.aristar.jnuget.files.Nupkg;
 import ru.aristar.jnuget.sources.push.ModifyStrategy;
 import ru.aristar.jnuget.sources.push.NugetPushException;
@@ -31,18 +33,29 @@ public abstract class AbstractPackageSource<T extends Nupkg> implements PackageS
      * имя хранилища
      */
     protected String name;
+    /**
+     * Индекс контрольных сумм пакетов хранилища
+     */
+    protected final PackageHashIndex hashIndex = new PackageHashIndex();
 
     @Override
     public boolean pushPackage(Nupkg nupkgFile) throws IOException {
         if (!getPushStrategy().canPush()) {
             return false;
         }
+        if (isSamePackageStored(nupkgFile)) {
+            logger.debug("Пакет {}:{} уже находится в хранилище {}",
+                    new Object[]{nupkgFile.getId(), nupkgFile.getVersion(), this});
+            return true;
+        }
         try {
             boolean beforeTrigger = getPushStrategy().processBeforeTriggers(nupkgFile, this);
             if (!beforeTrigger) {
                 return false;
             }
+            hashIndex.remove(nupkgFile.getId(), nupkgFile.getVersion());
             processPushPackage(nupkgFile);
+            hashIndex.put(nupkgFile.getId(), nupkgFile.getVersion(), getHashQuietly(nupkgFile));
             getPushStrategy().processAfterTriggers(nupkgFile, this);
         } catch (NugetPushException e) {
             logger.error("Ошибка помещения пакета в хранилище", e);
@@ -51,6 +64,47 @@ public abstract class AbstractPackageSource<T extends Nupkg> implements PackageS
         return true;
     }
 
+    /**
+     * Проверяет, что пакет с тем же идентификатором, версией и контрольной
+     * суммой уже находится в хранилище. Контрольная сумма сохраненного пакета
+     * берется из индекса, а при ее отсутствии читается один раз и
+     * запоминается.
+     *
+     * @param nupkg помещаемый пакет
+     * @return true, если такой же пакет уже сохранен
+     */
+    protected boolean isSamePackageStored(Nupkg nupkg) {
+        Hash pushedHash = getHashQuietly(nupkg);
+        if (pushedHash == null) {
+            return false;
+        }
+        T storedPackage = getPackage(nupkg.getId(), nupkg.getVersion());
+        if (storedPackage == null) {
+            hashIndex.remove(nupkg.getId(), nupkg.getVersion());
+            return false;
+        }
+        Hash storedHash = hashIndex.get(nupkg.getId(), nupkg.getVersion());
+        if (storedHash == null) {
+            storedHash = getHashQuietly(storedPackage);
+            hashIndex.put(nupkg.getId(), nupkg.getVersion(), storedHash);
+        }
+        return pushedHash.equals(storedHash);
+    }
+
+    /**
+     * @param nupkg пакет
+     * @return контрольная сумма пакета или null, если ее не удалось
+     * вычислить
+     */
+    private Hash getHashQuietly(Nupkg nupkg) {
+        try {
+            return nupkg.getHash();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            logger.warn("Не удалось получить HASH пакета " + nupkg, e);
+            return null;
+        }
+    }
+
     /**
      * Помещает пакет в хранилище
      *
@@ -157,6 +157,7 @@ public class ClassicPackageSource extends AbstractPackageSource<ClassicNupkg> im
 
     @Override
     public void removePackage(Nupkg nupkg) {
+        hashIndex.remove(nupkg.getId(), nupkg.getVersion());
         File pack = new File(rootFolder, nupkg.getFileName());
         if (!pack.exists()) {
             logger.info("Попытка удаления пакета, отсутствующего в хранилище (id: " + nupkg.getId() + ", version: " + nupkg.getVersion() + ")");
@@ -12,7 +12,7 @@ import ru.aristar.jnuget.client.NugetClient;
 import ru.aristar.jnuget.files.NugetFormatException;
 import ru.aristar.jnuget.files.RemoteNupkg;
 import ru.aristar.jnuget.rss.PackageEntry;
-import ru.aristar.jnuget.rss.PackageFeed;
+import ru.aristar.jnuget.rss.PackageFeedReader;
 
 /**
  * Задача получения списка пактов из удаленного хранилища
@@ -45,6 +45,10 @@ public class GetRemotePackageFeedAction extends RecursiveAction {
      * Фабрика клиентов удаленного хранилища
      */
     private ClientFactory clientFactory;
+    /**
+     * Условие отбора пакетов, передаваемое удаленному серверу
+     */
+    private final String filter;
     /**
      * Логгер
      */
@@ -58,7 +62,21 @@ public class GetRemotePackageFeedAction extends RecursiveAction {
      * @param clientFactory URL удаленного хранилища
      */
     public GetRemotePackageFeedAction(int packageFeedSize, List<RemoteNupkg> packages, final int low, final int top, ClientFactory clientFactory) {
+        this(packageFeedSize, packages, low, top, clientFactory, null);
+    }
+
+    /**
+     * @param packageFeedSize размер запроса в хранилище
+     * @param packages список, в который складываются полученные пакеты
+     * @param low нижняя граница списка пакетов
+     * @param top верхняя граница списка пакетов
+     * @param clientFactory URL удаленного хранилища
+     * @param filter условие отбора пакетов ($filter) или null, если нужны все
+     * пакеты хранилища
+     */
+    public GetRemotePackageFeedAction(int packageFeedSize, List<RemoteNupkg> packages, final int low, final int top, ClientFactory clientFactory, String filter) {
         logger.debug("Создание потока для диапазона: {}:{}", new Object[]{low, top});
+        this.filter = filter;
         this.packageFeedSize = packageFeedSize;
         this.packages = packages;
         this.low = low;
@@ -78,8 +96,8 @@ public class GetRemotePackageFeedAction extends RecursiveAction {
         } else {
             final int middle = (top + low) / 2;
             logger.trace("Верхняя граница = {}; Нижняя граница = {}; Середина = {};", new Object[]{top, low, middle});
-            GetRemotePackageFeedAction bottomAction = new GetRemotePackageFeedAction(packageFeedSize, packages, low, middle, clientFactory);
-            GetRemotePackageFeedAction topAction = new GetRemotePackageFeedAction(packageFeedSize, packages, middle, top, clientFactory);
+            GetRemotePackageFeedAction bottomAction = new GetRemotePackageFeedAction(packageFeedSize, packages, low, middle, clientFactory, filter);
+            GetRemotePackageFeedAction topAction = new GetRemotePackageFeedAction(packageFeedSize, packages, middle, top, clientFactory, filter);
             invokeAll(bottomAction, topAction);
         }
     }
@@ -88,9 +106,20 @@ public class GetRemotePackageFeedAction extends RecursiveAction {
      * Последовательное получение пакетов из хранилища
      */
     protected void loadPackages() {
+        try (NugetClient client = clientFactory.createClient()) {
+            loadPackages(client);
+        }
+    }
+
+    /**
+     * Последовательное получение пакетов из хранилища указанным клиентом
+     *
+     * @param client клиент удаленного хранилища
+     */
+    protected void loadPackages(NugetClient client) {
         logger.trace("Получение пакетов для диапазона: {}:{}", new Object[]{low, top});
         ArrayList<RemoteNupkg> result = new ArrayList<>();
-        try (NugetClient client = clientFactory.createClient()) {
+        try {
             int skip = low;
             int packageSize = packageFeedSize;
 
@@ -100,23 +129,14 @@ public class GetRemotePackageFeedAction extends RecursiveAction {
                     cnt = packageSize;
                 }
                 logger.trace("Запрос пакетов с {} по {}", new Object[]{skip, skip + cnt});
-                PackageFeed feed = client.getPackages(null, null, cnt, null, skip);
-                if (feed != null) {
-                    logger.trace("Получено {} пакетов для {}-{}", new Object[]{feed.getEntries().size(), skip, skip + cnt});
-                    for (PackageEntry entry : feed.getEntries()) {
-                        try {
-                            logger.trace("Добавление пакета {}:{}", new Object[]{entry.getTitle(), entry.getProperties().getVersion()});
-                            RemoteNupkg remoteNupkg = new RemoteNupkg(entry);
-                            result.add(remoteNupkg);
-                        } catch (NugetFormatException e) {
-                            logger.warn("Ошибка обработки пакета {} : {}  из удаленного хранилища. Причина: {}",
-                                    new Object[]{entry.getTitle(), entry.getProperties().getVersion(), e.getMessage()});
-                        }
+                try (PackageFeedReader feedReader = client.getPackageFeedReader(filter, null, cnt, null, skip)) {
+                    if (feedReader != null) {
+                        int entryCount = readPackages(feedReader, result);
+                        logger.trace("Получено {} пакетов для {}-{}", new Object[]{entryCount, skip, skip + cnt});
+                        packageSize = entryCount;
+                    } else {
+                        logger.warn("Не удалось получить пакеты для {}-{} c {} попыток", new Object[]{skip, skip + cnt, NugetClient.MAX_TRY_COUNT});
                     }
-                    logger.trace("Обработано {} пакетов", new Object[]{feed.getEntries().size()});
-                    packageSize = feed.getEntries().size();
-                } else {
-                    logger.warn("Не удалось получить пакеты для {}-{} c {} попыток", new Object[]{skip, skip + cnt, NugetClient.MAX_TRY_COUNT});
                 }
                 skip = skip + packageSize;
             } while (skip < top && packageSize > 0);
@@ -126,4 +146,37 @@ public class GetRemotePackageFeedAction extends RecursiveAction {
             logger.warn("Ошибка получения пакетов из удаленного хранилища", e);
         }
     }
+
+    /**
+     * Читает пакеты из ленты по одному, по мере поступления данных
+     *
+     * @param feedReader потоковый парсер ленты
+     * @param result список, в который складываются полученные пакеты
+     * @return количество прочитанных вложений ленты
+     * @throws IOException ошибка чтения ленты
+     */
+    protected int readPackages(PackageFeedReader feedReader, List<RemoteNupkg> result) throws IOException {
+        int entryCount = 0;
+        while (true) {
+            PackageEntry entry;
+            try {
+                entry = feedReader.nextEntry();
+            } catch (NugetFormatException e) {
+                entryCount++;
+                logger.warn("Ошибка разбора пакета из удаленного хранилища. Причина: {}", new Object[]{e.getMessage()});
+                continue;
+            }
+            if (entry == null) {
+                return entryCount;
+            }
+            entryCount++;
+            try {
+                logger.trace("Добавление пакета {}:{}", new Object[]{entry.getTitle(), entry.getProperties().getVersion()});
+                result.add(new RemoteNupkg(entry));
+            } catch (NugetFormatException e) {
+                logger.warn("Ошибка обработки пакета {} : {}  из удаленного хранилища. Причина: {}",
+                        new Object[]{entry.getTitle(), entry.getProperties().getVersion(), e.getMessage()});
+            }
+        }
+    }
 }
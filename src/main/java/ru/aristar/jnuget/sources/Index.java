@@ -183,9 +183,24 @@ public class Index implements Serializable {
      * @param nupkg пакет, который необходимо удалить из индекса
      */
     public void remove(Nupkg nupkg) {
-        SortedMap<Version, Nupkg> packageGroup = treeMap.get(nupkg.getId());
+        String id = nupkg.getId().toLowerCase();
+        SortedMap<Version, Nupkg> packageGroup = treeMap.get(id);
         if (packageGroup != null) {
             packageGroup.remove(nupkg.getVersion());
+            if (packageGroup.isEmpty()) {
+                treeMap.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Удаляет пакеты из индекса
+     *
+     * @param nupkgs пакеты, которые необходимо удалить из индекса
+     */
+    public void removeAll(Iterable<? extends Nupkg> nupkgs) {
+        for (Nupkg nupkg : nupkgs) {
+            remove(nupkg);
         }
     }
 
@@ -11,6 +11,7 @@ import java.util.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.aristar.jnuget.Version;
@@ -58,13 +59,28 @@ public class IndexedPackageSource implements PackageSource<Nupkg>, AutoCloseable
      */
     private volatile boolean refreshIndexInProgress = false;
     /**
-     * Очередь пакетов, ожидающих помещение в хранилище
+     * Пакеты, помещенные в хранилище во время обновления индекса и ожидающие
+     * добавления в новый индекс
      */
     private BlockingQueue<Nupkg> newPackageQueue = new LinkedBlockingQueue<>();
+    /**
+     * Пакеты, удаленные из хранилища во время обновления индекса
+     */
+    private BlockingQueue<Nupkg> removedPackageQueue = new LinkedBlockingQueue<>();
     /**
      * Планировщик обновления индекса.
      */
     private Scheduler scheduler;
+    /**
+     * Поколение индекса. Увеличивается при каждом изменении индекса, начальное
+     * значение - время создания, чтобы поколения не повторялись после
+     * перезапуска сервера
+     */
+    private final AtomicLong generation = new AtomicLong(System.currentTimeMillis());
+    /**
+     * Время последнего изменения индекса
+     */
+    private volatile long lastModified = System.currentTimeMillis();
 
     @Override
     public void refreshPackage(Nupkg nupkg) {
@@ -120,6 +136,8 @@ public class IndexedPackageSource implements PackageSource<Nupkg>, AutoCloseable
         synchronized (this) {
             logger.info("Инициировано обновление индекса хранилища {}", new Object[]{packageSource});
             refreshIndexInProgress = true;
+            newPackageQueue.clear();
+            removedPackageQueue.clear();
             try {
                 Collection<? extends Nupkg> packages = packageSource.getPackages();
                 Index newIndex = new Index();
@@ -137,10 +155,12 @@ public class IndexedPackageSource implements PackageSource<Nupkg>, AutoCloseable
                 logger.info("Добавление в индекс, ожидающих пакетов");
                 try {
                     pushSemaphore.acquire();
+                    //Пакеты могли быть удалены после того, как хранилище было просканировано
+                    newIndex.removeAll(removedPackageQueue);
+                    removedPackageQueue.clear();
                     logger.info(format("Ожидает добавления {0} пакетов", newPackageQueue.size()));
                     while (!newPackageQueue.isEmpty()) {
                         final Nupkg nupkg = newPackageQueue.poll();
-                        packageSource.pushPackage(nupkg);
                         if (nupkg != null) {
                             newIndex.put(nupkg);
                         }
@@ -149,6 +169,7 @@ public class IndexedPackageSource implements PackageSource<Nupkg>, AutoCloseable
                     pushSemaphore.release();
                 }
                 this.index = newIndex;
+                indexChanged();
                 if (indexStoreFile != null) {
                     try (FileOutputStream fileOutputStream = new FileOutputStream(indexStoreFile)) {
                         index.saveTo(fileOutputStream);
@@ -165,6 +186,29 @@ public class IndexedPackageSource implements PackageSource<Nupkg>, AutoCloseable
         }
     }
 
+    /**
+     * Отмечает изменение индекса: увеличивает поколение и обновляет время
+     * последнего изменения
+     */
+    private void indexChanged() {
+        lastModified = System.currentTimeMillis();
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @return поколение индекса, изменяется при любой модификации индекса
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * @return время последнего изменения индекса
+     */
+    public Date getLastModified() {
+        return new Date(lastModified);
+    }
+
     /**
      * Возвращает индекс хранилища
      *
@@ -230,27 +274,102 @@ public class IndexedPackageSource implements PackageSource<Nupkg>, AutoCloseable
     public boolean pushPackage(Nupkg file) throws IOException {
         try {
             pushSemaphore.acquire();
-            if (refreshIndexInProgress) {
-                if (!packageSource.getPushStrategy().canPush()) {
-                    return false;
+            if (isSamePackageStored(file)) {
+                return packageSource.getPushStrategy().canPush();
+            }
+            //Пакет сохраняется сразу, даже если индекс обновляется: после
+            //возврата из метода данные пакета могут быть удалены
+            boolean result = packageSource.pushPackage(file);
+            if (result) {
+                Nupkg localFile = packageSource.getPackage(file.getId(), file.getVersion());
+                if (localFile != null) {
+                    addToIndex(Collections.singletonList(localFile));
+                }
+            }
+            return result;
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } finally {
+            pushSemaphore.release();
+        }
+    }
+
+    /**
+     * Помещает несколько пакетов в хранилище. Индекс обновляется один раз
+     * после помещения всех пакетов.
+     *
+     * @param files пакеты
+     * @return результаты помещения в порядке следования пакетов (true -
+     * пакет помещен в хранилище)
+     * @throws IOException помещение прервано
+     */
+    public List<Boolean> pushPackages(List<? extends Nupkg> files) throws IOException {
+        List<Boolean> results = new ArrayList<>(files.size());
+        try {
+            pushSemaphore.acquire();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        try {
+            List<Nupkg> localFiles = new ArrayList<>();
+            boolean canPush = packageSource.getPushStrategy().canPush();
+            for (Nupkg file : files) {
+                if (isSamePackageStored(file)) {
+                    results.add(canPush);
+                    continue;
+                }
+                boolean result;
+                try {
+                    result = packageSource.pushPackage(file);
+                } catch (IOException e) {
+                    logger.error("Ошибка помещения пакета " + file + " в хранилище " + packageSource, e);
+                    result = false;
                 }
-                newPackageQueue.add(file);
-                return true;
-            } else {
-                boolean result = packageSource.pushPackage(file);
                 if (result) {
                     Nupkg localFile = packageSource.getPackage(file.getId(), file.getVersion());
-                    getIndex().put(localFile);
+                    if (localFile != null) {
+                        localFiles.add(localFile);
+                    }
                 }
-                return result;
+                results.add(result);
             }
-        } catch (InterruptedException e) {
-            throw new IOException(e);
+            if (!localFiles.isEmpty()) {
+                addToIndex(localFiles);
+            }
+            return results;
         } finally {
             pushSemaphore.release();
         }
     }
 
+    /**
+     * Проверяет, что такой же пакет уже находится в индексируемом хранилище.
+     * Повторное помещение такого пакета не изменяет индекс.
+     *
+     * @param file помещаемый пакет
+     * @return true, если пакет с тем же идентификатором, версией и HASH уже
+     * сохранен
+     */
+    private boolean isSamePackageStored(Nupkg file) {
+        return packageSource instanceof AbstractPackageSource
+                && ((AbstractPackageSource<?>) packageSource).isSamePackageStored(file);
+    }
+
+    /**
+     * Добавляет помещенные в хранилище пакеты в индекс. Если индекс
+     * обновляется, пакеты будут также добавлены в новый индекс. Вызывается
+     * при захваченном семафоре помещения пакетов.
+     *
+     * @param localFiles пакеты из индексируемого хранилища
+     */
+    private void addToIndex(List<? extends Nupkg> localFiles) {
+        getIndex().putAll(localFiles);
+        if (refreshIndexInProgress) {
+            newPackageQueue.addAll(localFiles);
+        }
+        indexChanged();
+    }
+
     @Override
     public ModifyStrategy getPushStrategy() {
         return packageSource.getPushStrategy();
@@ -263,7 +382,42 @@ public class IndexedPackageSource implements PackageSource<Nupkg>, AutoCloseable
 
     @Override
     public void removePackage(Nupkg nupkg) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        try {
+            removePackages(Collections.singletonList(nupkg));
+        } catch (IOException e) {
+            logger.error("Ошибка удаления пакета " + nupkg + " из хранилища " + packageSource, e);
+        }
+    }
+
+    /**
+     * Удаляет несколько пакетов из хранилища. Индекс обновляется один раз
+     * после удаления всех пакетов.
+     *
+     * @param nupkgs пакеты, которые необходимо удалить
+     * @throws IOException удаление прервано
+     */
+    public void removePackages(Collection<? extends Nupkg> nupkgs) throws IOException {
+        if (nupkgs.isEmpty()) {
+            return;
+        }
+        try {
+            pushSemaphore.acquire();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        try {
+            for (Nupkg nupkg : nupkgs) {
+                packageSource.removePackage(nupkg);
+            }
+            if (refreshIndexInProgress) {
+                removedPackageQueue.addAll(nupkgs);
+            }
+            getIndex().removeAll(nupkgs);
+            indexChanged();
+            logger.debug("Из хранилища {} удалено {} пакетов", new Object[]{packageSource, nupkgs.size()});
+        } finally {
+            pushSemaphore.release();
+        }
     }
 
     /**
@@ -356,6 +510,7 @@ public class IndexedPackageSource implements PackageSource<Nupkg>, AutoCloseable
                     + "индекса", new Object[]{packageSource});
             try (FileInputStream fileInputStream = new FileInputStream(this.indexStoreFile)) {
                 this.index = Index.loadFrom(fileInputStream);
+                indexChanged();
                 logger.info("Индекс загружен в память из локального файла \"{}\"", new Object[]{this.indexStoreFile});
                 Iterator<Nupkg> iterator = this.index.getAllPackages();
                 while (iterator.hasNext()) {
@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Objects;
 import javax.xml.bind.JAXBException;
 import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.Hash;
 import ru.aristar.jnuget.files.MavenNupkg;
 import ru.aristar.jnuget.files.NugetFormatException;
 import ru.aristar.jnuget.files.Nupkg;
@@ -27,10 +28,27 @@ import ru.aristar.jnuget.ui.descriptors.Property;
  */
 public class MavenStylePackageSource extends AbstractPackageSource<MavenNupkg> implements PackageSource<MavenNupkg> {
 
+    /**
+     * Имя каталога хранилища содержимого пакетов по умолчанию (внутри
+     * корневой папки)
+     */
+    public static final String DEFAULT_BLOB_FOLDER_NAME = ".blobs";
     /**
      * Корневая папка, в которой расположены пакеты
      */
     private File rootFolder;
+    /**
+     * Хранить содержимое пакетов по HASH, помещая в каталоги версий ссылки
+     */
+    private boolean contentAddressed;
+    /**
+     * Каталог хранилища содержимого пакетов (null - каталог по умолчанию)
+     */
+    private File blobFolder;
+    /**
+     * Хранилище содержимого пакетов
+     */
+    private volatile PackageBlobStore blobStore;
 
     /**
      * Конструктор по умолчанию
@@ -54,6 +72,40 @@ public class MavenStylePackageSource extends AbstractPackageSource<MavenNupkg> i
         rootFolder.mkdirs();
     }
 
+    /**
+     * @return true, если содержимое пакетов хранится по HASH, а в каталогах
+     * версий находятся ссылки на него
+     */
+    @Property
+    public boolean isContentAddressed() {
+        return contentAddressed;
+    }
+
+    /**
+     * @param contentAddressed хранить содержимое пакетов по HASH, помещая в
+     * каталоги версий ссылки на него
+     */
+    public void setContentAddressed(boolean contentAddressed) {
+        this.contentAddressed = contentAddressed;
+    }
+
+    /**
+     * @return имя каталога хранилища содержимого пакетов
+     */
+    @Property
+    public String getBlobFolderName() {
+        return blobFolder == null ? null : blobFolder.getAbsolutePath();
+    }
+
+    /**
+     * @param folderName имя каталога хранилища содержимого пакетов (может
+     * быть общим для нескольких хранилищ, расположенных на одном разделе)
+     */
+    public void setBlobFolderName(String folderName) {
+        blobFolder = folderName == null || folderName.isEmpty() ? null : new File(folderName);
+        blobStore = null;
+    }
+
     /**
      * @param rootFolder папка с пакетами
      */
@@ -67,7 +119,7 @@ public class MavenStylePackageSource extends AbstractPackageSource<MavenNupkg> i
     @Override
     public Collection<MavenNupkg> getPackages() {
         List<MavenNupkg> list = new ArrayList<>();
-        for (String id : rootFolder.list()) {
+        for (String id : getPackageIds()) {
             list.addAll(getPackagesById(id));
         }
         return list;
@@ -76,7 +128,7 @@ public class MavenStylePackageSource extends AbstractPackageSource<MavenNupkg> i
     @Override
     public Collection<MavenNupkg> getLastVersionPackages() {
         List<MavenNupkg> list = new ArrayList<>();
-        for (String id : rootFolder.list()) {
+        for (String id : getPackageIds()) {
             final MavenNupkg lastVersionPackage = getLastVersionPackage(id);
             if (lastVersionPackage != null) {
                 list.add(lastVersionPackage);
@@ -144,6 +196,56 @@ public class MavenStylePackageSource extends AbstractPackageSource<MavenNupkg> i
         return versionFolder;
     }
 
+    /**
+     * @return имена каталогов идентификаторов пакетов (без каталога
+     * хранилища содержимого)
+     */
+    List<String> getPackageIds() {
+        List<String> ids = new ArrayList<>();
+        File blobStoreFolder = getCanonicalFile(getBlobStoreFolder());
+        for (String name : rootFolder.list()) {
+            if (!getCanonicalFile(new File(rootFolder, name)).equals(blobStoreFolder)) {
+                ids.add(name);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return каталог хранилища содержимого пакетов
+     */
+    private File getBlobStoreFolder() {
+        return blobFolder == null ? new File(rootFolder, DEFAULT_BLOB_FOLDER_NAME) : blobFolder;
+    }
+
+    /**
+     * @param file файл
+     * @return канонический файл или абсолютный файл, если канонический
+     * путь получить не удалось
+     */
+    private File getCanonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            logger.warn("Не удалось получить канонический путь к файлу " + file, e);
+            return file.getAbsoluteFile();
+        }
+    }
+
+    /**
+     * @return хранилище содержимого пакетов
+     */
+    protected PackageBlobStore getBlobStore() {
+        if (blobStore == null) {
+            synchronized (this) {
+                if (blobStore == null) {
+                    blobStore = new PackageBlobStore(getBlobStoreFolder());
+                }
+            }
+        }
+        return blobStore;
+    }
+
     /**
      * Возвращает коллекцию пакетов с указанным идентификатором
      *
@@ -168,6 +270,7 @@ public class MavenStylePackageSource extends AbstractPackageSource<MavenNupkg> i
 
     @Override
     public void removePackage(Nupkg nupkg) {
+        hashIndex.remove(nupkg.getId(), nupkg.getVersion());
         // Проверка наличия папки с пакетом
         File idDir = new File(rootFolder, nupkg.getId());
         File versionDir = new File(idDir, nupkg.getVersion().toString());
@@ -176,6 +279,15 @@ public class MavenStylePackageSource extends AbstractPackageSource<MavenNupkg> i
                     + "(id: " + nupkg.getId() + ", version: " + nupkg.getVersion() + ")");
             return;
         }
+        Hash hash = null;
+        File hashFile = new File(versionDir, MavenNupkg.HASH_FILE_NAME);
+        if (contentAddressed && hashFile.exists()) {
+            try {
+                hash = Hash.parse(hashFile);
+            } catch (IOException e) {
+                logger.warn("Не удалось прочитать HASH пакета " + versionDir, e);
+            }
+        }
         // Удаляем содержимое папки с версией
         for (File file : versionDir.listFiles()) {
             file.delete();
@@ -186,6 +298,9 @@ public class MavenStylePackageSource extends AbstractPackageSource<MavenNupkg> i
         if (idDir.listFiles().length == 0) {
             idDir.delete();
         }
+        if (hash != null) {
+            getBlobStore().release(hash);
+        }
     }
 
     @Override
@@ -201,17 +316,22 @@ public class MavenStylePackageSource extends AbstractPackageSource<MavenNupkg> i
     protected void processPushPackage(Nupkg nupkg) throws IOException {
         try {
             File packageFolder = verifyPackageDestination(rootFolder, nupkg.getNuspecFile());
-            // Открывает временный файл, копирует его в место постоянного хранения.
-            File tmpDest = new File(packageFolder, nupkg.getFileName() + ".tmp");
             File finalDest = new File(packageFolder, nupkg.getFileName());
-            try (ReadableByteChannel src = Channels.newChannel(nupkg.getStream());
-                    FileChannel dest = new FileOutputStream(tmpDest).getChannel()) {
-                TempNupkgFile.fastChannelCopy(src, dest);
-            }
+            if (contentAddressed) {
+                // Содержимое копируется, только если пакета с таким HASH еще нет
+                getBlobStore().storeAndLink(nupkg, finalDest);
+            } else {
+                // Открывает временный файл, копирует его в место постоянного хранения.
+                File tmpDest = new File(packageFolder, nupkg.getFileName() + ".tmp");
+                try (ReadableByteChannel src = Channels.newChannel(nupkg.getStream());
+                        FileChannel dest = new FileOutputStream(tmpDest).getChannel()) {
+                    TempNupkgFile.fastChannelCopy(src, dest);
+                }
 
-            if (!tmpDest.renameTo(finalDest)) {
-                throw new IOException("Не удалось переименовать файл " + tmpDest
-                        + " в " + finalDest);
+                if (!tmpDest.renameTo(finalDest)) {
+                    throw new IOException("Не удалось переименовать файл " + tmpDest
+                            + " в " + finalDest);
+                }
             }
             try {
                 // Сохраняем nuspec
@@ -0,0 +1,214 @@
+package ru.aristar.jnuget.sources;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.Version;
+
+/**
+ * Кеш отрицательных результатов поиска пакетов в удаленном хранилище.
+ * Запоминает идентификаторы и пары идентификатор/версия, которых нет в
+ * хранилище, чтобы повторные запросы отсутствующих пакетов не обращались к
+ * удаленному серверу. Записи устаревают через заданное время. По умолчанию
+ * кеш отключен, так как пакет, опубликованный в удаленном хранилище в обход
+ * сервера, остается невидимым до истечения времени жизни записи.
+ * Статистика использования кеша записывается в журнал, когда количество
+ * обращений к кешу достигает очередной степени двойки.
+ *
+ * @author sviridov
+ */
+public class NegativeLookupCache {
+
+    /**
+     * Имя системного свойства с временем жизни записей по умолчанию (секунд)
+     */
+    public static final String TTL_PROPERTY_NAME = "nuget.negativeCache.ttl";
+    /**
+     * Имя системного свойства с максимальным количеством записей
+     */
+    public static final String MAX_SIZE_PROPERTY_NAME = "nuget.negativeCache.maxSize";
+    /**
+     * Время жизни записей по умолчанию (секунд): кеш отключен, пока время
+     * жизни не задано явно
+     */
+    public static final long DEFAULT_TTL = 0;
+    /**
+     * Максимальное количество записей по умолчанию
+     */
+    public static final long DEFAULT_MAX_SIZE = 10000;
+    /**
+     * Префикс ключа идентификатора пакета
+     */
+    private static final String ID_KEY_PREFIX = "id:";
+    /**
+     * Префикс ключа идентификатора и версии пакета
+     */
+    private static final String PACKAGE_KEY_PREFIX = "package:";
+    /**
+     * Время жизни записей (секунд), 0 - кеш отключен
+     */
+    private final long ttl;
+    /**
+     * Отсутствующие пакеты
+     */
+    private final Cache<String, Boolean> cache;
+    /**
+     * Количество обращений к кешу
+     */
+    private final AtomicLong lookupCount = new AtomicLong();
+    /**
+     * Логгер
+     */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * Создает кеш с параметрами из системных свойств
+     */
+    public NegativeLookupCache() {
+        this(Long.getLong(TTL_PROPERTY_NAME, DEFAULT_TTL), Long.getLong(MAX_SIZE_PROPERTY_NAME, DEFAULT_MAX_SIZE));
+    }
+
+    /**
+     * @param ttl время жизни записей (секунд), 0 - кеш отключен
+     * @param maxSize максимальное количество записей
+     */
+    public NegativeLookupCache(long ttl, long maxSize) {
+        this.ttl = ttl;
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Math.max(ttl, 0), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return время жизни записей (секунд)
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * @return true, если кеш включен
+     */
+    public boolean isEnabled() {
+        return ttl > 0;
+    }
+
+    /**
+     * @param id идентификатор пакета
+     * @return true, если известно, что пакетов с идентификатором нет
+     */
+    public boolean isMissing(String id) {
+        return isEnabled() && lookup(createKey(id));
+    }
+
+    /**
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return true, если известно, что пакета нет
+     */
+    public boolean isMissing(String id, Version version) {
+        return isEnabled() && lookup(createKey(id, version));
+    }
+
+    /**
+     * Проверяет наличие записи в кеше и при необходимости записывает
+     * статистику кеша в журнал
+     *
+     * @param key ключ записи
+     * @return true, если запись есть в кеше
+     */
+    private boolean lookup(String key) {
+        boolean result = cache.getIfPresent(key) != null;
+        if (Long.bitCount(lookupCount.incrementAndGet()) == 1) {
+            logger.info("Кеш отрицательных результатов: {}", new Object[]{this});
+        }
+        return result;
+    }
+
+    /**
+     * Запоминает, что пакетов с идентификатором нет
+     *
+     * @param id идентификатор пакета
+     */
+    public void markMissing(String id) {
+        if (isEnabled()) {
+            cache.put(createKey(id), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Запоминает, что пакета нет
+     *
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     */
+    public void markMissing(String id, Version version) {
+        if (isEnabled()) {
+            cache.put(createKey(id, version), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Удаляет записи об отсутствии пакета (вызывается при помещении пакета в
+     * хранилище)
+     *
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     */
+    public void invalidate(String id, Version version) {
+        cache.invalidate(createKey(id));
+        cache.invalidate(createKey(id, version));
+    }
+
+    /**
+     * Очищает кеш
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return количество записей в кеше
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return статистика использования кеша (попадания - запросы, на которые
+     * ответ получен без обращения к удаленному серверу)
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    @Override
+    public String toString() {
+        CacheStats stats = getStats();
+        return "NegativeLookupCache{ttl=" + ttl + ", size=" + size() + ", hits=" + stats.hitCount()
+                + ", misses=" + stats.missCount() + ", hitRate=" + String.format("%.2f", stats.hitRate()) + '}';
+    }
+
+    /**
+     * @param id идентификатор пакета
+     * @return ключ идентификатора
+     */
+    private static String createKey(String id) {
+        return ID_KEY_PREFIX + id.toLowerCase();
+    }
+
+    /**
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return ключ идентификатора и версии
+     */
+    private static String createKey(String id, Version version) {
+        return PACKAGE_KEY_PREFIX + id.toLowerCase() + ":" + version;
+    }
+}
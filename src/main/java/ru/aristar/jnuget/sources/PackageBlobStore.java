@@ -0,0 +1,242 @@
+package ru.aristar.jnuget.sources;
+
+import com.google.common.util.concurrent.Striped;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.locks.Lock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.files.CopyingDigestInputStream;
+import ru.aristar.jnuget.files.Hash;
+import ru.aristar.jnuget.files.Nupkg;
+
+/**
+ * Хранилище содержимого пакетов, адресуемого по HASH (SHA-512). Каждый
+ * уникальный пакет хранится один раз, в каталоги версий помещаются жесткие
+ * ссылки на него. Если файловая система не поддерживает жесткие ссылки (или
+ * каталог версии находится на другом разделе), файл копируется. Операции с
+ * содержимым одного пакета (сохранение, создание ссылки, удаление)
+ * выполняются последовательно.
+ *
+ * @author sviridov
+ */
+public class PackageBlobStore {
+
+    /**
+     * Расширение файлов содержимого пакетов
+     */
+    private static final String BLOB_EXTENSION = ".blob";
+    /**
+     * Количество символов HASH в имени каталога первого уровня
+     */
+    private static final int PREFIX_LENGTH = 2;
+    /**
+     * Количество блокировок содержимого пакетов
+     */
+    private static final int LOCK_STRIPES = 64;
+    /**
+     * Блокировки содержимого пакетов (по пути к файлу содержимого). Общие для
+     * всех экземпляров, так как каталог содержимого может использоваться
+     * несколькими хранилищами.
+     */
+    private static final Striped<Lock> LOCKS = Striped.lock(LOCK_STRIPES);
+    /**
+     * Логгер
+     */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Корневой каталог хранилища содержимого
+     */
+    private final File rootFolder;
+
+    /**
+     * @param rootFolder корневой каталог хранилища содержимого
+     */
+    public PackageBlobStore(File rootFolder) {
+        this.rootFolder = rootFolder;
+    }
+
+    /**
+     * @return корневой каталог хранилища содержимого
+     */
+    public File getRootFolder() {
+        return rootFolder;
+    }
+
+    /**
+     * @param hash HASH пакета
+     * @return файл с содержимым пакета (может не существовать)
+     */
+    public File getBlobFile(Hash hash) {
+        String name = hash.toHexString();
+        File prefixFolder = new File(rootFolder, name.substring(0, PREFIX_LENGTH));
+        return new File(prefixFolder, name + BLOB_EXTENSION);
+    }
+
+    /**
+     * Помещает содержимое пакета в хранилище и создает ссылку на него в
+     * каталоге версии. Содержимое не может быть удалено между сохранением и
+     * созданием ссылки.
+     *
+     * @param nupkg пакет
+     * @param target файл в каталоге версии пакета
+     * @throws IOException ошибка записи
+     */
+    public void storeAndLink(Nupkg nupkg, File target) throws IOException {
+        File blobFile = getBlobFile(getHash(nupkg));
+        Lock lock = getLock(blobFile);
+        lock.lock();
+        try {
+            store(nupkg);
+            link(blobFile, target);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Помещает содержимое пакета в хранилище. Если пакет с таким HASH уже
+     * сохранен, данные не копируются. HASH данных подсчитывается при
+     * копировании; если он не совпадает с HASH пакета, содержимое не
+     * сохраняется.
+     *
+     * @param nupkg пакет
+     * @return файл с содержимым пакета
+     * @throws IOException ошибка записи или HASH данных не совпадает с HASH
+     * пакета
+     */
+    public File store(Nupkg nupkg) throws IOException {
+        Hash hash = getHash(nupkg);
+        File blobFile = getBlobFile(hash);
+        Lock lock = getLock(blobFile);
+        lock.lock();
+        try {
+            if (blobFile.exists()) {
+                logger.debug("Содержимое пакета {}:{} уже сохранено в {}",
+                        new Object[]{nupkg.getId(), nupkg.getVersion(), blobFile});
+                return blobFile;
+            }
+            File folder = blobFile.getParentFile();
+            if (!folder.exists() && !folder.mkdirs() && !folder.exists()) {
+                throw new IOException("Не удалось создать каталог " + folder);
+            }
+            File tmpFile = File.createTempFile(blobFile.getName(), ".tmp", folder);
+            try {
+                Hash actualHash;
+                try (FileChannel dest = new FileOutputStream(tmpFile).getChannel();
+                        CopyingDigestInputStream inputStream = new CopyingDigestInputStream(
+                                nupkg.getStream(), MessageDigest.getInstance(Hash.ALGORITHM_NAME), dest)) {
+                    inputStream.drain();
+                    actualHash = inputStream.getHash();
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IOException("Не удается подсчитать HASH пакета", e);
+                }
+                if (!hash.equals(actualHash)) {
+                    throw new IOException("HASH содержимого пакета " + nupkg.getId() + ":" + nupkg.getVersion()
+                            + " (" + actualHash + ") не совпадает с HASH пакета (" + hash + ")");
+                }
+                //Тот же пакет мог быть сохранен другим процессом - содержимое одинаково
+                if (!tmpFile.renameTo(blobFile) && !blobFile.exists()) {
+                    throw new IOException("Не удалось переименовать файл " + tmpFile
+                            + " в " + blobFile);
+                }
+            } finally {
+                if (tmpFile.exists()) {
+                    tmpFile.delete();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        logger.debug("Содержимое пакета {}:{} сохранено в {}",
+                new Object[]{nupkg.getId(), nupkg.getVersion(), blobFile});
+        return blobFile;
+    }
+
+    /**
+     * Создает ссылку на содержимое пакета. Существующий файл назначения
+     * заменяется, если он не является ссылкой на то же содержимое.
+     *
+     * @param blobFile файл с содержимым пакета
+     * @param target файл в каталоге версии пакета
+     * @throws IOException ошибка создания ссылки или копирования
+     */
+    public void link(File blobFile, File target) throws IOException {
+        Lock lock = getLock(blobFile);
+        lock.lock();
+        try {
+            if (target.exists()) {
+                if (Files.isSameFile(blobFile.toPath(), target.toPath())) {
+                    return;
+                }
+                Files.delete(target.toPath());
+            }
+            try {
+                Files.createLink(target.toPath(), blobFile.toPath());
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                logger.warn("Не удалось создать жесткую ссылку {} на {}, файл будет скопирован: {}",
+                        new Object[]{target, blobFile, e.toString()});
+                Files.copy(blobFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Удаляет содержимое пакета, если на него не осталось ссылок. Количество
+     * ссылок доступно только в файловых системах UNIX, в остальных
+     * содержимое не удаляется.
+     *
+     * @param hash HASH пакета
+     */
+    public void release(Hash hash) {
+        File blobFile = getBlobFile(hash);
+        Lock lock = getLock(blobFile);
+        lock.lock();
+        try {
+            if (!blobFile.exists()) {
+                return;
+            }
+            Object linkCount = Files.getAttribute(blobFile.toPath(), "unix:nlink");
+            if (linkCount instanceof Integer && (Integer) linkCount <= 1) {
+                Files.delete(blobFile.toPath());
+                logger.debug("Удалено содержимое пакета {}, не используемое хранилищами", new Object[]{blobFile});
+            }
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            logger.warn("Не удалось определить количество ссылок на файл {}, содержимое не удалено: {}",
+                    new Object[]{blobFile, e.toString()});
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param blobFile файл с содержимым пакета
+     * @return блокировка содержимого пакета
+     */
+    private Lock getLock(File blobFile) {
+        return LOCKS.get(blobFile.getAbsolutePath());
+    }
+
+    /**
+     * @param nupkg пакет
+     * @return HASH пакета
+     * @throws IOException не удается подсчитать HASH пакета
+     */
+    private static Hash getHash(Nupkg nupkg) throws IOException {
+        try {
+            return nupkg.getHash();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Не удается подсчитать HASH пакета", e);
+        }
+    }
+}
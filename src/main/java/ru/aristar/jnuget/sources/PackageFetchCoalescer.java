@@ -0,0 +1,311 @@
+package ru.aristar.jnuget.sources;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.Nupkg;
+
+/**
+ * Объединяет одновременные запросы на загрузку одного и того же пакета из
+ * удаленного хранилища в локальное. Первый поток загружает пакет, остальные
+ * потоки, запросившие тот же пакет того же локального хранилища, ожидают
+ * завершения загрузки и получают ее результат.
+ *
+ * @author sviridov
+ */
+public final class PackageFetchCoalescer {
+
+    /**
+     * Выполняющиеся загрузки
+     */
+    private static final ConcurrentMap<FetchKey, FutureTask<Nupkg>> IN_FLIGHT = new ConcurrentHashMap<>();
+    /**
+     * Логгер
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PackageFetchCoalescer.class);
+
+    /**
+     * Закрытый конструктор
+     */
+    private PackageFetchCoalescer() {
+    }
+
+    /**
+     * Возвращает пакет из локального хранилища, при необходимости загружая
+     * его из удаленного хранилища. Одновременно выполняется не более одной
+     * загрузки пакета с указанными идентификатором и версией.
+     *
+     * @param <T> тип пакетов локального хранилища
+     * @param localSource локальное хранилище
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @param remoteLookup получение пакета из удаленного хранилища (может
+     * вернуть null, если пакет не найден)
+     * @return пакет из локального хранилища или null, если пакет не найден
+     * или не был помещен в локальное хранилище
+     * @throws IOException ошибка загрузки пакета
+     */
+    public static <T extends Nupkg> T fetch(final PackageSource<T> localSource, final String id,
+            final Version version, final Callable<? extends Nupkg> remoteLookup) throws IOException {
+        FetchKey key = new FetchKey(localSource, id, version);
+        FetchCallable<T> callable = new FetchCallable<>(localSource, id, version);
+        callable.remoteLookup = remoteLookup;
+        FutureTask<Nupkg> task = new FutureTask<>(callable);
+        FutureTask<Nupkg> existing = IN_FLIGHT.putIfAbsent(key, task);
+        if (existing == null) {
+            run(key, task);
+            existing = task;
+        } else {
+            logger.debug("Ожидание загрузки пакета {}:{}, начатой другим потоком", new Object[]{id, version});
+        }
+        return PackageFetchCoalescer.<T>getResult(existing, id, version);
+    }
+
+    /**
+     * Регистрирует загрузку пакета, данные которого вызывающий поток получает
+     * самостоятельно (например, при сквозной передаче клиенту). До вызова
+     * {@link PendingFetch#complete(java.util.concurrent.Callable)} остальные
+     * потоки, запросившие тот же пакет, ожидают результата этой загрузки.
+     *
+     * @param <T> тип пакетов локального хранилища
+     * @param localSource локальное хранилище
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return зарегистрированная загрузка или null, если пакет уже
+     * загружается другим потоком
+     */
+    public static <T extends Nupkg> PendingFetch<T> begin(PackageSource<T> localSource, String id,
+            Version version) {
+        FetchKey key = new FetchKey(localSource, id, version);
+        FetchCallable<T> callable = new FetchCallable<>(localSource, id, version);
+        FutureTask<Nupkg> task = new FutureTask<>(callable);
+        if (IN_FLIGHT.putIfAbsent(key, task) != null) {
+            return null;
+        }
+        return new PendingFetch<>(key, task, callable);
+    }
+
+    /**
+     * Выполняет загрузку и удаляет ее из списка выполняющихся
+     *
+     * @param key ключ загрузки
+     * @param task загрузка
+     */
+    private static void run(FetchKey key, FutureTask<Nupkg> task) {
+        try {
+            task.run();
+        } finally {
+            IN_FLIGHT.remove(key, task);
+        }
+    }
+
+    /**
+     * Ожидает завершения загрузки и возвращает ее результат
+     *
+     * @param <T> тип пакетов локального хранилища
+     * @param task загрузка
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return пакет из локального хранилища или null
+     * @throws IOException ошибка загрузки пакета
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Nupkg> T getResult(FutureTask<Nupkg> task, String id, Version version)
+            throws IOException {
+        try {
+            return (T) task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Ожидание загрузки пакета " + id + ":" + version + " прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Ошибка загрузки пакета " + id + ":" + version, e.getCause());
+        }
+    }
+
+    /**
+     * @return количество выполняющихся загрузок
+     */
+    public static int getInFlightCount() {
+        return IN_FLIGHT.size();
+    }
+
+    /**
+     * Загрузка пакета, данные которого получает зарегистрировавший ее поток
+     *
+     * @param <T> тип пакетов локального хранилища
+     */
+    public static final class PendingFetch<T extends Nupkg> {
+
+        /**
+         * Ключ загрузки
+         */
+        private final FetchKey key;
+        /**
+         * Задача, результата которой ожидают остальные потоки
+         */
+        private final FutureTask<Nupkg> task;
+        /**
+         * Загрузка пакета в локальное хранилище
+         */
+        private final FetchCallable<T> callable;
+
+        /**
+         * @param key ключ загрузки
+         * @param task задача, результата которой ожидают остальные потоки
+         * @param callable загрузка пакета в локальное хранилище
+         */
+        private PendingFetch(FetchKey key, FutureTask<Nupkg> task, FetchCallable<T> callable) {
+            this.key = key;
+            this.task = task;
+            this.callable = callable;
+        }
+
+        /**
+         * Помещает полученный пакет в локальное хранилище и передает результат
+         * ожидающим потокам. Повторные вызовы возвращают результат первого.
+         *
+         * @param packageLookup получение пакета для помещения в локальное
+         * хранилище (null, если данные пакета получить не удалось)
+         * @return пакет из локального хранилища или null
+         * @throws IOException ошибка помещения пакета в локальное хранилище
+         */
+        public T complete(Callable<? extends Nupkg> packageLookup) throws IOException {
+            if (!task.isDone()) {
+                callable.remoteLookup = packageLookup;
+                run(key, task);
+            }
+            return PackageFetchCoalescer.<T>getResult(task, callable.id, callable.version);
+        }
+
+        /**
+         * Завершает загрузку без помещения пакета в локальное хранилище, если
+         * она еще не завершена. Ожидающие потоки получают пакет, только если
+         * он уже есть в локальном хранилище.
+         */
+        public void abandon() {
+            if (task.isDone()) {
+                return;
+            }
+            try {
+                complete(null);
+            } catch (IOException e) {
+                logger.warn("Ошибка завершения загрузки пакета " + callable.id + ":" + callable.version, e);
+            }
+        }
+    }
+
+    /**
+     * Загрузка пакета в локальное хранилище
+     *
+     * @param <T> тип пакетов локального хранилища
+     */
+    private static class FetchCallable<T extends Nupkg> implements Callable<Nupkg> {
+
+        /**
+         * Локальное хранилище
+         */
+        private final PackageSource<T> localSource;
+        /**
+         * Идентификатор пакета
+         */
+        private final String id;
+        /**
+         * Версия пакета
+         */
+        private final Version version;
+        /**
+         * Получение пакета из удаленного хранилища
+         */
+        private volatile Callable<? extends Nupkg> remoteLookup;
+
+        /**
+         * @param localSource локальное хранилище
+         * @param id идентификатор пакета
+         * @param version версия пакета
+         */
+        public FetchCallable(PackageSource<T> localSource, String id, Version version) {
+            this.localSource = localSource;
+            this.id = id;
+            this.version = version;
+        }
+
+        @Override
+        public Nupkg call() throws Exception {
+            //Пакет мог быть загружен потоком, завершившим загрузку ранее
+            T localNupkg = localSource.getPackage(id, version);
+            if (localNupkg != null || remoteLookup == null) {
+                return localNupkg;
+            }
+            Nupkg remoteNupkg = remoteLookup.call();
+            if (remoteNupkg == null) {
+                return null;
+            }
+            if (!localSource.pushPackage(remoteNupkg)) {
+                logger.warn("Не удалось поместить пакет {}:{} в локальное хранилище",
+                        new Object[]{remoteNupkg.getId(), remoteNupkg.getVersion()});
+            }
+            return localSource.getPackage(id, version);
+        }
+    }
+
+    /**
+     * Ключ загрузки: локальное хранилище, идентификатор (без учета регистра) и
+     * версия пакета
+     */
+    private static class FetchKey {
+
+        /**
+         * Локальное хранилище
+         */
+        private final PackageSource<?> localSource;
+        /**
+         * Идентификатор пакета в нижнем регистре
+         */
+        private final String id;
+        /**
+         * Версия пакета
+         */
+        private final Version version;
+
+        /**
+         * @param localSource локальное хранилище
+         * @param id идентификатор пакета
+         * @param version версия пакета
+         */
+        public FetchKey(PackageSource<?> localSource, String id, Version version) {
+            this.localSource = localSource;
+            this.id = id.toLowerCase();
+            this.version = version;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 5;
+            hash = 29 * hash + System.identityHashCode(localSource);
+            hash = 29 * hash + id.hashCode();
+            hash = 29 * hash + Objects.hashCode(version);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FetchKey)) {
+                return false;
+            }
+            final FetchKey other = (FetchKey) obj;
+            return localSource == other.localSource
+                    && id.equals(other.id)
+                    && Objects.equals(version, other.version);
+        }
+    }
+}
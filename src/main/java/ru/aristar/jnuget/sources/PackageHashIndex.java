@@ -0,0 +1,79 @@
+package ru.aristar.jnuget.sources;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.Hash;
+
+/**
+ * Индекс контрольных сумм пакетов хранилища по идентификатору и версии.
+ * Позволяет определить, что помещаемый пакет совпадает с уже сохраненным,
+ * не читая файл пакета.
+ *
+ * @author sviridov
+ */
+public class PackageHashIndex {
+
+    /**
+     * Контрольные суммы пакетов по ключу "идентификатор:версия"
+     */
+    private final ConcurrentMap<String, Hash> hashes = new ConcurrentHashMap<>();
+
+    /**
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return контрольная сумма пакета или null, если пакет отсутствует в
+     * индексе
+     */
+    public Hash get(String id, Version version) {
+        return hashes.get(createKey(id, version));
+    }
+
+    /**
+     * Сохраняет контрольную сумму пакета
+     *
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @param hash контрольная сумма пакета
+     */
+    public void put(String id, Version version, Hash hash) {
+        if (hash == null) {
+            remove(id, version);
+        } else {
+            hashes.put(createKey(id, version), hash);
+        }
+    }
+
+    /**
+     * Удаляет контрольную сумму пакета из индекса
+     *
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     */
+    public void remove(String id, Version version) {
+        hashes.remove(createKey(id, version));
+    }
+
+    /**
+     * Очищает индекс
+     */
+    public void clear() {
+        hashes.clear();
+    }
+
+    /**
+     * @return количество пакетов в индексе
+     */
+    public int size() {
+        return hashes.size();
+    }
+
+    /**
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return ключ индекса (идентификатор пакета не зависит от регистра)
+     */
+    private static String createKey(String id, Version version) {
+        return id.toLowerCase() + ":" + version;
+    }
+}
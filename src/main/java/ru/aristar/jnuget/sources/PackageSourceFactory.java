@@ -334,6 +334,29 @@ public class PackageSourceFactory {
         return getPublicPackageSourcesMap().get(storageName);
     }
 
+    /**
+     * Возвращает индексируемое хранилище, созданное фабрикой для указанного
+     * хранилища. Хранилища при этом не создаются: если фабрика еще не
+     * инициализирована, возвращается null.
+     *
+     * @param packageSource индексируемое (внутреннее) хранилище
+     * @return индексируемое хранилище или null
+     */
+    public static IndexedPackageSource findIndexedSource(PackageSource<? extends Nupkg> packageSource) {
+        PackageSourceFactory factory = instance;
+        Map<String, PackageSource<Nupkg>> sources = factory == null ? null : factory.packageSources;
+        if (sources == null) {
+            return null;
+        }
+        for (PackageSource<Nupkg> source : sources.values()) {
+            if (source instanceof IndexedPackageSource
+                    && ((IndexedPackageSource) source).getUnderlyingSource() == packageSource) {
+                return (IndexedPackageSource) source;
+            }
+        }
+        return null;
+    }
+
     /**
      * @return настройки приложения
      */
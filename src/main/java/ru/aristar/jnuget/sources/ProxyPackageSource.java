@@ -5,10 +5,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.aristar.jnuget.Version;
-import ru.aristar.jnuget.files.MavenNupkg;
 import ru.aristar.jnuget.files.Nupkg;
 import ru.aristar.jnuget.files.ProxyNupkg;
 import ru.aristar.jnuget.files.RemoteNupkg;
@@ -37,6 +37,11 @@ public class ProxyPackageSource implements PackageSource<Nupkg> {
      * Стратегия добавления пакетов
      */
     private ModifyStrategy pushStrategy;
+    /**
+     * Передавать данные пакетов клиенту одновременно с загрузкой из
+     * удаленного хранилища
+     */
+    private boolean streamThrough = false;
 
     /**
      * Конструктор по умолчанию
@@ -75,12 +80,88 @@ public class ProxyPackageSource implements PackageSource<Nupkg> {
         return remoteSource.getUrl();
     }
 
+    /**
+     * @return true, если каталог удаленного хранилища синхронизируется
+     * инкрементально
+     */
+    @Property
+    public boolean isIncrementalSync() {
+        return remoteSource.isIncrementalSync();
+    }
+
+    /**
+     * @param incrementalSync true, если каталог удаленного хранилища
+     * необходимо синхронизировать инкрементально
+     */
+    public void setIncrementalSync(boolean incrementalSync) {
+        remoteSource.setIncrementalSync(incrementalSync);
+    }
+
+    /**
+     * @return интервал полной синхронизации каталога (минут)
+     */
+    @Property
+    public int getFullSyncInterval() {
+        return remoteSource.getFullSyncInterval();
+    }
+
+    /**
+     * @param fullSyncInterval интервал полной синхронизации каталога (минут)
+     */
+    public void setFullSyncInterval(int fullSyncInterval) {
+        remoteSource.setFullSyncInterval(fullSyncInterval);
+    }
+
+    /**
+     * @return время жизни записей кеша отсутствующих в удаленном хранилище
+     * пакетов (секунд)
+     */
+    @Property
+    public long getNegativeCacheTtl() {
+        return remoteSource.getNegativeCacheTtl();
+    }
+
+    /**
+     * @param negativeCacheTtl время жизни записей кеша отсутствующих в
+     * удаленном хранилище пакетов (секунд), 0 - кеш отключен
+     */
+    public void setNegativeCacheTtl(long negativeCacheTtl) {
+        remoteSource.setNegativeCacheTtl(negativeCacheTtl);
+    }
+
+    /**
+     * @return true, если данные пакетов передаются клиенту одновременно с
+     * загрузкой из удаленного хранилища
+     */
+    @Property
+    public boolean isStreamThrough() {
+        return streamThrough;
+    }
+
+    /**
+     * @param streamThrough передавать данные пакетов клиенту одновременно с
+     * загрузкой из удаленного хранилища
+     */
+    public void setStreamThrough(boolean streamThrough) {
+        this.streamThrough = streamThrough;
+    }
+
+    /**
+     * @param remoteNupkg пакет из удаленного хранилища
+     * @return прокси представление пакета
+     */
+    private ProxyNupkg createProxyNupkg(RemoteNupkg remoteNupkg) {
+        ProxyNupkg proxyNupkg = new ProxyNupkg(hostedSource, remoteNupkg);
+        proxyNupkg.setStreamThrough(streamThrough);
+        return proxyNupkg;
+    }
+
     @Override
     public Collection<Nupkg> getPackages() {
         ArrayList<Nupkg> nupkgs = new ArrayList<>();
         try {
             for (RemoteNupkg remoteNupkg : remoteSource.getPackages()) {
-                nupkgs.add(new ProxyNupkg(hostedSource, remoteNupkg));
+                nupkgs.add(createProxyNupkg(remoteNupkg));
             }
         } catch (Exception e) {
             logger.warn("Не удалось получить пакеты из удаленного хранилища", e);
@@ -94,7 +175,7 @@ public class ProxyPackageSource implements PackageSource<Nupkg> {
         Collection<Nupkg> nupkgs = new HashSet<>();
         try {
             for (RemoteNupkg remoteNupkg : remoteSource.getLastVersionPackages()) {
-                nupkgs.add(new ProxyNupkg(hostedSource, remoteNupkg));
+                nupkgs.add(createProxyNupkg(remoteNupkg));
             }
         } catch (Exception e) {
             logger.warn("Не удалось получить пакеты из удаленного хранилища", e);
@@ -109,7 +190,7 @@ public class ProxyPackageSource implements PackageSource<Nupkg> {
         HashMap<Version, Nupkg> packages = new HashMap<>();
         try {
             for (RemoteNupkg remoteNupkg : remoteSource.getPackages(id)) {
-                packages.put(remoteNupkg.getVersion(), new ProxyNupkg(hostedSource, remoteNupkg));
+                packages.put(remoteNupkg.getVersion(), createProxyNupkg(remoteNupkg));
             }
         } catch (Exception e) {
             logger.warn("Не удалось получить пакеты из удаленного хранилища", e);
@@ -135,23 +216,32 @@ public class ProxyPackageSource implements PackageSource<Nupkg> {
         return result;
     }
 
+    /**
+     * Возвращает пакет. Если пакета нет в локальном хранилище, он загружается
+     * из удаленного хранилища, а при включенной сквозной передаче
+     * возвращается {@link ProxyNupkg}, данные которого передаются клиенту
+     * одновременно с загрузкой.
+     *
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return пакет или null, если пакет не найден
+     */
     @Override
-    public MavenNupkg getPackage(String id, Version version) {
-        MavenNupkg nupkg = hostedSource.getPackage(id, version);
+    public Nupkg getPackage(final String id, final Version version) {
+        Nupkg nupkg = hostedSource.getPackage(id, version);
+        if (nupkg == null && streamThrough) {
+            RemoteNupkg remoteNupkg = remoteSource.getPackage(id, version);
+            return remoteNupkg == null ? null : createProxyNupkg(remoteNupkg);
+        }
         if (nupkg == null) {
             try {
                 logger.debug("Получение файла пакета {}:{} из удаленного хранилища", new Object[]{id, version});
-                RemoteNupkg remoteNupkg = remoteSource.getPackage(id, version);
-                if (remoteNupkg == null) {
-                    return null;
-                }
-                boolean result = hostedSource.pushPackage(remoteNupkg);
-                if (result) {
-                    nupkg = hostedSource.getPackage(id, version);
-                } else {
-                    logger.warn("Не удалось поместить пакет {}:{} в локальное хранилище",
-                            new Object[]{remoteNupkg.getId(), remoteNupkg.getVersion()});
-                }
+                nupkg = PackageFetchCoalescer.fetch(hostedSource, id, version, new Callable<RemoteNupkg>() {
+                    @Override
+                    public RemoteNupkg call() throws Exception {
+                        return remoteSource.getPackage(id, version);
+                    }
+                });
             } catch (Exception e) {
                 logger.warn("Ошибка помещения файла в локальное хранилище", e);
             }
@@ -191,6 +281,7 @@ public class ProxyPackageSource implements PackageSource<Nupkg> {
         if (nupkg instanceof ProxyNupkg) {
             ProxyNupkg proxyNupkg = (ProxyNupkg) nupkg;
             proxyNupkg.setPackageSource(hostedSource);
+            proxyNupkg.setStreamThrough(streamThrough);
         }
     }
 
@@ -0,0 +1,128 @@
+package ru.aristar.jnuget.sources;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import ru.aristar.jnuget.files.RemoteNupkg;
+
+/**
+ * Локальная копия каталога пакетов удаленного хранилища. Запоминает
+ * наибольшую дату обновления полученных пакетов, что позволяет запрашивать у
+ * сервера только пакеты, измененные после предыдущей синхронизации.
+ *
+ * @author sviridov
+ */
+public class RemotePackageCatalog {
+
+    /**
+     * Пакеты каталога (ключ - идентификатор в нижнем регистре и версия)
+     */
+    private final Map<String, RemoteNupkg> packages = new HashMap<>();
+    /**
+     * Наибольшая дата обновления полученных пакетов
+     */
+    private Date lastUpdated;
+    /**
+     * Время последней полной синхронизации (миллисекунды)
+     */
+    private long lastFullSyncTime;
+
+    /**
+     * Проверяет, требуется ли полная синхронизация каталога
+     *
+     * @param now текущее время (миллисекунды)
+     * @param fullSyncInterval интервал полной синхронизации (миллисекунды), 0 -
+     * только первоначальная синхронизация
+     * @return true, если каталог необходимо получить целиком
+     */
+    public synchronized boolean isFullSyncRequired(long now, long fullSyncInterval) {
+        if (lastUpdated == null) {
+            return true;
+        }
+        return fullSyncInterval > 0 && now - lastFullSyncTime >= fullSyncInterval;
+    }
+
+    /**
+     * Заменяет содержимое каталога результатом полной синхронизации
+     *
+     * @param nupkgs все пакеты удаленного хранилища
+     * @param now время синхронизации (миллисекунды)
+     */
+    public synchronized void replace(Collection<RemoteNupkg> nupkgs, long now) {
+        packages.clear();
+        lastUpdated = null;
+        merge(nupkgs);
+        lastFullSyncTime = now;
+    }
+
+    /**
+     * Добавляет в каталог измененные пакеты, заменяя ранее полученные версии
+     *
+     * @param nupkgs измененные пакеты
+     * @return количество добавленных или замененных пакетов
+     */
+    public synchronized int merge(Collection<RemoteNupkg> nupkgs) {
+        int count = 0;
+        for (RemoteNupkg nupkg : nupkgs) {
+            if (nupkg == null) {
+                continue;
+            }
+            packages.put(getKey(nupkg), nupkg);
+            Date updated = nupkg.getUpdated();
+            if (updated != null && (lastUpdated == null || updated.after(lastUpdated))) {
+                lastUpdated = updated;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return наибольшая дата обновления полученных пакетов или null, если
+     * каталог не синхронизирован
+     */
+    public synchronized Date getLastUpdated() {
+        return lastUpdated == null ? null : new Date(lastUpdated.getTime());
+    }
+
+    /**
+     * @return копия списка пакетов каталога
+     */
+    public synchronized Collection<RemoteNupkg> getPackages() {
+        return new ArrayList<>(packages.values());
+    }
+
+    /**
+     * @return количество пакетов в каталоге
+     */
+    public synchronized int size() {
+        return packages.size();
+    }
+
+    /**
+     * Создает условие отбора пакетов, измененных начиная с указанной даты.
+     * Используется сравнение "ge", так как сервер хранит даты с точностью до
+     * секунды, а повторно полученные пакеты просто заменяют прежние.
+     *
+     * @param fieldName имя поля даты (LastUpdated или Published)
+     * @param since дата, начиная с которой нужны пакеты
+     * @return условие отбора OData
+     */
+    public static String createFilter(String fieldName, Date since) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return fieldName + " ge datetime'" + dateFormat.format(since) + "'";
+    }
+
+    /**
+     * @param nupkg пакет
+     * @return ключ пакета в каталоге
+     */
+    private static String getKey(RemoteNupkg nupkg) {
+        return nupkg.getId().toLowerCase() + ":" + nupkg.getVersion();
+    }
+}
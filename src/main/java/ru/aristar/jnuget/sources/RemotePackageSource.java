@@ -8,6 +8,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.aristar.jnuget.Version;
@@ -15,6 +16,9 @@ import ru.aristar.jnuget.client.ClientFactory;
 import ru.aristar.jnuget.client.NugetClient;
 import ru.aristar.jnuget.files.Nupkg;
 import ru.aristar.jnuget.files.RemoteNupkg;
+import ru.aristar.jnuget.query.AndExpression;
+import ru.aristar.jnuget.query.IdEqIgnoreCase;
+import ru.aristar.jnuget.query.VersionEq;
 import static ru.aristar.jnuget.sources.AbstractPackageSource.extractLastVersion;
 import ru.aristar.jnuget.sources.push.ModifyStrategy;
 import ru.aristar.jnuget.sources.push.NugetPushException;
@@ -29,6 +33,10 @@ public class RemotePackageSource implements PackageSource<RemoteNupkg> {
      * Удаленное хранилище пакетов
      */
     protected NugetClient remoteStorage = new NugetClient();
+    /**
+     * Количество пакетов, запрашиваемых у удаленного хранилища за один раз
+     */
+    private static final int PACKAGE_FEED_SIZE = 200;
     /**
      * Пул запросов в удаленное хранилище
      */
@@ -45,31 +53,173 @@ public class RemotePackageSource implements PackageSource<RemoteNupkg> {
      * Имя хранилища
      */
     private String name;
+    /**
+     * Синхронизировать каталог удаленного хранилища инкрементально
+     */
+    private boolean incrementalSync = false;
+    /**
+     * Имя поля даты, по которому отбираются измененные пакеты
+     */
+    private String syncFieldName = "LastUpdated";
+    /**
+     * Интервал полной синхронизации каталога (минут). Полная синхронизация
+     * нужна, чтобы обнаружить пакеты, удаленные из удаленного хранилища
+     */
+    private int fullSyncInterval = 1440;
+    /**
+     * Локальная копия каталога удаленного хранилища
+     */
+    private final RemotePackageCatalog catalog = new RemotePackageCatalog();
+    /**
+     * Кеш отрицательных результатов поиска пакетов
+     */
+    private volatile NegativeLookupCache negativeCache = new NegativeLookupCache();
 
     /**
-     * Получает список пакетов из удаленного хранилища
+     * Получает список пакетов из удаленного хранилища. Условие отбора
+     * передается удаленному серверу, поэтому загружаются только подходящие
+     * пакеты.
      *
-     * @param filter фильтр отбора пактов
+     * @param filter фильтр отбора пактов или null, если нужны все пакеты
      * @return список пакетов
      */
     private Collection<RemoteNupkg> getPackagesFromRemoteStorage(String filter) {
         try {
-            List<RemoteNupkg> result = new ArrayList<>();
-            result = Collections.synchronizedList(result);
-            int count = remoteStorage.getPackageCount(false);
-            int groupCount = 200;
-            logger.debug("Получение {} пакетов из удаленного сервера группами по {}",
-                    new Object[]{count, groupCount});
-            ClientFactory clientFactory = new ClientFactory(getUrl());
-            forkJoinPool.invoke(new GetRemotePackageFeedAction(groupCount, result, 0, count, clientFactory));
-            logger.debug("Завершено получение пакетов count={}", new Object[]{result.size()});
-            return result;
+            return loadPackagesFromRemoteStorage(filter);
         } catch (IOException | URISyntaxException e) {
             logger.warn("Ошибка получения пакета из удаленного хранилища", e);
             return new ArrayList<>(1);
         }
     }
 
+    /**
+     * Получает список пакетов из удаленного хранилища. Если пакеты умещаются
+     * в один запрос, они загружаются в текущем потоке без использования пула
+     * запросов.
+     *
+     * @param filter фильтр отбора пактов или null, если нужны все пакеты
+     * @return список пакетов
+     * @throws IOException ошибка получения количества пакетов
+     * @throws URISyntaxException некорректный URI хранилища
+     */
+    private Collection<RemoteNupkg> loadPackagesFromRemoteStorage(String filter) throws IOException, URISyntaxException {
+        List<RemoteNupkg> result = new ArrayList<>();
+        result = Collections.synchronizedList(result);
+        int count = remoteStorage.getPackageCount(filter);
+        if (count == 0) {
+            return result;
+        }
+        logger.debug("Получение {} пакетов из удаленного сервера группами по {} (фильтр: {})",
+                new Object[]{count, PACKAGE_FEED_SIZE, filter});
+        ClientFactory clientFactory = new ClientFactory(getUrl());
+        GetRemotePackageFeedAction action = new GetRemotePackageFeedAction(PACKAGE_FEED_SIZE, result, 0, count, clientFactory, filter);
+        if (count <= PACKAGE_FEED_SIZE) {
+            action.loadPackages(remoteStorage);
+        } else {
+            forkJoinPool.invoke(action);
+        }
+        logger.debug("Завершено получение пакетов count={}", new Object[]{result.size()});
+        return result;
+    }
+
+    /**
+     * Синхронизирует локальную копию каталога удаленного хранилища. Первая
+     * синхронизация (и каждая синхронизация после истечения
+     * {@link #getFullSyncInterval()}) получает каталог целиком, остальные -
+     * только пакеты, измененные после последней известной даты обновления.
+     *
+     * @return пакеты каталога
+     */
+    private Collection<RemoteNupkg> synchronizeCatalog() {
+        synchronized (catalog) {
+            final long now = System.currentTimeMillis();
+            try {
+                if (catalog.isFullSyncRequired(now, TimeUnit.MINUTES.toMillis(fullSyncInterval))) {
+                    logger.info("Полная синхронизация каталога хранилища {}", new Object[]{getUrl()});
+                    catalog.replace(loadPackagesFromRemoteStorage(null), now);
+                } else {
+                    String filter = RemotePackageCatalog.createFilter(syncFieldName, catalog.getLastUpdated());
+                    int count = catalog.merge(loadPackagesFromRemoteStorage(filter));
+                    logger.debug("Получено {} измененных пакетов из хранилища {} ({})",
+                            new Object[]{count, getUrl(), filter});
+                }
+            } catch (IOException | URISyntaxException e) {
+                logger.warn("Ошибка синхронизации каталога удаленного хранилища, "
+                        + "используется ранее полученный каталог", e);
+            }
+            return catalog.getPackages();
+        }
+    }
+
+    /**
+     * @return true, если каталог удаленного хранилища синхронизируется
+     * инкрементально
+     */
+    public boolean isIncrementalSync() {
+        return incrementalSync;
+    }
+
+    /**
+     * @param incrementalSync true, если каталог удаленного хранилища
+     * необходимо синхронизировать инкрементально
+     */
+    public void setIncrementalSync(boolean incrementalSync) {
+        this.incrementalSync = incrementalSync;
+    }
+
+    /**
+     * @return имя поля даты, по которому отбираются измененные пакеты
+     */
+    public String getSyncFieldName() {
+        return syncFieldName;
+    }
+
+    /**
+     * @param syncFieldName имя поля даты, по которому отбираются измененные
+     * пакеты (LastUpdated или Published)
+     */
+    public void setSyncFieldName(String syncFieldName) {
+        this.syncFieldName = syncFieldName;
+    }
+
+    /**
+     * @return интервал полной синхронизации каталога (минут)
+     */
+    public int getFullSyncInterval() {
+        return fullSyncInterval;
+    }
+
+    /**
+     * @param fullSyncInterval интервал полной синхронизации каталога (минут),
+     * 0 - только первоначальная синхронизация
+     */
+    public void setFullSyncInterval(int fullSyncInterval) {
+        this.fullSyncInterval = fullSyncInterval;
+    }
+
+    /**
+     * @return время жизни записей кеша отрицательных результатов (секунд)
+     */
+    public long getNegativeCacheTtl() {
+        return negativeCache.getTtl();
+    }
+
+    /**
+     * @param negativeCacheTtl время жизни записей кеша отрицательных
+     * результатов (секунд), 0 - кеш отключен
+     */
+    public void setNegativeCacheTtl(long negativeCacheTtl) {
+        this.negativeCache = new NegativeLookupCache(negativeCacheTtl,
+                Long.getLong(NegativeLookupCache.MAX_SIZE_PROPERTY_NAME, NegativeLookupCache.DEFAULT_MAX_SIZE));
+    }
+
+    /**
+     * @return кеш отрицательных результатов поиска пакетов
+     */
+    public NegativeLookupCache getNegativeCache() {
+        return negativeCache;
+    }
+
     /**
      * @param url URL удаленного хранилища
      */
@@ -100,8 +250,7 @@ public class RemotePackageSource implements PackageSource<RemoteNupkg> {
 
     @Override
     public RemoteNupkg getLastVersionPackage(String id) {
-        String filter = "tolower(Id) eq '" + id + "'";
-        Collection<RemoteNupkg> nupkgs = getPackagesFromRemoteStorage(filter);
+        Collection<RemoteNupkg> nupkgs = getPackages(id);
         Collection<RemoteNupkg> result = extractLastVersion(nupkgs);
         if (!result.isEmpty()) {
             return result.iterator().next();
@@ -117,24 +266,120 @@ public class RemotePackageSource implements PackageSource<RemoteNupkg> {
 
     @Override
     public RemoteNupkg getPackage(String id, Version version) {
-        Collection<RemoteNupkg> nupkgs = getPackages(id);
-        for (RemoteNupkg remoteNupkg : nupkgs) {
+        if (negativeCache.isMissing(id) || negativeCache.isMissing(id, version)) {
+            logger.debug("Пакет {}:{} отсутствует в удаленном хранилище (по данным кеша)",
+                    new Object[]{id, version});
+            return null;
+        }
+        try {
+            RemoteNupkg nupkg = findPackage(id, version);
+            if (nupkg == null) {
+                negativeCache.markMissing(id, version);
+            }
+            return nupkg;
+        } catch (IOException | URISyntaxException e) {
+            logger.warn("Ошибка получения пакета из удаленного хранилища", e);
+            return null;
+        }
+    }
+
+    /**
+     * Ищет пакет в удаленном хранилище. Если запись с запрошенной версией не
+     * найдена, запрашиваются все версии пакета, так как сервер может хранить
+     * версию в другом написании. Повторный запрос не выполняется, только если
+     * кеш отрицательных результатов уже знает, что пакетов с таким
+     * идентификатором нет.
+     *
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return пакет или null, если пакет не найден
+     * @throws IOException ошибка получения пакетов
+     * @throws URISyntaxException некорректный URI хранилища
+     */
+    private RemoteNupkg findPackage(String id, Version version) throws IOException, URISyntaxException {
+        String filter = new AndExpression(new IdEqIgnoreCase(id), new VersionEq(version)).toString();
+        for (RemoteNupkg remoteNupkg : loadPackagesFromRemoteStorage(filter)) {
             if (version.equals(remoteNupkg.getVersion())) {
                 return remoteNupkg;
             }
         }
+        if (negativeCache.isMissing(id)) {
+            return null;
+        }
+        //Сервер может хранить версию в другой записи (например, 1.0 и 1.0.0)
+        for (RemoteNupkg remoteNupkg : loadPackages(id)) {
+            if (isSameVersion(version, remoteNupkg.getVersion())) {
+                return remoteNupkg;
+            }
+        }
         return null;
     }
 
+    /**
+     * Сравнивает версии, считая отсутствующие номера равными 0 (1.0 и 1.0.0 -
+     * одна и та же версия)
+     *
+     * @param version запрошенная версия
+     * @param remoteVersion версия пакета удаленного хранилища
+     * @return true, если версии совпадают
+     */
+    private static boolean isSameVersion(Version version, Version remoteVersion) {
+        if (remoteVersion == null) {
+            return false;
+        }
+        return toNumber(version.getMajor()) == toNumber(remoteVersion.getMajor())
+                && toNumber(version.getMinor()) == toNumber(remoteVersion.getMinor())
+                && toNumber(version.getBuild()) == toNumber(remoteVersion.getBuild())
+                && (version.getRevision() == null
+                ? remoteVersion.getRevision() == null
+                : version.getRevision().equalsIgnoreCase(remoteVersion.getRevision()));
+    }
+
+    /**
+     * @param number номер версии (может быть null)
+     * @return номер версии или 0
+     */
+    private static int toNumber(Integer number) {
+        return number == null ? 0 : number;
+    }
+
+    /**
+     * Получает все версии пакета из удаленного хранилища. Если пакетов нет,
+     * это запоминается в кеше отрицательных результатов.
+     *
+     * @param id идентификатор пакета
+     * @return версии пакета
+     * @throws IOException ошибка получения пакетов
+     * @throws URISyntaxException некорректный URI хранилища
+     */
+    private Collection<RemoteNupkg> loadPackages(String id) throws IOException, URISyntaxException {
+        Collection<RemoteNupkg> nupkgs = loadPackagesFromRemoteStorage(new IdEqIgnoreCase(id).toString());
+        if (nupkgs.isEmpty()) {
+            negativeCache.markMissing(id);
+        }
+        return nupkgs;
+    }
+
     @Override
     public Collection<RemoteNupkg> getPackages() {
+        if (incrementalSync) {
+            return synchronizeCatalog();
+        }
         return getPackagesFromRemoteStorage(null);
     }
 
     @Override
     public Collection<RemoteNupkg> getPackages(String id) {
-        String filter = "tolower(Id) eq '" + id + "'";
-        return getPackagesFromRemoteStorage(filter);
+        if (negativeCache.isMissing(id)) {
+            logger.debug("Пакеты {} отсутствуют в удаленном хранилище (по данным кеша)", new Object[]{id});
+            return new ArrayList<>(1);
+        }
+        try {
+            return loadPackages(id);
+        } catch (IOException | URISyntaxException e) {
+            logger.warn("Ошибка получения пакета из удаленного хранилища", e);
+            return new ArrayList<>(1);
+        }
     }
 
     @Override
@@ -150,9 +395,10 @@ public class RemotePackageSource implements PackageSource<RemoteNupkg> {
                 return false;
             }
             remoteStorage.putPackage(nupkg);
+            negativeCache.invalidate(nupkg.getId(), nupkg.getVersion());
             getPushStrategy().processAfterTriggers(nupkg, this);
             return true;
-        } catch (UniformInterfaceException | NugetPushException e) {
+        } catch (UniformInterfaceException | NugetPushException | IOException e) {
             logger.warn("Ошибка помещения пакета в удаленное хранилище", e);
             return false;
         }
@@ -1,11 +1,14 @@
 package ru.aristar.jnuget.sources.push;
 
-import java.util.*;
 import ru.aristar.jnuget.files.Nupkg;
 import ru.aristar.jnuget.sources.PackageSource;
 import ru.aristar.jnuget.ui.descriptors.Property;
 
 /**
+ * Триггер, ограничивающий число версий пакета в хранилище. Старые версии
+ * удаляются в фоновом режиме службой {@link RetentionService}, поток
+ * публикации пакета не блокируется. Для правил по возрасту версий
+ * используйте {@link RetentionTrigger}.
  *
  * @author sviridov
  */
@@ -17,10 +20,20 @@ public class RemoveOldVersionTrigger implements AfterTrigger {
      */
     public static final int DEFAULT_MAX_PACKAGE_COUNT = 10;
     /**
-     * Максимально допустимое число пакетов с одинаковым идентификатором в
-     * хранилище.
+     * Правило хранения версий
+     */
+    private final RetentionRule rule = new RetentionRule();
+    /**
+     * Служба удаления устаревших версий
+     */
+    private RetentionService retentionService;
+
+    /**
+     * Конструктор по умолчанию
      */
-    private int maxPackageCount = DEFAULT_MAX_PACKAGE_COUNT;
+    public RemoveOldVersionTrigger() {
+        rule.setMaxPackageCount(DEFAULT_MAX_PACKAGE_COUNT);
+    }
 
     /**
      * @see DEFAULT_MAX_PACKAGE_COUNT
@@ -29,7 +42,7 @@ public class RemoveOldVersionTrigger implements AfterTrigger {
      */
     @Property
     public int getMaxPackageCount() {
-        return maxPackageCount;
+        return rule.getMaxPackageCount();
     }
 
     /**
@@ -38,46 +51,28 @@ public class RemoveOldVersionTrigger implements AfterTrigger {
      * идентификатором в хранилище.
      */
     public void setMaxPackageCount(int maxPackageCount) {
-        this.maxPackageCount = maxPackageCount;
+        rule.setMaxPackageCount(maxPackageCount);
     }
 
     /**
-     * Компаратор для реверсивного (младший сверху) сравнения пакетов по их
-     * версиям
+     * @return служба удаления устаревших версий
      */
-    private static class NupkgReverseVersionComparator implements Comparator<Nupkg> {
-
-        @Override
-        public int compare(Nupkg o1, Nupkg o2) {
-            return o2.getVersion().compareTo(o1.getVersion());
+    public RetentionService getRetentionService() {
+        if (retentionService == null) {
+            retentionService = RetentionService.getInstance();
         }
+        return retentionService;
     }
 
     /**
-     * Преобразует коллекцию пакетов в обратно сортированный по версиям список
-     *
-     * @param nupkgs коллекция пакетов
-     * @return обратно сортированный по версиям пакетов список
+     * @param retentionService служба удаления устаревших версий
      */
-    private List<? extends Nupkg> toSortedList(Collection<? extends Nupkg> nupkgs) {
-        List<? extends Nupkg> result;
-        if (nupkgs instanceof List) {
-            result = (List<? extends Nupkg>) nupkgs;
-        } else {
-            result = new ArrayList<>(nupkgs);
-        }
-        Collections.sort(result, new NupkgReverseVersionComparator());
-        return result;
+    public void setRetentionService(RetentionService retentionService) {
+        this.retentionService = retentionService;
     }
 
     @Override
     public void doAction(Nupkg nupkg, PackageSource<? extends Nupkg> packageSource) throws NugetPushException {
-        Collection<? extends Nupkg> nupkgs = packageSource.getPackages(nupkg.getId());
-        List<? extends Nupkg> sortedNupkgs = toSortedList(nupkgs);
-        while (sortedNupkgs.size() > getMaxPackageCount()) {
-            Nupkg pkg = sortedNupkgs.get(sortedNupkgs.size() - 1);
-            packageSource.removePackage(pkg);
-            sortedNupkgs = sortedNupkgs.subList(0, sortedNupkgs.size() - 1);
-        }
+        getRetentionService().schedule(packageSource, nupkg.getId(), rule);
     }
 }
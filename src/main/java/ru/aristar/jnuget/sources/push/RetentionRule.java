@@ -0,0 +1,169 @@
+package ru.aristar.jnuget.sources.push;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.Nupkg;
+
+/**
+ * Правило хранения версий пакетов. Версия пакета удаляется, если нарушено
+ * хотя бы одно из заданных ограничений. Последняя версия пакета не удаляется
+ * никогда. Нулевое значение ограничения означает его отсутствие.
+ *
+ * @author sviridov
+ */
+public class RetentionRule {
+
+    /**
+     * Количество миллисекунд в сутках
+     */
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    /**
+     * Шаблон идентификаторов пакетов, к которым применяется правило
+     */
+    private Pattern idPattern = Pattern.compile(".*");
+    /**
+     * Максимальное число хранимых версий пакета
+     */
+    private int maxPackageCount;
+    /**
+     * Максимальный возраст версии пакета (дней)
+     */
+    private int maxAgeDays;
+    /**
+     * Максимальный возраст предварительной версии пакета (дней)
+     */
+    private int prereleaseMaxAgeDays;
+
+    /**
+     * @return шаблон идентификаторов пакетов, к которым применяется правило
+     */
+    public String getIdPattern() {
+        return idPattern.pattern();
+    }
+
+    /**
+     * @param idPattern шаблон идентификаторов пакетов, к которым применяется
+     * правило (без учета регистра)
+     */
+    public void setIdPattern(String idPattern) {
+        this.idPattern = Pattern.compile(idPattern, Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * @return максимальное число хранимых версий пакета
+     */
+    public int getMaxPackageCount() {
+        return maxPackageCount;
+    }
+
+    /**
+     * @param maxPackageCount максимальное число хранимых версий пакета
+     */
+    public void setMaxPackageCount(int maxPackageCount) {
+        this.maxPackageCount = maxPackageCount;
+    }
+
+    /**
+     * @return максимальный возраст версии пакета (дней)
+     */
+    public int getMaxAgeDays() {
+        return maxAgeDays;
+    }
+
+    /**
+     * @param maxAgeDays максимальный возраст версии пакета (дней)
+     */
+    public void setMaxAgeDays(int maxAgeDays) {
+        this.maxAgeDays = maxAgeDays;
+    }
+
+    /**
+     * @return максимальный возраст предварительной версии пакета (дней)
+     */
+    public int getPrereleaseMaxAgeDays() {
+        return prereleaseMaxAgeDays;
+    }
+
+    /**
+     * @param prereleaseMaxAgeDays максимальный возраст предварительной версии
+     * пакета (дней)
+     */
+    public void setPrereleaseMaxAgeDays(int prereleaseMaxAgeDays) {
+        this.prereleaseMaxAgeDays = prereleaseMaxAgeDays;
+    }
+
+    /**
+     * @param packageId идентификатор пакета
+     * @return true, если правило применяется к пакету
+     */
+    public boolean matches(String packageId) {
+        return packageId != null && idPattern.matcher(packageId).matches();
+    }
+
+    /**
+     * Выбирает версии пакета, подлежащие удалению
+     *
+     * @param nupkgs все версии пакета с одним идентификатором
+     * @param now текущее время
+     * @return версии пакета, подлежащие удалению
+     */
+    public List<Nupkg> selectExpired(Collection<? extends Nupkg> nupkgs, Date now) {
+        List<Nupkg> sorted = new ArrayList<>(nupkgs);
+        Collections.sort(sorted, new Comparator<Nupkg>() {
+            @Override
+            public int compare(Nupkg o1, Nupkg o2) {
+                return o2.getVersion().compareTo(o1.getVersion());
+            }
+        });
+        List<Nupkg> result = new ArrayList<>();
+        for (int i = 1; i < sorted.size(); i++) {
+            Nupkg nupkg = sorted.get(i);
+            if (isExpired(nupkg, i, now)) {
+                result.add(nupkg);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param nupkg версия пакета
+     * @param position позиция версии в списке версий (0 - последняя версия)
+     * @param now текущее время
+     * @return true, если версия пакета нарушает правило
+     */
+    private boolean isExpired(Nupkg nupkg, int position, Date now) {
+        if (maxPackageCount > 0 && position >= maxPackageCount) {
+            return true;
+        }
+        if (maxAgeDays > 0 && isOlderThan(nupkg, maxAgeDays, now)) {
+            return true;
+        }
+        Version version = nupkg.getVersion();
+        return prereleaseMaxAgeDays > 0 && version != null && version.isPrerelease()
+                && isOlderThan(nupkg, prereleaseMaxAgeDays, now);
+    }
+
+    /**
+     * @param nupkg версия пакета
+     * @param days количество дней
+     * @param now текущее время
+     * @return true, если пакет обновлен раньше, чем указанное количество дней
+     * назад
+     */
+    private static boolean isOlderThan(Nupkg nupkg, int days, Date now) {
+        Date updated = nupkg.getUpdated();
+        return updated != null && now.getTime() - updated.getTime() > days * DAY_MILLIS;
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionRule{" + idPattern + ", count=" + maxPackageCount + ", days=" + maxAgeDays
+                + ", prereleaseDays=" + prereleaseMaxAgeDays + '}';
+    }
+}
@@ -0,0 +1,209 @@
+package ru.aristar.jnuget.sources.push;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.sources.IndexedPackageSource;
+import ru.aristar.jnuget.sources.PackageSource;
+import ru.aristar.jnuget.sources.PackageSourceFactory;
+
+/**
+ * Фоновое удаление устаревших версий пакетов. Идентификаторы пакетов,
+ * требующих проверки, накапливаются и обрабатываются пакетно через заданную
+ * задержку в отдельном потоке, а не в потоке запроса на публикацию. Пакеты
+ * индексируемого хранилища удаляются через индекс, который обновляется один
+ * раз для всех удаленных пакетов.
+ *
+ * @author sviridov
+ */
+public class RetentionService implements AutoCloseable {
+
+    /**
+     * Имя системного свойства с задержкой обработки (секунд)
+     */
+    public static final String DELAY_PROPERTY_NAME = "nuget.retention.delay";
+    /**
+     * Задержка обработки по умолчанию (секунд)
+     */
+    public static final long DEFAULT_DELAY = 30;
+    /**
+     * Экземпляр службы
+     */
+    private static volatile RetentionService instance;
+    /**
+     * Логгер
+     */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Поток обработки
+     */
+    private final ScheduledThreadPoolExecutor executor;
+    /**
+     * Задержка обработки (миллисекунд)
+     */
+    private final long delayMillis;
+    /**
+     * Ожидающие обработки идентификаторы пакетов и правила по хранилищам
+     */
+    private Map<PackageSource<? extends Nupkg>, Multimap<String, RetentionRule>> pending = new IdentityHashMap<>();
+    /**
+     * Обработка уже запланирована
+     */
+    private boolean flushScheduled = false;
+
+    /**
+     * @param delayMillis задержка обработки (миллисекунд)
+     */
+    public RetentionService(long delayMillis) {
+        this.delayMillis = delayMillis;
+        this.executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "RetentionWorker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Ставит идентификатор пакета в очередь на проверку правилом хранения.
+     * После остановки службы идентификаторы не принимаются.
+     *
+     * @param packageSource хранилище пакетов
+     * @param packageId идентификатор пакета
+     * @param rule правило хранения
+     */
+    public synchronized void schedule(PackageSource<? extends Nupkg> packageSource, String packageId, RetentionRule rule) {
+        if (!flushScheduled) {
+            try {
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                logger.warn("Служба удаления устаревших пакетов остановлена, пакет {} хранилища {} "
+                        + "не будет проверен", new Object[]{packageId, packageSource});
+                return;
+            }
+            flushScheduled = true;
+        }
+        Multimap<String, RetentionRule> ids = pending.get(packageSource);
+        if (ids == null) {
+            ids = LinkedHashMultimap.create();
+            pending.put(packageSource, ids);
+        }
+        ids.put(packageId, rule);
+    }
+
+    /**
+     * @return количество хранилищ, ожидающих обработки
+     */
+    public synchronized int getPendingSourceCount() {
+        return pending.size();
+    }
+
+    /**
+     * Обрабатывает все накопленные идентификаторы пакетов
+     */
+    public void flush() {
+        Map<PackageSource<? extends Nupkg>, Multimap<String, RetentionRule>> current;
+        synchronized (this) {
+            current = pending;
+            pending = new IdentityHashMap<>();
+            flushScheduled = false;
+        }
+        Date now = new Date();
+        for (Map.Entry<PackageSource<? extends Nupkg>, Multimap<String, RetentionRule>> entry : current.entrySet()) {
+            try {
+                applyRules(entry.getKey(), entry.getValue(), now);
+            } catch (Exception e) {
+                logger.error("Ошибка удаления устаревших пакетов из хранилища " + entry.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Применяет правила хранения к пакетам хранилища
+     *
+     * @param packageSource хранилище пакетов
+     * @param rules правила хранения по идентификаторам пакетов
+     * @param now текущее время
+     * @throws Exception ошибка удаления пакетов
+     */
+    private void applyRules(PackageSource<? extends Nupkg> packageSource, Multimap<String, RetentionRule> rules,
+            Date now) throws Exception {
+        Set<Nupkg> expired = new LinkedHashSet<>();
+        for (String packageId : rules.keySet()) {
+            Collection<? extends Nupkg> nupkgs = packageSource.getPackages(packageId);
+            for (RetentionRule rule : rules.get(packageId)) {
+                expired.addAll(rule.selectExpired(nupkgs, now));
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        logger.info("Удаление {} устаревших пакетов из хранилища {}", new Object[]{expired.size(), packageSource});
+        IndexedPackageSource indexedSource = packageSource instanceof IndexedPackageSource
+                ? (IndexedPackageSource) packageSource
+                : PackageSourceFactory.findIndexedSource(packageSource);
+        if (indexedSource != null) {
+            indexedSource.removePackages(expired);
+        } else {
+            for (Nupkg nupkg : expired) {
+                packageSource.removePackage(nupkg);
+            }
+        }
+    }
+
+    /**
+     * Обрабатывает накопленные идентификаторы и останавливает поток
+     * обработки
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Возвращает экземпляр службы, или создает новый
+     *
+     * @return экземпляр службы
+     */
+    public static RetentionService getInstance() {
+        if (instance == null) {
+            synchronized (RetentionService.class) {
+                if (instance == null) {
+                    long delay = Long.getLong(DELAY_PROPERTY_NAME, DEFAULT_DELAY);
+                    instance = new RetentionService(TimeUnit.SECONDS.toMillis(delay));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Останавливает экземпляр службы, если она была создана
+     */
+    public static void shutdown() {
+        RetentionService service = instance;
+        if (service != null) {
+            service.close();
+        }
+    }
+}
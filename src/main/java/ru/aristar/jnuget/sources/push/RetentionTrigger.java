@@ -0,0 +1,113 @@
+package ru.aristar.jnuget.sources.push;
+
+import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.sources.PackageSource;
+import ru.aristar.jnuget.ui.descriptors.Property;
+
+/**
+ * Триггер, ставящий пакет на проверку правилом хранения версий. Устаревшие
+ * версии удаляются в фоновом режиме службой {@link RetentionService}, поток
+ * публикации пакета не блокируется. Для разных групп пакетов хранилища можно
+ * настроить несколько триггеров с разными шаблонами идентификаторов.
+ *
+ * @author sviridov
+ */
+public class RetentionTrigger implements AfterTrigger {
+
+    /**
+     * Правило хранения версий
+     */
+    private final RetentionRule rule = new RetentionRule();
+    /**
+     * Служба удаления устаревших версий
+     */
+    private RetentionService retentionService;
+
+    /**
+     * @return шаблон идентификаторов пакетов, к которым применяется правило
+     */
+    @Property
+    public String getIdPattern() {
+        return rule.getIdPattern();
+    }
+
+    /**
+     * @param idPattern шаблон идентификаторов пакетов, к которым применяется
+     * правило
+     */
+    public void setIdPattern(String idPattern) {
+        rule.setIdPattern(idPattern);
+    }
+
+    /**
+     * @return максимальное число хранимых версий пакета (0 - без ограничения)
+     */
+    @Property
+    public int getMaxPackageCount() {
+        return rule.getMaxPackageCount();
+    }
+
+    /**
+     * @param maxPackageCount максимальное число хранимых версий пакета
+     */
+    public void setMaxPackageCount(int maxPackageCount) {
+        rule.setMaxPackageCount(maxPackageCount);
+    }
+
+    /**
+     * @return максимальный возраст версии пакета в днях (0 - без
+     * ограничения)
+     */
+    @Property
+    public int getMaxAgeDays() {
+        return rule.getMaxAgeDays();
+    }
+
+    /**
+     * @param maxAgeDays максимальный возраст версии пакета в днях
+     */
+    public void setMaxAgeDays(int maxAgeDays) {
+        rule.setMaxAgeDays(maxAgeDays);
+    }
+
+    /**
+     * @return максимальный возраст предварительной версии пакета в днях (0 -
+     * без ограничения)
+     */
+    @Property
+    public int getPrereleaseMaxAgeDays() {
+        return rule.getPrereleaseMaxAgeDays();
+    }
+
+    /**
+     * @param prereleaseMaxAgeDays максимальный возраст предварительной версии
+     * пакета в днях
+     */
+    public void setPrereleaseMaxAgeDays(int prereleaseMaxAgeDays) {
+        rule.setPrereleaseMaxAgeDays(prereleaseMaxAgeDays);
+    }
+
+    /**
+     * @return служба удаления устаревших версий
+     */
+    public RetentionService getRetentionService() {
+        if (retentionService == null) {
+            retentionService = RetentionService.getInstance();
+        }
+        return retentionService;
+    }
+
+    /**
+     * @param retentionService служба удаления устаревших версий
+     */
+    public void setRetentionService(RetentionService retentionService) {
+        this.retentionService = retentionService;
+    }
+
+    @Override
+    public void doAction(Nupkg nupkg, PackageSource<? extends Nupkg> packageSource) throws NugetPushException {
+        if (rule.matches(nupkg.getId())) {
+            getRetentionService().schedule(packageSource, nupkg.getId(), rule);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.aristar.jnuget;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import static org.junit.Assert.*;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.junit.Test;
+import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.sources.PackageSource;
+
+/**
+ * Тесты пакетного помещения пакетов в хранилище
+ *
+ * @author sviridov
+ */
+public class BatchPackagePusherTest {
+
+    /**
+     * Контекст для создания заглушек
+     */
+    private Mockery context = new Mockery();
+
+    /**
+     * Проверка результатов помещения корректного, некорректного и
+     * повторяющегося пакетов
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPushBatch() throws Exception {
+        //GIVEN
+        final PackageSource<Nupkg> packageSource = context.mock(PackageSource.class);
+        context.checking(new Expectations() {
+            {
+                oneOf(packageSource).pushPackage(with(any(Nupkg.class)));
+                will(returnValue(true));
+            }
+        });
+        try (BatchPackagePusher pusher = new BatchPackagePusher()) {
+            pusher.add("NUnit.2.5.9.10348.nupkg", this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"));
+            pusher.add("broken.nupkg", new ByteArrayInputStream(new byte[]{1, 2, 3}));
+            pusher.add("copy.nupkg", this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"));
+            //WHEN
+            pusher.validate();
+            pusher.push(packageSource);
+            //THEN
+            BatchPushResult result = pusher.getResult();
+            assertEquals("Количество результатов", 3, result.getPackages().size());
+            assertEquals("Пакет помещен", 201, result.getPackages().get(0).getStatus());
+            assertEquals("Идентификатор пакета", "NUnit", result.getPackages().get(0).getId());
+            assertEquals("Версия пакета", "2.5.9.10348", result.getPackages().get(0).getVersion());
+            assertEquals("Некорректный пакет отклонен", 400, result.getPackages().get(1).getStatus());
+            assertNotNull("Описание ошибки", result.getPackages().get(1).getMessage());
+            assertEquals("Повтор пакета отклонен", 409, result.getPackages().get(2).getStatus());
+        }
+        context.assertIsSatisfied();
+    }
+
+    /**
+     * Проверка ограничения количества пакетов в запросе
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test(expected = IOException.class)
+    public void testMaxPackages() throws Exception {
+        //GIVEN
+        try (BatchPackagePusher pusher = new BatchPackagePusher(1)) {
+            pusher.add("first.nupkg", new ByteArrayInputStream(new byte[]{1}));
+            //WHEN
+            pusher.add("second.nupkg", new ByteArrayInputStream(new byte[]{1}));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ru.aristar.jnuget;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Тесты разбора заголовка HTTP Range
+ *
+ * @author sviridov
+ */
+public class ByteRangeTest {
+
+    /**
+     * Проверка разбора диапазона с началом и концом
+     */
+    @Test
+    public void testParseClosedRange() {
+        //WHEN
+        ByteRange range = ByteRange.parse("bytes=100-199", 1000);
+        //THEN
+        assertEquals("Первый байт", 100, range.getFirst());
+        assertEquals("Последний байт", 199, range.getLast());
+        assertEquals("Длина диапазона", 100, range.getLength());
+        assertEquals("Заголовок Content-Range", "bytes 100-199/1000", range.toContentRange(1000));
+    }
+
+    /**
+     * Проверка разбора открытого диапазона и диапазона, выходящего за конец
+     * ресурса
+     */
+    @Test
+    public void testParseOpenRange() {
+        //WHEN
+        ByteRange openRange = ByteRange.parse("bytes=900-", 1000);
+        ByteRange longRange = ByteRange.parse("bytes=900-5000", 1000);
+        //THEN
+        assertEquals("Последний байт", 999, openRange.getLast());
+        assertEquals("Последний байт", 999, longRange.getLast());
+    }
+
+    /**
+     * Проверка разбора суффиксного диапазона (последние N байт)
+     */
+    @Test
+    public void testParseSuffixRange() {
+        //WHEN
+        ByteRange range = ByteRange.parse("bytes=-300", 1000);
+        //THEN
+        assertEquals("Первый байт", 700, range.getFirst());
+        assertEquals("Последний байт", 999, range.getLast());
+    }
+
+    /**
+     * Проверка игнорирования неподдерживаемых диапазонов
+     */
+    @Test
+    public void testParseUnsupportedRange() {
+        //THEN
+        assertNull("Заголовок отсутствует", ByteRange.parse(null, 1000));
+        assertNull("Несколько диапазонов", ByteRange.parse("bytes=0-1,5-6", 1000));
+        assertNull("Другие единицы", ByteRange.parse("items=0-1", 1000));
+        assertNull("Некорректный диапазон", ByteRange.parse("bytes=10-5", 1000));
+    }
+
+    /**
+     * Проверка диапазона за пределами ресурса
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseUnsatisfiableRange() {
+        //WHEN
+        ByteRange.parse("bytes=1000-", 1000);
+    }
+}
@@ -0,0 +1,75 @@
+package ru.aristar.jnuget;
+
+import java.io.File;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Тесты статистики скачиваний пакетов
+ *
+ * @author sviridov
+ */
+public class DownloadStatisticsTest {
+
+    /**
+     * Проверка подсчета скачиваний пакета и его версий
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testRegisterDownload() throws Exception {
+        //GIVEN
+        DownloadStatistics statistics = new DownloadStatistics(null, 1);
+        //WHEN
+        statistics.registerDownload("storage", "NUnit", Version.parse("2.5.9"));
+        statistics.registerDownload("storage", "nunit", Version.parse("2.5.9"));
+        statistics.registerDownload("storage", "NUnit", Version.parse("2.6.0"));
+        statistics.registerDownload("other", "NUnit", Version.parse("2.6.0"));
+        //THEN
+        assertEquals("Скачиваний пакета", 3, statistics.getDownloadCount("storage", "NUnit"));
+        assertEquals("Скачиваний версии", 2, statistics.getVersionDownloadCount("storage", "NUnit", Version.parse("2.5.9")));
+        assertEquals("Скачиваний версии", 1, statistics.getVersionDownloadCount("storage", "NUnit", Version.parse("2.6.0")));
+        assertEquals("Скачиваний в другом хранилище", 1, statistics.getDownloadCount("other", "NUnit"));
+        assertEquals("Скачиваний неизвестного пакета", 0, statistics.getDownloadCount("storage", "Moq"));
+    }
+
+    /**
+     * Проверка сохранения статистики на диск и ее загрузки
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testFlushAndLoad() throws Exception {
+        //GIVEN
+        File file = File.createTempFile("tmp", "stat");
+        file.deleteOnExit();
+        DownloadStatistics statistics = new DownloadStatistics(file, 3600);
+        statistics.registerDownload("storage", "NUnit", Version.parse("2.5.9"));
+        statistics.registerDownload("storage", "NUnit", Version.parse("2.6.0"));
+        //WHEN
+        statistics.close();
+        DownloadStatistics loaded = new DownloadStatistics(file, 3600);
+        loaded.close();
+        //THEN
+        assertEquals("Скачиваний пакета", 2, loaded.getDownloadCount("storage", "NUnit"));
+        assertEquals("Скачиваний версии", 1, loaded.getVersionDownloadCount("storage", "NUnit", Version.parse("2.6.0")));
+    }
+
+    /**
+     * Проверка изменения версии статистики при скачивании
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testVersionChangesOnDownload() throws Exception {
+        //GIVEN
+        DownloadStatistics statistics = new DownloadStatistics(null, 1);
+        long version = statistics.getVersion();
+        assertNull("Скачиваний не было", statistics.getLastModified());
+        //WHEN
+        statistics.registerDownload("storage", "NUnit", Version.parse("2.5.9"));
+        //THEN
+        assertTrue("Версия статистики изменилась", statistics.getVersion() != version);
+        assertNotNull("Время последнего скачивания", statistics.getLastModified());
+    }
+}
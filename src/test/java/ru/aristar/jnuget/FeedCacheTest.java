@@ -0,0 +1,70 @@
+package ru.aristar.jnuget;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import ru.aristar.jnuget.rss.PackageFeed;
+
+/**
+ * Тесты кеша сжатых страниц ленты пакетов
+ *
+ * @author sviridov
+ */
+public class FeedCacheTest {
+
+    /**
+     * Проверка того, что повторный запрос страницы не формирует ее заново
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testSecondRequestUsesCache() throws Exception {
+        //GIVEN
+        FeedCache feedCache = new FeedCache(1024 * 1024);
+        final AtomicInteger loadCount = new AtomicInteger();
+        Callable<PackageFeed> loader = new Callable<PackageFeed>() {
+            @Override
+            public PackageFeed call() throws Exception {
+                loadCount.incrementAndGet();
+                PackageFeed feed = new PackageFeed();
+                feed.setId("http://localhost/nuget/");
+                return feed;
+            }
+        };
+        //WHEN
+        byte[] first = feedCache.get("key", loader);
+        byte[] second = feedCache.get("key", loader);
+        //THEN
+        assertEquals("Количество формирований страницы", 1, loadCount.get());
+        assertSame("Страница получена из кеша", first, second);
+        assertEquals("Попаданий в кеш", 1, feedCache.getStats().hitCount());
+    }
+
+    /**
+     * Проверка того, что страница хранится в кеше в сжатом виде
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testPageIsCompressed() throws Exception {
+        //GIVEN
+        FeedCache feedCache = new FeedCache(1024 * 1024);
+        final PackageFeed feed = new PackageFeed();
+        feed.setId("http://localhost/nuget/");
+        //WHEN
+        byte[] page = feedCache.get("key", new Callable<PackageFeed>() {
+            @Override
+            public PackageFeed call() throws Exception {
+                return feed;
+            }
+        });
+        //THEN
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(page))) {
+            PackageFeed result = PackageFeed.parse(inputStream);
+            assertEquals("Идентификатор ленты", "http://localhost/nuget/", result.getId());
+        }
+    }
+}
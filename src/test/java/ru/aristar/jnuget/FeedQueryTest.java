@@ -0,0 +1,92 @@
+package ru.aristar.jnuget;
+
+import javax.ws.rs.core.EntityTag;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Тесты параметров запроса списка пакетов
+ *
+ * @author sviridov
+ */
+public class FeedQueryTest {
+
+    /**
+     * Проверка того, что для одинаковых запросов формируется одинаковый ETag
+     */
+    @Test
+    public void testSameQuerySameEntityTag() {
+        //GIVEN
+        FeedQuery first = new FeedQuery("IsLatestVersion", null, null, "Id", 0, 30);
+        FeedQuery second = new FeedQuery("IsLatestVersion", null, null, "Id", 0, 30);
+        //WHEN
+        EntityTag firstTag = first.createEntityTag("storage", "feed", 10L);
+        EntityTag secondTag = second.createEntityTag("storage", "feed", 10L);
+        //THEN
+        assertEquals("Запросы равны", first, second);
+        assertEquals("ETag одинаковых запросов", firstTag, secondTag);
+        assertTrue("ETag ленты является слабым", firstTag.isWeak());
+    }
+
+    /**
+     * Проверка того, что ETag изменяется при изменении поколения индекса
+     */
+    @Test
+    public void testEntityTagDependsOnGeneration() {
+        //GIVEN
+        FeedQuery query = new FeedQuery(null, "nunit", null, "updated", 0, -1);
+        //WHEN
+        EntityTag oldTag = query.createEntityTag("storage", "feed", 10L);
+        EntityTag newTag = query.createEntityTag("storage", "feed", 11L);
+        //THEN
+        assertFalse("ETag разных поколений индекса", oldTag.equals(newTag));
+    }
+
+    /**
+     * Проверка того, что ETag зависит от параметров запроса
+     */
+    @Test
+    public void testEntityTagDependsOnQuery() {
+        //GIVEN
+        FeedQuery first = new FeedQuery(null, null, null, "Id", 0, 30);
+        FeedQuery second = new FeedQuery(null, null, null, "Id", 30, 30);
+        //WHEN
+        EntityTag firstTag = first.createEntityTag("storage", "feed", 10L);
+        EntityTag secondTag = second.createEntityTag("storage", "feed", 10L);
+        //THEN
+        assertFalse("Запросы различаются", first.equals(second));
+        assertFalse("ETag разных запросов", firstTag.equals(secondTag));
+    }
+
+    /**
+     * Проверка того, что ETag ответа с числом скачиваний изменяется при
+     * изменении статистики скачиваний
+     */
+    @Test
+    public void testEntityTagDependsOnStatisticsVersion() {
+        //GIVEN
+        FeedQuery query = new FeedQuery(null, null, null, "DownloadCount", 0, 30);
+        //WHEN
+        EntityTag oldTag = query.createEntityTag("storage", "feed", 10L, 100L);
+        EntityTag newTag = query.createEntityTag("storage", "feed", 10L, 101L);
+        //THEN
+        assertFalse("ETag разных версий статистики", oldTag.equals(newTag));
+    }
+
+    /**
+     * Проверка того, что сжатое представление ответа имеет собственный ETag
+     */
+    @Test
+    public void testEncodedEntityTag() {
+        //GIVEN
+        FeedQuery query = new FeedQuery(null, null, null, "Id", 0, 30);
+        EntityTag identityTag = query.createEntityTag("storage", "feed", 10L);
+        //WHEN
+        EntityTag gzipTag = FeedQuery.createEncodedEntityTag(identityTag, "gzip");
+        //THEN
+        assertFalse("ETag сжатого и несжатого представлений", identityTag.equals(gzipTag));
+        assertEquals("ETag сжатого представления", identityTag.getValue() + "-gzip", gzipTag.getValue());
+        assertTrue("ETag остается слабым", gzipTag.isWeak());
+        assertSame("ETag несжатого представления", identityTag, FeedQuery.createEncodedEntityTag(identityTag, null));
+    }
+}
@@ -0,0 +1,181 @@
+package ru.aristar.jnuget;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+import org.apache.commons.io.IOUtils;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Замер пропускной способности скачивания пакета размером 100 Мб через сокет:
+ * копирование потока через кучу, запись FileStreamingOutput в поток сокета
+ * (как в сервлет-контейнере) и передача в канал сокета (sendfile). Не входит
+ * в обычный набор тестов, запускается явно:
+ * <code>mvn test -Dtest=FileStreamingOutputBenchmark</code>
+ *
+ * @author sviridov
+ */
+public class FileStreamingOutputBenchmark {
+
+    /**
+     * Размер пакета
+     */
+    private static final int PACKAGE_SIZE = 100 * 1024 * 1024;
+    /**
+     * Количество замеров
+     */
+    private static final int ITERATION_COUNT = 5;
+    /**
+     * Логгер
+     */
+    private static final Logger logger = LoggerFactory.getLogger(FileStreamingOutputBenchmark.class);
+    /**
+     * Файл пакета
+     */
+    private static File packageFile;
+
+    /**
+     * Создание файла пакета
+     *
+     * @throws IOException ошибка записи файла
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        packageFile = File.createTempFile("benchmark", ".nupkg");
+        byte[] buffer = new byte[1024 * 1024];
+        Random random = new Random(1);
+        try (FileOutputStream outputStream = new FileOutputStream(packageFile)) {
+            for (int i = 0; i < PACKAGE_SIZE / buffer.length; i++) {
+                random.nextBytes(buffer);
+                outputStream.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Удаление файла пакета
+     */
+    @AfterClass
+    public static void tearDown() {
+        if (packageFile != null) {
+            packageFile.delete();
+        }
+    }
+
+    /**
+     * Скачивание через поток файла (как возвращает Nupkg.getStream())
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void benchmarkInputStreamCopy() throws Exception {
+        measure("InputStream", new Download() {
+            @Override
+            public void write(SocketChannel socketChannel) throws IOException {
+                try (InputStream inputStream = new FileInputStream(packageFile)) {
+                    IOUtils.copy(inputStream, socketChannel.socket().getOutputStream());
+                }
+            }
+        });
+    }
+
+    /**
+     * Скачивание через FileStreamingOutput в поток сокета (поток ответа
+     * сервлет-контейнера не является каналом)
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void benchmarkFileStreamingOutput() throws Exception {
+        measure("FileStreamingOutput -> OutputStream", new Download() {
+            @Override
+            public void write(SocketChannel socketChannel) throws IOException {
+                new FileStreamingOutput(packageFile).write(socketChannel.socket().getOutputStream());
+            }
+        });
+    }
+
+    /**
+     * Скачивание через FileStreamingOutput непосредственно в канал сокета
+     * (FileChannel.transferTo использует sendfile)
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void benchmarkFileStreamingOutputToSocketChannel() throws Exception {
+        measure("FileStreamingOutput -> SocketChannel", new Download() {
+            @Override
+            public void write(SocketChannel socketChannel) throws IOException {
+                new FileStreamingOutput(packageFile).write(socketChannel);
+            }
+        });
+    }
+
+    /**
+     * Выполняет замер скачивания через локальный сокет
+     *
+     * @param name название способа скачивания
+     * @param download способ записи пакета в сокет
+     * @throws Exception ошибка в процессе замера
+     */
+    private void measure(String name, final Download download) throws Exception {
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < ITERATION_COUNT; i++) {
+            try (final ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+                serverChannel.bind(new InetSocketAddress("localhost", 0));
+                Thread sender = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try (SocketChannel socketChannel = serverChannel.accept()) {
+                            download.write(socketChannel);
+                        } catch (IOException e) {
+                            logger.error("Ошибка передачи пакета", e);
+                        }
+                    }
+                });
+                long start = System.nanoTime();
+                sender.start();
+                long received = 0;
+                try (Socket socket = new Socket("localhost", serverChannel.socket().getLocalPort());
+                        InputStream inputStream = socket.getInputStream()) {
+                    byte[] buffer = new byte[64 * 1024];
+                    int count;
+                    while ((count = inputStream.read(buffer)) != -1) {
+                        received += count;
+                    }
+                }
+                sender.join();
+                long time = System.nanoTime() - start;
+                assertEquals("Получено байт", PACKAGE_SIZE, received);
+                bestTime = Math.min(bestTime, time);
+            }
+        }
+        double megabytesPerSecond = (PACKAGE_SIZE / 1024.0 / 1024.0) / (bestTime / 1e9);
+        logger.info("{}: {} Мб/с (лучший из {} замеров)",
+                new Object[]{name, String.format("%.1f", megabytesPerSecond), ITERATION_COUNT});
+    }
+
+    /**
+     * Способ записи пакета в сокет
+     */
+    private interface Download {
+
+        /**
+         * @param socketChannel канал сокета, в который записывается пакет
+         * @throws IOException ошибка записи
+         */
+        void write(SocketChannel socketChannel) throws IOException;
+    }
+}
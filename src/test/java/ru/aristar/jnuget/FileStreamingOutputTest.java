@@ -0,0 +1,72 @@
+package ru.aristar.jnuget;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Тесты потоковой записи локального файла пакета
+ *
+ * @author sviridov
+ */
+public class FileStreamingOutputTest {
+
+    /**
+     * Проверка передачи содержимого файла в поток
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testWriteFile() throws Exception {
+        //GIVEN
+        byte[] data = new byte[100000];
+        new Random(1).nextBytes(data);
+        File file = File.createTempFile("tmp", "tst");
+        file.deleteOnExit();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(data);
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        //WHEN
+        new FileStreamingOutput(file).write(result);
+        //THEN
+        assertArrayEquals("Содержимое файла", data, result.toByteArray());
+    }
+
+    /**
+     * Проверка передачи части файла непосредственно в канал
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testWriteRangeToChannel() throws Exception {
+        //GIVEN
+        byte[] data = new byte[10000];
+        new Random(1).nextBytes(data);
+        File file = File.createTempFile("tmp", "tst");
+        file.deleteOnExit();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(data);
+        }
+        Pipe pipe = Pipe.open();
+        //WHEN
+        try (Pipe.SinkChannel sink = pipe.sink()) {
+            new FileStreamingOutput(file, 100, 1000).write(sink);
+        }
+        //THEN
+        ByteBuffer result = ByteBuffer.allocate(2000);
+        try (Pipe.SourceChannel source = pipe.source()) {
+            while (source.read(result) != -1) {
+                //Чтение до закрытия канала записи
+            }
+        }
+        assertArrayEquals("Содержимое части файла", Arrays.copyOfRange(data, 100, 1100),
+                Arrays.copyOf(result.array(), result.position()));
+    }
+}
@@ -0,0 +1,115 @@
+package ru.aristar.jnuget;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ru.aristar.jnuget.files.ProxyNupkg;
+import ru.aristar.jnuget.files.RemoteNupkg;
+import ru.aristar.jnuget.files.TempNupkgFile;
+import ru.aristar.jnuget.sources.MavenStylePackageSource;
+import ru.aristar.jnuget.sources.push.ModifyStrategy;
+
+/**
+ * Тесты получения локальных файлов пакетов для запросов к серверу
+ *
+ * @author sviridov
+ */
+public class MainUrlResourceTest {
+
+    /**
+     * Каталог локального хранилища
+     */
+    private File rootFolder;
+    /**
+     * Локальное хранилище
+     */
+    private MavenStylePackageSource localSource;
+    /**
+     * Пакет, выдаваемый за пакет удаленного хранилища
+     */
+    private TempNupkgFile tempNupkgFile;
+
+    /**
+     * Создание локального хранилища и тестового пакета
+     *
+     * @throws Exception ошибка создания
+     */
+    @Before
+    public void setUp() throws Exception {
+        rootFolder = new File(File.createTempFile("tmp", "tst").getParentFile(), "MainUrlResourceTestFolder/");
+        FileUtils.deleteDirectory(rootFolder);
+        localSource = new MavenStylePackageSource(rootFolder);
+        localSource.setPushStrategy(new ModifyStrategy(true));
+        tempNupkgFile = new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"));
+    }
+
+    /**
+     * Удаление локального хранилища и тестового пакета
+     *
+     * @throws Exception ошибка удаления
+     */
+    @After
+    public void tearDown() throws Exception {
+        tempNupkgFile.close();
+        FileUtils.deleteDirectory(rootFolder);
+    }
+
+    /**
+     * Проверка того, что скачивание не сохраненного пакета со сквозной
+     * передачей не требует локального файла
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testDownloadUsesStreamThrough() throws Exception {
+        //GIVEN
+        ProxyNupkg proxyNupkg = createStreamThroughNupkg();
+        //WHEN
+        File localFile = MainUrlResource.getLocalFile(proxyNupkg, true);
+        //THEN
+        assertNull("Локальный файл для сквозной передачи не создается", localFile);
+        assertFalse("Пакет не помещен в локальное хранилище", proxyNupkg.isStored());
+    }
+
+    /**
+     * Проверка того, что запросы частей пакета и манифеста частей для не
+     * сохраненного пакета со сквозной передачей получают локальный файл
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testPartRequestsLoadStreamThroughPackage() throws Exception {
+        //GIVEN
+        ProxyNupkg proxyNupkg = createStreamThroughNupkg();
+        //WHEN
+        File localFile = MainUrlResource.getLocalFile(proxyNupkg, false);
+        //THEN
+        assertNotNull("Локальный файл пакета", localFile);
+        assertTrue("Локальный файл существует", localFile.exists());
+        assertEquals("Размер локального файла", tempNupkgFile.getSize().longValue(), localFile.length());
+        assertTrue("Пакет помещен в локальное хранилище", proxyNupkg.isStored());
+    }
+
+    /**
+     * @return прокси пакет со сквозной передачей, данные которого берутся из
+     * тестового пакета
+     * @throws Exception ошибка чтения тестового пакета
+     */
+    private ProxyNupkg createStreamThroughNupkg() throws Exception {
+        RemoteNupkg remoteNupkg = new RemoteNupkg(tempNupkgFile.getNuspecFile(), tempNupkgFile.getHash(),
+                tempNupkgFile.getSize(), tempNupkgFile.getUpdated(), null) {
+            @Override
+            public InputStream getStream() throws IOException {
+                return tempNupkgFile.getStream();
+            }
+        };
+        ProxyNupkg proxyNupkg = new ProxyNupkg(localSource, remoteNupkg);
+        proxyNupkg.setStreamThrough(true);
+        return proxyNupkg;
+    }
+}
@@ -0,0 +1,173 @@
+package ru.aristar.jnuget;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.files.TempNupkgFile;
+
+/**
+ * Тесты кеша содержимого пакетов
+ *
+ * @author sviridov
+ */
+public class PackageByteCacheTest {
+
+    /**
+     * Проверка помещения пакета в кеш после повторного обращения
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testAdmitFrequentPackage() throws Exception {
+        //GIVEN
+        InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+        TempNupkgFile nupkg = new TempNupkgFile(inputStream, new Date());
+        PackageByteCache cache = new PackageByteCache(10 * 1024 * 1024, 10 * 1024 * 1024);
+        //WHEN
+        ByteBuffer first = cache.get("storage", nupkg);
+        ByteBuffer second = cache.get("storage", nupkg);
+        ByteBuffer third = cache.get("storage", nupkg);
+        //THEN
+        assertNull("Первое обращение не кешируется", first);
+        assertNotNull("Пакет загружен в кеш", second);
+        assertEquals("Размер пакета", nupkg.getSize().longValue(), second.remaining());
+        assertNotNull("Пакет получен из кеша", third);
+        assertEquals("Попаданий в кеш", 1, cache.getHitCount());
+        assertEquals("Размер кеша", nupkg.getSize().longValue(), cache.getSize());
+    }
+
+    /**
+     * Проверка отключенного кеша
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testDisabledCache() throws Exception {
+        //GIVEN
+        InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+        TempNupkgFile nupkg = new TempNupkgFile(inputStream, new Date());
+        PackageByteCache cache = new PackageByteCache(0, 0);
+        //WHEN
+        cache.get("storage", nupkg);
+        ByteBuffer result = cache.get("storage", nupkg);
+        //THEN
+        assertNull("Кеш отключен", result);
+    }
+
+    /**
+     * Проверка того, что пакет, который не будет допущен в кеш, не читается
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testRejectedPackageIsNotLoaded() throws Exception {
+        //GIVEN
+        InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+        TempNupkgFile nupkg = new TempNupkgFile(inputStream, new Date());
+        final long packageSize = nupkg.getSize();
+        PackageByteCache cache = new PackageByteCache(packageSize, packageSize);
+        for (int i = 0; i < 5; i++) {
+            cache.get("storage", nupkg);
+        }
+        Mockery context = new Mockery();
+        final Nupkg rarePackage = context.mock(Nupkg.class);
+        context.checking(new Expectations() {
+            {
+                atLeast(0).of(rarePackage).getId();
+                will(returnValue("Rare"));
+                atLeast(0).of(rarePackage).getVersion();
+                will(returnValue(Version.parse("1.0.0")));
+                atLeast(0).of(rarePackage).getUpdated();
+                will(returnValue(new Date()));
+                atLeast(0).of(rarePackage).getSize();
+                will(returnValue(packageSize));
+                never(rarePackage).getStream();
+            }
+        });
+        //WHEN
+        cache.get("storage", rarePackage);
+        ByteBuffer result = cache.get("storage", rarePackage);
+        //THEN
+        assertNull("Пакет не допущен в кеш", result);
+        context.assertIsSatisfied();
+        assertNotNull("Часто запрашиваемый пакет остался в кеше", cache.get("storage", nupkg));
+    }
+
+    /**
+     * Проверка однократного чтения пакета при одновременных обращениях
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testConcurrentLoadReadsPackageOnce() throws Exception {
+        //GIVEN
+        final AtomicInteger readCount = new AtomicInteger();
+        InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+        final TempNupkgFile nupkg = new TempNupkgFile(inputStream, new Date()) {
+            @Override
+            public InputStream getStream() throws IOException {
+                readCount.incrementAndGet();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getStream();
+            }
+        };
+        //HASH вычисляется заранее, чтобы учитывались только чтения кеша
+        nupkg.getHash();
+        final PackageByteCache cache = new PackageByteCache(10 * 1024 * 1024, 10 * 1024 * 1024);
+        cache.get("storage", nupkg);
+        readCount.set(0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Callable<ByteBuffer> download = new Callable<ByteBuffer>() {
+            @Override
+            public ByteBuffer call() throws Exception {
+                return cache.get("storage", nupkg);
+            }
+        };
+        try {
+            //WHEN
+            Future<ByteBuffer> first = executor.submit(download);
+            Future<ByteBuffer> second = executor.submit(download);
+            Future<ByteBuffer> third = executor.submit(download);
+            //THEN
+            assertNotNull("Пакет получен из кеша", first.get());
+            assertNotNull("Пакет получен из кеша", second.get());
+            assertNotNull("Пакет получен из кеша", third.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals("Количество чтений пакета", 1, readCount.get());
+        assertEquals("Размер кеша", nupkg.getSize().longValue(), cache.getSize());
+    }
+
+    /**
+     * Проверка оценки частоты обращений
+     */
+    @Test
+    public void testFrequencySketch() {
+        //GIVEN
+        PackageByteCache.FrequencySketch sketch = new PackageByteCache.FrequencySketch(64);
+        //WHEN
+        sketch.increment("a");
+        sketch.increment("a");
+        sketch.increment("b");
+        //THEN
+        assertTrue("Частота a", sketch.frequency("a") >= 2);
+        assertTrue("Частота b", sketch.frequency("b") >= 1);
+        assertTrue("a запрашивается чаще", sketch.frequency("a") >= sketch.frequency("b"));
+    }
+}
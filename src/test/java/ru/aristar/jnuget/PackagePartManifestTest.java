@@ -0,0 +1,47 @@
+package ru.aristar.jnuget;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import ru.aristar.jnuget.files.Hash;
+
+/**
+ * Тесты манифеста частей пакета
+ *
+ * @author sviridov
+ */
+public class PackagePartManifestTest {
+
+    /**
+     * Проверка вычисления HASH частей файла
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testCreateManifest() throws Exception {
+        //GIVEN
+        byte[] data = new byte[250000];
+        new Random(1).nextBytes(data);
+        File file = File.createTempFile("tmp", "tst");
+        file.deleteOnExit();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(data);
+        }
+        final int partSize = 100000;
+        //WHEN
+        PackagePartManifest manifest = PackagePartManifest.create(file, partSize);
+        //THEN
+        assertEquals("Размер пакета", data.length, manifest.getSize());
+        assertEquals("Количество частей", 3, manifest.getPartCount());
+        assertEquals("Количество HASH", 3, manifest.getPartHashes().size());
+        for (int i = 0; i < 3; i++) {
+            byte[] part = Arrays.copyOfRange(data, i * partSize, Math.min((i + 1) * partSize, data.length));
+            String expected = new Hash(MessageDigest.getInstance(Hash.ALGORITHM_NAME).digest(part)).toString();
+            assertEquals("HASH части " + i, expected, manifest.getPartHashes().get(i));
+        }
+    }
+}
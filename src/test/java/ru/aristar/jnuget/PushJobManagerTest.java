@@ -0,0 +1,116 @@
+package ru.aristar.jnuget;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.files.TempNupkgFile;
+import ru.aristar.jnuget.sources.PackageSource;
+
+/**
+ * Тесты асинхронного помещения пакетов
+ *
+ * @author sviridov
+ */
+public class PushJobManagerTest {
+
+    /**
+     * Проверка выполнения задания помещения пакета
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testSubmitJob() throws Exception {
+        //GIVEN
+        CountDownLatch pushLatch = new CountDownLatch(0);
+        PushJobManager manager = new PushJobManager(1, 1, 5);
+        TempNupkgFile nupkg = new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"));
+        //WHEN
+        PushJob job = manager.submit(createPackageSource(pushLatch, true), nupkg);
+        manager.close();
+        //THEN
+        assertSame("Задание найдено по идентификатору", job, manager.getJob(job.getId()));
+        assertEquals("Состояние задания", PushJob.Status.SUCCEEDED, job.getStatus());
+        assertEquals("Идентификатор пакета", "NUnit", job.getPackageId());
+        assertEquals("Хранилище", "storage", job.getStorageName());
+        assertNotNull("Время завершения", job.getFinished());
+        assertFalse("Временный файл удален", nupkg.getLocalFile().exists());
+    }
+
+    /**
+     * Проверка отказа хранилища принять пакет
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testRejectedJob() throws Exception {
+        //GIVEN
+        PushJobManager manager = new PushJobManager(1, 1, 5);
+        TempNupkgFile nupkg = new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"));
+        //WHEN
+        PushJob job = manager.submit(createPackageSource(new CountDownLatch(0), false), nupkg);
+        manager.close();
+        //THEN
+        assertEquals("Состояние задания", PushJob.Status.REJECTED, job.getStatus());
+        assertNotNull("Описание ошибки", job.getMessage());
+    }
+
+    /**
+     * Проверка отклонения задания при заполненной очереди
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testQueueFull() throws Exception {
+        //GIVEN
+        CountDownLatch pushLatch = new CountDownLatch(1);
+        PushJobManager manager = new PushJobManager(1, 1, 5);
+        PackageSource<Nupkg> packageSource = createPackageSource(pushLatch, true);
+        manager.submit(packageSource, new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg")));
+        manager.submit(packageSource, new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg")));
+        TempNupkgFile rejected = new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"));
+        //WHEN
+        try {
+            manager.submit(packageSource, rejected);
+            fail("Задание должно быть отклонено");
+        } catch (RejectedExecutionException e) {
+            //THEN
+            assertEquals("Рекомендуемая задержка повтора", 5, manager.getRetryAfter());
+            assertFalse("Места в очереди нет", manager.hasCapacity());
+        } finally {
+            pushLatch.countDown();
+            manager.close();
+            rejected.close();
+        }
+    }
+
+    /**
+     * Создает хранилище, помещение пакета в которое ожидает разрешения
+     *
+     * @param pushLatch разрешение помещения пакета
+     * @param result результат помещения пакета
+     * @return хранилище пакетов
+     */
+    @SuppressWarnings("unchecked")
+    private static PackageSource<Nupkg> createPackageSource(final CountDownLatch pushLatch, final boolean result) {
+        return (PackageSource<Nupkg>) Proxy.newProxyInstance(PushJobManagerTest.class.getClassLoader(),
+                new Class<?>[]{PackageSource.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "getName":
+                        return "storage";
+                    case "pushPackage":
+                        pushLatch.await();
+                        return result;
+                    default:
+                        return null;
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,123 @@
+package ru.aristar.jnuget;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Тесты чтения архива TAR
+ *
+ * @author sviridov
+ */
+public class TarArchiveReaderTest {
+
+    /**
+     * Проверка чтения файлов архива с пропуском каталогов и непрочитанных
+     * данных
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testReadEntries() throws Exception {
+        //GIVEN
+        byte[] first = createData(1000, 1);
+        byte[] second = createData(512, 2);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, "packages/", '5', new byte[0]);
+        writeEntry(archive, "packages/first.nupkg", '0', first);
+        writeEntry(archive, "packages/second.nupkg", '0', second);
+        archive.write(new byte[TarArchiveReader.BLOCK_SIZE * 2]);
+        TarArchiveReader reader = new TarArchiveReader(new ByteArrayInputStream(archive.toByteArray()));
+        //WHEN
+        String firstName = reader.nextEntry();
+        int firstByte = reader.getEntryStream().read();
+        String secondName = reader.nextEntry();
+        byte[] secondData = readAll(reader.getEntryStream());
+        String end = reader.nextEntry();
+        //THEN
+        assertEquals("Имя первого файла", "packages/first.nupkg", firstName);
+        assertEquals("Первый байт первого файла", 1, firstByte);
+        assertEquals("Имя второго файла", "packages/second.nupkg", secondName);
+        assertArrayEquals("Данные второго файла", second, secondData);
+        assertNull("Конец архива", end);
+    }
+
+    /**
+     * Проверка чтения длинного имени файла в формате GNU
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testGnuLongName() throws Exception {
+        //GIVEN
+        char[] chars = new char[150];
+        Arrays.fill(chars, 'a');
+        String longName = new String(chars) + ".nupkg";
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, "././@LongLink", 'L', (longName + "\0").getBytes(Charset.forName("UTF-8")));
+        writeEntry(archive, longName.substring(0, 99), '0', createData(10, 3));
+        TarArchiveReader reader = new TarArchiveReader(new ByteArrayInputStream(archive.toByteArray()));
+        //WHEN
+        String name = reader.nextEntry();
+        byte[] data = readAll(reader.getEntryStream());
+        //THEN
+        assertEquals("Имя файла", longName, name);
+        assertEquals("Размер файла", 10, data.length);
+        assertNull("Конец архива без завершающих блоков", reader.nextEntry());
+    }
+
+    /**
+     * Записывает файл в архив
+     *
+     * @param archive поток архива
+     * @param name имя файла
+     * @param type тип записи
+     * @param data данные файла
+     * @throws IOException ошибка записи
+     */
+    private static void writeEntry(ByteArrayOutputStream archive, String name, char type, byte[] data) throws IOException {
+        byte[] header = new byte[TarArchiveReader.BLOCK_SIZE];
+        byte[] nameBytes = name.getBytes(Charset.forName("UTF-8"));
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        byte[] size = String.format("%011o", data.length).getBytes(Charset.forName("US-ASCII"));
+        System.arraycopy(size, 0, header, 124, size.length);
+        header[156] = (byte) type;
+        byte[] magic = "ustar".getBytes(Charset.forName("US-ASCII"));
+        System.arraycopy(magic, 0, header, 257, magic.length);
+        archive.write(header);
+        archive.write(data);
+        int padding = (TarArchiveReader.BLOCK_SIZE - data.length % TarArchiveReader.BLOCK_SIZE) % TarArchiveReader.BLOCK_SIZE;
+        archive.write(new byte[padding]);
+    }
+
+    /**
+     * @param length размер данных
+     * @param value значение байт
+     * @return тестовые данные
+     */
+    private static byte[] createData(int length, int value) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+
+    /**
+     * @param inputStream поток
+     * @return все данные потока
+     * @throws IOException ошибка чтения
+     */
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[100];
+        int count;
+        while ((count = inputStream.read(buffer)) >= 0) {
+            result.write(buffer, 0, count);
+        }
+        return result.toByteArray();
+    }
+}
@@ -0,0 +1,201 @@
+package ru.aristar.jnuget.client;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import org.junit.After;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import ru.aristar.jnuget.MainUrlResource;
+import ru.aristar.jnuget.common.ProxyOptions;
+import ru.aristar.jnuget.files.TempNupkgFile;
+
+/**
+ * Тесты общего HTTP клиента с пулом соединений
+ *
+ * @author sviridov
+ */
+public class SharedHttpClientTest {
+
+    /**
+     * Тестовый сервер
+     */
+    private HttpServer server;
+    /**
+     * Тестируемый клиент
+     */
+    private SharedHttpClient sharedHttpClient;
+    /**
+     * Код ответа тестового сервера
+     */
+    private final AtomicInteger responseCode = new AtomicInteger(200);
+    /**
+     * Ключ доступа из последнего запроса
+     */
+    private final AtomicReference<String> receivedApiKey = new AtomicReference<>();
+
+    /**
+     * Остановка сервера и закрытие клиента
+     */
+    @After
+    public void tearDown() {
+        if (sharedHttpClient != null) {
+            sharedHttpClient.close();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Проверка повторного использования соединения после чтения ответа
+     *
+     * @throws IOException ошибка запуска сервера
+     */
+    @Test
+    public void testConnectionReturnedToPool() throws IOException {
+        //GIVEN
+        String url = startServer();
+        sharedHttpClient = createClient(1, 1000);
+        //WHEN
+        String first = sharedHttpClient.getClient().resource(url).get(String.class);
+        String second = sharedHttpClient.getClient().resource(url).get(String.class);
+        //THEN
+        assertThat("Ответ сервера", first, is(equalTo("OK")));
+        assertThat("Ответ сервера", second, is(equalTo("OK")));
+        assertThat("Соединений в пуле", sharedHttpClient.getConnectionsInPool(), is(equalTo(1)));
+    }
+
+    /**
+     * Проверка ограничения времени ожидания свободного соединения в пуле
+     *
+     * @throws IOException ошибка запуска сервера
+     */
+    @Test
+    public void testPoolTimeout() throws IOException {
+        //GIVEN
+        String url = startServer();
+        sharedHttpClient = createClient(1, 200);
+        ClientResponse response = sharedHttpClient.getClient().resource(url).get(ClientResponse.class);
+        try {
+            //WHEN
+            sharedHttpClient.getClient().resource(url).get(String.class);
+            //THEN
+            fail("Запрос должен завершиться ошибкой: единственное соединение пула занято");
+        } catch (ClientHandlerException e) {
+            assertThat("Пул соединений исчерпан", e.getCause() instanceof ConnectionPoolTimeoutException, is(true));
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Проверка передачи ключа доступа при отправке пакета
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testPutPackageSendsApiKey() throws Exception {
+        //GIVEN
+        String url = startServer();
+        sharedHttpClient = createClient(1, 1000);
+        responseCode.set(201);
+        NugetClient nugetClient = new NugetClient(sharedHttpClient.getClient());
+        nugetClient.setUrl(url);
+        nugetClient.setApiKey("test-key");
+        //WHEN
+        int status;
+        try (InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+                TempNupkgFile nupkg = new TempNupkgFile(inputStream)) {
+            status = nugetClient.putPackage(nupkg);
+        }
+        //THEN
+        assertThat("Код ответа сервера", status, is(equalTo(201)));
+        assertThat("Ключ доступа", receivedApiKey.get(), is(equalTo("test-key")));
+        assertThat("Соединений в пуле", sharedHttpClient.getConnectionsInPool(), is(equalTo(1)));
+    }
+
+    /**
+     * Проверка того, что отказ сервера приводит к ошибке и не удерживает
+     * соединение
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testPutPackageRejected() throws Exception {
+        //GIVEN
+        String url = startServer();
+        sharedHttpClient = createClient(1, 200);
+        responseCode.set(403);
+        NugetClient nugetClient = new NugetClient(sharedHttpClient.getClient());
+        nugetClient.setUrl(url);
+        try (InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+                TempNupkgFile nupkg = new TempNupkgFile(inputStream)) {
+            //WHEN
+            try {
+                nugetClient.putPackage(nupkg);
+                fail("Отказ сервера должен приводить к ошибке");
+            } catch (IOException e) {
+                //THEN
+                assertThat("Сообщение об ошибке", e.getMessage().contains("403"), is(true));
+            }
+        }
+        responseCode.set(200);
+        assertThat("Соединение возвращено в пул",
+                sharedHttpClient.getClient().resource(url).get(String.class), is(equalTo("OK")));
+    }
+
+    /**
+     * @param maxConnections максимальное количество соединений
+     * @param poolTimeout время ожидания свободного соединения (миллисекунд)
+     * @return HTTP клиент без прокси
+     */
+    private SharedHttpClient createClient(int maxConnections, long poolTimeout) {
+        ProxyOptions proxyOptions = new ProxyOptions();
+        proxyOptions.setUseSystemProxy(Boolean.TRUE);
+        return new SharedHttpClient(proxyOptions, maxConnections, maxConnections, 1000, 5000, 60000, poolTimeout);
+    }
+
+    /**
+     * Запускает тестовый сервер, отвечающий "OK" с кодом
+     * {@link #responseCode}
+     *
+     * @return URL сервера
+     * @throws IOException ошибка открытия сокета
+     */
+    private String startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                receivedApiKey.set(exchange.getRequestHeaders().getFirst(MainUrlResource.API_KEY_HEADER_NAME));
+                try (InputStream requestBody = exchange.getRequestBody()) {
+                    byte[] buffer = new byte[8192];
+                    while (requestBody.read(buffer) != -1) {
+                        //Тело запроса не используется
+                    }
+                }
+                byte[] body = "OK".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(responseCode.get(), body.length);
+                try (OutputStream responseBody = exchange.getResponseBody()) {
+                    responseBody.write(body);
+                }
+            }
+        });
+        server.start();
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+}
@@ -0,0 +1,44 @@
+package ru.aristar.jnuget.files;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.security.MessageDigest;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Тесты потока, копирующего прочитанные данные в канал
+ *
+ * @author sviridov
+ */
+public class CopyingDigestInputStreamTest {
+
+    /**
+     * Проверка копирования данных, прочитанных, пропущенных и дочитанных из
+     * потока
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testReadSkipAndDrain() throws Exception {
+        //GIVEN
+        byte[] data = new byte[100000];
+        new Random(1).nextBytes(data);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        CopyingDigestInputStream inputStream = new CopyingDigestInputStream(new ByteArrayInputStream(data),
+                MessageDigest.getInstance(Hash.ALGORITHM_NAME), Channels.newChannel(target));
+        //WHEN
+        inputStream.read();
+        inputStream.read(new byte[1000], 0, 1000);
+        long skipped = inputStream.skip(40000);
+        inputStream.drain();
+        //THEN
+        assertEquals("Пропущено байт", 40000, skipped);
+        assertEquals("Прочитано байт", data.length, inputStream.getCount());
+        assertArrayEquals("Скопированные данные", data, target.toByteArray());
+        assertEquals("HASH данных", new Hash(MessageDigest.getInstance(Hash.ALGORITHM_NAME).digest(data)),
+                inputStream.getHash());
+    }
+}
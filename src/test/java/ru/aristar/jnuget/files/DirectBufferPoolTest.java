@@ -0,0 +1,86 @@
+package ru.aristar.jnuget.files;
+
+import java.nio.ByteBuffer;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Тест пула буферов вне кучи Java
+ *
+ * @author sviridov
+ */
+public class DirectBufferPoolTest {
+
+    /**
+     * Проверка выдачи буфера вне кучи
+     */
+    @Test
+    public void testAcquireDirectBuffer() {
+        //GIVEN
+        DirectBufferPool pool = new DirectBufferPool(1024 * 1024);
+        //WHEN
+        ByteBuffer first = pool.acquire();
+        ByteBuffer second = pool.acquire();
+        //THEN
+        assertTrue("Буфер вне кучи", first.isDirect());
+        assertEquals("Размер буфера", DirectBufferPool.BUFFER_SIZE, first.capacity());
+        assertNotSame("Выданы разные буферы", first, second);
+        assertEquals("Объем выданных буферов", 2 * DirectBufferPool.BUFFER_SIZE, pool.getBorrowedBytes());
+        assertEquals("Использование пула", 1.0, pool.getUtilization(), 0.0001);
+    }
+
+    /**
+     * Проверка повторного использования возвращенного буфера
+     */
+    @Test
+    public void testReuseReleasedBuffer() {
+        //GIVEN
+        DirectBufferPool pool = new DirectBufferPool(1024 * 1024);
+        ByteBuffer buffer = pool.acquire();
+        buffer.put((byte) 1);
+        //WHEN
+        pool.release(buffer);
+        ByteBuffer result = pool.acquire();
+        //THEN
+        assertSame("Буфер использован повторно", buffer, result);
+        assertEquals("Буфер очищен", 0, result.position());
+        assertEquals("Количество выделенных буферов", 1, pool.getAllocationCount());
+        assertEquals("Количество повторных использований", 1, pool.getReuseCount());
+        assertEquals("Свободных буферов в пуле", 0, pool.getPooledBytes());
+    }
+
+    /**
+     * Проверка того, что объем свободных буферов не превышает максимальный
+     */
+    @Test
+    public void testReleaseAboveMaxSize() {
+        //GIVEN
+        DirectBufferPool pool = new DirectBufferPool(DirectBufferPool.BUFFER_SIZE);
+        ByteBuffer first = pool.acquire();
+        ByteBuffer second = pool.acquire();
+        //WHEN
+        pool.release(first);
+        pool.release(second);
+        //THEN
+        assertEquals("Свободных буферов в пуле", DirectBufferPool.BUFFER_SIZE, pool.getPooledBytes());
+        assertEquals("Объем выданных буферов", 0, pool.getBorrowedBytes());
+        assertEquals("Использование пула", 0.0, pool.getUtilization(), 0.0001);
+    }
+
+    /**
+     * Проверка того, что в пул не попадают чужие буферы
+     */
+    @Test
+    public void testForeignBufferNotPooled() {
+        //GIVEN
+        DirectBufferPool pool = new DirectBufferPool(16 * 1024 * 1024);
+        ByteBuffer heapBuffer = ByteBuffer.allocate(DirectBufferPool.BUFFER_SIZE);
+        ByteBuffer largeBuffer = ByteBuffer.allocateDirect(2 * DirectBufferPool.BUFFER_SIZE);
+        //WHEN
+        pool.release(heapBuffer);
+        pool.release(largeBuffer);
+        //THEN
+        assertEquals("Свободных буферов в пуле", 0, pool.getPooledBytes());
+        assertEquals("Объем выданных буферов", 0, pool.getBorrowedBytes());
+    }
+}
@@ -0,0 +1,194 @@
+package ru.aristar.jnuget.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.sources.MavenStylePackageSource;
+import ru.aristar.jnuget.sources.push.ModifyStrategy;
+
+/**
+ * Тесты прокси представления пакета
+ *
+ * @author sviridov
+ */
+public class ProxyNupkgTest {
+
+    /**
+     * Каталог локального хранилища
+     */
+    private File rootFolder;
+    /**
+     * Локальное хранилище
+     */
+    private MavenStylePackageSource localSource;
+    /**
+     * Пакет, выдаваемый за пакет удаленного хранилища
+     */
+    private TempNupkgFile tempNupkgFile;
+
+    /**
+     * Создание локального хранилища и тестового пакета
+     *
+     * @throws Exception ошибка создания
+     */
+    @Before
+    public void setUp() throws Exception {
+        rootFolder = new File(File.createTempFile("tmp", "tst").getParentFile(), "ProxyNupkgTestFolder/");
+        FileUtils.deleteDirectory(rootFolder);
+        localSource = new MavenStylePackageSource(rootFolder);
+        localSource.setPushStrategy(new ModifyStrategy(true));
+        tempNupkgFile = new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"));
+    }
+
+    /**
+     * Удаление локального хранилища и тестового пакета
+     *
+     * @throws Exception ошибка удаления
+     */
+    @After
+    public void tearDown() throws Exception {
+        tempNupkgFile.close();
+        FileUtils.deleteDirectory(rootFolder);
+    }
+
+    /**
+     * Проверка сквозной передачи: пакет помещается в локальное хранилище
+     * после полного чтения потока
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testStreamThroughCommitsAfterFullRead() throws Exception {
+        //GIVEN
+        ProxyNupkg proxyNupkg = new ProxyNupkg(localSource, createRemoteNupkg());
+        proxyNupkg.setStreamThrough(true);
+        //WHEN
+        byte[] data;
+        try (InputStream inputStream = proxyNupkg.getStream()) {
+            assertNull("Пакет не помещен в хранилище до окончания чтения",
+                    localSource.getPackage("NUnit", Version.parse("2.5.9.10348")));
+            data = IOUtils.toByteArray(inputStream);
+        }
+        //THEN
+        assertEquals("Получены все данные пакета", tempNupkgFile.getSize().longValue(), data.length);
+        MavenNupkg stored = localSource.getPackage("NUnit", Version.parse("2.5.9.10348"));
+        assertNotNull("Пакет помещен в локальное хранилище", stored);
+        assertEquals("HASH пакета", tempNupkgFile.getHash(), stored.getHash());
+        assertTrue("Пакет отмечен как сохраненный", proxyNupkg.isStored());
+    }
+
+    /**
+     * Проверка сквозной передачи: не полностью прочитанный пакет не
+     * помещается в локальное хранилище
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testStreamThroughDiscardsPartialRead() throws Exception {
+        //GIVEN
+        ProxyNupkg proxyNupkg = new ProxyNupkg(localSource, createRemoteNupkg());
+        proxyNupkg.setStreamThrough(true);
+        //WHEN
+        try (InputStream inputStream = proxyNupkg.getStream()) {
+            inputStream.read(new byte[100]);
+        }
+        //THEN
+        assertNull("Пакет не помещен в локальное хранилище",
+                localSource.getPackage("NUnit", Version.parse("2.5.9.10348")));
+    }
+
+    /**
+     * Проверка сквозной передачи: одновременные запросы пакета загружают его
+     * из удаленного хранилища один раз
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testConcurrentStreamThroughDownloadsOnce() throws Exception {
+        //GIVEN
+        AtomicInteger remoteRequests = new AtomicInteger();
+        ProxyNupkg first = new ProxyNupkg(localSource, createRemoteNupkg(tempNupkgFile.getHash(), remoteRequests));
+        first.setStreamThrough(true);
+        final ProxyNupkg second = new ProxyNupkg(localSource, createRemoteNupkg(tempNupkgFile.getHash(), remoteRequests));
+        second.setStreamThrough(true);
+        FutureTask<byte[]> secondRead = new FutureTask<>(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                try (InputStream inputStream = second.getStream()) {
+                    return IOUtils.toByteArray(inputStream);
+                }
+            }
+        });
+        //WHEN
+        byte[] firstData;
+        try (InputStream inputStream = first.getStream()) {
+            new Thread(secondRead).start();
+            firstData = IOUtils.toByteArray(inputStream);
+        }
+        byte[] secondData = secondRead.get(10, TimeUnit.SECONDS);
+        //THEN
+        assertEquals("Количество загрузок из удаленного хранилища", 1, remoteRequests.get());
+        assertArrayEquals("Данные пакета", firstData, secondData);
+        assertTrue("Пакет отмечен как сохраненный", second.isStored());
+    }
+
+    /**
+     * Проверка того, что пакет, HASH которого вычислен не по алгоритму
+     * SHA-512, помещается в локальное хранилище до передачи клиенту
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testStreamThroughSkippedForUnverifiableHash() throws Exception {
+        //GIVEN
+        Hash sha1Hash = new Hash(MessageDigest.getInstance("SHA-1").digest(IOUtils.toByteArray(tempNupkgFile.getStream())));
+        ProxyNupkg proxyNupkg = new ProxyNupkg(localSource, createRemoteNupkg(sha1Hash, new AtomicInteger()));
+        proxyNupkg.setStreamThrough(true);
+        //WHEN
+        byte[] data;
+        try (InputStream inputStream = proxyNupkg.getStream()) {
+            assertNotNull("Пакет помещен в хранилище до начала чтения",
+                    localSource.getPackage("NUnit", Version.parse("2.5.9.10348")));
+            data = IOUtils.toByteArray(inputStream);
+        }
+        //THEN
+        assertEquals("Получены все данные пакета", tempNupkgFile.getSize().longValue(), data.length);
+    }
+
+    /**
+     * @return удаленный пакет, данные которого берутся из тестового пакета
+     * @throws Exception ошибка чтения тестового пакета
+     */
+    private RemoteNupkg createRemoteNupkg() throws Exception {
+        return createRemoteNupkg(tempNupkgFile.getHash(), new AtomicInteger());
+    }
+
+    /**
+     * @param hash HASH удаленного пакета
+     * @param remoteRequests счетчик запросов данных пакета
+     * @return удаленный пакет, данные которого берутся из тестового пакета
+     * @throws Exception ошибка чтения тестового пакета
+     */
+    private RemoteNupkg createRemoteNupkg(Hash hash, final AtomicInteger remoteRequests) throws Exception {
+        return new RemoteNupkg(tempNupkgFile.getNuspecFile(), hash,
+                tempNupkgFile.getSize(), tempNupkgFile.getUpdated(), null) {
+            @Override
+            public InputStream getStream() throws IOException {
+                remoteRequests.incrementAndGet();
+                return tempNupkgFile.getStream();
+            }
+        };
+    }
+}
@@ -4,6 +4,7 @@ import ru.aristar.jnuget.files.nuspec.NuspecFileTest;
 import ru.aristar.jnuget.files.nuspec.NuspecFile;
 import java.io.InputStream;
 import java.util.Date;
+import java.util.EnumSet;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import org.junit.Test;
@@ -68,4 +69,24 @@ public class TempNupkgFileTest {
             assertEquals("Имя файла", "NUnit.2.5.9.10348.nupkg", nupkgFile.getFileName());
         }
     }
+
+    /**
+     * Проверка того, что спецификация и фреймворки читаются при загрузке
+     * пакета и не требуют повторного чтения файла
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testReadPackageWhileCopying() throws Exception {
+        //GIVEN
+        try (InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg")) {
+            TempNupkgFile nupkgFile = new TempNupkgFile(inputStream);
+            //WHEN
+            nupkgFile.getLocalFile().delete();
+            //THEN
+            assertEquals("Идентификатор пакета", "NUnit", nupkgFile.getNuspecFile().getId());
+            assertEquals("Версия пакета", Version.parse("2.5.9.10348"), nupkgFile.getVersion());
+            assertEquals("Фреймворки пакета", EnumSet.of(Framework.net20), nupkgFile.getTargetFramework());
+        }
+    }
 }
@@ -0,0 +1,180 @@
+package ru.aristar.jnuget.files;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Тесты чтения центрального каталога ZIP архива
+ *
+ * @author sviridov
+ */
+public class ZipCentralDirectoryTest {
+
+    /**
+     * Проверка совпадения списка вложений пакета со списком, полученным
+     * последовательным чтением архива
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testReadPackageEntries() throws Exception {
+        //GIVEN
+        File file = File.createTempFile("package", ".nupkg");
+        file.deleteOnExit();
+        try (InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+                FileOutputStream outputStream = new FileOutputStream(file)) {
+            copy(inputStream, outputStream);
+        }
+        List<String> expected = new ArrayList<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"))) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                expected.add(entry.getName());
+            }
+        }
+        //WHEN
+        List<String> actual = new ArrayList<>();
+        String nuspec;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ZipCentralDirectory directory = ZipCentralDirectory.read(channel);
+            ZipCentralDirectory.Entry nuspecEntry = null;
+            for (ZipCentralDirectory.Entry entry : directory.getEntries()) {
+                actual.add(entry.getName());
+                if (entry.getName().endsWith(".nuspec")) {
+                    nuspecEntry = entry;
+                }
+            }
+            assertNotNull("Вложение спецификации найдено", nuspecEntry);
+            try (InputStream inputStream = directory.getInputStream(channel, nuspecEntry)) {
+                nuspec = new String(readAll(inputStream), Charset.forName("UTF-8"));
+            }
+        } finally {
+            file.delete();
+        }
+        //THEN
+        assertEquals("Список вложений", expected, actual);
+        assertTrue("Спецификация пакета распакована", nuspec.contains("<id>NUnit</id>"));
+    }
+
+    /**
+     * Проверка чтения сжатых и несжатых вложений архива с комментарием
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testStoredAndDeflatedEntries() throws Exception {
+        //GIVEN
+        byte[] storedData = "stored data".getBytes(Charset.forName("UTF-8"));
+        byte[] deflatedData = new byte[10000];
+        for (int i = 0; i < deflatedData.length; i++) {
+            deflatedData[i] = (byte) (i % 17);
+        }
+        File file = File.createTempFile("archive", ".zip");
+        file.deleteOnExit();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(file))) {
+            zipOutputStream.setComment("archive comment");
+            zipOutputStream.putNextEntry(new ZipEntry("lib/"));
+            zipOutputStream.closeEntry();
+            ZipEntry storedEntry = new ZipEntry("lib/stored.txt");
+            storedEntry.setMethod(ZipEntry.STORED);
+            storedEntry.setSize(storedData.length);
+            CRC32 crc = new CRC32();
+            crc.update(storedData);
+            storedEntry.setCrc(crc.getValue());
+            zipOutputStream.putNextEntry(storedEntry);
+            zipOutputStream.write(storedData);
+            zipOutputStream.closeEntry();
+            zipOutputStream.putNextEntry(new ZipEntry("lib/deflated.bin"));
+            zipOutputStream.write(deflatedData);
+            zipOutputStream.closeEntry();
+        }
+        //WHEN
+        ZipCentralDirectory.Entry[] entries;
+        byte[] actualStored;
+        byte[] actualDeflated;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ZipCentralDirectory directory = ZipCentralDirectory.read(channel);
+            entries = directory.getEntries().toArray(new ZipCentralDirectory.Entry[0]);
+            try (InputStream inputStream = directory.getInputStream(channel, entries[1])) {
+                actualStored = readAll(inputStream);
+            }
+            try (InputStream inputStream = directory.getInputStream(channel, entries[2])) {
+                actualDeflated = readAll(inputStream);
+            }
+        } finally {
+            file.delete();
+        }
+        //THEN
+        assertEquals("Количество вложений", 3, entries.length);
+        assertTrue("Первое вложение - каталог", entries[0].isDirectory());
+        assertEquals("Метод сжатия", ZipEntry.STORED, entries[1].getMethod());
+        assertEquals("Метод сжатия", ZipEntry.DEFLATED, entries[2].getMethod());
+        assertEquals("Размер распакованных данных", deflatedData.length, entries[2].getSize());
+        assertArrayEquals("Несжатые данные", storedData, actualStored);
+        assertArrayEquals("Распакованные данные", deflatedData, actualDeflated);
+    }
+
+    /**
+     * Проверка отказа чтения файла, не являющегося ZIP архивом
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test(expected = ZipException.class)
+    public void testNotZipFile() throws Exception {
+        //GIVEN
+        File file = File.createTempFile("archive", ".zip");
+        file.deleteOnExit();
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(new byte[100]);
+        }
+        //WHEN
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ZipCentralDirectory.read(channel);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * @param inputStream поток с данными
+     * @param outputStream поток для записи
+     * @throws IOException ошибка чтения или записи
+     */
+    private static void copy(InputStream inputStream, FileOutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = inputStream.read(buffer)) >= 0) {
+            outputStream.write(buffer, 0, count);
+        }
+    }
+
+    /**
+     * @param inputStream поток
+     * @return все данные потока
+     * @throws IOException ошибка чтения
+     */
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = inputStream.read(buffer)) >= 0) {
+            result.write(buffer, 0, count);
+        }
+        return result.toByteArray();
+    }
+}
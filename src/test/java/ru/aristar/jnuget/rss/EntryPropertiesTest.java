@@ -212,4 +212,18 @@ public class EntryPropertiesTest {
         //THEN
         assertThat(properties.getDependencies(), is(equalTo("package1:1.2.3, package2:3.2.1")));
     }
+
+    /**
+     * Проверка того, что некорректное числовое значение свойства приводит к
+     * ошибке формата NuGet
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test(expected = NugetFormatException.class)
+    public void testSetPropertyWithInvalidNumber() throws Exception {
+        //GIVEN
+        EntryProperties properties = new EntryProperties();
+        //WHEN
+        properties.setProperty("DownloadCount", "many");
+    }
 }
@@ -0,0 +1,105 @@
+package ru.aristar.jnuget.rss;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import ru.aristar.jnuget.JsonStreamingOutput;
+import ru.aristar.jnuget.NugetContext;
+import ru.aristar.jnuget.files.TempNupkgFile;
+
+/**
+ * Тесты полей JSON представления ленты пакетов
+ *
+ * @author sviridov
+ */
+public class JsonFeedFieldTest {
+
+    /**
+     * Проверка разбора списка выводимых полей
+     */
+    @Test
+    public void testParseSelect() {
+        //GIVEN
+        String select = " id, VERSION ,Unknown";
+        //WHEN
+        EnumSet<JsonFeedField> fields = JsonFeedField.parseSelect(select);
+        //THEN
+        assertEquals("Выбранные поля", EnumSet.of(JsonFeedField.Id, JsonFeedField.Version), fields);
+    }
+
+    /**
+     * Проверка выбора всех полей, если список не указан
+     */
+    @Test
+    public void testParseEmptySelect() {
+        //WHEN
+        EnumSet<JsonFeedField> nullFields = JsonFeedField.parseSelect(null);
+        EnumSet<JsonFeedField> starFields = JsonFeedField.parseSelect("*");
+        //THEN
+        assertEquals("Все поля", EnumSet.allOf(JsonFeedField.class), nullFields);
+        assertEquals("Все поля", EnumSet.allOf(JsonFeedField.class), starFields);
+    }
+
+    /**
+     * Проверка того, что список только из неизвестных полей не приводит к
+     * выводу всех полей
+     */
+    @Test
+    public void testParseUnknownSelect() {
+        //WHEN
+        EnumSet<JsonFeedField> fields = JsonFeedField.parseSelect("Unknown,Other");
+        //THEN
+        assertTrue("Пустой набор полей", fields.isEmpty());
+    }
+
+    /**
+     * Проверка записи ленты в JSON только с выбранными полями
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testWriteSelectedFields() throws Exception {
+        //GIVEN
+        NugetContext context = new NugetContext(new URI("http://localhost:8090/"));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+                TempNupkgFile nupkgFile = new TempNupkgFile(inputStream, new Date())) {
+            Iterable<PackageEntry> entries = context.createToRssTransformer()
+                    .transformLazily(Arrays.asList(nupkgFile), null, 0, -1, null);
+            JsonStreamingOutput output = new JsonStreamingOutput(entries, JsonFeedField.parseSelect("Id,Version"));
+            //WHEN
+            output.write(outputStream);
+        }
+        //THEN
+        assertEquals("JSON представление ленты",
+                "{\"d\":[{\"Id\":\"NUnit\",\"Version\":\"2.5.9.10348\"}]}",
+                outputStream.toString("UTF-8"));
+    }
+
+    /**
+     * Проверка записи пустой проекции, если выбраны только неизвестные поля
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testWriteUnknownFields() throws Exception {
+        //GIVEN
+        NugetContext context = new NugetContext(new URI("http://localhost:8090/"));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+                TempNupkgFile nupkgFile = new TempNupkgFile(inputStream, new Date())) {
+            Iterable<PackageEntry> entries = context.createToRssTransformer()
+                    .transformLazily(Arrays.asList(nupkgFile), null, 0, -1, null);
+            JsonStreamingOutput output = new JsonStreamingOutput(entries, JsonFeedField.parseSelect("Unknown"));
+            //WHEN
+            output.write(outputStream);
+        }
+        //THEN
+        assertEquals("JSON представление ленты", "{\"d\":[{}]}", outputStream.toString("UTF-8"));
+    }
+}
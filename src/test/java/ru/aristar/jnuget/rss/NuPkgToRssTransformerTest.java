@@ -9,9 +9,13 @@ import java.util.List;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
 import org.junit.Test;
 import ru.aristar.jnuget.NugetContext;
 import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.sources.Index;
 
 /**
  *
@@ -19,6 +23,36 @@ import ru.aristar.jnuget.Version;
  */
 public class NuPkgToRssTransformerTest {
 
+    /**
+     * Контекст для создания заглушек
+     */
+    private Mockery context = new Mockery();
+    /**
+     * Уникальный идентификатор заглушки
+     */
+    private int mockId = 0;
+
+    /**
+     * Создает заглушку пакета
+     *
+     * @param id идентификатор пакета
+     * @param version версия пакета
+     * @return заглушка пакета
+     * @throws Exception некорректный формат версии
+     */
+    private Nupkg createNupkg(final String id, final String version) throws Exception {
+        final Nupkg pack = context.mock(Nupkg.class, "nupkg" + (mockId++));
+        context.checking(new Expectations() {
+            {
+                atLeast(0).of(pack).getId();
+                will(returnValue(id));
+                atLeast(0).of(pack).getVersion();
+                will(returnValue(Version.parse(version)));
+            }
+        });
+        return pack;
+    }
+
     /**
      * Создает запись о пакете
      *
@@ -64,6 +98,54 @@ public class NuPkgToRssTransformerTest {
         assertTrue("Большие версии последние", lastB.getProperties().getIsLatestVersion());
     }
 
+    /**
+     * Проверка маркировки последней версии, если у последнего по порядку
+     * пакета единственная версия
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testMarkLastVersionSingleLastPackage() throws Exception {
+        //GIVEN
+        NuPkgToRssTransformer transformer = new NuPkgToRssTransformerNoContext();
+        ArrayList<PackageEntry> entrys = new ArrayList<>();
+        PackageEntry firstA = createPackageEntry("A", "1.2.3");
+        entrys.add(firstA);
+        PackageEntry lastA = createPackageEntry("A", "1.2.4");
+        entrys.add(lastA);
+        PackageEntry onlyB = createPackageEntry("B", "0.2.6");
+        entrys.add(onlyB);
+        //WHEN
+        transformer.markLastVersion(entrys);
+        //THEN
+        assertFalse("Меньшие версии не последние", firstA.getProperties().getIsLatestVersion());
+        assertTrue("Большие версии последние", lastA.getProperties().getIsLatestVersion());
+        assertTrue("Единственная версия последняя", onlyB.getProperties().getIsLatestVersion());
+    }
+
+    /**
+     * Проверка определения последней версии пакета по индексу
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testIsLastVersionFromIndex() throws Exception {
+        //GIVEN
+        NuPkgToRssTransformer transformer = new NuPkgToRssTransformerNoContext();
+        Nupkg first = createNupkg("A", "1.2.3");
+        Nupkg last = createNupkg("A", "1.2.4");
+        Index index = new Index();
+        index.putAll(first, last);
+        //WHEN
+        boolean firstIsLast = transformer.isLastVersion(index, first);
+        boolean lastIsLast = transformer.isLastVersion(index, last);
+        boolean unknownIsLast = transformer.isLastVersion(index, createNupkg("B", "1.0.0"));
+        //THEN
+        assertFalse("Меньшая версия не последняя", firstIsLast);
+        assertTrue("Большая версия последняя", lastIsLast);
+        assertFalse("Пакет отсутствует в индексе", unknownIsLast);
+    }
+
     /**
      * Тест получения подсписка для значений skip=0, top=-1
      *
@@ -129,6 +211,26 @@ public class NuPkgToRssTransformerTest {
         assertThat("Компаратор по умолчанию", result, is(instanceOf(PackageIdAndVersionComparator.class)));
     }
 
+    /**
+     * Проверка упорядочивания пакетов по идентификатору и версии до создания
+     * RSS вложений
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testNupkgComparatorByIdAndVersion() throws Exception {
+        //GIVEN
+        NuPkgToRssTransformer transformer = new NuPkgToRssTransformerNoContext();
+        Nupkg a2 = createNupkg("A", "2.0.0");
+        Nupkg b1 = createNupkg("B", "1.0.0");
+        Nupkg a1 = createNupkg("A", "1.0.0");
+        List<Nupkg> nupkgs = new ArrayList<>(Arrays.asList(b1, a2, a1));
+        //WHEN
+        Collections.sort(nupkgs, transformer.getNupkgComparator(null, null));
+        //THEN
+        assertThat("Упорядоченные пакеты", nupkgs, is(equalTo(Arrays.asList(a1, a2, b1))));
+    }
+
     /**
      * Преобразователь пакетов в RSS, не поддерживающий операции с контекстом
      */
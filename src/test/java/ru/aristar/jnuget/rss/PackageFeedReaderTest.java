@@ -0,0 +1,102 @@
+package ru.aristar.jnuget.rss;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.bind.DatatypeConverter;
+import static org.junit.Assert.*;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.NugetFormatException;
+
+/**
+ * Тесты потокового чтения RSS ленты пакетов
+ *
+ * @author sviridov
+ */
+public class PackageFeedReaderTest {
+
+    /**
+     * Проверка чтения всех вложений ленты
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testReadAllEntries() throws Exception {
+        //GIVEN
+        InputStream inputStream = this.getClass().getResourceAsStream("/rss/rss_feed.xml");
+        List<PackageEntry> entries = new ArrayList<>();
+        //WHEN
+        try (PackageFeedReader feedReader = new PackageFeedReader(inputStream)) {
+            PackageEntry entry;
+            while ((entry = feedReader.nextEntry()) != null) {
+                entries.add(entry);
+            }
+        }
+        //THEN
+        assertEquals("Количество пакетов", 26, entries.size());
+    }
+
+    /**
+     * Проверка чтения свойств вложения ленты
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testReadEntryProperties() throws Exception {
+        //GIVEN
+        InputStream inputStream = this.getClass().getResourceAsStream("/rss/rss_feed.xml");
+        //WHEN
+        PackageEntry entry;
+        try (PackageFeedReader feedReader = new PackageFeedReader(inputStream)) {
+            entry = feedReader.nextEntry();
+        }
+        //THEN
+        assertEquals("Идентификатор пакета", "Moq", entry.getTitle());
+        assertEquals("Автор пакета", "Moq", entry.getAuthor().getName());
+        assertEquals("Дата обновления", DatatypeConverter.parseDateTime("2011-09-23T05:58:21Z").getTime(), entry.getUpdated());
+        assertEquals("Ссылка на пакет", "http://localhost:8090/nuget/download/Moq/4.0.10827", entry.getContent().getSrc());
+        EntryProperties properties = entry.getProperties();
+        assertEquals("Версия пакета", Version.parse("4.0.10827"), properties.getVersion());
+        assertEquals("Размер пакета", Long.valueOf(543005), properties.getPackageSize());
+        assertEquals("Хеш пакета", "eoLGkBGTbHl1QsfOcTAx4mmIuTRs8e+wvxhaERmEuqjUSHiTdmiqRrtE1+exxR3Rh5ar0H3QXbGPpR9XsIqK2Q==",
+                properties.getPackageHash());
+        assertEquals("Теги пакета", Arrays.asList("Unit", "test", "Mock"), properties.getTags());
+        assertTrue("Последняя версия", properties.getIsLatestVersion());
+    }
+
+    /**
+     * Проверка того, что вложение с некорректным числом не прерывает чтение
+     * ленты
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testSkipEntryWithInvalidNumber() throws Exception {
+        //GIVEN
+        String feed;
+        try (InputStream inputStream = this.getClass().getResourceAsStream("/rss/rss_feed.xml")) {
+            feed = new String(IOUtils.toByteArray(inputStream), StandardCharsets.UTF_8);
+        }
+        feed = feed.replaceFirst("<d:DownloadCount m:type=\"Edm.Int32\">-1</d:DownloadCount>",
+                "<d:DownloadCount m:type=\"Edm.Int32\">many</d:DownloadCount>");
+        InputStream inputStream = new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8));
+        //WHEN
+        PackageEntry entry;
+        try (PackageFeedReader feedReader = new PackageFeedReader(inputStream)) {
+            try {
+                feedReader.nextEntry();
+                fail("Вложение с некорректным числом должно приводить к ошибке формата");
+            } catch (NugetFormatException e) {
+                //Ожидаемая ошибка
+            }
+            entry = feedReader.nextEntry();
+        }
+        //THEN
+        assertEquals("Версия следующего пакета", Version.parse("1.2.0.306"), entry.getProperties().getVersion());
+    }
+}
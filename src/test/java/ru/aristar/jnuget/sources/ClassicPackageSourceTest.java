@@ -179,11 +179,10 @@ public class ClassicPackageSourceTest {
     /**
      * Проверка срабатывания триггера при помещении пакета в хранилище
      *
-     * @throws IOException ошибка доступа к тестовому пакету
-     * @throws NugetPushException ошибка публикации пакета в хранилище
+     * @throws Exception ошибка в процессе теста
      */
     @Test
-    public void testProcessTrigger() throws IOException, NugetPushException {
+    public void testProcessTrigger() throws Exception {
         //GIVEN
         final ClassicPackageSource classicPackageSource = new ClassicPackageSource(testFolder);
         ModifyStrategy simplePushStrategy = new ModifyStrategy(true);
@@ -196,6 +195,12 @@ public class ClassicPackageSourceTest {
         expectations.will(returnValue("NUnit.2.5.9.10348.nupkg"));
         expectations.atLeast(0).of(nupkg).getStream();
         expectations.will(returnValue(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg")));
+        expectations.atLeast(0).of(nupkg).getId();
+        expectations.will(returnValue("NUnit"));
+        expectations.atLeast(0).of(nupkg).getVersion();
+        expectations.will(returnValue(Version.parse("2.5.9.10348")));
+        expectations.atLeast(0).of(nupkg).getHash();
+        expectations.will(returnValue(null));
         //Триггер
         final BeforeTrigger trigger = context.mock(BeforeTrigger.class);
         expectations.oneOf(trigger).doAction(nupkg, classicPackageSource);
@@ -10,8 +10,10 @@ import java.util.concurrent.ForkJoinPool;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import org.jmock.Expectations;
+import static org.jmock.Expectations.onConsecutiveCalls;
 import static org.jmock.Expectations.returnValue;
 import org.jmock.Mockery;
+import org.jmock.api.Action;
 import org.jmock.integration.junit4.JUnit4Mockery;
 import org.jmock.lib.concurrent.Synchroniser;
 import org.jmock.lib.legacy.ClassImposteriser;
@@ -23,7 +25,7 @@ import ru.aristar.jnuget.client.NugetClient;
 import ru.aristar.jnuget.files.NugetFormatException;
 import ru.aristar.jnuget.files.RemoteNupkg;
 import ru.aristar.jnuget.rss.PackageEntry;
-import ru.aristar.jnuget.rss.PackageFeed;
+import ru.aristar.jnuget.rss.PackageFeedReader;
 
 /**
  *
@@ -121,6 +123,32 @@ public class GetRemotePackageFeedActionTest {
         assertThat(nupkgs.get(3).getId(), is(equalTo("package-4")));
     }
 
+    /**
+     * Проверка передачи условия отбора пакетов удаленному серверу
+     *
+     * @throws NugetFormatException некорректный формат версии пакета
+     * @throws IOException ошибка чтения пакета
+     * @throws URISyntaxException некорректный синтаксис URI
+     */
+    @Test
+    public void testLoadPackagesWithFilter() throws NugetFormatException, IOException, URISyntaxException {
+        //GIVEN
+        List<RemoteNupkg> nupkgs = new ArrayList<>();
+        NugetClient client = context.mock(NugetClient.class);
+        ClientFactory clientFactory = context.mock(ClientFactory.class);
+        final String filter = "tolower(Id) eq 'package-1'";
+        GetRemotePackageFeedAction action = new GetRemotePackageFeedAction(200, nupkgs, 0, 2, clientFactory, filter);
+        Expectations expectations = new Expectations();
+        addExpectation(expectations, client, filter, 2, 0, createPackageFeed("feed-1",
+                createPackageEntry("package-1", "1.2.3"), createPackageEntry("package-1", "1.2.4")));
+        context.checking(expectations);
+        //WHEN
+        action.loadPackages(client);
+        //THEN
+        assertThat("Количество пакетов", nupkgs.size(), is(equalTo(2)));
+        assertThat("Идентификатор пакета", nupkgs.get(1).getId(), is(equalTo("package-1")));
+    }
+
     /**
      * Добавление ожидаемого вызова удаленного хранилища
      *
@@ -128,53 +156,76 @@ public class GetRemotePackageFeedActionTest {
      * @param client заглушка клиента удаленного хранилища
      * @param top количество пакетов
      * @param skip пропустить пакетов
-     * @param packageFeed список пакетов, который вернет метод
+     * @param feedReader парсер ленты, который вернет метод
      * @throws IOException ошибка чтения из удаленного хранилища
      * @throws URISyntaxException ошибка в синтаксисе URI хранилища
      */
     private void addExpectation(Expectations expectations,
-            NugetClient client, int top, int skip, PackageFeed packageFeed) throws IOException, URISyntaxException {
-        expectations.atLeast(0).of(client).getPackages(
-                expectations.with((String) null),
+            NugetClient client, int top, int skip, PackageFeedReader feedReader) throws IOException, URISyntaxException {
+        addExpectation(expectations, client, null, top, skip, feedReader);
+    }
+
+    /**
+     * Добавление ожидаемого вызова удаленного хранилища
+     *
+     * @param expectations ожидаемые вызовы
+     * @param client заглушка клиента удаленного хранилища
+     * @param filter условие отбора пакетов
+     * @param top количество пакетов
+     * @param skip пропустить пакетов
+     * @param feedReader парсер ленты, который вернет метод
+     * @throws IOException ошибка чтения из удаленного хранилища
+     * @throws URISyntaxException ошибка в синтаксисе URI хранилища
+     */
+    private void addExpectation(Expectations expectations, NugetClient client,
+            String filter, int top, int skip, PackageFeedReader feedReader) throws IOException, URISyntaxException {
+        expectations.atLeast(0).of(client).getPackageFeedReader(
+                expectations.with(filter),
                 expectations.with((String) null),
                 expectations.with(top),
                 expectations.with((String) null),
                 expectations.with(skip));
-        expectations.will(returnValue(packageFeed));
+        expectations.will(returnValue(feedReader));
     }
 
     /**
-     * @param name имя объекта сообщения
+     * @param name имя объекта парсера
      * @param packageEntrys вложения
-     * @return RSS сообщение
+     * @return парсер RSS ленты
+     * @throws IOException ошибка чтения ленты
+     * @throws NugetFormatException некорректный формат вложения
      */
-    private PackageFeed createPackageFeed(String name, PackageEntry... packageEntrys) {
-        final PackageFeed packageFeed = context.mock(PackageFeed.class, name);
+    private PackageFeedReader createPackageFeed(String name, PackageEntry... packageEntrys)
+            throws IOException, NugetFormatException {
+        final PackageFeedReader feedReader = context.mock(PackageFeedReader.class, name);
+        Action[] actions = new Action[packageEntrys.length + 1];
+        for (int i = 0; i < packageEntrys.length; i++) {
+            actions[i] = returnValue(packageEntrys[i]);
+        }
+        actions[packageEntrys.length] = returnValue(null);
         Expectations expectations = new Expectations();
-        expectations.atLeast(0).of(packageFeed).getEntries();
-        expectations.will(returnValue(new ArrayList<>(Arrays.asList(packageEntrys))));
+        expectations.atLeast(0).of(feedReader).nextEntry();
+        expectations.will(onConsecutiveCalls(actions));
+        expectations.atLeast(0).of(feedReader).close();
         context.checking(expectations);
-        return packageFeed;
+        return feedReader;
     }
 
     /**
-     * @param name имя объекта сообщения
+     * @param name имя объекта парсера
      * @param count количество вложений
      * @param skip с какого идентификатора начать нумерацию пакетов
-     * @return RSS сообщение
+     * @return парсер RSS ленты
+     * @throws IOException ошибка чтения ленты
      * @throws NugetFormatException некорректная версия тестового пакета
      */
-    private PackageFeed createPackageFeed(String name, int count, int skip) throws NugetFormatException {
-        final PackageFeed packageFeed = context.mock(PackageFeed.class, name);
-        Expectations expectations = new Expectations();
-        ArrayList<PackageEntry> entrys = new ArrayList<>();
+    private PackageFeedReader createPackageFeed(String name, int count, int skip)
+            throws IOException, NugetFormatException {
+        PackageEntry[] entrys = new PackageEntry[count];
         for (int i = 0; i < count; i++) {
-            entrys.add(createPackageEntry("Package-" + (skip + i), "1.2.3"));
+            entrys[i] = createPackageEntry("Package-" + (skip + i), "1.2.3");
         }
-        expectations.atLeast(0).of(packageFeed).getEntries();
-        expectations.will(returnValue(new ArrayList<>(entrys)));
-        context.checking(expectations);
-        return packageFeed;
+        return createPackageFeed(name, entrys);
     }
 
     /**
@@ -8,6 +8,8 @@ import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
 import org.junit.AfterClass;
 import static org.junit.Assert.*;
@@ -109,4 +111,162 @@ public class IndexedPackageSourceTest {
             assertEquals(localTestFolder, classicNupkg.getLocalFile().getParentFile());
         }
     }
+
+    /**
+     * Проверка того, что помещение пакета в хранилище изменяет поколение
+     * индекса
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testPushPackageChangesGeneration() throws Exception {
+        //GIVEN
+        File file = File.createTempFile("tmp", "tst");
+        File localTestFolder = new File(file.getParentFile(), "GenerationTestFolder/");
+        if (localTestFolder.exists()) {
+            FileUtils.deleteDirectory(localTestFolder);
+        }
+        InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+        try (TempNupkgFile nupkgFile = new TempNupkgFile(inputStream)) {
+            IndexedPackageSource packageSource = new IndexedPackageSource();
+            ClassicPackageSource filePackageSource = new ClassicPackageSource(localTestFolder);
+            packageSource.setUnderlyingSource(filePackageSource, true).join();
+            packageSource.setPushStrategy(new ModifyStrategy(true));
+            long generation = packageSource.getGeneration();
+            //WHEN
+            packageSource.pushPackage(nupkgFile);
+            //THEN
+            assertTrue("Поколение индекса увеличилось", packageSource.getGeneration() > generation);
+        } finally {
+            FileUtils.deleteDirectory(localTestFolder);
+        }
+    }
+
+    /**
+     * Проверка того, что пакет, удаленный во время обновления индекса, не
+     * попадает в новый индекс
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testRemovePackageDuringRefresh() throws Exception {
+        //GIVEN
+        File file = File.createTempFile("tmp", "tst");
+        final File localTestFolder = new File(file.getParentFile(), "RemoveDuringRefreshTestFolder/");
+        FileUtils.deleteDirectory(localTestFolder);
+        FileUtils.copyDirectory(testFolder, localTestFolder);
+        final CountDownLatch scanned = new CountDownLatch(1);
+        final CountDownLatch removed = new CountDownLatch(1);
+        ClassicPackageSource filePackageSource = new ClassicPackageSource(localTestFolder) {
+            @Override
+            public Collection<ClassicNupkg> getPackages() {
+                Collection<ClassicNupkg> result = super.getPackages();
+                scanned.countDown();
+                try {
+                    removed.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return result;
+            }
+        };
+        IndexedPackageSource packageSource = new IndexedPackageSource();
+        try {
+            //WHEN
+            Thread refreshThread = packageSource.setUnderlyingSource(filePackageSource, true);
+            assertTrue("Хранилище просканировано", scanned.await(10, TimeUnit.SECONDS));
+            Nupkg nupkg = new ClassicPackageSource(localTestFolder).getPackage("NUnit", Version.parse("2.5.9.10348"));
+            packageSource.removePackage(nupkg);
+            removed.countDown();
+            refreshThread.join();
+            //THEN
+            assertNull("Пакет удален из индекса", packageSource.getPackage("NUnit", Version.parse("2.5.9.10348")));
+            assertEquals("Число пакетов в индексе", 0, packageSource.getPackages().size());
+        } finally {
+            FileUtils.deleteDirectory(localTestFolder);
+        }
+    }
+
+    /**
+     * Проверка того, что пакет, помещенный во время обновления индекса,
+     * сохраняется в хранилище до возврата из метода и попадает в новый
+     * индекс
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testPushPackageDuringRefresh() throws Exception {
+        //GIVEN
+        File file = File.createTempFile("tmp", "tst");
+        final File localTestFolder = new File(file.getParentFile(), "PushDuringRefreshTestFolder/");
+        FileUtils.deleteDirectory(localTestFolder);
+        localTestFolder.mkdirs();
+        final CountDownLatch scanned = new CountDownLatch(1);
+        final CountDownLatch pushed = new CountDownLatch(1);
+        ClassicPackageSource filePackageSource = new ClassicPackageSource(localTestFolder) {
+            @Override
+            public Collection<ClassicNupkg> getPackages() {
+                Collection<ClassicNupkg> result = super.getPackages();
+                scanned.countDown();
+                try {
+                    pushed.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return result;
+            }
+        };
+        filePackageSource.setPushStrategy(new ModifyStrategy(true));
+        IndexedPackageSource packageSource = new IndexedPackageSource();
+        try {
+            Thread refreshThread = packageSource.setUnderlyingSource(filePackageSource, true);
+            assertTrue("Хранилище просканировано", scanned.await(10, TimeUnit.SECONDS));
+            //WHEN
+            boolean result;
+            try (TempNupkgFile nupkgFile = new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"))) {
+                result = packageSource.pushPackage(nupkgFile);
+            }
+            boolean storedBeforeRefresh = new File(localTestFolder, "NUnit.2.5.9.10348.nupkg").exists();
+            pushed.countDown();
+            refreshThread.join();
+            //THEN
+            assertTrue("Пакет помещен в хранилище", result);
+            assertTrue("Пакет сохранен до завершения обновления индекса", storedBeforeRefresh);
+            assertNotNull("Пакет добавлен в новый индекс", packageSource.getPackage("NUnit", Version.parse("2.5.9.10348")));
+        } finally {
+            FileUtils.deleteDirectory(localTestFolder);
+        }
+    }
+
+    /**
+     * Проверка того, что повторное помещение того же пакета не изменяет
+     * поколение индекса
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testRepushSamePackageKeepsGeneration() throws Exception {
+        //GIVEN
+        File file = File.createTempFile("tmp", "tst");
+        File localTestFolder = new File(file.getParentFile(), "RepushGenerationTestFolder/");
+        if (localTestFolder.exists()) {
+            FileUtils.deleteDirectory(localTestFolder);
+        }
+        InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+        try (TempNupkgFile nupkgFile = new TempNupkgFile(inputStream)) {
+            IndexedPackageSource packageSource = new IndexedPackageSource();
+            ClassicPackageSource filePackageSource = new ClassicPackageSource(localTestFolder);
+            packageSource.setUnderlyingSource(filePackageSource, true).join();
+            packageSource.setPushStrategy(new ModifyStrategy(true));
+            packageSource.pushPackage(nupkgFile);
+            long generation = packageSource.getGeneration();
+            //WHEN
+            boolean result = packageSource.pushPackage(nupkgFile);
+            //THEN
+            assertTrue("Повторное помещение пакета успешно", result);
+            assertEquals("Поколение индекса не изменилось", generation, packageSource.getGeneration());
+        } finally {
+            FileUtils.deleteDirectory(localTestFolder);
+        }
+    }
 }
@@ -4,7 +4,10 @@ import java.io.*;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.io.FileUtils;
@@ -16,10 +19,12 @@ import static org.junit.Assert.*;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.Hash;
 import ru.aristar.jnuget.files.MavenNupkg;
 import ru.aristar.jnuget.files.Nupkg;
 import ru.aristar.jnuget.files.TempNupkgFile;
 import ru.aristar.jnuget.files.nuspec.NuspecFile;
+import ru.aristar.jnuget.sources.push.BeforeTrigger;
 import ru.aristar.jnuget.sources.push.ModifyStrategy;
 
 /**
@@ -305,4 +310,193 @@ public class MavenStylePackageSourceTest {
         assertFalse("Каталог с версией удален", versionFolder.exists());
         assertFalse("Каталог идентификатора удален", idFolder.exists());
     }
+
+    /**
+     * Проверка помещения одного и того же пакета в два хранилища с общим
+     * каталогом содержимого. Содержимое пакета должно храниться один раз.
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testPushContentAddressedToTwoStorages() throws Exception {
+        //GIVEN
+        File rootFolder = new File(testFolder.getParentFile(), "TestBlobStorages");
+        FileUtils.deleteDirectory(rootFolder);
+        try {
+            File blobFolder = new File(rootFolder, "blobs");
+            MavenStylePackageSource firstSource = createContentAddressedSource(new File(rootFolder, "first"), blobFolder);
+            MavenStylePackageSource secondSource = createContentAddressedSource(new File(rootFolder, "second"), blobFolder);
+            TempNupkgFile tempNupkgFile = new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"));
+            //WHEN
+            firstSource.pushPackage(tempNupkgFile);
+            secondSource.pushPackage(tempNupkgFile);
+            secondSource.pushPackage(tempNupkgFile);
+            //THEN
+            File blobFile = firstSource.getBlobStore().getBlobFile(tempNupkgFile.getHash());
+            File firstFile = firstSource.getPackage("NUnit", Version.parse("2.5.9.10348")).getLocalFile();
+            File secondFile = secondSource.getPackage("NUnit", Version.parse("2.5.9.10348")).getLocalFile();
+            assertTrue("Содержимое пакета сохранено", blobFile.exists());
+            assertEquals("Сохранено одно содержимое", 1, blobFile.getParentFile().list().length);
+            assertEquals("Размер пакета", tempNupkgFile.getSize().longValue(), firstFile.length());
+            assertEquals("HASH пакета", tempNupkgFile.getHash(), secondSource.getPackage("NUnit",
+                    Version.parse("2.5.9.10348")).getHash());
+            assertTrue("Файлы пакетов в хранилищах совпадают",
+                    Files.isSameFile(firstFile.toPath(), secondFile.toPath())
+                    || FileUtils.contentEquals(firstFile, secondFile));
+        } finally {
+            FileUtils.deleteDirectory(rootFolder);
+        }
+    }
+
+    /**
+     * Проверка того, что каталог содержимого в корневой папке хранилища не
+     * считается каталогом пакета
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testGetPackagesContentAddressed() throws Exception {
+        //GIVEN
+        File rootFolder = new File(testFolder.getParentFile(), "TestBlobStorage");
+        FileUtils.deleteDirectory(rootFolder);
+        try {
+            MavenStylePackageSource packageSource = createContentAddressedSource(rootFolder, null);
+            TempNupkgFile tempNupkgFile = new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"));
+            packageSource.pushPackage(tempNupkgFile);
+            //WHEN
+            Collection<MavenNupkg> result = packageSource.getPackages();
+            //THEN
+            assertTrue("Каталог содержимого создан", new File(rootFolder,
+                    MavenStylePackageSource.DEFAULT_BLOB_FOLDER_NAME).isDirectory());
+            assertEquals("Пакетов в хранилище", 1, result.size());
+            assertEquals("Идентификатор пакета", "NUnit", result.iterator().next().getId());
+        } finally {
+            FileUtils.deleteDirectory(rootFolder);
+        }
+    }
+
+    /**
+     * Проверка того, что каталог содержимого с нестандартным именем,
+     * расположенный в корневой папке хранилища, не считается каталогом
+     * пакета
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testGetPackagesCustomBlobFolderInRoot() throws Exception {
+        //GIVEN
+        File rootFolder = new File(testFolder.getParentFile(), "TestCustomBlobStorage");
+        FileUtils.deleteDirectory(rootFolder);
+        try {
+            File blobFolder = new File(new File(rootFolder, "nunit"), "../content");
+            MavenStylePackageSource packageSource = createContentAddressedSource(rootFolder, blobFolder);
+            TempNupkgFile tempNupkgFile = new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"));
+            packageSource.pushPackage(tempNupkgFile);
+            //WHEN
+            List<String> result = packageSource.getPackageIds();
+            //THEN
+            assertTrue("Каталог содержимого создан", new File(rootFolder, "content").isDirectory());
+            assertEquals("Каталоги идентификаторов пакетов", Arrays.asList("nunit"), result);
+        } finally {
+            FileUtils.deleteDirectory(rootFolder);
+        }
+    }
+
+    /**
+     * Проверка повторного помещения того же пакета: триггеры не вызываются,
+     * файл пакета не перезаписывается
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testPushSamePackageTwice() throws Exception {
+        //GIVEN
+        File rootFolder = new File(testFolder.getParentFile(), "TestDuplicatePush");
+        FileUtils.deleteDirectory(rootFolder);
+        try {
+            MavenStylePackageSource packageSource = new MavenStylePackageSource(rootFolder);
+            ModifyStrategy pushStrategy = new ModifyStrategy(true);
+            final BeforeTrigger trigger = context.mock(BeforeTrigger.class);
+            context.checking(new Expectations() {
+                {
+                    oneOf(trigger).doAction(with(any(Nupkg.class)), with(any(PackageSource.class)));
+                    will(returnValue(true));
+                }
+            });
+            pushStrategy.getBeforePushTriggers().add(trigger);
+            packageSource.setPushStrategy(pushStrategy);
+            TempNupkgFile tempNupkgFile = new TempNupkgFile(this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg"));
+            assertTrue("Пакет помещен в хранилище", packageSource.pushPackage(tempNupkgFile));
+            File packageFile = packageSource.getPackage("NUnit", Version.parse("2.5.9.10348")).getLocalFile();
+            packageFile.setLastModified(100000L);
+            //WHEN
+            boolean result = packageSource.pushPackage(tempNupkgFile);
+            //THEN
+            assertTrue("Повторное помещение пакета успешно", result);
+            assertEquals("Файл пакета не перезаписан", 100000L, packageFile.lastModified());
+            context.assertIsSatisfied();
+        } finally {
+            FileUtils.deleteDirectory(rootFolder);
+        }
+    }
+
+    /**
+     * Проверка того, что содержимое, HASH которого не совпадает с HASH
+     * пакета, не сохраняется
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testStoreRejectsHashMismatch() throws Exception {
+        //GIVEN
+        File rootFolder = new File(testFolder.getParentFile(), "TestBlobMismatch");
+        FileUtils.deleteDirectory(rootFolder);
+        try {
+            PackageBlobStore blobStore = new PackageBlobStore(rootFolder);
+            final Hash wrongHash = new Hash(new byte[64]);
+            final Nupkg nupkg = context.mock(Nupkg.class);
+            context.checking(new Expectations() {
+                {
+                    atLeast(0).of(nupkg).getHash();
+                    will(returnValue(wrongHash));
+                    oneOf(nupkg).getStream();
+                    will(returnValue(MavenStylePackageSourceTest.class.getResourceAsStream("/NUnit.2.5.9.10348.nupkg")));
+                    atLeast(0).of(nupkg).getId();
+                    will(returnValue("NUnit"));
+                    atLeast(0).of(nupkg).getVersion();
+                    will(returnValue(Version.parse("2.5.9.10348")));
+                }
+            });
+            //WHEN
+            try {
+                blobStore.store(nupkg);
+                fail("Содержимое с неверным HASH не должно сохраняться");
+            } catch (IOException e) {
+                //THEN
+                assertTrue("Сообщение об ошибке", e.getMessage().contains("не совпадает"));
+            }
+            File blobFile = blobStore.getBlobFile(wrongHash);
+            assertFalse("Содержимое не сохранено", blobFile.exists());
+            assertEquals("Временные файлы удалены", 0, blobFile.getParentFile().list().length);
+        } finally {
+            FileUtils.deleteDirectory(rootFolder);
+        }
+    }
+
+    /**
+     * Создает хранилище, сохраняющее содержимое пакетов по HASH
+     *
+     * @param rootFolder корневая папка хранилища
+     * @param blobFolder каталог содержимого пакетов
+     * @return хранилище пакетов
+     */
+    private MavenStylePackageSource createContentAddressedSource(File rootFolder, File blobFolder) {
+        MavenStylePackageSource packageSource = new MavenStylePackageSource(rootFolder);
+        packageSource.setContentAddressed(true);
+        if (blobFolder != null) {
+            packageSource.setBlobFolderName(blobFolder.getAbsolutePath());
+        }
+        packageSource.setPushStrategy(new ModifyStrategy(true));
+        return packageSource;
+    }
 }
@@ -0,0 +1,100 @@
+package ru.aristar.jnuget.sources;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import ru.aristar.jnuget.Version;
+
+/**
+ * Тесты кеша отрицательных результатов поиска пакетов
+ *
+ * @author sviridov
+ */
+public class NegativeLookupCacheTest {
+
+    /**
+     * Проверка запоминания отсутствующего пакета без учета регистра
+     * идентификатора и подсчета попаданий
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testMarkMissing() throws Exception {
+        //GIVEN
+        NegativeLookupCache cache = new NegativeLookupCache(60, 100);
+        Version version = Version.parse("1.2.3");
+        //WHEN
+        cache.markMissing("NUnit", version);
+        //THEN
+        assertTrue("Пакет отсутствует", cache.isMissing("nunit", version));
+        assertFalse("Другая версия не отмечена", cache.isMissing("nunit", Version.parse("1.2.4")));
+        assertFalse("Идентификатор не отмечен", cache.isMissing("nunit"));
+        assertEquals("Попаданий в кеш", 1, cache.getStats().hitCount());
+    }
+
+    /**
+     * Проверка удаления записей при помещении пакета в хранилище
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testInvalidate() throws Exception {
+        //GIVEN
+        NegativeLookupCache cache = new NegativeLookupCache(60, 100);
+        Version version = Version.parse("1.2.3");
+        cache.markMissing("NUnit");
+        cache.markMissing("NUnit", version);
+        //WHEN
+        cache.invalidate("nunit", version);
+        //THEN
+        assertFalse("Идентификатор удален из кеша", cache.isMissing("NUnit"));
+        assertFalse("Версия удалена из кеша", cache.isMissing("NUnit", version));
+    }
+
+    /**
+     * Проверка отключенного кеша
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testDisabled() throws Exception {
+        //GIVEN
+        NegativeLookupCache cache = new NegativeLookupCache(0, 100);
+        //WHEN
+        cache.markMissing("NUnit");
+        //THEN
+        assertFalse("Отключенный кеш ничего не запоминает", cache.isMissing("NUnit"));
+        assertEquals("Записей в кеше", 0, cache.size());
+    }
+
+    /**
+     * Проверка того, что по умолчанию кеш отключен
+     */
+    @Test
+    public void testDisabledByDefault() {
+        //WHEN
+        NegativeLookupCache cache = new NegativeLookupCache();
+        //THEN
+        assertEquals("Время жизни записей", NegativeLookupCache.DEFAULT_TTL, cache.getTtl());
+        assertFalse("Кеш отключен", cache.isEnabled());
+    }
+
+    /**
+     * Проверка того, что текстовое представление кеша содержит статистику
+     * обращений
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testToStringContainsStats() throws Exception {
+        //GIVEN
+        NegativeLookupCache cache = new NegativeLookupCache(60, 100);
+        cache.markMissing("NUnit");
+        //WHEN
+        cache.isMissing("NUnit");
+        cache.isMissing("Moq");
+        String result = cache.toString();
+        //THEN
+        assertTrue("Количество попаданий", result.contains("hits=1"));
+        assertTrue("Количество промахов", result.contains("misses=1"));
+    }
+}
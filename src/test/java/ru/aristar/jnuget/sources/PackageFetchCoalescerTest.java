@@ -0,0 +1,85 @@
+package ru.aristar.jnuget.sources;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.MavenNupkg;
+import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.files.TempNupkgFile;
+import ru.aristar.jnuget.sources.push.ModifyStrategy;
+
+/**
+ * Тесты объединения одновременных загрузок пакетов
+ *
+ * @author sviridov
+ */
+public class PackageFetchCoalescerTest {
+
+    /**
+     * Проверка того, что одновременные запросы одного пакета приводят к
+     * единственной загрузке из удаленного хранилища
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testConcurrentFetch() throws Exception {
+        //GIVEN
+        final int threadCount = 8;
+        File rootFolder = new File(File.createTempFile("tmp", "tst").getParentFile(), "FetchCoalescerTestFolder/");
+        FileUtils.deleteDirectory(rootFolder);
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try (InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+                final TempNupkgFile remoteNupkg = new TempNupkgFile(inputStream)) {
+            final MavenStylePackageSource localSource = new MavenStylePackageSource(rootFolder);
+            localSource.setPushStrategy(new ModifyStrategy(true));
+            final Version version = Version.parse("2.5.9.10348");
+            final AtomicInteger remoteCalls = new AtomicInteger();
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final Callable<Nupkg> remoteLookup = new Callable<Nupkg>() {
+                @Override
+                public Nupkg call() throws Exception {
+                    remoteCalls.incrementAndGet();
+                    Thread.sleep(200);
+                    return remoteNupkg;
+                }
+            };
+            List<Future<MavenNupkg>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executorService.submit(new Callable<MavenNupkg>() {
+                    @Override
+                    public MavenNupkg call() throws Exception {
+                        startLatch.await();
+                        return PackageFetchCoalescer.fetch(localSource, "NUnit", version, remoteLookup);
+                    }
+                }));
+            }
+            //WHEN
+            startLatch.countDown();
+            List<MavenNupkg> results = new ArrayList<>();
+            for (Future<MavenNupkg> future : futures) {
+                results.add(future.get());
+            }
+            //THEN
+            assertEquals("Пакет загружен из удаленного хранилища один раз", 1, remoteCalls.get());
+            for (MavenNupkg result : results) {
+                assertNotNull("Пакет получен всеми потоками", result);
+                assertEquals("Версия пакета", version, result.getVersion());
+            }
+            assertEquals("Нет незавершенных загрузок", 0, PackageFetchCoalescer.getInFlightCount());
+        } finally {
+            executorService.shutdownNow();
+            FileUtils.deleteDirectory(rootFolder);
+        }
+    }
+}
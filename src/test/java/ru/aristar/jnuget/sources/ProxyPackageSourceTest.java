@@ -160,7 +160,7 @@ public class ProxyPackageSourceTest {
             packageSource.setFolderName(testFolder.getAbsolutePath());
             packageSource.remoteSource = remotePackageSource;
             //WHEN
-            MavenNupkg result = packageSource.getPackage("NUnit", Version.parse("2.5.9.10348"));
+            Nupkg result = packageSource.getPackage("NUnit", Version.parse("2.5.9.10348"));
             //THEN
             assertTrue("Создан каталог в хранилище", new File(testFolder, "NUnit".toLowerCase()).exists());
             assertEquals("Идентификатор пакета", "NUnit", result.getId());
@@ -0,0 +1,42 @@
+package ru.aristar.jnuget.sources;
+
+import java.util.Date;
+import javax.xml.bind.DatatypeConverter;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * Тесты локальной копии каталога удаленного хранилища
+ *
+ * @author sviridov
+ */
+public class RemotePackageCatalogTest {
+
+    /**
+     * Проверка создания условия отбора измененных пакетов (дата в UTC)
+     */
+    @Test
+    public void testCreateFilter() {
+        //GIVEN
+        Date since = DatatypeConverter.parseDateTime("2013-05-01T14:30:15+04:00").getTime();
+        //WHEN
+        String filter = RemotePackageCatalog.createFilter("LastUpdated", since);
+        //THEN
+        assertEquals("Условие отбора", "LastUpdated ge datetime'2013-05-01T10:30:15'", filter);
+    }
+
+    /**
+     * Проверка необходимости полной синхронизации
+     */
+    @Test
+    public void testIsFullSyncRequired() {
+        //GIVEN
+        RemotePackageCatalog catalog = new RemotePackageCatalog();
+        //WHEN
+        boolean notSynchronized = catalog.isFullSyncRequired(1000, 0);
+        //THEN
+        assertTrue("Несинхронизированный каталог требует полной синхронизации", notSynchronized);
+        assertNull("Дата обновления несинхронизированного каталога", catalog.getLastUpdated());
+        assertEquals("Пакетов в каталоге", 0, catalog.size());
+    }
+}
@@ -5,9 +5,12 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import javax.xml.bind.DatatypeConverter;
 import static org.hamcrest.CoreMatchers.*;
 import org.jmock.Expectations;
 import static org.jmock.Expectations.equal;
+import static org.jmock.Expectations.onConsecutiveCalls;
 import static org.jmock.Expectations.returnValue;
 import org.jmock.Mockery;
 import org.jmock.lib.concurrent.Synchroniser;
@@ -21,6 +24,7 @@ import ru.aristar.jnuget.files.NugetFormatException;
 import ru.aristar.jnuget.files.RemoteNupkg;
 import ru.aristar.jnuget.rss.PackageEntry;
 import ru.aristar.jnuget.rss.PackageFeed;
+import ru.aristar.jnuget.rss.PackageFeedReader;
 
 /**
  * Тест удаленного хранилища данных
@@ -52,7 +56,7 @@ public class RemotePackageSourceTest {
         RemotePackageSource packageSource = new RemotePackageSource();
         final NugetClient nugetClient = context.mock(NugetClient.class);
         Expectations expectations = new Expectations();
-        expectations.atLeast(0).of(nugetClient).getPackageCount(expectations.with(false));
+        expectations.atLeast(0).of(nugetClient).getPackageCount(expectations.with("tolower(Id) eq 'id'"));
         expectations.will(returnValue(0));
         expectations.atLeast(0).of(nugetClient).getUrl();
         expectations.will(returnValue(""));
@@ -64,6 +68,181 @@ public class RemotePackageSourceTest {
         assertThat("Если пакета не существует должен возвращаться null", nupkg, is(nullValue()));
     }
 
+    /**
+     * Проверка того, что условие отбора по идентификатору передается
+     * удаленному серверу, а пакеты запрашиваются одним запросом
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testGetPackagesPassesFilterToServer() throws Exception {
+        //GIVEN
+        RemotePackageSource packageSource = new RemotePackageSource();
+        final NugetClient nugetClient = context.mock(NugetClient.class);
+        final PackageFeedReader feedReader = context.mock(PackageFeedReader.class);
+        final String filter = "tolower(Id) eq 'nunit'";
+        Expectations expectations = new Expectations();
+        expectations.atLeast(0).of(nugetClient).getUrl();
+        expectations.will(returnValue(""));
+        expectations.oneOf(nugetClient).getPackageCount(expectations.with(filter));
+        expectations.will(returnValue(2));
+        expectations.oneOf(nugetClient).getPackageFeedReader(
+                expectations.with(filter),
+                expectations.with((String) null),
+                expectations.with(2),
+                expectations.with((String) null),
+                expectations.with(0));
+        expectations.will(returnValue(feedReader));
+        expectations.exactly(3).of(feedReader).nextEntry();
+        expectations.will(onConsecutiveCalls(
+                returnValue(createPackageEntry("NUnit", "2.5.9")),
+                returnValue(createPackageEntry("NUnit", "2.6.0")),
+                returnValue(null)));
+        expectations.oneOf(feedReader).close();
+        context.checking(expectations);
+        packageSource.remoteStorage = nugetClient;
+        //WHEN
+        Collection<RemoteNupkg> nupkgs = packageSource.getPackages("NUnit");
+        //THEN
+        context.assertIsSatisfied();
+        assertThat("Количество пакетов", nupkgs.size(), is(equalTo(2)));
+    }
+
+    /**
+     * Проверка инкрементальной синхронизации каталога: повторное получение
+     * пакетов запрашивает только пакеты, измененные после последней
+     * известной даты обновления
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testIncrementalSync() throws Exception {
+        //GIVEN
+        RemotePackageSource packageSource = new RemotePackageSource();
+        packageSource.setIncrementalSync(true);
+        final NugetClient nugetClient = context.mock(NugetClient.class);
+        final PackageFeedReader fullFeed = context.mock(PackageFeedReader.class, "fullFeed");
+        final PackageFeedReader changesFeed = context.mock(PackageFeedReader.class, "changesFeed");
+        final PackageEntry oldEntry = createPackageEntry("NUnit", "2.5.9");
+        oldEntry.setUpdated(DatatypeConverter.parseDateTime("2013-05-01T10:00:00Z").getTime());
+        final PackageEntry newEntry = createPackageEntry("NUnit", "2.6.0");
+        newEntry.setUpdated(DatatypeConverter.parseDateTime("2013-05-02T10:00:00Z").getTime());
+        final String changesFilter = "LastUpdated ge datetime'2013-05-01T10:00:00'";
+        Expectations expectations = new Expectations();
+        expectations.atLeast(0).of(nugetClient).getUrl();
+        expectations.will(returnValue(""));
+        expectations.oneOf(nugetClient).getPackageCount(expectations.with((String) null));
+        expectations.will(returnValue(1));
+        expectations.oneOf(nugetClient).getPackageFeedReader(
+                expectations.with((String) null),
+                expectations.with((String) null),
+                expectations.with(1),
+                expectations.with((String) null),
+                expectations.with(0));
+        expectations.will(returnValue(fullFeed));
+        expectations.exactly(2).of(fullFeed).nextEntry();
+        expectations.will(onConsecutiveCalls(returnValue(oldEntry), returnValue(null)));
+        expectations.oneOf(fullFeed).close();
+        expectations.oneOf(nugetClient).getPackageCount(expectations.with(changesFilter));
+        expectations.will(returnValue(2));
+        expectations.oneOf(nugetClient).getPackageFeedReader(
+                expectations.with(changesFilter),
+                expectations.with((String) null),
+                expectations.with(2),
+                expectations.with((String) null),
+                expectations.with(0));
+        expectations.will(returnValue(changesFeed));
+        expectations.exactly(3).of(changesFeed).nextEntry();
+        expectations.will(onConsecutiveCalls(returnValue(oldEntry), returnValue(newEntry), returnValue(null)));
+        expectations.oneOf(changesFeed).close();
+        context.checking(expectations);
+        packageSource.remoteStorage = nugetClient;
+        //WHEN
+        Collection<RemoteNupkg> first = packageSource.getPackages();
+        Collection<RemoteNupkg> second = packageSource.getPackages();
+        //THEN
+        context.assertIsSatisfied();
+        assertThat("Пакетов после полной синхронизации", first.size(), is(equalTo(1)));
+        assertThat("Пакетов после инкрементальной синхронизации", second.size(), is(equalTo(2)));
+    }
+
+    /**
+     * Проверка того, что повторный запрос отсутствующего пакета не обращается
+     * к удаленному серверу
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testMissingPackageIsCached() throws Exception {
+        //GIVEN
+        RemotePackageSource packageSource = new RemotePackageSource();
+        packageSource.setNegativeCacheTtl(60);
+        final NugetClient nugetClient = context.mock(NugetClient.class);
+        Expectations expectations = new Expectations();
+        expectations.atLeast(0).of(nugetClient).getUrl();
+        expectations.will(returnValue(""));
+        expectations.oneOf(nugetClient).getPackageCount(expectations.with("tolower(Id) eq 'missing'"));
+        expectations.will(returnValue(0));
+        context.checking(expectations);
+        packageSource.remoteStorage = nugetClient;
+        //WHEN
+        Collection<RemoteNupkg> first = packageSource.getPackages("Missing");
+        Collection<RemoteNupkg> second = packageSource.getPackages("missing");
+        RemoteNupkg nupkg = packageSource.getPackage("Missing", Version.parse("1.0.0"));
+        //THEN
+        context.assertIsSatisfied();
+        assertThat("Пакетов при первом запросе", first.size(), is(equalTo(0)));
+        assertThat("Пакетов при повторном запросе", second.size(), is(equalTo(0)));
+        assertThat("Пакет не найден", nupkg, is(nullValue()));
+        assertThat("Попаданий в кеш", packageSource.getNegativeCache().getStats().hitCount(), is(equalTo(2L)));
+    }
+
+    /**
+     * Проверка получения пакета, версия которого хранится на сервере в другом
+     * написании (1.0 вместо 1.0.0)
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testGetPackageWithDifferentVersionSpelling() throws Exception {
+        //GIVEN
+        RemotePackageSource packageSource = new RemotePackageSource();
+        packageSource.setNegativeCacheTtl(60);
+        final NugetClient nugetClient = context.mock(NugetClient.class);
+        final PackageFeedReader feedReader = context.mock(PackageFeedReader.class);
+        final String idFilter = "tolower(Id) eq 'nunit'";
+        Expectations expectations = new Expectations();
+        expectations.atLeast(0).of(nugetClient).getUrl();
+        expectations.will(returnValue(""));
+        expectations.oneOf(nugetClient).getPackageCount(
+                expectations.with("tolower(Id) eq 'nunit' and Version eq '1.0.0'"));
+        expectations.will(returnValue(0));
+        expectations.oneOf(nugetClient).getPackageCount(expectations.with(idFilter));
+        expectations.will(returnValue(1));
+        expectations.oneOf(nugetClient).getPackageFeedReader(
+                expectations.with(idFilter),
+                expectations.with((String) null),
+                expectations.with(1),
+                expectations.with((String) null),
+                expectations.with(0));
+        expectations.will(returnValue(feedReader));
+        expectations.exactly(2).of(feedReader).nextEntry();
+        expectations.will(onConsecutiveCalls(
+                returnValue(createPackageEntry("NUnit", "1.0")),
+                returnValue(null)));
+        expectations.oneOf(feedReader).close();
+        context.checking(expectations);
+        packageSource.remoteStorage = nugetClient;
+        //WHEN
+        RemoteNupkg nupkg = packageSource.getPackage("NUnit", Version.parse("1.0.0"));
+        //THEN
+        context.assertIsSatisfied();
+        assertThat("Пакет найден", nupkg, is(notNullValue()));
+        assertThat("Версия пакета", nupkg.getVersion(), is(equalTo(Version.parse("1.0"))));
+        assertThat("Пакет не помечен как отсутствующий",
+                packageSource.getNegativeCache().isMissing("NUnit", Version.parse("1.0.0")), is(false));
+    }
+
     /**
      * Проверка получения пакета из удаленного хранилища, cуществует один пакет
      * с указанным идентификатором
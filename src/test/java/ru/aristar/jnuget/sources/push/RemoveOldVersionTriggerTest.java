@@ -116,9 +116,16 @@ public class RemoveOldVersionTriggerTest {
         });
         RemoveOldVersionTrigger trigger = new RemoveOldVersionTrigger();
         trigger.setMaxPackageCount(10);
+        RetentionService retentionService = new RetentionService(60000);
+        trigger.setRetentionService(retentionService);
 
         //WHEN
-        trigger.doAction(nupkg, packageSource);
+        try {
+            trigger.doAction(nupkg, packageSource);
+            retentionService.flush();
+        } finally {
+            retentionService.close();
+        }
         //THEN
         assertThat("Удаленные идентификаторы пакета пакета",
                 removedIds.toArray(new String[0]),
@@ -169,9 +176,19 @@ public class RemoveOldVersionTriggerTest {
         });
         RemoveOldVersionTrigger trigger = new RemoveOldVersionTrigger();
         trigger.setMaxPackageCount(10);
+        RetentionService retentionService = new RetentionService(60000);
+        trigger.setRetentionService(retentionService);
         //WHEN
-        trigger.doAction(nupkg, packageSource);
+        int removedBeforeFlush;
+        try {
+            trigger.doAction(nupkg, packageSource);
+            removedBeforeFlush = removedIds.size();
+            retentionService.flush();
+        } finally {
+            retentionService.close();
+        }
         //THEN
+        assertThat("Пакеты не удалены в потоке публикации", removedBeforeFlush, equalTo(0));
         assertThat("Удаленные идентификаторы пакета пакета",
                 removedIds.toArray(new String[0]),
                 equalTo(new String[]{"Nupkg"}));
@@ -179,4 +196,26 @@ public class RemoveOldVersionTriggerTest {
                 removedVersions.toArray(new Version[0]),
                 equalTo(new Version[]{Version.parse("0.0.1")}));
     }
+
+    /**
+     * Проверка того, что срабатывание триггера после остановки службы
+     * удаления не приводит к ошибке публикации
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDoActionAfterServiceShutdown() throws Exception {
+        //GIVEN
+        Nupkg nupkg = createNupkgList("Nupkg", "0.0.1").get(0);
+        final PackageSource packageSource = context.mock(PackageSource.class);
+        RemoveOldVersionTrigger trigger = new RemoveOldVersionTrigger();
+        RetentionService retentionService = new RetentionService(60000);
+        retentionService.close();
+        trigger.setRetentionService(retentionService);
+        //WHEN
+        trigger.doAction(nupkg, packageSource);
+        //THEN
+        assertThat("Пакет не поставлен в очередь", retentionService.getPendingSourceCount(), equalTo(0));
+    }
 }
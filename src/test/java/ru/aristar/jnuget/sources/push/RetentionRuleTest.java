@@ -0,0 +1,117 @@
+package ru.aristar.jnuget.sources.push;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.jmock.Expectations;
+import static org.jmock.Expectations.returnValue;
+import org.jmock.Mockery;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import ru.aristar.jnuget.Version;
+import ru.aristar.jnuget.files.NugetFormatException;
+import ru.aristar.jnuget.files.Nupkg;
+
+/**
+ * Тесты правила хранения версий пакетов
+ *
+ * @author sviridov
+ */
+public class RetentionRuleTest {
+
+    /**
+     * Количество миллисекунд в сутках
+     */
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    /**
+     * Контекст заглушек
+     */
+    private Mockery context = new Mockery();
+
+    /**
+     * Создает заглушку пакета
+     *
+     * @param packageId идентификатор пакета
+     * @param version версия пакета
+     * @param ageDays возраст пакета в днях
+     * @param now текущее время
+     * @return заглушка пакета
+     * @throws NugetFormatException некорректный формат версии
+     */
+    private Nupkg createNupkg(String packageId, String version, int ageDays, Date now) throws NugetFormatException {
+        Nupkg nupkg = context.mock(Nupkg.class, packageId + ":" + version);
+        Expectations expectations = new Expectations();
+        expectations.atLeast(0).of(nupkg).getId();
+        expectations.will(returnValue(packageId));
+        expectations.atLeast(0).of(nupkg).getVersion();
+        expectations.will(returnValue(Version.parse(version)));
+        expectations.atLeast(0).of(nupkg).getUpdated();
+        expectations.will(returnValue(new Date(now.getTime() - ageDays * DAY_MILLIS)));
+        context.checking(expectations);
+        return nupkg;
+    }
+
+    /**
+     * Проверка ограничения числа версий: удаляются младшие версии
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testMaxPackageCount() throws Exception {
+        //GIVEN
+        Date now = new Date();
+        List<Nupkg> nupkgs = new ArrayList<>();
+        nupkgs.add(createNupkg("A", "1.0.2", 0, now));
+        Nupkg oldest = createNupkg("A", "1.0.0", 0, now);
+        nupkgs.add(oldest);
+        nupkgs.add(createNupkg("A", "1.0.3", 0, now));
+        Nupkg old = createNupkg("A", "1.0.1", 0, now);
+        nupkgs.add(old);
+        RetentionRule rule = new RetentionRule();
+        rule.setMaxPackageCount(2);
+        //WHEN
+        List<Nupkg> result = rule.selectExpired(nupkgs, now);
+        //THEN
+        assertArrayEquals("Удаляемые версии", new Nupkg[]{old, oldest}, result.toArray(new Nupkg[0]));
+    }
+
+    /**
+     * Проверка ограничения возраста версий, в том числе предварительных.
+     * Последняя версия не удаляется, даже если она устарела.
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testMaxAge() throws Exception {
+        //GIVEN
+        Date now = new Date();
+        List<Nupkg> nupkgs = new ArrayList<>();
+        nupkgs.add(createNupkg("A", "3.0.0", 100, now));
+        Nupkg prerelease = createNupkg("A", "2.0.0-beta", 10, now);
+        nupkgs.add(prerelease);
+        nupkgs.add(createNupkg("A", "1.5.0", 10, now));
+        Nupkg expired = createNupkg("A", "1.0.0", 40, now);
+        nupkgs.add(expired);
+        RetentionRule rule = new RetentionRule();
+        rule.setMaxAgeDays(30);
+        rule.setPrereleaseMaxAgeDays(7);
+        //WHEN
+        List<Nupkg> result = rule.selectExpired(nupkgs, now);
+        //THEN
+        assertArrayEquals("Удаляемые версии", new Nupkg[]{prerelease, expired}, result.toArray(new Nupkg[0]));
+    }
+
+    /**
+     * Проверка применения правила по шаблону идентификатора
+     */
+    @Test
+    public void testMatches() {
+        //GIVEN
+        RetentionRule rule = new RetentionRule();
+        //WHEN
+        rule.setIdPattern("Company\\..*");
+        //THEN
+        assertTrue("Идентификатор соответствует шаблону", rule.matches("company.Core"));
+        assertFalse("Идентификатор не соответствует шаблону", rule.matches("NUnit"));
+    }
+}
@@ -0,0 +1,156 @@
+package ru.aristar.jnuget.sources.push;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Collection;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import ru.aristar.jnuget.common.Options;
+import ru.aristar.jnuget.common.StorageOptions;
+import ru.aristar.jnuget.files.ClassicNupkg;
+import ru.aristar.jnuget.files.Nupkg;
+import ru.aristar.jnuget.files.TempNupkgFile;
+import ru.aristar.jnuget.sources.ClassicPackageSource;
+import ru.aristar.jnuget.sources.IndexedPackageSource;
+import ru.aristar.jnuget.sources.PackageSource;
+import ru.aristar.jnuget.sources.PackageSourceFactory;
+
+/**
+ * Тесты фонового удаления устаревших версий пакетов
+ *
+ * @author sviridov
+ */
+public class RetentionServiceTest {
+
+    /**
+     * Проверка того, что триггер не удаляет пакеты в потоке публикации, а
+     * служба удаляет их из хранилища и индекса при обработке очереди
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testDeferredRemoval() throws Exception {
+        //GIVEN
+        File testFolder = new File(File.createTempFile("tmp", "tst").getParentFile(), "RetentionTestFolder/");
+        FileUtils.deleteDirectory(testFolder);
+        RetentionService retentionService = new RetentionService(60000);
+        try (InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+                TempNupkgFile nupkg = new TempNupkgFile(inputStream)) {
+            testFolder.mkdirs();
+            FileUtils.copyFile(nupkg.getLocalFile(), new File(testFolder, "NUnit.2.5.9.10348.nupkg"));
+            FileUtils.copyFile(nupkg.getLocalFile(), new File(testFolder, "NUnit.2.5.8.10000.nupkg"));
+            IndexedPackageSource packageSource = new IndexedPackageSource();
+            packageSource.setUnderlyingSource(new ClassicPackageSource(testFolder), true).join();
+            RetentionTrigger trigger = new RetentionTrigger();
+            trigger.setMaxPackageCount(1);
+            trigger.setRetentionService(retentionService);
+            //WHEN
+            trigger.doAction(nupkg, packageSource);
+            int beforeFlush = packageSource.getPackages("NUnit").size();
+            retentionService.flush();
+            //THEN
+            Collection<ClassicNupkg> stored = new ClassicPackageSource(testFolder).getPackages("NUnit");
+            assertEquals("Пакеты не удалены до обработки очереди", 2, beforeFlush);
+            assertEquals("Пакетов в индексе", 1, packageSource.getPackages("NUnit").size());
+            assertEquals("Пакетов в хранилище", 1, stored.size());
+            assertEquals("Сохранена последняя версия", "2.5.9.10348", stored.iterator().next().getVersion().toString());
+            assertEquals("Очередь обработана", 0, retentionService.getPendingSourceCount());
+        } finally {
+            retentionService.close();
+            FileUtils.deleteDirectory(testFolder);
+        }
+    }
+
+    /**
+     * Проверка того, что пакеты, запланированные к удалению из внутреннего
+     * хранилища, удаляются через индекс, созданный фабрикой для этого
+     * хранилища
+     *
+     * @throws Exception ошибка в процессе теста
+     */
+    @Test
+    public void testDeferredRemovalFromUnderlyingSource() throws Exception {
+        //GIVEN
+        File testFolder = new File(File.createTempFile("tmp", "tst").getParentFile(), "RetentionUnderlyingTestFolder/");
+        FileUtils.deleteDirectory(testFolder);
+        RetentionService retentionService = new RetentionService(60000);
+        PackageSourceFactory previousFactory = TestPackageSourceFactory.getCurrentInstance();
+        try (InputStream inputStream = this.getClass().getResourceAsStream("/NUnit.2.5.9.10348.nupkg");
+                TempNupkgFile nupkg = new TempNupkgFile(inputStream)) {
+            testFolder.mkdirs();
+            FileUtils.copyFile(nupkg.getLocalFile(), new File(testFolder, "NUnit.2.5.9.10348.nupkg"));
+            FileUtils.copyFile(nupkg.getLocalFile(), new File(testFolder, "NUnit.2.5.8.10000.nupkg"));
+            ClassicPackageSource underlyingSource = new ClassicPackageSource(testFolder);
+            IndexedPackageSource packageSource = new IndexedPackageSource();
+            packageSource.setUnderlyingSource(underlyingSource, true).join();
+            new TestPackageSourceFactory(packageSource).install();
+            RetentionTrigger trigger = new RetentionTrigger();
+            trigger.setMaxPackageCount(1);
+            trigger.setRetentionService(retentionService);
+            //WHEN
+            trigger.doAction(nupkg, underlyingSource);
+            retentionService.flush();
+            //THEN
+            Collection<ClassicNupkg> stored = new ClassicPackageSource(testFolder).getPackages("NUnit");
+            assertSame("Индекс найден фабрикой", packageSource,
+                    PackageSourceFactory.findIndexedSource(underlyingSource));
+            assertEquals("Пакетов в индексе", 1, packageSource.getPackages("NUnit").size());
+            assertEquals("Пакетов в хранилище", 1, stored.size());
+            assertEquals("Сохранена последняя версия", "2.5.9.10348", stored.iterator().next().getVersion().toString());
+        } finally {
+            TestPackageSourceFactory.setCurrentInstance(previousFactory);
+            retentionService.close();
+            FileUtils.deleteDirectory(testFolder);
+        }
+    }
+
+    /**
+     * Фабрика, содержащая единственное заранее созданное хранилище
+     */
+    private static class TestPackageSourceFactory extends PackageSourceFactory {
+
+        /**
+         * Хранилище пакетов
+         */
+        private final PackageSource<Nupkg> packageSource;
+
+        /**
+         * @param packageSource хранилище пакетов
+         */
+        public TestPackageSourceFactory(PackageSource<Nupkg> packageSource) {
+            this.packageSource = packageSource;
+        }
+
+        @Override
+        protected PackageSource<Nupkg> createPackageSource(StorageOptions storageOptions) {
+            return packageSource;
+        }
+
+        /**
+         * Создает хранилище и делает фабрику текущим экземпляром
+         */
+        public void install() {
+            Options options = new Options();
+            StorageOptions storageOptions = new StorageOptions();
+            storageOptions.setStorageName("storage");
+            options.getStorageOptionsList().add(storageOptions);
+            createPackageSources(options);
+            setCurrentInstance(this);
+        }
+
+        /**
+         * @return текущий экземпляр фабрики (может быть null)
+         */
+        public static PackageSourceFactory getCurrentInstance() {
+            return instance;
+        }
+
+        /**
+         * @param factory текущий экземпляр фабрики
+         */
+        public static void setCurrentInstance(PackageSourceFactory factory) {
+            instance = factory;
+        }
+    }
+}